@@ -0,0 +1,118 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Encode and decode cost of a list page and of an export stream in each format a client can negotiate: the page
+ * envelope of {@code GET /student}, and {@code GET /student/export} as NDJSON for JSON or length-delimited frames for
+ * CBOR and Smile. Payload sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryFormatBenchmark {
+
+   @Param({"json", "cbor", "smile"})
+   private String format;
+
+   @Param({"500"})
+   private int pageSize;
+
+   private ObjectMapper mapper;
+   private ObjectWriter studentWriter;
+   private ObjectReader studentReader;
+   private List<StudentResponseDto> students;
+   private Map<String, Object> pageEnvelope;
+   private byte[] encodedPage;
+   private byte[] encodedStream;
+   private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+
+   public record Page(List<StudentResponseDto> data, Map<String, Object> meta, boolean success) {
+   }
+
+   @Setup
+   public void setUp() throws IOException {
+      mapper = switch (format) {
+         case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+         case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+         default -> Jackson2ObjectMapperBuilder.json().build();
+      };
+      studentWriter = mapper.writerFor(StudentResponseDto.class);
+      studentReader = mapper.readerFor(StudentResponseDto.class);
+
+      students = new ArrayList<>(pageSize);
+      for (int i = 1; i <= pageSize; i++)
+         students.add(new StudentResponseDto(i, "Student " + i, "student" + i + "@gmail.com"));
+      pageEnvelope = StudentController.pageResponse(new StudentPageDto(students, pageSize, 100_000L), pageSize);
+
+      encodedPage = encodePage();
+      encodedStream = encodeStream();
+      System.out.printf("%n%s: page of %d is %d bytes, export stream is %d bytes%n",
+         format, pageSize, encodedPage.length, encodedStream.length);
+   }
+
+   @Benchmark
+   public byte[] encodePage() throws IOException {
+      return mapper.writeValueAsBytes(pageEnvelope);
+   }
+
+   @Benchmark
+   public Page decodePage() throws IOException {
+      return mapper.readValue(encodedPage, Page.class);
+   }
+
+   @Benchmark
+   public byte[] encodeStream() throws IOException {
+      buffer.reset();
+      if (format.equals("json")) {
+         for (StudentResponseDto student : students) {
+            studentWriter.writeValue(buffer, student);
+            buffer.write('\n');
+         }
+      } else {
+         Consumer<StudentResponseDto> frames = LengthDelimitedFrames.writer(studentWriter, buffer);
+         students.forEach(frames);
+      }
+      return buffer.toByteArray();
+   }
+
+   @Benchmark
+   public void decodeStream(Blackhole blackhole) throws IOException {
+      var in = new ByteArrayInputStream(encodedStream);
+      if (format.equals("json")) {
+         var lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+         lines.lines().forEach(line -> {
+            try {
+               blackhole.consume(studentReader.readValue(line));
+            } catch (IOException e) {
+               throw new UncheckedIOException(e);
+            }
+         });
+      } else {
+         LengthDelimitedFrames.read(in, studentReader, blackhole::consume);
+      }
+   }
+}
@@ -0,0 +1,122 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.StreamUtils;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the two response shapes the controller produces, using an ObjectMapper configured the way
+ * Spring Boot configures it, against splicing them from the pre-encoded fragments of {@link StudentJsonCache}. The
+ * {@code *ToStream} variants go through the message converter of each side into a discarding stream, as a response
+ * would; run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+
+   @Param({"50", "500"})
+   private int pageSize;
+
+   private ObjectMapper objectMapper;
+   private List<StudentResponseDto> page;
+   private StudentPageDto studentPage;
+   private StudentJsonCache jsonCache;
+   private MappingJackson2HttpMessageConverter jacksonConverter;
+   private final PreEncodedJsonHttpMessageConverter preEncodedConverter = new PreEncodedJsonHttpMessageConverter();
+   private final OutputStream discard = StreamUtils.nonClosing(OutputStream.nullOutputStream());
+
+   @Setup
+   public void setUp() {
+      objectMapper = Jackson2ObjectMapperBuilder.json().build();
+      page = new ArrayList<>(pageSize);
+      for (int i = 1; i <= pageSize; i++)
+         page.add(new StudentResponseDto(i, "Student " + i, "student" + i + "@gmail.com", 0));
+      studentPage = new StudentPageDto(page, pageSize, 100_000L);
+
+      jacksonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+      jsonCache = new StudentJsonCache(objectMapper, true, pageSize);
+      jsonCache.page(studentPage, pageSize);
+   }
+
+   @Benchmark
+   public byte[] singleStudentEnvelope() throws Exception {
+      return objectMapper.writeValueAsBytes(new ApiResponse<>(
+         true,
+         "Student data: ",
+         page.get(0)));
+   }
+
+   @Benchmark
+   public byte[] listEnvelope() throws Exception {
+      Map<String, Object> meta = new HashMap<>();
+      meta.put("total", 100_000L);
+      meta.put("limit", pageSize);
+      meta.put("nextCursor", pageSize);
+
+      Map<String, Object> response = new HashMap<>();
+      response.put("data", page);
+      response.put("meta", meta);
+      response.put("success", true);
+
+      return objectMapper.writeValueAsBytes(response);
+   }
+
+   @Benchmark
+   public void singleStudentEnvelopeToStream() throws Exception {
+      jacksonConverter.write(new ApiResponse<>(
+         true,
+         "Student data: ",
+         page.get(0)), MediaType.APPLICATION_JSON, new DiscardingOutputMessage(discard));
+   }
+
+   @Benchmark
+   public void singleStudentPreEncodedToStream() throws Exception {
+      preEncodedConverter.write(jsonCache.envelope("Student data: ", page.get(0)), MediaType.APPLICATION_JSON, new DiscardingOutputMessage(discard));
+   }
+
+   @Benchmark
+   public void listEnvelopeToStream() throws Exception {
+      jacksonConverter.write(StudentController.pageResponse(studentPage, pageSize), MediaType.APPLICATION_JSON, new DiscardingOutputMessage(discard));
+   }
+
+   @Benchmark
+   public void listPreEncodedToStream() throws Exception {
+      preEncodedConverter.write(jsonCache.page(studentPage, pageSize), MediaType.APPLICATION_JSON, new DiscardingOutputMessage(discard));
+   }
+
+   private record DiscardingOutputMessage(OutputStream body, HttpHeaders headers) implements HttpOutputMessage {
+
+      DiscardingOutputMessage(OutputStream body) {
+         this(body, new HttpHeaders());
+      }
+
+      @Override
+      public OutputStream getBody() {
+         return body;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+         return headers;
+      }
+   }
+}
@@ -0,0 +1,59 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.model.Student;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory H2 database migrated with the application's Flyway scripts and filled with synthetic students,
+ * shared by the benchmarks that go through real JDBC.
+ */
+public final class EmbeddedDatabase implements AutoCloseable {
+
+   private final SingleConnectionDataSource dataSource;
+   private final JdbcTemplate jdbcTemplate;
+
+   public EmbeddedDatabase(int rows) {
+      dataSource = new SingleConnectionDataSource(
+         "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+      Flyway.configure().dataSource(dataSource).load().migrate();
+      jdbcTemplate = new JdbcTemplate(dataSource);
+
+      StudentDaoImpl dao = new StudentDaoImpl(jdbcTemplate, 500);
+      List<Student> chunk = new ArrayList<>();
+      for (int i = 1; i <= rows; i++) {
+         chunk.add(student(i));
+         if (chunk.size() == 1000 || i == rows) {
+            dao.saveAll(chunk);
+            // the synthetic rows are not changes anyone syncs, and at millions of rows the log would double the heap
+            jdbcTemplate.execute("truncate table student_change");
+            chunk.clear();
+         }
+      }
+   }
+
+   public static Student student(int i) {
+      return new Student(
+         0,
+         "Student " + i,
+         "student" + i + "@gmail.com",
+         LocalDate.of(1990, 1, 1).plusDays(i % 5000),
+         i % 2 == 0 ? "Man" : "Woman");
+   }
+
+   public JdbcTemplate jdbcTemplate() {
+      return jdbcTemplate;
+   }
+
+   @Override
+   public void close() {
+      jdbcTemplate.execute("shutdown");
+      dataSource.destroy();
+   }
+}
@@ -0,0 +1,132 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.model.Student;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The file engine of the file profile on a log of {@code rows} students, in the temporary directory: registrations
+ * with every write forced to disk, by one writer and by sixteen sharing fsyncs; reads by id; and how long opening
+ * the log takes, which is the recovery scan every start does.
+ */
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FileStudentDaoBenchmark {
+
+   @State(Scope.Benchmark)
+   public static class Storage {
+
+      @Param({"1000000"})
+      int rows;
+
+      Path directory;
+      FileStudentDao dao;
+      // registrations made by the benchmark itself, numbered past the fill so their emails never collide
+      final AtomicInteger registered = new AtomicInteger();
+
+      @Setup
+      public void setUp() throws IOException {
+         directory = Files.createTempDirectory("student-log");
+         fill(directory, rows);
+         dao = open(directory);
+      }
+
+      @TearDown
+      public void tearDown() throws Exception {
+         dao.close();
+         FileSystemUtils.deleteRecursively(directory);
+      }
+   }
+
+   static FileStudentDao open(Path directory) {
+      // never compacts, a registration-only load leaves nothing to reclaim
+      return new FileStudentDao(directory, true, 0.5, DataSize.ofTerabytes(1));
+   }
+
+   static void fill(Path directory, int rows) {
+      FileStudentDao dao = open(directory);
+      try {
+         List<Student> chunk = new ArrayList<>();
+         for (int i = 1; i <= rows; i++) {
+            chunk.add(EmbeddedDatabase.student(i));
+            if (chunk.size() == 10_000 || i == rows) {
+               dao.saveAll(chunk);
+               chunk.clear();
+            }
+         }
+      } finally {
+         try {
+            dao.close();
+         } catch (Exception e) {
+            throw new IllegalStateException(e);
+         }
+      }
+   }
+
+   private static Integer save(Storage storage) {
+      return storage.dao.save(EmbeddedDatabase.student(storage.rows + storage.registered.incrementAndGet()));
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.SECONDS)
+   @Threads(1)
+   public Object saveOneWriter(Storage storage) {
+      return save(storage);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.SECONDS)
+   @Threads(16)
+   public Object saveSixteenWriters(Storage storage) {
+      return save(storage);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.AverageTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   public Object getById(Storage storage) {
+      return storage.dao.getById(ThreadLocalRandom.current().nextInt(1, storage.rows + 1));
+   }
+
+   @State(Scope.Benchmark)
+   public static class Recovery {
+
+      @Param({"1000000"})
+      int rows;
+
+      Path directory;
+
+      @Setup
+      public void setUp() throws IOException {
+         directory = Files.createTempDirectory("student-log");
+         fill(directory, rows);
+      }
+
+      @TearDown
+      public void tearDown() throws IOException {
+         FileSystemUtils.deleteRecursively(directory);
+      }
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.SingleShotTime)
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   @Warmup(iterations = 2)
+   @Measurement(iterations = 5)
+   public void recover(Recovery recovery) throws Exception {
+      open(recovery.directory).close();
+   }
+}
@@ -0,0 +1,67 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.model.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second registered the way {@code POST /student} does, one insert and one commit per row, against the way
+ * {@code POST /student/batch} does, one JDBC batch per chunk, on an embedded H2 database. That measures the statement
+ * and commit work batching saves, but not the network round trip per row it also saves against MySQL.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentBatchInsertBenchmark {
+
+   // the default student.batch.chunk-size, so one invocation is one chunk of the bulk endpoint
+   private static final int CHUNK = 500;
+
+   @Param({"10000"})
+   private int rows;
+
+   private EmbeddedDatabase database;
+   private StudentDaoImpl dao;
+   // numbered past the fill so the inserted emails never collide
+   private int next;
+
+   @Setup
+   public void setUp() {
+      database = new EmbeddedDatabase(rows);
+      dao = new StudentDaoImpl(database.jdbcTemplate(), 500);
+      next = rows;
+   }
+
+   @TearDown
+   public void tearDown() {
+      database.close();
+   }
+
+   private List<Student> chunk() {
+      List<Student> students = new ArrayList<>(CHUNK);
+      for (int i = 0; i < CHUNK; i++)
+         students.add(EmbeddedDatabase.student(++next));
+      return students;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(CHUNK)
+   public Object perRowInserts() {
+      List<Integer> ids = new ArrayList<>(CHUNK);
+      for (Student student : chunk())
+         ids.add(dao.save(student));
+      return ids;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(CHUNK)
+   public Object batchedSaveAll() {
+      return dao.saveAll(chunk());
+   }
+}
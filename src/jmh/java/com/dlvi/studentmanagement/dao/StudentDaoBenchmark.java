@@ -0,0 +1,61 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end DAO reads through JDBC against an embedded H2 database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentDaoBenchmark {
+
+   @Param({"10000"})
+   private int rows;
+
+   private EmbeddedDatabase database;
+   private StudentDaoImpl dao;
+
+   @Setup
+   public void setUp() {
+      database = new EmbeddedDatabase(rows);
+      dao = new StudentDaoImpl(database.jdbcTemplate(), 500);
+   }
+
+   @TearDown
+   public void tearDown() {
+      database.close();
+   }
+
+   private int randomId() {
+      return ThreadLocalRandom.current().nextInt(1, rows + 1);
+   }
+
+   @Benchmark
+   public Object getById() {
+      return dao.getById(randomId());
+   }
+
+   @Benchmark
+   public Object getResponseById() {
+      return dao.getResponseById(randomId());
+   }
+
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   public Object listAll() {
+      return dao.listAll();
+   }
+
+   @Benchmark
+   public Object listResponsePage() {
+      return dao.listResponsePage(randomId(), 50, StudentField.ALL);
+   }
+}
@@ -0,0 +1,63 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A roster of students read one lookup at a time, the way the front end used to call GET /student/{id}, against a
+ * single multi-get. Both go through real JDBC, so the difference is the per-statement cost; over a network every
+ * single lookup would also pay a round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentLookupBenchmark {
+
+   @Param({"100000"})
+   private int rows;
+
+   @Param({"10", "50", "200"})
+   private int roster;
+
+   private EmbeddedDatabase database;
+   private StudentDaoImpl dao;
+
+   @Setup
+   public void setUp() {
+      database = new EmbeddedDatabase(rows);
+      dao = new StudentDaoImpl(database.jdbcTemplate(), 500);
+   }
+
+   @TearDown
+   public void tearDown() {
+      database.close();
+   }
+
+   private List<Integer> rosterIds() {
+      List<Integer> ids = new ArrayList<>(roster);
+      for (int i = 0; i < roster; i++)
+         ids.add(ThreadLocalRandom.current().nextInt(1, rows + 1));
+      return ids;
+   }
+
+   @Benchmark
+   public List<StudentResponseDto> singleLookups() {
+      List<StudentResponseDto> found = new ArrayList<>(roster);
+      for (Integer id : rosterIds())
+         dao.getResponseById(id).ifPresent(found::add);
+      return found;
+   }
+
+   @Benchmark
+   public List<StudentResponseDto> multiGet() {
+      return dao.getResponsesByIds(rosterIds());
+   }
+}
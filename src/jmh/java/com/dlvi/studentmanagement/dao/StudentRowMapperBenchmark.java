@@ -0,0 +1,80 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.Student;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning rows into objects, isolated from the driver: the name-based entity mapper used by the
+ * {@code select *} queries versus the index-based projection mapper, over a synthetic in-memory result set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentRowMapperBenchmark {
+
+   @Param({"50", "1000"})
+   private int rows;
+
+   private SimpleResultSet fullRows;
+   private SimpleResultSet projectedRows;
+   private RowMapper<Student> entityMapper;
+   private RowMapper<StudentResponseDto> projectionMapper;
+
+   @Setup
+   public void setUp() {
+      entityMapper = new StudentDaoImpl(null, 500).rowMapper;
+      projectionMapper = StudentDaoImpl.projectionMapper(StudentField.ALL);
+
+      fullRows = new SimpleResultSet();
+      fullRows.addColumn("id", Types.INTEGER, 10, 0);
+      fullRows.addColumn("name", Types.VARCHAR, 100, 0);
+      fullRows.addColumn("email", Types.VARCHAR, 150, 0);
+      fullRows.addColumn("birth_date", Types.DATE, 10, 0);
+      fullRows.addColumn("sex", Types.VARCHAR, 20, 0);
+      fullRows.addColumn("version", Types.INTEGER, 10, 0);
+      fullRows.setAutoClose(false);
+
+      projectedRows = new SimpleResultSet();
+      projectedRows.addColumn("id", Types.INTEGER, 10, 0);
+      projectedRows.addColumn("version", Types.INTEGER, 10, 0);
+      projectedRows.addColumn("name", Types.VARCHAR, 100, 0);
+      projectedRows.addColumn("email", Types.VARCHAR, 150, 0);
+      projectedRows.setAutoClose(false);
+
+      for (int i = 1; i <= rows; i++) {
+         Date birthDate = Date.valueOf(LocalDate.of(1990, 1, 1).plusDays(i % 5000));
+         fullRows.addRow(i, "Student " + i, "student" + i + "@gmail.com", birthDate, i % 2 == 0 ? "Man" : "Woman", 0);
+         projectedRows.addRow(i, 0, "Student " + i, "student" + i + "@gmail.com");
+      }
+   }
+
+   @Benchmark
+   public void entityMapperByName(Blackhole blackhole) throws SQLException {
+      fullRows.beforeFirst();
+      int rowNum = 0;
+      while (fullRows.next())
+         blackhole.consume(entityMapper.mapRow(fullRows, rowNum++));
+   }
+
+   @Benchmark
+   public void projectionMapperByIndex(Blackhole blackhole) throws SQLException {
+      projectedRows.beforeFirst();
+      int rowNum = 0;
+      while (projectedRows.next())
+         blackhole.consume(projectionMapper.mapRow(projectedRows, rowNum++));
+   }
+}
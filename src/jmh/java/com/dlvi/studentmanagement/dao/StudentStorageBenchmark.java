@@ -0,0 +1,93 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.model.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the same DAO calls on both storage engines: JDBC against an embedded H2 database, which is the floor
+ * of what MySQL costs (no network, no disk), and the in-memory engine of the memory profile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class StudentStorageBenchmark {
+
+   @Param({"100000"})
+   private int rows;
+
+   @Param({"jdbc", "memory"})
+   private String engine;
+
+   private EmbeddedDatabase database;
+   private StudentDao dao;
+   // registrations made by the benchmark itself, numbered past the fill so their emails never collide
+   private final AtomicInteger registered = new AtomicInteger();
+
+   @Setup
+   public void setUp() {
+      if (engine.equals("jdbc")) {
+         database = new EmbeddedDatabase(rows);
+         dao = new StudentDaoImpl(database.jdbcTemplate(), 500);
+         return;
+      }
+
+      dao = new InMemoryStudentDao();
+      List<Student> chunk = new ArrayList<>();
+      for (int i = 1; i <= rows; i++) {
+         chunk.add(EmbeddedDatabase.student(i));
+         if (chunk.size() == 1000 || i == rows) {
+            dao.saveAll(chunk);
+            chunk.clear();
+         }
+      }
+   }
+
+   @TearDown
+   public void tearDown() {
+      if (database != null)
+         database.close();
+   }
+
+   private int randomId() {
+      return ThreadLocalRandom.current().nextInt(1, rows + 1);
+   }
+
+   @Benchmark
+   public Object getById() {
+      return dao.getById(randomId());
+   }
+
+   @Benchmark
+   public Object listResponsePage() {
+      return dao.listResponsePage(randomId(), 50, StudentField.ALL);
+   }
+
+   @Benchmark
+   public Object partialUpdate() {
+      return dao.partialUpdate(randomId(), new StudentPatchDto("Renamed " + ThreadLocalRandom.current().nextInt(), null));
+   }
+
+   // a registration and its removal, so the table keeps its size over the run
+   @Benchmark
+   public Object saveAndDelete() {
+      Integer id = dao.save(EmbeddedDatabase.student(rows + registered.incrementAndGet()));
+      return dao.deleteById(id);
+   }
+
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MINUTES)
+   public Object listAll() {
+      return dao.listAll();
+   }
+}
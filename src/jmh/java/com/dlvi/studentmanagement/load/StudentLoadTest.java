@@ -0,0 +1,192 @@
+package com.dlvi.studentmanagement.load;
+
+import com.dlvi.studentmanagement.StudentmanagementApplication;
+import com.dlvi.studentmanagement.dao.EmbeddedDatabase;
+import com.dlvi.studentmanagement.dao.ReactiveStudentDao;
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.model.Student;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-loop load test that boots the application on an in-memory H2 database once per execution mode (blocking on
+ * platform threads, blocking on virtual threads, or WebFlux over R2DBC) and keeps {@code clients} requests in flight
+ * against an endpoint that reads the database, then prints throughput and latency percentiles.
+ * <p>
+ * Run with the benchmark profile on Java 21 so the virtual-thread mode is effective:
+ * <pre>
+ * mvn -P benchmark,java21 -DskipTests test-compile exec:exec@load-test -Dload.args="--clients=5000 --requests=100000"
+ * </pre>
+ * Options: {@code --clients}, {@code --requests}, {@code --rows}, {@code --path}, {@code --modes} (comma separated, any
+ * of {@code platform}, {@code virtual-threads} and {@code reactive}) and {@code --register=true}, which sends every
+ * request as a {@code POST /student} of a new student instead. Any {@code --spring.*} or {@code --student.*} option is
+ * passed on to the application, e.g. {@code --student.registration.group-commit.enabled=false}.
+ */
+public final class StudentLoadTest {
+
+   private static final AtomicInteger NEXT_STUDENT = new AtomicInteger();
+
+   private StudentLoadTest() {
+   }
+
+   public static void main(String[] args) throws Exception {
+      Map<String, String> options = options(args);
+      int clients = Integer.parseInt(options.getOrDefault("clients", "5000"));
+      int requestCount = Integer.parseInt(options.getOrDefault("requests", "100000"));
+      int rows = Integer.parseInt(options.getOrDefault("rows", "10000"));
+      String path = options.getOrDefault("path", "/student?limit=20");
+      List<String> modes = List.of(options.getOrDefault("modes", "platform,virtual-threads,reactive").split(","));
+      boolean register = Boolean.parseBoolean(options.getOrDefault("register", "false"));
+      List<String> applicationArgs = options.entrySet().stream()
+         .filter(option -> option.getKey().startsWith("spring.") || option.getKey().startsWith("student."))
+         .map(option -> "--" + option.getKey() + "=" + option.getValue())
+         .toList();
+
+      List<String> report = new ArrayList<>();
+      for (String mode : modes) {
+         try (ConfigurableApplicationContext context = start(mode, applicationArgs)) {
+            seed(context, rows);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            IntFunction<HttpRequest> requests = register
+               ? registration(URI.create("http://localhost:" + port + "/student"), rows)
+               : query(URI.create("http://localhost:" + port + path));
+            int expectedStatus = register ? 201 : 200;
+
+            run(requests, expectedStatus, Math.min(clients, 500), Math.max(requestCount / 10, 1000));
+            report.add(mode + ": " + run(requests, expectedStatus, clients, requestCount));
+         }
+      }
+
+      System.out.printf("%nclients=%d requests=%d %s java=%s %s%n",
+         clients, requestCount, register ? "POST /student" : "GET " + path, Runtime.version(), applicationArgs);
+      report.forEach(System.out::println);
+   }
+
+   private static ConfigurableApplicationContext start(String mode, List<String> applicationArgs) {
+      System.setProperty("spring.devtools.restart.enabled", "false");
+
+      SpringApplicationBuilder builder = new SpringApplicationBuilder(StudentmanagementApplication.class);
+      if (!mode.equals("platform"))
+         builder.profiles(mode);
+
+      List<String> args = new ArrayList<>(List.of(
+         "--server.port=0",
+         "--server.tomcat.max-connections=20000",
+         "--server.tomcat.accept-count=20000",
+         "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+         "--spring.datasource.username=sa",
+         "--spring.datasource.password=",
+         "--spring.datasource.driver-class-name=org.h2.Driver",
+         "--spring.r2dbc.url=r2dbc:h2:mem:///load-" + mode + "?options=DB_CLOSE_DELAY=-1;MODE=MySQL",
+         "--spring.r2dbc.username=sa",
+         "--spring.r2dbc.password=",
+         "--logging.level.root=WARN"));
+      args.addAll(applicationArgs);
+      return builder.run(args.toArray(String[]::new));
+   }
+
+   private static IntFunction<HttpRequest> query(URI uri) {
+      HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofMinutes(2)).GET().build();
+      return i -> request;
+   }
+
+   // every registration gets an email that neither the seeded rows nor earlier runs have used
+   private static IntFunction<HttpRequest> registration(URI uri, int rows) {
+      return i -> {
+         int n = rows + NEXT_STUDENT.incrementAndGet();
+         String body = "{\"name\":\"Student " + n + "\",\"email\":\"student" + n + "@gmail.com\",\"birthDate\":\"2000-01-01\",\"sex\":\"Man\"}";
+         return HttpRequest.newBuilder(uri)
+            .timeout(Duration.ofMinutes(2))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+      };
+   }
+
+   private static void seed(ConfigurableApplicationContext context, int rows) {
+      // the reactive profile has no JDBC DAO, so it is seeded one insert at a time through R2DBC
+      var reactiveDao = context.getBeanProvider(ReactiveStudentDao.class).getIfAvailable();
+      if (reactiveDao != null) {
+         Flux.range(1, rows).flatMap(i -> reactiveDao.save(EmbeddedDatabase.student(i)), 16).blockLast();
+         return;
+      }
+
+      StudentDao dao = context.getBean(StudentDao.class);
+      List<Student> chunk = new ArrayList<>();
+      for (int i = 1; i <= rows; i++) {
+         chunk.add(EmbeddedDatabase.student(i));
+         if (chunk.size() == 1000 || i == rows) {
+            dao.saveAll(chunk);
+            chunk.clear();
+         }
+      }
+   }
+
+   private static String run(IntFunction<HttpRequest> requestFor, int expectedStatus, int clients, int requests) throws InterruptedException {
+      HttpClient client = HttpClient.newBuilder()
+         .version(HttpClient.Version.HTTP_1_1)
+         .connectTimeout(Duration.ofSeconds(30))
+         .build();
+
+      Semaphore inFlight = new Semaphore(clients);
+      long[] latencies = new long[requests];
+      AtomicInteger errors = new AtomicInteger();
+      CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+
+      long start = System.nanoTime();
+      for (int i = 0; i < requests; i++) {
+         inFlight.acquire();
+         int slot = i;
+         long sent = System.nanoTime();
+         futures[i] = client.sendAsync(requestFor.apply(i), HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, failure) -> {
+               latencies[slot] = System.nanoTime() - sent;
+               if (failure != null || response.statusCode() != expectedStatus)
+                  errors.incrementAndGet();
+               inFlight.release();
+            });
+      }
+      CompletableFuture.allOf(futures).exceptionally(failure -> null).join();
+      long elapsed = System.nanoTime() - start;
+
+      Arrays.sort(latencies);
+      return String.format("%.0f req/s, p50=%.1f ms, p99=%.1f ms, max=%.1f ms, errors=%d",
+         requests / (elapsed / 1e9),
+         percentile(latencies, 0.50),
+         percentile(latencies, 0.99),
+         latencies[latencies.length - 1] / 1e6,
+         errors.get());
+   }
+
+   private static double percentile(long[] sorted, double quantile) {
+      int index = (int) Math.ceil(quantile * sorted.length) - 1;
+      return sorted[Math.max(index, 0)] / 1e6;
+   }
+
+   private static Map<String, String> options(String[] args) {
+      Map<String, String> options = new HashMap<>();
+      for (String arg : args) {
+         if (arg.startsWith("--") && arg.contains("="))
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+      }
+      return options;
+   }
+}
@@ -0,0 +1,61 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.EmbeddedDatabase;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory copies the service layer makes: entity lists mapped into response records with a stream, as the
+ * list endpoint used to do, and response records trimmed to a sparse fieldset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentMappingBenchmark {
+
+   @Param({"50", "10000"})
+   private int rows;
+
+   private List<Student> students;
+   private List<StudentResponseDto> responses;
+   private final Set<StudentField> nameOnly = Set.of(StudentField.NAME);
+
+   @Setup
+   public void setUp() {
+      students = new ArrayList<>(rows);
+      responses = new ArrayList<>(rows);
+      for (int i = 1; i <= rows; i++) {
+         Student student = EmbeddedDatabase.student(i);
+         student.setId(i);
+         students.add(student);
+         responses.add(new StudentResponseDto(i, student.getName(), student.getEmail()));
+      }
+   }
+
+   @Benchmark
+   public List<StudentResponseDto> entityToResponseStream() {
+      return students.stream()
+         .map(student -> new StudentResponseDto(
+            student.getId(),
+            student.getName(),
+            student.getEmail()))
+         .toList();
+   }
+
+   @Benchmark
+   public List<StudentResponseDto> sparseFieldsetSelect() {
+      return responses.stream()
+         .map(student -> student.select(nameOnly))
+         .toList();
+   }
+}
@@ -0,0 +1,107 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.EmbeddedDatabase;
+import com.dlvi.studentmanagement.dao.StudentDaoImpl;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of a search at a million rows: pushed down into SQL, with and without the name index, against what
+ * clients had to do before the endpoint existed, read every student and filter them in memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StudentSearchBenchmark {
+
+   private static final int LIMIT = 50;
+
+   @Param({"1000000"})
+   private int rows;
+
+   private EmbeddedDatabase database;
+   private StudentDaoImpl dao;
+   private StudentService scanningService;
+   private StudentService indexedService;
+
+   // a different term on every call, so neither H2 nor the coalescer can hand back the previous result
+   private static String term() {
+      return String.valueOf(ThreadLocalRandom.current().nextInt(1000, 10000));
+   }
+
+   private static StudentSearchCriteria contains() {
+      return new StudentSearchCriteria(null, term(), null, null, null, null);
+   }
+
+   @Setup
+   public void setUp() {
+      database = new EmbeddedDatabase(rows);
+      dao = new StudentDaoImpl(database.jdbcTemplate(), 500);
+
+      StudentNameIndex nameIndex = new StudentNameIndex(dao, true);
+      nameIndex.build();
+      scanningService = service(new StudentNameIndex(dao, false));
+      indexedService = service(nameIndex);
+   }
+
+   private StudentService service(StudentNameIndex nameIndex) {
+      return new StudentServiceImpl(
+         dao,
+         new StudentCache(false, 1, Duration.ofSeconds(1)),
+         new StudentEmailIndex(dao, 1000, 0.01, Duration.ZERO),
+         nameIndex,
+         new StudentColumns(dao, false),
+         new StudentRegistrationBatcher(dao, null, false, 1, Duration.ZERO, 1, Duration.ZERO),
+         new StudentReadCoalescer(false),
+         new StudentLookupBatcher(dao, false, 1, 1, 1));
+   }
+
+   @TearDown
+   public void tearDown() {
+      database.close();
+   }
+
+   @Benchmark
+   public List<StudentResponseDto> listAllAndFilter() {
+      String term = term();
+      return dao.listAll().stream()
+         .filter(student -> student.getName().contains(term))
+         .limit(LIMIT)
+         .map(student -> new StudentResponseDto(student.getId(), student.getName(), student.getEmail()))
+         .toList();
+   }
+
+   @Benchmark
+   public StudentPageDto nameContainsScan() {
+      return scanningService.searchStudents(contains(), null, LIMIT, null);
+   }
+
+   @Benchmark
+   public StudentPageDto nameContainsIndexed() {
+      return indexedService.searchStudents(contains(), null, LIMIT, null);
+   }
+
+   @Benchmark
+   public StudentPageDto namePrefix() {
+      return scanningService.searchStudents(
+         new StudentSearchCriteria("Student " + term(), null, null, null, null, null), null, LIMIT, null);
+   }
+
+   @Benchmark
+   public StudentPageDto birthRangeAndSex() {
+      LocalDate from = LocalDate.of(1990, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(5000 - 31));
+      return scanningService.searchStudents(
+         new StudentSearchCriteria(null, null, null, from, from.plusDays(30), "Man"), null, LIMIT, null);
+   }
+}
@@ -0,0 +1,113 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentStatsDto;
+import com.dlvi.studentmanagement.model.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The reporting queries behind {@code GET /student/stats} at ten million students: one parallel scan of the columnar
+ * snapshot against what clients did before, aggregating the {@link Student} objects of {@code listAll()}. Setup prints
+ * the heap each representation takes per student; run with
+ * {@code -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=1} to see the scan on a single thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StudentStatsBenchmark {
+
+   private static final List<Double> PERCENTILES = List.of(50.0, 90.0, 99.0);
+
+   @Param({"10000000"})
+   private int rows;
+
+   private StudentStatsService statsService;
+   private List<Student> students;
+   private LocalDate today;
+
+   @Setup
+   public void setUp() {
+      today = LocalDate.now();
+      StudentDao dao = (StudentDao) Proxy.newProxyInstance(StudentDao.class.getClassLoader(),
+         new Class<?>[]{StudentDao.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("streamAll"))
+               throw new UnsupportedOperationException(method.getName());
+            @SuppressWarnings("unchecked")
+            Consumer<Student> action = (Consumer<Student>) args[0];
+            generate(action);
+            return null;
+         });
+
+      long before = usedHeap();
+      long start = System.nanoTime();
+      StudentColumns columns = new StudentColumns(dao, true);
+      columns.build();
+      long built = System.nanoTime() - start;
+      long columnsBytes = usedHeap() - before;
+      statsService = new StudentStatsServiceImpl(columns);
+
+      before = usedHeap();
+      students = new ArrayList<>(rows);
+      generate(students::add);
+      long objectBytes = usedHeap() - before;
+
+      System.out.printf("%ncolumns: built in %d ms, %d bytes/student measured, %d estimated; listAll objects: %d bytes/student%n",
+         built / 1_000_000, columnsBytes / rows, columns.stats().bytesPerRow(), objectBytes / rows);
+   }
+
+   private void generate(Consumer<Student> action) {
+      SplittableRandom random = new SplittableRandom(7);
+      for (int id = 1; id <= rows; id++)
+         action.accept(new Student(id, "Student " + id, "student" + id + "@domain" + random.nextInt(200) + ".com",
+            today.minusDays(16 * 365 + random.nextInt(40 * 365)), random.nextInt(10) < 5 ? "Man" : "Woman"));
+   }
+
+   private static long usedHeap() {
+      for (int i = 0; i < 3; i++)
+         System.gc();
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   @Benchmark
+   public StudentStatsDto columnarScan() {
+      return statsService.stats(5, PERCENTILES, 20);
+   }
+
+   // the same aggregates computed the way a client of listAll() would, one stream per report
+   @Benchmark
+   public Object[] listAllAndAggregate() {
+      Map<String, Long> bySex = students.stream()
+         .collect(Collectors.groupingBy(Student::getSex, Collectors.counting()));
+      Map<Integer, Long> byBirthYear = students.stream()
+         .collect(Collectors.groupingBy(student -> student.getBirthDate().getYear(), TreeMap::new, Collectors.counting()));
+      Map<String, Long> byDomain = students.stream()
+         .collect(Collectors.groupingBy(student -> Student.emailDomain(student.getEmail()), Collectors.counting()));
+      int[] ages = students.stream()
+         .mapToInt(student -> Period.between(student.getBirthDate(), today).getYears())
+         .sorted()
+         .toArray();
+      Map<Integer, Long> histogram = Arrays.stream(ages).boxed()
+         .collect(Collectors.groupingBy(age -> age / 5 * 5, TreeMap::new, Collectors.counting()));
+      int[] percentiles = PERCENTILES.stream()
+         .mapToInt(p -> ages[(int) Math.ceil(p / 100 * ages.length) - 1])
+         .toArray();
+      return new Object[]{bySex, byBirthYear, byDomain, histogram, percentiles};
+   }
+}
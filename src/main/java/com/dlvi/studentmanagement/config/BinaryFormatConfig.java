@@ -0,0 +1,34 @@
+package com.dlvi.studentmanagement.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) representations of every response
+ * Jackson writes, for internal clients that pull large student lists and would rather not parse JSON.
+ * <p>
+ * Spring MVC already registers both converters, after the JSON one, once their Jackson modules are on the classpath;
+ * these beans take their place in that order, so JSON stays the default when a request has no Accept header or accepts
+ * anything, but are built from Boot's configured {@link Jackson2ObjectMapperBuilder} so dates, inclusion and features
+ * match the JSON output.
+ */
+@Profile("!reactive")
+@Configuration(proxyBeanMethods = false)
+public class BinaryFormatConfig {
+
+   @Bean
+   public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+      return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+   }
+
+   @Bean
+   public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+      return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+   }
+}
@@ -0,0 +1,39 @@
+package com.dlvi.studentmanagement.config;
+
+import com.dlvi.studentmanagement.support.BoundedDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the pooled {@link DataSource} in a {@link BoundedDataSource} when {@code student.db.concurrency-limit.enabled}
+ * is set, which the {@code virtual-threads} profile does: with one virtual thread per request the pool, not Tomcat,
+ * becomes the concurrency limit, and queueing on a semaphore is cheaper and easier to observe than queueing inside it.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "student.db.concurrency-limit", name = "enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+
+   @Bean
+   static BeanPostProcessor boundedDataSourcePostProcessor(
+      ObjectProvider<MeterRegistry> meterRegistry,
+      @Value("${student.db.concurrency-limit.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+      @Value("${student.db.concurrency-limit.acquire-timeout:30s}") Duration acquireTimeout) {
+
+      return new BeanPostProcessor() {
+         @Override
+         public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof BoundedDataSource))
+               return new BoundedDataSource(dataSource, permits, acquireTimeout, meterRegistry.getObject());
+            return bean;
+         }
+      };
+   }
+}
@@ -0,0 +1,22 @@
+package com.dlvi.studentmanagement.config;
+
+import com.dlvi.studentmanagement.support.LocalTransactionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * The {@code memory} and {@code file} profiles keep students outside any database and run without a
+ * {@code DataSource}, so Flyway, the JDBC transaction manager and the change log are left out. Transactions there only
+ * decide when the work registered to run after commit happens.
+ */
+@Profile("(memory | file) & !reactive")
+@Configuration(proxyBeanMethods = false)
+public class LocalStorageConfig {
+
+   @Bean
+   public PlatformTransactionManager transactionManager() {
+      return new LocalTransactionManager();
+   }
+}
@@ -0,0 +1,72 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Framing for streaming many binary documents in one response: every frame is a 4-byte big-endian length followed by
+ * that many bytes of a single CBOR or Smile document, and the stream ends with the body. A binary document may contain
+ * any byte, so unlike NDJSON the length, not a separator, tells a reader where the next one starts.
+ */
+final class LengthDelimitedFrames {
+
+   static final String CBOR_VALUE = "application/x-cbor-frames";
+   static final String SMILE_VALUE = "application/x-smile-frames";
+   static final MediaType CBOR = MediaType.parseMediaType(CBOR_VALUE);
+   static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
+   private LengthDelimitedFrames() {
+   }
+
+   /**
+    * Writes each accepted value to {@code out} as one frame, encoding into a buffer that is reused across frames.
+    */
+   static <T> Consumer<T> writer(ObjectWriter writer, OutputStream out) {
+      DataOutputStream frames = new DataOutputStream(out);
+      ByteArrayOutputStream document = new ByteArrayOutputStream(256);
+
+      return value -> {
+         try {
+            document.reset();
+            writer.writeValue(document, value);
+            frames.writeInt(document.size());
+            document.writeTo(frames);
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      };
+   }
+
+   /**
+    * Reads frames until the end of {@code in}, handing every decoded document to {@code consumer}.
+    */
+   static <T> void read(InputStream in, ObjectReader reader, Consumer<T> consumer) throws IOException {
+      DataInputStream frames = new DataInputStream(in);
+      byte[] buffer = new byte[256];
+
+      while (true) {
+         int length;
+         try {
+            length = frames.readInt();
+         } catch (EOFException e) {
+            return;
+         }
+
+         if (length > buffer.length)
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+         frames.readFully(buffer, 0, length);
+         consumer.accept(reader.readValue(buffer, 0, length));
+      }
+   }
+}
@@ -0,0 +1,37 @@
+package com.dlvi.studentmanagement.controller;
+
+/**
+ * A JSON document held as already encoded fragments, written to the response one after the other by
+ * {@link PreEncodedJsonHttpMessageConverter} without being copied into a single buffer or going through Jackson.
+ */
+public final class PreEncodedJson {
+
+   private final byte[][] fragments;
+   private final long length;
+
+   public PreEncodedJson(byte[]... fragments) {
+      this.fragments = fragments;
+      long total = 0;
+      for (byte[] fragment : fragments)
+         total += fragment.length;
+      this.length = total;
+   }
+
+   byte[][] fragments() {
+      return fragments;
+   }
+
+   public long length() {
+      return length;
+   }
+
+   public byte[] toByteArray() {
+      byte[] bytes = new byte[Math.toIntExact(length)];
+      int offset = 0;
+      for (byte[] fragment : fragments) {
+         System.arraycopy(fragment, 0, bytes, offset, fragment.length);
+         offset += fragment.length;
+      }
+      return bytes;
+   }
+}
@@ -0,0 +1,47 @@
+package com.dlvi.studentmanagement.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// picked up by Spring Boot ahead of the Jackson converter; only ever writes, PreEncodedJson is never a request body
+@Component
+public class PreEncodedJsonHttpMessageConverter extends AbstractHttpMessageConverter<PreEncodedJson> {
+
+   public PreEncodedJsonHttpMessageConverter() {
+      super(MediaType.APPLICATION_JSON);
+   }
+
+   @Override
+   protected boolean supports(Class<?> clazz) {
+      return PreEncodedJson.class == clazz;
+   }
+
+   @Override
+   protected boolean canRead(MediaType mediaType) {
+      return false;
+   }
+
+   @Override
+   protected PreEncodedJson readInternal(Class<? extends PreEncodedJson> clazz, HttpInputMessage inputMessage) {
+      throw new HttpMessageNotReadableException("Pre-encoded JSON cannot be read", inputMessage);
+   }
+
+   @Override
+   protected Long getContentLength(PreEncodedJson json, MediaType contentType) {
+      return json.length();
+   }
+
+   @Override
+   protected void writeInternal(PreEncodedJson json, HttpOutputMessage outputMessage) throws IOException {
+      OutputStream body = outputMessage.getBody();
+      for (byte[] fragment : json.fragments())
+         body.write(fragment);
+   }
+}
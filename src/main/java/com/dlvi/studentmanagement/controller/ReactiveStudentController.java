@@ -0,0 +1,96 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentRequestDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.ApiResponse;
+import com.dlvi.studentmanagement.service.ReactiveStudentService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code /student} routes of {@link StudentController} with the same response shapes, served by WebFlux on top of
+ * R2DBC when the {@code reactive} profile is active.
+ */
+@Profile("reactive")
+@Validated
+@RestController
+@RequestMapping("/student")
+public class ReactiveStudentController {
+   private final ReactiveStudentService studentService;
+
+   public ReactiveStudentController(ReactiveStudentService studentService) {
+      this.studentService = studentService;
+   }
+
+   @PostMapping
+   public Mono<ResponseEntity<ApiResponse<StudentResponseDto>>> registerStudent(@Valid @RequestBody StudentRequestDto req) {
+      return studentService.registerStudent(req)
+         .map(responseDto -> ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponse<>(
+            true,
+            "successful registration",
+            responseDto)));
+   }
+
+   @DeleteMapping("/{id}")
+   public Mono<ResponseEntity<ApiResponse<String>>> deleteStudent(@PathVariable @Min(1) Integer id) {
+      return studentService.deleteStudent(id)
+         .then(Mono.fromSupplier(() -> ResponseEntity.ok(new ApiResponse<>(
+            true,
+            "student successfully removed",
+            "{}"))));
+   }
+
+   @GetMapping
+   public Mono<ResponseEntity<Map<String, Object>>> studentList(@RequestParam(required = false) @Min(0) Integer after,
+                                                                @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit,
+                                                                @RequestParam(required = false) Set<StudentField> fields) {
+      return studentService.studentList(after, limit, fields)
+         .map(page -> ResponseEntity.ok(StudentController.pageResponse(page, limit)));
+   }
+
+   // WebFlux writes one JSON document per line and only requests more rows as the client keeps up
+   @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+   public Flux<StudentResponseDto> exportStudents() {
+      return studentService.exportStudents();
+   }
+
+   @GetMapping("/{id}")
+   public Mono<ResponseEntity<ApiResponse<StudentResponseDto>>> getStudent(@PathVariable @Min(1) Integer id,
+                                                                           @RequestParam(required = false) Set<StudentField> fields) {
+      return studentService.getStudent(id)
+         .map(responseDto -> ResponseEntity.ok(new ApiResponse<>(
+            true,
+            "Student data: ",
+            responseDto.select(StudentField.orAll(fields)))));
+   }
+
+   @PatchMapping("/{id}")
+   public Mono<ResponseEntity<StudentResponseDto>> partialUpdate(@PathVariable Integer id,
+                                                                 @Valid @RequestBody StudentPatchDto patch,
+                                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      Integer expectedVersion = StudentController.parseVersion(ifMatch);
+
+      return studentService.patchStudent(id, patch, expectedVersion)
+         .map(response -> {
+            var ok = ResponseEntity.ok();
+            if (expectedVersion != null)
+               ok.eTag(String.valueOf(expectedVersion + 1));
+            return ok.body(response);
+         });
+   }
+}
@@ -0,0 +1,97 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+import com.dlvi.studentmanagement.model.ApiResponse;
+import com.dlvi.studentmanagement.service.StudentChangeFeed;
+import com.dlvi.studentmanagement.service.StudentChangeService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Locale;
+
+// delta sync for mirrors of the student table: pull pages of changes after a sequence, or have them pushed as
+// Server-Sent Events whose ids are the sequences, so a reconnecting EventSource resumes through Last-Event-ID
+@Profile("!reactive & !memory & !file")
+@Validated
+@RestController
+@RequestMapping("/student/changes")
+public class StudentChangeController {
+
+   private final StudentChangeService changeService;
+   private final StudentChangeFeed changeFeed;
+   private final long streamTimeoutMillis;
+
+   public StudentChangeController(StudentChangeService changeService,
+                                  StudentChangeFeed changeFeed,
+                                  @Value("${student.changes.stream.timeout:30m}") Duration streamTimeout) {
+      this.changeService = changeService;
+      this.changeFeed = changeFeed;
+      this.streamTimeoutMillis = streamTimeout.toMillis();
+   }
+
+   @GetMapping
+   public ResponseEntity<ApiResponse<StudentChangePageDto>> changes(@RequestParam(defaultValue = "0") @Min(0) long since,
+                                                                    @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit) {
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         "Student changes",
+         changeService.changes(since, limit)));
+   }
+
+   @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+   public SseEmitter stream(@RequestParam(required = false) @Min(0) Long since,
+                            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+      SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+      StudentChangeFeed.Subscription subscription = changeFeed.subscribe(
+         lastEventId != null ? lastEventId : since,
+         new StudentChangeFeed.Listener() {
+            @Override
+            public void onChange(StudentChangeDto change) {
+               send(emitter, SseEmitter.event()
+                  .id(Long.toString(change.seq()))
+                  .name(change.type().name().toLowerCase(Locale.ROOT))
+                  .data(change, MediaType.APPLICATION_JSON));
+            }
+
+            // overflow: reconnect to resume; expired: resync from GET /student before subscribing again
+            @Override
+            public void onClose(StudentChangeFeed.CloseReason reason) {
+               try {
+                  send(emitter, SseEmitter.event()
+                     .name("close")
+                     .data(reason.name().toLowerCase(Locale.ROOT)));
+               } finally {
+                  emitter.complete();
+               }
+            }
+         });
+
+      emitter.onCompletion(subscription::cancel);
+      emitter.onTimeout(subscription::cancel);
+      emitter.onError(error -> subscription.cancel());
+      return emitter;
+   }
+
+   private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+      try {
+         emitter.send(event);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+}
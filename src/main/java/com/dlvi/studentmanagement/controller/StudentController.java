@@ -1,32 +1,83 @@
 package com.dlvi.studentmanagement.controller;
 
+import com.dlvi.studentmanagement.dto.StudentBatchItemDto;
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentCacheStatsDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentEmailIndexStatsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentLookupDto;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
 import com.dlvi.studentmanagement.dto.StudentRequestDto;
 import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import com.dlvi.studentmanagement.exception.PreconditionFailedException;
 import com.dlvi.studentmanagement.model.ApiResponse;
+import com.dlvi.studentmanagement.service.StudentBatchService;
 import com.dlvi.studentmanagement.service.StudentService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+@Profile("!reactive")
 @Validated
 @RestController
 @RequestMapping("/student")
 public class StudentController {
+   private static final String STUDENT_DATA = "Student data: ";
+   private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
    private final StudentService studentService;
+   private final StudentBatchService studentBatchService;
+   private final ObjectMapper objectMapper;
+   private final StudentJsonCache jsonCache;
+   private final ObjectWriter cborWriter;
+   private final ObjectWriter smileWriter;
 
-   public StudentController(StudentService studentService) {
+   public StudentController(StudentService studentService,
+                            StudentBatchService studentBatchService,
+                            ObjectMapper objectMapper,
+                            StudentJsonCache jsonCache,
+                            MappingJackson2CborHttpMessageConverter cborConverter,
+                            MappingJackson2SmileHttpMessageConverter smileConverter) {
       this.studentService = studentService;
+      this.studentBatchService = studentBatchService;
+      this.objectMapper = objectMapper;
+      this.jsonCache = jsonCache;
+      this.cborWriter = cborConverter.getObjectMapper().writerFor(StudentResponseDto.class);
+      this.smileWriter = smileConverter.getObjectMapper().writerFor(StudentResponseDto.class);
    }
 
-   @Transactional
+   // no surrounding transaction: the insert commits on its own, possibly grouped with concurrent registrations
    @PostMapping
    public ResponseEntity<ApiResponse<StudentResponseDto>> registerStudent(@Valid @RequestBody StudentRequestDto req) {
       StudentResponseDto responseDto = studentService.registerStudent(req);
@@ -37,10 +88,50 @@ public class StudentController {
          responseDto));
    }
 
+   // no surrounding transaction: each chunk commits on its own so one bad row cannot fail the whole batch
+   @PostMapping("/batch")
+   public ResponseEntity<ApiResponse<List<StudentBatchItemDto>>> registerStudents(@RequestBody @NotEmpty @Size(max = 10000) List<StudentRequestDto> req) {
+      List<StudentBatchItemDto> results = studentBatchService.registerStudents(req);
+      long created = results.stream().filter(StudentBatchItemDto::success).count();
+
+      return ResponseEntity.ok(new ApiResponse<>(
+         created == results.size(),
+         created + " of " + results.size() + " students registered",
+         results));
+   }
+
+   // like POST /student/batch, each chunk of ids is deleted in its own transaction
+   @DeleteMapping("/batch")
+   public ResponseEntity<ApiResponse<List<StudentBatchItemDto>>> deleteStudents(@RequestBody @NotEmpty @Size(max = 10000) List<Integer> ids) {
+      return batchResponse(studentBatchService.deleteStudents(ids), "deleted");
+   }
+
+   @PatchMapping("/batch")
+   public ResponseEntity<ApiResponse<List<StudentBatchItemDto>>> patchStudents(@RequestBody @NotEmpty @Size(max = 10000) List<StudentBatchPatchDto> patches) {
+      return batchResponse(studentBatchService.patchStudents(patches), "updated");
+   }
+
+   private ResponseEntity<ApiResponse<List<StudentBatchItemDto>>> batchResponse(List<StudentBatchItemDto> results, String outcome) {
+      long succeeded = 0;
+      for (StudentBatchItemDto result : results) {
+         if (result.success()) {
+            jsonCache.invalidate(result.id());
+            succeeded++;
+         }
+      }
+
+      return ResponseEntity.ok(new ApiResponse<>(
+         succeeded == results.size(),
+         succeeded + " of " + results.size() + " students " + outcome,
+         results));
+   }
+
    @Transactional
    @DeleteMapping("/{id}")
-   public ResponseEntity<ApiResponse<String>> deleteStudent(@PathVariable @Min(1) Integer id) {
-      studentService.deleteStudent(id);
+   public ResponseEntity<ApiResponse<String>> deleteStudent(@PathVariable @Min(1) Integer id,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      studentService.deleteStudent(id, parseVersion(ifMatch));
+      jsonCache.invalidate(id);
       return ResponseEntity.ok(new ApiResponse<>(
          true,
          "student successfully removed",
@@ -48,30 +139,217 @@ public class StudentController {
    }
 
    @GetMapping
-   public ResponseEntity<Map<String, Object>> studentList() {
-      var users = studentService.studentList();
+   public ResponseEntity<?> studentList(@RequestParam(required = false) @Min(0) Integer after,
+                                                          @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit,
+                                                          @RequestParam(required = false) Set<StudentField> fields,
+                                                          WebRequest request) {
+      // a revalidation is answered from the ids and versions of the page alone, nothing is serialised
+      if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+         && request.checkNotModified(studentService.studentListTag(after, limit, fields)))
+         return null;
 
-      Map<String, Object> response = new HashMap<>();
-      response.put("data", users);
-      response.put("meta", Map.of("total", users.size()));
-      response.put("success", true);
+      StudentPageDto page = studentService.studentList(after, limit, fields);
+      var ok = ResponseEntity.ok();
+      if (page.etag() != null)
+         ok.eTag(page.etag());
+      return ok.body(pageBody(page, limit, fields, request));
+   }
+
+   // GET /student?ids=1,2,3 renders a roster with one request and one query instead of one of each per student
+   @GetMapping(params = "ids")
+   public ResponseEntity<ApiResponse<StudentLookupDto>> lookupStudents(@RequestParam @NotEmpty @Size(max = 1000) List<@NotNull Integer> ids,
+                                                                       @RequestParam(required = false) Set<StudentField> fields) {
+      return lookupResponse(studentService.lookupStudents(ids, fields));
+   }
+
+   // the same lookup for id lists too long for a URL
+   @PostMapping("/lookup")
+   public ResponseEntity<ApiResponse<StudentLookupDto>> lookupStudentsByBody(@RequestBody @NotEmpty @Size(max = 10000) List<@NotNull Integer> ids,
+                                                                             @RequestParam(required = false) Set<StudentField> fields) {
+      return lookupResponse(studentService.lookupStudents(ids, fields));
+   }
+
+   private static ResponseEntity<ApiResponse<StudentLookupDto>> lookupResponse(StudentLookupDto lookup) {
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         lookup.data().size() + " of " + (lookup.data().size() + lookup.missing().size()) + " students found",
+         lookup));
+   }
+
+   @GetMapping("/search")
+   public ResponseEntity<?> searchStudents(@Valid StudentSearchCriteria criteria,
+                                                             @RequestParam(required = false) @Min(0) Integer after,
+                                                             @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit,
+                                                             @RequestParam(required = false) Set<StudentField> fields,
+                                                             WebRequest request) {
+      return ResponseEntity.ok(pageBody(studentService.searchStudents(criteria, after, limit, fields), limit, fields, request));
+   }
+
+   // NDJSON unless the client names a framed binary stream, a wildcard Accept keeps the text format
+   @GetMapping(value = "/export", produces = {
+      MediaType.APPLICATION_NDJSON_VALUE, LengthDelimitedFrames.CBOR_VALUE, LengthDelimitedFrames.SMILE_VALUE})
+   public ResponseEntity<StreamingResponseBody> exportStudents(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+      if (names(accept, LengthDelimitedFrames.CBOR))
+         return exportFrames(cborWriter, LengthDelimitedFrames.CBOR);
+      if (names(accept, LengthDelimitedFrames.SMILE))
+         return exportFrames(smileWriter, LengthDelimitedFrames.SMILE);
+
+      StreamingResponseBody body = out -> {
+         try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            // one document per line, terminated by our own newline instead of the default space separator
+            generator.setRootValueSeparator(null);
+            studentService.exportStudents(student -> {
+               try {
+                  generator.writeObject(student);
+                  generator.writeRaw('\n');
+               } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+               }
+            });
+         }
+      };
+
+      return ResponseEntity.ok()
+         .contentType(MediaType.APPLICATION_NDJSON)
+         .body(body);
+   }
+
+   @GetMapping("/cache/stats")
+   public ResponseEntity<ApiResponse<StudentCacheStatsDto>> cacheStats() {
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         "Student cache statistics",
+         studentService.cacheStats()));
+   }
 
-      return ResponseEntity.ok(response);
+   @GetMapping("/email-index/stats")
+   public ResponseEntity<ApiResponse<StudentEmailIndexStatsDto>> emailIndexStats() {
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         "Student email index statistics",
+         studentService.emailIndexStats()));
+   }
+
+   @GetMapping("/counts")
+   public ResponseEntity<ApiResponse<StudentCountsDto>> counts() {
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         "Student counts",
+         studentService.counts()));
    }
 
    @GetMapping("/{id}")
-   public ResponseEntity<ApiResponse<StudentResponseDto>> getStudent(@PathVariable @Min(1) Integer id) {
+   public ResponseEntity<?> getStudent(@PathVariable @Min(1) Integer id,
+                                                                     @RequestParam(required = false) Set<StudentField> fields,
+                                                                     WebRequest request) {
+      Set<StudentField> selected = StudentField.orAll(fields);
+
+      // a revalidation only needs the row version, the row itself is neither loaded nor serialised
+      if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+         Optional<Integer> version = studentService.studentVersion(id);
+         if (version.isPresent() && request.checkNotModified(entityTag(version.get(), selected)))
+            return null;
+      }
+
       var responseDto = studentService.getStudent(id);
 
-      return ResponseEntity.ok(new ApiResponse<>(
+      var ok = ResponseEntity.ok();
+      if (responseDto.version() != null)
+         ok.eTag(entityTag(responseDto.version(), selected));
+
+      // the full representation is spliced from cached JSON instead of serialising a new envelope
+      if (jsonCache.enabled() && selected.containsAll(StudentField.ALL) && negotiatesJson(request))
+         return ok.body(jsonCache.envelope(STUDENT_DATA, responseDto));
+
+      return ok.body(new ApiResponse<>(
          true,
-         "Student data: ",
-         responseDto));
+         STUDENT_DATA,
+         responseDto.select(selected)));
    }
 
+   @Transactional
    @PatchMapping("/{id}")
-   public ResponseEntity<StudentResponseDto> partialUpdate(@PathVariable Integer id, @Valid @RequestBody StudentPatchDto patch) {
-      var response = studentService.patchStudent(id, patch);
-      return ResponseEntity.ok(response);
+   public ResponseEntity<StudentResponseDto> partialUpdate(@PathVariable Integer id,
+                                                           @Valid @RequestBody StudentPatchDto patch,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      Integer expectedVersion = parseVersion(ifMatch);
+      var response = studentService.patchStudent(id, patch, expectedVersion);
+      jsonCache.invalidate(id);
+
+      var ok = ResponseEntity.ok();
+      if (response.version() != null)
+         ok.eTag(String.valueOf(response.version()));
+      return ok.body(response);
+   }
+
+   private ResponseEntity<StreamingResponseBody> exportFrames(ObjectWriter writer, MediaType contentType) {
+      StreamingResponseBody body = out -> studentService.exportStudents(LengthDelimitedFrames.writer(writer, out));
+
+      return ResponseEntity.ok()
+         .contentType(contentType)
+         .body(body);
+   }
+
+   private Object pageBody(StudentPageDto page, int limit, Set<StudentField> fields, WebRequest request) {
+      if (jsonCache.enabled() && StudentField.orAll(fields).containsAll(StudentField.ALL) && negotiatesJson(request))
+         return jsonCache.page(page, limit);
+      return pageResponse(page, limit);
+   }
+
+   // cached JSON can only be written as JSON; a client naming CBOR or Smile anywhere in Accept gets Jackson's
+   // negotiation instead, at the cost of encoding the response
+   static boolean negotiatesJson(WebRequest request) {
+      return !names(request.getHeader(HttpHeaders.ACCEPT), MediaType.APPLICATION_CBOR, SMILE);
+   }
+
+   // whether Accept lists one of the types itself; wildcards do not count
+   static boolean names(String accept, MediaType... types) {
+      if (accept == null)
+         return false;
+
+      try {
+         return MediaType.parseMediaTypes(accept).stream()
+            .anyMatch(accepted -> Arrays.stream(types).anyMatch(accepted::equalsTypeAndSubtype));
+      } catch (InvalidMediaTypeException e) {
+         return false;
+      }
+   }
+
+   static Map<String, Object> pageResponse(StudentPageDto page, int limit) {
+      Map<String, Object> meta = new HashMap<>();
+      // a search does not count its matches
+      if (page.total() >= 0)
+         meta.put("total", page.total());
+      meta.put("limit", limit);
+      meta.put("nextCursor", page.nextCursor());
+
+      Map<String, Object> response = new HashMap<>();
+      response.put("data", page.data());
+      response.put("meta", meta);
+      response.put("success", true);
+      return response;
+   }
+
+   // the full representation gets the row version as a strong tag; a ?fields= projection is a different representation
+   // of the same version, so it only gets a weak one, which If-None-Match still matches but If-Match never does
+   static String entityTag(int version, Set<StudentField> fields) {
+      String tag = "\"" + version + "\"";
+      return fields.containsAll(StudentField.ALL) ? tag : "W/" + tag;
+   }
+
+   // If-Match carries the row version as an entity tag ("3"); absent or * means an unconditional update
+   static Integer parseVersion(String ifMatch) {
+      if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+         return null;
+
+      String tag = ifMatch.trim();
+      if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\""))
+         tag = tag.substring(1, tag.length() - 1);
+
+      try {
+         return Integer.valueOf(tag);
+      } catch (NumberFormatException e) {
+         throw new PreconditionFailedException("If-Match " + ifMatch + " does not match any student version");
+      }
    }
 }
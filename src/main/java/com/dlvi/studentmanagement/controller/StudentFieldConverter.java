@@ -0,0 +1,15 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+// lets ?fields=id,name bind to a Set<StudentField> regardless of case
+@Component
+public class StudentFieldConverter implements Converter<String, StudentField> {
+
+   @Override
+   public StudentField convert(String source) {
+      return StudentField.from(source);
+   }
+}
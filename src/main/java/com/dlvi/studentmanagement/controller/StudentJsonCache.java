@@ -0,0 +1,175 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.support.Transactions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional cache of each student's full JSON representation as an immutable {@code byte[]}, from which response
+ * envelopes are spliced together instead of building an {@link com.dlvi.studentmanagement.model.ApiResponse} and
+ * running Jackson over it on every read.
+ * <p>
+ * Entries remember the row version they were encoded from and are only reused for that version, so a stale entry can
+ * never be served even if an invalidation is missed; patch and delete still invalidate to free the memory early. The
+ * envelope timestamp is encoded once per millisecond.
+ */
+@Profile("!reactive")
+@Component
+public class StudentJsonCache implements MeterBinder {
+
+   private static final byte[] TIMESTAMP_OPEN = ascii("{\"timestamp\":");
+   private static final byte[] ENVELOPE_CLOSE = ascii("}");
+   private static final byte[] PAGE_OPEN = ascii("{\"data\":[");
+   private static final byte[] COMMA = ascii(",");
+   private static final byte[] PAGE_META = ascii("],\"meta\":");
+   private static final byte[] PAGE_CLOSE = ascii(",\"success\":true}");
+
+   private final ObjectMapper objectMapper;
+   private final Clock clock;
+   private final boolean enabled;
+   private final Cache<Integer, Entry> cache;
+   // ,"success":true,"message":"...","data": for each message the controller uses
+   private final Map<String, byte[]> messageFragments = new ConcurrentHashMap<>();
+   private volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, null);
+
+   @Autowired
+   public StudentJsonCache(ObjectMapper objectMapper,
+                           @Value("${student.json-cache.enabled:false}") boolean enabled,
+                           @Value("${student.json-cache.maximum-size:10000}") long maximumSize) {
+      this(objectMapper, Clock.systemDefaultZone(), enabled, maximumSize);
+   }
+
+   StudentJsonCache(ObjectMapper objectMapper, Clock clock, boolean enabled, long maximumSize) {
+      this.objectMapper = objectMapper;
+      this.clock = clock;
+      this.enabled = enabled;
+      this.cache = Caffeine.newBuilder()
+         .maximumSize(maximumSize)
+         .recordStats()
+         .build();
+   }
+
+   public boolean enabled() {
+      return enabled;
+   }
+
+   /**
+    * The same document as a successful {@code ApiResponse} holding the full representation of {@code student}.
+    */
+   public PreEncodedJson envelope(String message, StudentResponseDto student) {
+      return new PreEncodedJson(
+         TIMESTAMP_OPEN,
+         timestamp(),
+         messageFragments.computeIfAbsent(message, this::messageFragment),
+         json(student),
+         ENVELOPE_CLOSE);
+   }
+
+   /**
+    * The same document as {@link StudentController#pageResponse} for a page of full representations.
+    */
+   public PreEncodedJson page(StudentPageDto page, int limit) {
+      List<StudentResponseDto> data = page.data();
+      byte[][] fragments = new byte[Math.max(2 * data.size() - 1, 0) + 4][];
+      int at = 0;
+
+      fragments[at++] = PAGE_OPEN;
+      for (int i = 0; i < data.size(); i++) {
+         if (i > 0)
+            fragments[at++] = COMMA;
+         fragments[at++] = json(data.get(i));
+      }
+      fragments[at++] = PAGE_META;
+      fragments[at++] = meta(page, limit);
+      fragments[at] = PAGE_CLOSE;
+
+      return new PreEncodedJson(fragments);
+   }
+
+   public void invalidate(Integer id) {
+      if (!enabled)
+         return;
+
+      cache.invalidate(id);
+      Transactions.afterCommit(() -> cache.invalidate(id));
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      CaffeineCacheMetrics.monitor(registry, cache, "student-json");
+   }
+
+   // only full representations with a known version are cached, anything else is encoded on every call
+   byte[] json(StudentResponseDto student) {
+      Integer version = student.version();
+      if (!enabled || version == null || student.id() == null || student.name() == null || student.email() == null)
+         return encode(student);
+
+      Entry entry = cache.getIfPresent(student.id());
+      if (entry != null && entry.version() == version)
+         return entry.json();
+
+      byte[] json = encode(student);
+      cache.put(student.id(), new Entry(version, json));
+      return json;
+   }
+
+   private byte[] timestamp() {
+      long now = clock.millis();
+      Timestamp current = timestamp;
+      if (current.millis() != now) {
+         // the same shape Jackson gives the LocalDateTime of an ApiResponse, at millisecond precision
+         current = new Timestamp(now, encode(LocalDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone())));
+         timestamp = current;
+      }
+      return current.json();
+   }
+
+   private byte[] messageFragment(String message) {
+      return (",\"success\":true,\"message\":" + new String(encode(message), StandardCharsets.UTF_8) + ",\"data\":")
+         .getBytes(StandardCharsets.UTF_8);
+   }
+
+   // a search does not count its matches, see StudentController#pageResponse
+   private static byte[] meta(StudentPageDto page, int limit) {
+      String total = page.total() >= 0 ? "\"total\":" + page.total() + "," : "";
+      return ascii("{" + total + "\"limit\":" + limit + ",\"nextCursor\":" + page.nextCursor() + "}");
+   }
+
+   private byte[] encode(Object value) {
+      try {
+         return objectMapper.writeValueAsBytes(value);
+      } catch (JsonProcessingException e) {
+         throw new IllegalStateException("Could not encode " + value.getClass().getSimpleName() + " as JSON", e);
+      }
+   }
+
+   private static byte[] ascii(String value) {
+      return value.getBytes(StandardCharsets.US_ASCII);
+   }
+
+   private record Entry(int version, byte[] json) {
+   }
+
+   private record Timestamp(long millis, byte[] json) {
+   }
+}
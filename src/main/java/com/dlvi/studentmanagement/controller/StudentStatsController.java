@@ -0,0 +1,53 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentColumnsStatsDto;
+import com.dlvi.studentmanagement.dto.StudentStatsDto;
+import com.dlvi.studentmanagement.model.ApiResponse;
+import com.dlvi.studentmanagement.service.StudentStatsService;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// reporting over the in-memory analytics snapshot, so none of these requests reads the student table
+@Profile("!reactive")
+@Validated
+@RestController
+@RequestMapping("/student/stats")
+public class StudentStatsController {
+
+   private final StudentStatsService studentStatsService;
+
+   public StudentStatsController(StudentStatsService studentStatsService) {
+      this.studentStatsService = studentStatsService;
+   }
+
+   @GetMapping
+   public ResponseEntity<ApiResponse<StudentStatsDto>> stats(
+      @RequestParam(defaultValue = "5") @Min(1) @Max(150) int ageBucket,
+      @RequestParam(defaultValue = "50,90,99") List<@DecimalMin(value = "0", inclusive = false) @DecimalMax("100") Double> percentiles,
+      @RequestParam(defaultValue = "20") @Min(1) @Max(1000) int topDomains) {
+
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         "Student statistics",
+         studentStatsService.stats(ageBucket, percentiles, topDomains)));
+   }
+
+   @GetMapping("/snapshot")
+   public ResponseEntity<ApiResponse<StudentColumnsStatsDto>> snapshotStats() {
+      return ResponseEntity.ok(new ApiResponse<>(
+         true,
+         "Student analytics snapshot statistics",
+         studentStatsService.snapshotStats()));
+   }
+}
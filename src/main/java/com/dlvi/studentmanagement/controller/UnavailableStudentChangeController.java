@@ -0,0 +1,20 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.exception.ChangesUnavailableException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// the storage of this profile records no change log, so the routes of StudentChangeController are answered with 501
+// instead of falling through to GET /student/{id}
+@Profile("(memory | file) & !reactive")
+@RestController
+@RequestMapping("/student/changes")
+public class UnavailableStudentChangeController {
+
+   @GetMapping({"", "/stream"})
+   public void changes() {
+      throw new ChangesUnavailableException("Student changes are not recorded with this storage, resync from GET /student");
+   }
+}
@@ -0,0 +1,753 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link StudentDao} persisting students to an append-only {@link StudentLog} in {@code student.storage.file.directory},
+ * for sites without a database server: run with {@code --spring.profiles.active=file}.
+ * <p>
+ * Every write appends the new state of the rows it touches and returns once the log is forced to disk, concurrent writes
+ * sharing one fsync; a write is visible to readers as soon as it is appended. A {@link StudentOffsetIndex} maps each id to
+ * its current record, so reading a student is one lookup and one positional read. The unique email index is kept in
+ * memory, case-insensitively like the MySQL collation, and so are the counts.
+ * <p>
+ * On start the log is scanned: a torn or corrupt tail left by a crash is cut off and the index and emails are rebuilt
+ * from what remains, while a corrupt record with intact ones after it stops the start instead of being cut off. Updates and deletes leave the superseded records behind; once they make up {@code garbage-ratio}
+ * of the log and at least {@code min-garbage}, the live records are copied into a new log that atomically replaces the
+ * old one. Writes wait while that runs, reads do not. Batches are written in one append and are all-or-nothing unless
+ * the process dies in the middle of it. The change log is not written in this mode.
+ */
+@Profile("file & !reactive")
+@Repository
+public class FileStudentDao implements StudentDao, MeterBinder {
+
+   private static final Logger log = LoggerFactory.getLogger(FileStudentDao.class);
+   static final String LOG_FILE = "students.log";
+   private static final String COMPACTION_FILE = "students.log.compact";
+   private static final int COPY_BATCH = 1000;
+   // the column sizes of the student table, in characters, which the log has no schema to enforce
+   private static final int NAME_LENGTH = 100;
+   private static final int EMAIL_LENGTH = 150;
+   private static final int SEX_LENGTH = 20;
+
+   private final Path directory;
+   private final boolean sync;
+   private final double compactionGarbageRatio;
+   private final long compactionMinGarbage;
+   // serialises appends and the reads that decide what to append
+   private final ReentrantLock writeLock = new ReentrantLock();
+   // held shared while records are read through the index, exclusively by compaction to replace the log and index;
+   // always taken after writeLock
+   private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+   // lower-cased email -> id of the student holding it, only changed under writeLock
+   private final ConcurrentMap<String, Integer> emails = new ConcurrentHashMap<>();
+   private final StudentCounters counters;
+   private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "student-log-compactor");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+   private final LongAdder compactions = new LongAdder();
+   private volatile StudentLog studentLog;
+   private volatile StudentOffsetIndex index;
+   // written under writeLock
+   private volatile int lastId;
+   // guarded by writeLock: bytes of superseded records and tombstones, and of the fsyncs of replaced logs
+   private long garbage;
+   private long retiredSyncs;
+   private int generation;
+
+   private record Appended(StudentLog log, long end) {
+   }
+
+   public FileStudentDao(@Value("${student.storage.file.directory:data}") Path directory,
+                         @Value("${student.storage.file.sync:true}") boolean sync,
+                         @Value("${student.storage.file.compaction.garbage-ratio:0.5}") double compactionGarbageRatio,
+                         @Value("${student.storage.file.compaction.min-garbage:64MB}") DataSize compactionMinGarbage) {
+      this.directory = directory;
+      this.sync = sync;
+      this.compactionGarbageRatio = compactionGarbageRatio;
+      this.compactionMinGarbage = compactionMinGarbage.toBytes();
+
+      List<StudentCounters.GroupCount> recovered;
+      try {
+         recovered = open();
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The student log in " + directory + " could not be opened", e);
+      }
+      // loaded before any write can race the first load; nothing else writes the log, so they never need reconciling
+      counters = new StudentCounters(() -> recovered, Duration.ofNanos(Long.MAX_VALUE));
+      counters.total();
+   }
+
+   // rebuilds the index and emails from the log and returns the counts of the students in it
+   private List<StudentCounters.GroupCount> open() throws IOException {
+      long start = System.nanoTime();
+      Files.createDirectories(directory);
+      // a compaction that did not get to replace the log, and the indexes of the previous run
+      Files.deleteIfExists(directory.resolve(COMPACTION_FILE));
+      try (DirectoryStream<Path> indexes = Files.newDirectoryStream(directory, "students*.idx")) {
+         for (Path stale : indexes)
+            Files.delete(stale);
+      }
+
+      index = new StudentOffsetIndex(directory.resolve("students.idx"));
+      int[] maxId = {0};
+      studentLog = StudentLog.recover(directory.resolve(LOG_FILE), sync, (entry, offset, length) -> {
+         maxId[0] = Math.max(maxId[0], entry.id());
+         if (entry.type() != StudentLog.Type.ID_MARK)
+            garbage += locate(index, entry, offset, length);
+      });
+      lastId = maxId[0];
+
+      // second pass: the emails and counts of the records that are still current
+      Map<String, Map<Integer, Long>> groups = new HashMap<>();
+      studentLog.forEach((entry, offset, length) -> {
+         if (entry.type() == StudentLog.Type.PUT && StudentOffsetIndex.offset(index.get(entry.id())) == offset) {
+            emails.put(key(entry.email()), entry.id());
+            groups.computeIfAbsent(entry.sex(), sex -> new HashMap<>()).merge(entry.birthDate().getYear(), 1L, Long::sum);
+         }
+      });
+
+      log.info("Student log recovered with {} students in {} ms, {} bytes of which {} superseded",
+         emails.size(), (System.nanoTime() - start) / 1_000_000, studentLog.size(), garbage);
+
+      List<StudentCounters.GroupCount> counts = new ArrayList<>();
+      groups.forEach((sex, years) -> years.forEach((year, students) ->
+         counts.add(new StudentCounters.GroupCount(sex, year, students))));
+      return counts;
+   }
+
+   @Override
+   public Integer save(Student student) throws DatabaseOperationException {
+      requireColumns(student);
+
+      Appended appended;
+      int id;
+      writeLock.lock();
+      try {
+         String email = key(student.getEmail());
+         if (emails.containsKey(email))
+            throw new EmailAlreadyExistsException("The email " + student.getEmail() + " is already registered");
+
+         id = lastId + 1;
+         appended = append(List.of(put(id, 0, student)));
+         lastId = id;
+         emails.put(email, id);
+         counters.added(student.getSex(), student.getBirthDate().getYear());
+      } finally {
+         writeLock.unlock();
+      }
+
+      awaitDurable(appended);
+      return id;
+   }
+
+   @Override
+   public List<Integer> saveAll(List<Student> students) throws DatabaseOperationException {
+      if (students.isEmpty())
+         return Collections.emptyList();
+      students.forEach(FileStudentDao::requireColumns);
+
+      Appended appended;
+      List<Integer> ids = new ArrayList<>(students.size());
+      writeLock.lock();
+      try {
+         Set<String> batch = new HashSet<>();
+         List<StudentLog.Entry> entries = new ArrayList<>(students.size());
+         for (Student student : students) {
+            String email = key(student.getEmail());
+            if (emails.containsKey(email) || !batch.add(email))
+               throw new DatabaseOperationException("Duplicate entry '" + student.getEmail() + "', the batch was not inserted");
+
+            ids.add(lastId + ids.size() + 1);
+            entries.add(put(ids.get(ids.size() - 1), 0, student));
+         }
+
+         appended = append(entries);
+         lastId += students.size();
+         for (int i = 0; i < students.size(); i++) {
+            emails.put(key(students.get(i).getEmail()), ids.get(i));
+            counters.added(students.get(i).getSex(), students.get(i).getBirthDate().getYear());
+         }
+      } finally {
+         writeLock.unlock();
+      }
+
+      awaitDurable(appended);
+      return ids;
+   }
+
+   @Override
+   public Integer deleteById(Integer id) throws DatabaseOperationException {
+      return deleteById(id, null);
+   }
+
+   @Override
+   public Integer deleteById(Integer id, Integer expectedVersion) throws DatabaseOperationException {
+      Appended appended;
+      writeLock.lock();
+      try {
+         StudentLog.Entry current = readLocked(id);
+         if (current == null || expectedVersion != null && current.version() != expectedVersion)
+            return 0;
+
+         appended = append(List.of(StudentLog.Entry.delete(id)));
+         removed(current);
+      } finally {
+         writeLock.unlock();
+      }
+
+      awaitDurable(appended);
+      return 1;
+   }
+
+   @Override
+   public List<Integer> deleteAllById(Collection<Integer> ids) throws DatabaseOperationException {
+      Appended appended;
+      List<StudentLog.Entry> deleted = new ArrayList<>();
+      writeLock.lock();
+      try {
+         for (Integer id : new LinkedHashSet<>(ids)) {
+            StudentLog.Entry current = readLocked(id);
+            if (current != null)
+               deleted.add(current);
+         }
+         if (deleted.isEmpty())
+            return Collections.emptyList();
+
+         appended = append(deleted.stream().map(entry -> StudentLog.Entry.delete(entry.id())).toList());
+         deleted.forEach(this::removed);
+      } finally {
+         writeLock.unlock();
+      }
+
+      awaitDurable(appended);
+      return deleted.stream().map(StudentLog.Entry::id).toList();
+   }
+
+   @Override
+   public Integer partialUpdate(Integer id, StudentPatchDto patch, Integer expectedVersion) throws DatabaseOperationException {
+      return partialUpdateAll(List.of(new StudentBatchPatchDto(id, expectedVersion, patch)))[0];
+   }
+
+   @Override
+   public int[] partialUpdateAll(List<StudentBatchPatchDto> patches) throws DatabaseOperationException {
+      int[] updated = new int[patches.size()];
+      Appended appended;
+      writeLock.lock();
+      try {
+         // the batch is worked out against its own earlier patches before anything is appended, so a taken email
+         // fails it as a whole
+         Map<Integer, StudentLog.Entry> staged = new HashMap<>();
+         Map<String, Integer> claimed = new HashMap<>();
+         Set<String> released = new HashSet<>();
+         List<StudentLog.Entry> entries = new ArrayList<>();
+
+         for (int i = 0; i < patches.size(); i++) {
+            StudentBatchPatchDto item = patches.get(i);
+            StudentLog.Entry current = staged.containsKey(item.id()) ? staged.get(item.id()) : readLocked(item.id());
+            if (current == null || item.expectedVersion() != null && current.version() != item.expectedVersion())
+               continue;
+
+            StudentPatchDto patch = item.patch();
+            requireLength("name", patch.name(), NAME_LENGTH);
+            requireLength("email", patch.email(), EMAIL_LENGTH);
+            if (patch.email() != null) {
+               String email = key(patch.email());
+               Integer owner = claimed.containsKey(email) ? claimed.get(email) : released.contains(email) ? null : emails.get(email);
+               if (owner != null && owner.intValue() != item.id())
+                  throw new EmailAlreadyExistsException(patches.size() == 1
+                     ? "The email " + patch.email() + " is already registered"
+                     : "One of the " + patches.size() + " emails is already registered");
+
+               String previous = key(current.email());
+               if (!previous.equals(email)) {
+                  claimed.remove(previous);
+                  released.add(previous);
+                  released.remove(email);
+                  claimed.put(email, item.id());
+               }
+            }
+
+            StudentLog.Entry next = StudentLog.Entry.put(
+               item.id(),
+               current.version() + 1,
+               patch.name() == null ? current.name() : patch.name(),
+               patch.email() == null ? current.email() : patch.email(),
+               current.birthDate(),
+               current.sex());
+            staged.put(item.id(), next);
+            entries.add(next);
+            updated[i] = 1;
+         }
+         if (entries.isEmpty())
+            return updated;
+
+         appended = append(entries);
+         released.forEach(emails::remove);
+         emails.putAll(claimed);
+      } finally {
+         writeLock.unlock();
+      }
+
+      awaitDurable(appended);
+      return updated;
+   }
+
+   @Override
+   public List<Student> listAll() throws DatabaseOperationException {
+      List<Student> students = new ArrayList<>();
+      forEachCurrent(entry -> students.add(student(entry)));
+      return students;
+   }
+
+   @Override
+   public Optional<Student> getById(Integer id) throws DatabaseOperationException {
+      return Optional.ofNullable(read(id)).map(FileStudentDao::student);
+   }
+
+   @Override
+   public boolean emailExists(String email) throws DatabaseOperationException {
+      return emails.containsKey(key(email));
+   }
+
+   @Override
+   public Optional<Integer> getVersion(Integer id) throws DatabaseOperationException {
+      return Optional.ofNullable(read(id)).map(StudentLog.Entry::version);
+   }
+
+   @Override
+   public List<Student> listPage(Integer after, int limit) throws DatabaseOperationException {
+      List<Student> page = new ArrayList<>();
+      scan(after, null, limit, null, entry -> page.add(student(entry)));
+      return page;
+   }
+
+   @Override
+   public List<StudentResponseDto> listResponsePage(Integer after, int limit, Set<StudentField> fields) throws DatabaseOperationException {
+      return search(new StudentSearchCriteria(null, null, null, null, null, null), null, after, limit, fields);
+   }
+
+   @Override
+   public List<StudentResponseDto> search(StudentSearchCriteria criteria, Collection<Integer> ids, Integer after, int limit,
+                                          Set<StudentField> fields) throws DatabaseOperationException {
+      boolean withName = fields.contains(StudentField.NAME);
+      boolean withEmail = fields.contains(StudentField.EMAIL);
+      List<StudentResponseDto> found = new ArrayList<>();
+      scan(after, ids, limit, criteria, entry -> found.add(response(entry, withName, withEmail)));
+      return found;
+   }
+
+   @Override
+   public Optional<StudentResponseDto> getResponseById(Integer id) throws DatabaseOperationException {
+      return Optional.ofNullable(read(id)).map(entry -> response(entry, true, true));
+   }
+
+   @Override
+   public List<StudentResponseDto> getResponsesByIds(Collection<Integer> ids) throws DatabaseOperationException {
+      List<StudentResponseDto> found = new ArrayList<>();
+      swapLock.readLock().lock();
+      try {
+         for (Integer id : new HashSet<>(ids)) {
+            StudentLog.Entry entry = readLocked(id);
+            if (entry != null)
+               found.add(response(entry, true, true));
+         }
+         return found;
+      } finally {
+         swapLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public long count() throws DatabaseOperationException {
+      return counters.total();
+   }
+
+   @Override
+   public StudentCountsDto counts() throws DatabaseOperationException {
+      return counters.counts();
+   }
+
+   @Override
+   public void streamAll(Consumer<Student> action) throws DatabaseOperationException {
+      forEachCurrent(entry -> action.accept(student(entry)));
+   }
+
+   @Override
+   public void streamEmails(Consumer<String> action) throws DatabaseOperationException {
+      forEachCurrent(entry -> action.accept(entry.email()));
+   }
+
+   @Override
+   public Set<String> findExistingEmails(Collection<String> emails) throws DatabaseOperationException {
+      return findEmailOwners(emails).keySet();
+   }
+
+   @Override
+   public Map<String, Integer> findEmailOwners(Collection<String> emails) throws DatabaseOperationException {
+      Map<String, Integer> owners = new HashMap<>();
+      for (String email : emails) {
+         Integer owner = this.emails.get(key(email));
+         if (owner != null)
+            owners.put(key(email), owner);
+      }
+      return owners;
+   }
+
+   /**
+    * Copies the current records into a new log that replaces the old one, dropping every superseded record and
+    * tombstone. Writes wait until it is done; reads keep using the old log until the switch.
+    */
+   public void compact() throws DatabaseOperationException {
+      writeLock.lock();
+      try {
+         long start = System.nanoTime();
+         long before = studentLog.size();
+         Path compacted = directory.resolve(COMPACTION_FILE);
+         StudentOffsetIndex nextIndex = new StudentOffsetIndex(directory.resolve("students-" + ++generation + ".idx"));
+         StudentLog next = StudentLog.create(compacted, sync);
+         try {
+            List<StudentLog.Entry> batch = new ArrayList<>(COPY_BATCH);
+            batch.add(StudentLog.Entry.idMark(lastId));
+            for (int id = 1; id <= lastId; id++) {
+               StudentLog.Entry entry = readLocked(id);
+               if (entry != null)
+                  batch.add(entry);
+               if (batch.size() == COPY_BATCH) {
+                  copy(next, nextIndex, batch);
+                  batch.clear();
+               }
+            }
+            copy(next, nextIndex, batch);
+            next.force();
+            Files.move(compacted, directory.resolve(LOG_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+         } catch (IOException | RuntimeException e) {
+            next.close();
+            nextIndex.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+         }
+
+         StudentLog previousLog = studentLog;
+         StudentOffsetIndex previousIndex = index;
+         swapLock.writeLock().lock();
+         try {
+            studentLog = next;
+            index = nextIndex;
+         } finally {
+            swapLock.writeLock().unlock();
+         }
+         garbage = 0;
+         retiredSyncs += previousLog.syncs();
+         previousLog.retire();
+         previousLog.close();
+         previousIndex.close();
+         compactions.increment();
+
+         log.info("Student log compacted from {} to {} bytes in {} ms",
+            before, next.size(), (System.nanoTime() - start) / 1_000_000);
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The student log could not be compacted", e);
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @PreDestroy
+   public void close() throws IOException, InterruptedException {
+      compactor.shutdown();
+      compactor.awaitTermination(1, TimeUnit.MINUTES);
+
+      writeLock.lock();
+      try {
+         studentLog.force();
+         studentLog.close();
+         index.close();
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("student.storage.log.size", this, dao -> dao.studentLog.size())
+         .description("Bytes in the student log")
+         .baseUnit("bytes")
+         .register(registry);
+      Gauge.builder("student.storage.log.garbage", this, dao -> dao.garbage)
+         .description("Bytes of superseded records in the student log, reclaimed by the next compaction")
+         .baseUnit("bytes")
+         .register(registry);
+      FunctionCounter.builder("student.storage.fsyncs", this, dao -> dao.retiredSyncs + dao.studentLog.syncs())
+         .description("Forces of the student log, each making every write appended before it durable")
+         .register(registry);
+      FunctionCounter.builder("student.storage.compactions", compactions, LongAdder::sum)
+         .register(registry);
+   }
+
+   // under writeLock: appends the records, points the index at them and schedules a compaction once enough is garbage
+   private Appended append(List<StudentLog.Entry> entries) {
+      ByteBuffer records;
+      try {
+         records = StudentLog.encode(entries);
+      } catch (IllegalArgumentException e) {
+         throw new DatabaseOperationException("The record could not be written, it does not fit a student log record", e);
+      }
+
+      try {
+         long offset = studentLog.append(records);
+         for (StudentLog.Entry entry : entries) {
+            int length = StudentLog.length(entry);
+            garbage += locate(index, entry, offset, length);
+            offset += length;
+         }
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The student log could not be written", e);
+      }
+
+      if (garbage >= compactionMinGarbage && garbage >= compactionGarbageRatio * studentLog.size()
+         && compactionScheduled.compareAndSet(false, true)) {
+         compactor.execute(() -> {
+            try {
+               compact();
+            } catch (RuntimeException e) {
+               log.warn("The student log could not be compacted, it keeps growing until the next attempt", e);
+            } finally {
+               compactionScheduled.set(false);
+            }
+         });
+      }
+      return new Appended(studentLog, studentLog.size());
+   }
+
+   // points the index at a record and returns how many bytes of the log it turned into garbage
+   private long locate(StudentOffsetIndex target, StudentLog.Entry entry, long offset, int length) throws IOException {
+      long previous = target.get(entry.id());
+      long superseded = previous == 0 ? 0 : StudentOffsetIndex.length(previous);
+      if (entry.type() == StudentLog.Type.PUT) {
+         target.put(entry.id(), offset, length);
+         return superseded;
+      }
+      target.remove(entry.id());
+      return superseded + length;
+   }
+
+   private void copy(StudentLog target, StudentOffsetIndex targetIndex, List<StudentLog.Entry> entries) throws IOException {
+      if (entries.isEmpty())
+         return;
+
+      long offset = target.append(StudentLog.encode(entries));
+      for (StudentLog.Entry entry : entries) {
+         int length = StudentLog.length(entry);
+         if (entry.type() == StudentLog.Type.PUT)
+            targetIndex.put(entry.id(), offset, length);
+         offset += length;
+      }
+   }
+
+   private void awaitDurable(Appended appended) {
+      try {
+         appended.log().awaitDurable(appended.end());
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The student log could not be synced to disk", e);
+      }
+   }
+
+   private void removed(StudentLog.Entry current) {
+      emails.remove(key(current.email()));
+      counters.removed(current.sex(), current.birthDate().getYear());
+   }
+
+   private StudentLog.Entry read(Integer id) {
+      swapLock.readLock().lock();
+      try {
+         return readLocked(id);
+      } finally {
+         swapLock.readLock().unlock();
+      }
+   }
+
+   // under writeLock or swapLock, so the index and log cannot be replaced meanwhile
+   private StudentLog.Entry readLocked(Integer id) {
+      if (id == null)
+         return null;
+
+      long location = index.get(id);
+      if (location == 0)
+         return null;
+      try {
+         return studentLog.read(StudentOffsetIndex.offset(location), StudentOffsetIndex.length(location));
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The record with ID " + id + " could not be read from the student log", e);
+      }
+   }
+
+   // current records in id order after {@code after}, among {@code ids} when given, matching {@code criteria} when given
+   private void scan(Integer after, Collection<Integer> ids, int limit, StudentSearchCriteria criteria,
+                     Consumer<StudentLog.Entry> action) {
+      int from = after == null ? 1 : after + 1;
+      int[] candidates = ids == null ? null : ids.stream().mapToInt(Integer::intValue).filter(id -> id >= from).sorted().distinct().toArray();
+      int last = lastId;
+
+      swapLock.readLock().lock();
+      try {
+         int matched = 0;
+         int count = candidates == null ? Math.max(0, last - Math.max(from, 1) + 1) : candidates.length;
+         for (int i = 0; i < count && matched < limit; i++) {
+            StudentLog.Entry entry = readLocked(candidates == null ? Math.max(from, 1) + i : candidates[i]);
+            if (entry != null && (criteria == null || matches(entry, criteria))) {
+               action.accept(entry);
+               matched++;
+            }
+         }
+      } finally {
+         swapLock.readLock().unlock();
+      }
+   }
+
+   // every current record in id order, as of one moment: the locations are copied while no write can happen, and the
+   // log they point into is retained rather than locked, so a consumer as slow as a client never holds up a compaction,
+   // which replaces the log meanwhile and leaves the old one open until the last record is read
+   private void forEachCurrent(Consumer<StudentLog.Entry> action) {
+      long[] locations;
+      StudentLog snapshotLog;
+      writeLock.lock();
+      try {
+         snapshotLog = studentLog;
+         locations = new long[lastId];
+         for (int id = 1; id <= locations.length; id++)
+            locations[id - 1] = index.get(id);
+         snapshotLog.retain();
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The records could not be read from the student log", e);
+      } finally {
+         writeLock.unlock();
+      }
+
+      try {
+         for (long location : locations) {
+            if (location != 0)
+               action.accept(snapshotLog.read(StudentOffsetIndex.offset(location), StudentOffsetIndex.length(location)));
+         }
+      } catch (IOException e) {
+         throw new DatabaseOperationException("The records could not be read from the student log", e);
+      } finally {
+         try {
+            snapshotLog.release();
+         } catch (IOException e) {
+            log.debug("A replaced student log could not be closed", e);
+         }
+      }
+   }
+
+   // makes the rename of a compacted log durable; not every platform can force a directory
+   private void syncDirectory() {
+      try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+         channel.force(true);
+      } catch (IOException | UncheckedIOException e) {
+         log.debug("The student log directory could not be synced", e);
+      }
+   }
+
+   private static boolean matches(StudentLog.Entry entry, StudentSearchCriteria criteria) {
+      if (criteria.namePrefix() != null
+         && !entry.name().regionMatches(true, 0, criteria.namePrefix(), 0, criteria.namePrefix().length()))
+         return false;
+      if (criteria.nameContains() != null
+         && !entry.name().toLowerCase(Locale.ROOT).contains(criteria.nameContains().toLowerCase(Locale.ROOT)))
+         return false;
+      if (criteria.emailDomain() != null
+         && !Student.emailDomain(entry.email()).equals(criteria.emailDomain().trim().toLowerCase(Locale.ROOT)))
+         return false;
+      if (criteria.sex() != null && !criteria.sex().equalsIgnoreCase(entry.sex()))
+         return false;
+      if (criteria.bornFrom() != null && entry.birthDate().isBefore(criteria.bornFrom()))
+         return false;
+      return criteria.bornTo() == null || !entry.birthDate().isAfter(criteria.bornTo());
+   }
+
+   private static StudentLog.Entry put(int id, int version, Student student) {
+      return StudentLog.Entry.put(id, version, student.getName(), student.getEmail(), student.getBirthDate(), student.getSex());
+   }
+
+   private static Student student(StudentLog.Entry entry) {
+      return new Student(entry.id(), entry.name(), entry.email(), entry.birthDate(), entry.sex());
+   }
+
+   private static StudentResponseDto response(StudentLog.Entry entry, boolean withName, boolean withEmail) {
+      return new StudentResponseDto(entry.id(), withName ? entry.name() : null, withEmail ? entry.email() : null, entry.version());
+   }
+
+   // the columns the table declares not null, and no longer than it declares them
+   private static void requireColumns(Student student) {
+      if (student.getName() == null || student.getEmail() == null || student.getBirthDate() == null)
+         throw new DatabaseOperationException("The record could not be inserted, name, email and birth date are required");
+      requireLength("name", student.getName(), NAME_LENGTH);
+      requireLength("email", student.getEmail(), EMAIL_LENGTH);
+      requireLength("sex", student.getSex(), SEX_LENGTH);
+   }
+
+   private static void requireLength(String column, String value, int length) {
+      if (value != null && value.codePointCount(0, value.length()) > length)
+         throw new DatabaseOperationException("Data too long for column '" + column + "', at most " + length + " characters fit");
+   }
+
+   private static String key(String email) {
+      return email.toLowerCase(Locale.ROOT);
+   }
+}
@@ -0,0 +1,494 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link StudentDao} that keeps every student in memory, for load tests, CI and deployments without a database server:
+ * run with {@code --spring.profiles.active=memory}. Nothing survives a restart.
+ * <p>
+ * Ids come from an {@link AtomicInteger} and are never reused, so they are dense and the table is a directory of
+ * fixed-size {@link AtomicReferenceArray} pages indexed by id rather than a hash map: a lookup is two array reads with
+ * no boxing of the key, and writers replace an immutable row with a compare-and-set. Emails are made unique by
+ * claiming their lower-cased form with {@code putIfAbsent}, case-insensitively like the MySQL collation, and text
+ * filters of {@link #search} compare case-insensitively for the same reason.
+ * <p>
+ * Writers share a read-write lock that {@link #listAll} and {@link #streamAll} take exclusively while they copy the
+ * row references, so those see a consistent snapshot: a write that spans several rows, like {@link #saveAll}, is in it
+ * entirely or not at all. Batch writes are all-or-nothing as in the database, but a surrounding transaction does not
+ * roll anything back, and no change log is written, so the change feed stays empty in this mode.
+ */
+@Profile("memory & !reactive")
+@Repository
+public class InMemoryStudentDao implements StudentDao {
+
+   private static final int PAGE_BITS = 12;
+   private static final int PAGE_SIZE = 1 << PAGE_BITS;
+   private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+   private final AtomicInteger lastId = new AtomicInteger();
+   // lower-cased email -> id of the student holding it
+   private final ConcurrentMap<String, Integer> emails = new ConcurrentHashMap<>();
+   private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+   private final Object growLock = new Object();
+   // only replaced, under growLock, by a longer copy
+   private volatile AtomicReferenceArray<Row>[] pages = newDirectory(0);
+   // nothing else writes the table, so the maintained counts never need reconciling
+   private final StudentCounters counters = new StudentCounters(this::countGroups, Duration.ofNanos(Long.MAX_VALUE));
+
+   // immutable, so a reader always sees all fields of one version of the row
+   private record Row(int id, String name, String email, String emailDomain, LocalDate birthDate, String sex, int version) {
+
+      Student student() {
+         return new Student(id, name, email, birthDate, sex);
+      }
+
+      StudentResponseDto response(boolean withName, boolean withEmail) {
+         return new StudentResponseDto(id, withName ? name : null, withEmail ? email : null, version);
+      }
+   }
+
+   @Override
+   public Integer save(Student student) throws DatabaseOperationException {
+      requireColumns(student);
+
+      snapshotLock.readLock().lock();
+      try {
+         int id = lastId.incrementAndGet();
+         if (emails.putIfAbsent(key(student.getEmail()), id) != null)
+            throw new EmailAlreadyExistsException("The email " + student.getEmail() + " is already registered");
+
+         insert(id, student);
+         return id;
+      } finally {
+         snapshotLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public List<Integer> saveAll(List<Student> students) throws DatabaseOperationException {
+      if (students.isEmpty())
+         return Collections.emptyList();
+      students.forEach(InMemoryStudentDao::requireColumns);
+
+      snapshotLock.readLock().lock();
+      try {
+         // ids are taken as one block, like the generated keys of a single batch insert
+         int first = lastId.addAndGet(students.size()) - students.size() + 1;
+         for (int i = 0; i < students.size(); i++) {
+            if (emails.putIfAbsent(key(students.get(i).getEmail()), first + i) != null) {
+               for (int claimed = 0; claimed < i; claimed++)
+                  emails.remove(key(students.get(claimed).getEmail()), first + claimed);
+               throw new DatabaseOperationException("Duplicate entry '" + students.get(i).getEmail() + "', the batch was not inserted");
+            }
+         }
+
+         List<Integer> ids = new ArrayList<>(students.size());
+         for (int i = 0; i < students.size(); i++) {
+            insert(first + i, students.get(i));
+            ids.add(first + i);
+         }
+         return ids;
+      } finally {
+         snapshotLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public Integer deleteById(Integer id) throws DatabaseOperationException {
+      return deleteById(id, null);
+   }
+
+   @Override
+   public Integer deleteById(Integer id, Integer expectedVersion) throws DatabaseOperationException {
+      snapshotLock.readLock().lock();
+      try {
+         return delete(id, expectedVersion) ? 1 : 0;
+      } finally {
+         snapshotLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public List<Integer> deleteAllById(Collection<Integer> ids) throws DatabaseOperationException {
+      List<Integer> deleted = new ArrayList<>();
+
+      snapshotLock.readLock().lock();
+      try {
+         for (Integer id : new LinkedHashSet<>(ids)) {
+            if (delete(id, null))
+               deleted.add(id);
+         }
+         return deleted;
+      } finally {
+         snapshotLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public Integer partialUpdate(Integer id, StudentPatchDto patch, Integer expectedVersion) throws DatabaseOperationException {
+      snapshotLock.readLock().lock();
+      try {
+         return update(id, patch, expectedVersion) ? 1 : 0;
+      } finally {
+         snapshotLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public int[] partialUpdateAll(List<StudentBatchPatchDto> patches) throws DatabaseOperationException {
+      snapshotLock.readLock().lock();
+      try {
+         // every new email is claimed before any row changes, so a taken one fails the batch as a whole like the
+         // rolled back transaction does; the claims of patches that end up matching no row are given back after
+         Map<String, Integer> claimed = new HashMap<>();
+         for (StudentBatchPatchDto item : patches) {
+            if (item.patch().email() == null)
+               continue;
+
+            String email = key(item.patch().email());
+            Integer owner = emails.putIfAbsent(email, item.id());
+            if (owner == null) {
+               claimed.put(email, item.id());
+            } else if (owner != item.id().intValue()) {
+               claimed.forEach(emails::remove);
+               throw new EmailAlreadyExistsException("One of the " + patches.size() + " emails is already registered");
+            }
+         }
+
+         int[] updated = new int[patches.size()];
+         for (int i = 0; i < patches.size(); i++)
+            updated[i] = update(patches.get(i).id(), patches.get(i).patch(), patches.get(i).expectedVersion()) ? 1 : 0;
+
+         claimed.forEach((email, id) -> {
+            Row row = row(id);
+            if (row == null || !key(row.email()).equals(email))
+               emails.remove(email, id);
+         });
+         return updated;
+      } finally {
+         snapshotLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public List<Student> listAll() throws DatabaseOperationException {
+      List<Row> rows = snapshot();
+      List<Student> students = new ArrayList<>(rows.size());
+      for (Row row : rows)
+         students.add(row.student());
+      return students;
+   }
+
+   @Override
+   public Optional<Student> getById(Integer id) throws DatabaseOperationException {
+      return Optional.ofNullable(row(id)).map(Row::student);
+   }
+
+   @Override
+   public boolean emailExists(String email) throws DatabaseOperationException {
+      return owner(key(email)) != null;
+   }
+
+   @Override
+   public Optional<Integer> getVersion(Integer id) throws DatabaseOperationException {
+      return Optional.ofNullable(row(id)).map(Row::version);
+   }
+
+   @Override
+   public List<Student> listPage(Integer after, int limit) throws DatabaseOperationException {
+      List<Student> page = new ArrayList<>(Math.min(limit, PAGE_SIZE));
+      int last = lastId.get();
+      for (int id = after == null ? 1 : after + 1; id > 0 && id <= last && page.size() < limit; id++) {
+         Row row = row(id);
+         if (row != null)
+            page.add(row.student());
+      }
+      return page;
+   }
+
+   @Override
+   public List<StudentResponseDto> listResponsePage(Integer after, int limit, Set<StudentField> fields) throws DatabaseOperationException {
+      return search(new StudentSearchCriteria(null, null, null, null, null, null), null, after, limit, fields);
+   }
+
+   @Override
+   public List<StudentResponseDto> search(StudentSearchCriteria criteria, Collection<Integer> ids, Integer after, int limit,
+                                          Set<StudentField> fields) throws DatabaseOperationException {
+      boolean withName = fields.contains(StudentField.NAME);
+      boolean withEmail = fields.contains(StudentField.EMAIL);
+      int from = after == null ? 1 : after + 1;
+      List<StudentResponseDto> found = new ArrayList<>(Math.min(limit, PAGE_SIZE));
+
+      if (ids != null) {
+         int[] candidates = ids.stream().mapToInt(Integer::intValue).filter(id -> id >= from).sorted().distinct().toArray();
+         for (int i = 0; i < candidates.length && found.size() < limit; i++) {
+            Row row = row(candidates[i]);
+            if (row != null && matches(row, criteria))
+               found.add(row.response(withName, withEmail));
+         }
+         return found;
+      }
+
+      int last = lastId.get();
+      for (int id = Math.max(from, 1); id <= last && found.size() < limit; id++) {
+         Row row = row(id);
+         if (row != null && matches(row, criteria))
+            found.add(row.response(withName, withEmail));
+      }
+      return found;
+   }
+
+   @Override
+   public Optional<StudentResponseDto> getResponseById(Integer id) throws DatabaseOperationException {
+      return Optional.ofNullable(row(id)).map(row -> row.response(true, true));
+   }
+
+   @Override
+   public List<StudentResponseDto> getResponsesByIds(Collection<Integer> ids) throws DatabaseOperationException {
+      List<StudentResponseDto> found = new ArrayList<>();
+      for (Integer id : new HashSet<>(ids)) {
+         Row row = row(id);
+         if (row != null)
+            found.add(row.response(true, true));
+      }
+      return found;
+   }
+
+   @Override
+   public long count() throws DatabaseOperationException {
+      return counters.total();
+   }
+
+   @Override
+   public StudentCountsDto counts() throws DatabaseOperationException {
+      return counters.counts();
+   }
+
+   @Override
+   public void streamAll(Consumer<Student> action) throws DatabaseOperationException {
+      for (Row row : snapshot())
+         action.accept(row.student());
+   }
+
+   @Override
+   public void streamEmails(Consumer<String> action) throws DatabaseOperationException {
+      for (Row row : snapshot())
+         action.accept(row.email());
+   }
+
+   @Override
+   public Set<String> findExistingEmails(Collection<String> emails) throws DatabaseOperationException {
+      return findEmailOwners(emails).keySet();
+   }
+
+   @Override
+   public Map<String, Integer> findEmailOwners(Collection<String> emails) throws DatabaseOperationException {
+      Map<String, Integer> owners = new HashMap<>();
+      for (String email : emails) {
+         String key = key(email);
+         Integer owner = owner(key);
+         if (owner != null)
+            owners.put(key, owner);
+      }
+      return owners;
+   }
+
+   private boolean delete(Integer id, Integer expectedVersion) {
+      AtomicReferenceArray<Row> page = page(id);
+      if (page == null)
+         return false;
+
+      while (true) {
+         Row current = page.get(id & PAGE_MASK);
+         if (current == null || expectedVersion != null && current.version() != expectedVersion)
+            return false;
+
+         if (page.compareAndSet(id & PAGE_MASK, current, null)) {
+            emails.remove(key(current.email()), id);
+            counters.removed(current.sex(), current.birthDate().getYear());
+            return true;
+         }
+      }
+   }
+
+   private boolean update(Integer id, StudentPatchDto patch, Integer expectedVersion) {
+      AtomicReferenceArray<Row> page = page(id);
+      if (page == null)
+         return false;
+
+      String email = patch.email() == null ? null : key(patch.email());
+      boolean claimed = false;
+      if (email != null) {
+         Integer owner = emails.putIfAbsent(email, id);
+         if (owner != null && owner.intValue() != id)
+            throw new EmailAlreadyExistsException("The email " + patch.email() + " is already registered");
+         claimed = owner == null;
+      }
+
+      while (true) {
+         Row current = page.get(id & PAGE_MASK);
+         if (current == null || expectedVersion != null && current.version() != expectedVersion) {
+            if (claimed)
+               emails.remove(email, id);
+            return false;
+         }
+
+         Row next = new Row(
+            id,
+            patch.name() == null ? current.name() : patch.name(),
+            patch.email() == null ? current.email() : patch.email(),
+            patch.email() == null ? current.emailDomain() : Student.emailDomain(patch.email()),
+            current.birthDate(),
+            current.sex(),
+            current.version() + 1);
+         if (page.compareAndSet(id & PAGE_MASK, current, next)) {
+            String previous = key(current.email());
+            if (email != null && !previous.equals(email))
+               emails.remove(previous, id);
+            return true;
+         }
+      }
+   }
+
+   private void insert(int id, Student student) {
+      pageFor(id).set(id & PAGE_MASK, new Row(
+         id,
+         student.getName(),
+         student.getEmail(),
+         Student.emailDomain(student.getEmail()),
+         student.getBirthDate(),
+         student.getSex(),
+         0));
+      counters.added(student.getSex(), student.getBirthDate().getYear());
+   }
+
+   // the owner of a claimed email only counts once its row is stored, and as long as it still holds that email
+   private Integer owner(String key) {
+      Integer id = emails.get(key);
+      if (id == null)
+         return null;
+
+      Row row = row(id);
+      return row != null && key(row.email()).equals(key) ? id : null;
+   }
+
+   private Row row(Integer id) {
+      AtomicReferenceArray<Row> page = id == null ? null : page(id);
+      return page == null ? null : page.get(id & PAGE_MASK);
+   }
+
+   private AtomicReferenceArray<Row> page(int id) {
+      AtomicReferenceArray<Row>[] directory = pages;
+      int index = id >>> PAGE_BITS;
+      return id <= 0 || index >= directory.length ? null : directory[index];
+   }
+
+   private AtomicReferenceArray<Row> pageFor(int id) {
+      AtomicReferenceArray<Row> page = page(id);
+      if (page != null)
+         return page;
+
+      synchronized (growLock) {
+         AtomicReferenceArray<Row>[] directory = pages;
+         int index = id >>> PAGE_BITS;
+         if (index >= directory.length) {
+            AtomicReferenceArray<Row>[] grown = Arrays.copyOf(directory, Math.max(index + 1, directory.length * 2));
+            for (int i = directory.length; i < grown.length; i++)
+               grown[i] = new AtomicReferenceArray<>(PAGE_SIZE);
+            pages = grown;
+            directory = grown;
+         }
+         return directory[index];
+      }
+   }
+
+   // every stored row in id order, while no writer is between its first and last change
+   private List<Row> snapshot() {
+      snapshotLock.writeLock().lock();
+      try {
+         List<Row> rows = new ArrayList<>();
+         int last = lastId.get();
+         for (int id = 1; id <= last; id++) {
+            Row row = row(id);
+            if (row != null)
+               rows.add(row);
+         }
+         return rows;
+      } finally {
+         snapshotLock.writeLock().unlock();
+      }
+   }
+
+   private List<StudentCounters.GroupCount> countGroups() {
+      Map<String, Map<Integer, Long>> groups = new HashMap<>();
+      for (Row row : snapshot())
+         groups.computeIfAbsent(row.sex(), sex -> new HashMap<>()).merge(row.birthDate().getYear(), 1L, Long::sum);
+
+      List<StudentCounters.GroupCount> counts = new ArrayList<>();
+      groups.forEach((sex, years) -> years.forEach((year, students) ->
+         counts.add(new StudentCounters.GroupCount(sex, year, students))));
+      return counts;
+   }
+
+   private static boolean matches(Row row, StudentSearchCriteria criteria) {
+      if (criteria.namePrefix() != null
+         && !row.name().regionMatches(true, 0, criteria.namePrefix(), 0, criteria.namePrefix().length()))
+         return false;
+      if (criteria.nameContains() != null
+         && !row.name().toLowerCase(Locale.ROOT).contains(criteria.nameContains().toLowerCase(Locale.ROOT)))
+         return false;
+      if (criteria.emailDomain() != null && !row.emailDomain().equals(criteria.emailDomain().trim().toLowerCase(Locale.ROOT)))
+         return false;
+      if (criteria.sex() != null && !criteria.sex().equalsIgnoreCase(row.sex()))
+         return false;
+      if (criteria.bornFrom() != null && row.birthDate().isBefore(criteria.bornFrom()))
+         return false;
+      return criteria.bornTo() == null || !row.birthDate().isAfter(criteria.bornTo());
+   }
+
+   // the columns the table declares not null
+   private static void requireColumns(Student student) {
+      if (student.getName() == null || student.getEmail() == null || student.getBirthDate() == null)
+         throw new DatabaseOperationException("The record could not be inserted, name, email and birth date are required");
+   }
+
+   private static String key(String email) {
+      return email.toLowerCase(Locale.ROOT);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static AtomicReferenceArray<Row>[] newDirectory(int length) {
+      return new AtomicReferenceArray[length];
+   }
+}
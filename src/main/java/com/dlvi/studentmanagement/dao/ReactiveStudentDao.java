@@ -0,0 +1,49 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.Student;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Non-blocking counterpart of {@link StudentDao} on R2DBC. Failures are signalled as
+ * {@link com.dlvi.studentmanagement.exception.DatabaseOperationException}, or
+ * {@link com.dlvi.studentmanagement.exception.EmailAlreadyExistsException} when the unique email index is violated.
+ */
+public interface ReactiveStudentDao {
+
+   Mono<Integer> save(Student student);
+
+   Mono<Integer> deleteById(Integer id);
+
+   /**
+    * Emits every student in id order as the subscriber requests them; rows are fetched from the database as demand
+    * arrives instead of being collected first.
+    */
+   Flux<Student> listAll();
+
+   Mono<Student> getById(Integer id);
+
+   Mono<Boolean> emailExists(String email);
+
+   /**
+    * Same contract as {@link StudentDao#partialUpdate(Integer, StudentPatchDto, Integer)}.
+    */
+   Mono<Integer> partialUpdate(Integer id, StudentPatchDto patch, Integer expectedVersion);
+
+   Mono<Integer> getVersion(Integer id);
+
+   /**
+    * Same keyset page as {@link StudentDao#listResponsePage}.
+    */
+   Flux<StudentResponseDto> listResponsePage(Integer after, int limit, Set<StudentField> fields);
+
+   Mono<StudentResponseDto> getResponseById(Integer id);
+
+   Mono<Long> count();
+
+}
@@ -0,0 +1,197 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.function.Function;
+
+@Profile("reactive")
+@Repository
+public class ReactiveStudentDaoImpl implements ReactiveStudentDao {
+
+   private final DatabaseClient databaseClient;
+   private final int exportFetchSize;
+
+   public ReactiveStudentDaoImpl(DatabaseClient databaseClient,
+                                 @Value("${student.export.fetch-size:500}") int exportFetchSize) {
+      this.databaseClient = databaseClient;
+      this.exportFetchSize = exportFetchSize;
+   }
+
+   @Override
+   public Mono<Integer> save(Student student) {
+      DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into student (name, email, email_domain, birth_date, sex) values (:name, :email, :emailDomain, :birthDate, :sex)")
+         .bind("name", student.getName())
+         .bind("email", student.getEmail())
+         .bind("emailDomain", Student.emailDomain(student.getEmail()))
+         .bind("birthDate", student.getBirthDate());
+      spec = student.getSex() == null ? spec.bindNull("sex", String.class) : spec.bind("sex", student.getSex());
+
+      return spec
+         .filter(statement -> statement.returnGeneratedValues("id"))
+         .map(row -> row.get(0, Integer.class))
+         .one()
+         .switchIfEmpty(Mono.error(() -> new DatabaseOperationException("The record was not inserted, no key generated.")))
+         .onErrorMap(DuplicateKeyException.class,
+            e -> new EmailAlreadyExistsException("The email " + student.getEmail() + " is already registered"))
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The record could not be inserted into the database", e));
+   }
+
+   @Override
+   public Mono<Integer> deleteById(Integer id) {
+      return databaseClient.sql("delete from student where id = :id")
+         .bind("id", id)
+         .fetch()
+         .rowsUpdated()
+         .map(Long::intValue)
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The record with ID " + id + " could not be deleted from the database", e));
+   }
+
+   @Override
+   public Flux<Student> listAll() {
+      return databaseClient.sql("select * from student order by id")
+         // a hint for drivers that fetch by cursor, so demand is served a window of rows at a time
+         .filter(statement -> statement.fetchSize(exportFetchSize))
+         .map(ReactiveStudentDaoImpl::student)
+         .all()
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The records could not be retrieved from the database", e));
+   }
+
+   @Override
+   public Mono<Student> getById(Integer id) {
+      return databaseClient.sql("select * from student where id = :id")
+         .bind("id", id)
+         .map(ReactiveStudentDaoImpl::student)
+         .one()
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The record with ID " + id + " could not be retrieved from the database", e));
+   }
+
+   @Override
+   public Mono<Boolean> emailExists(String email) {
+      return databaseClient.sql("select count(*) from student where email = :email")
+         .bind("email", email)
+         .map(row -> row.get(0, Long.class))
+         .one()
+         .map(count -> count > 0)
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("An error occurred while checking if the email '" + email + "' exists in the database", e));
+   }
+
+   @Override
+   public Mono<Integer> partialUpdate(Integer id, StudentPatchDto req, Integer expectedVersion) {
+      StringBuilder sql = new StringBuilder("update student set ");
+      if (req.name() != null)
+         sql.append("name = :name, ");
+      if (req.email() != null)
+         sql.append("email = :email, email_domain = :emailDomain, ");
+      sql.append("version = version + 1 where id = :id");
+      if (expectedVersion != null)
+         sql.append(" and version = :version");
+
+      DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("id", id);
+      if (req.name() != null)
+         spec = spec.bind("name", req.name());
+      if (req.email() != null)
+         spec = spec.bind("email", req.email()).bind("emailDomain", Student.emailDomain(req.email()));
+      if (expectedVersion != null)
+         spec = spec.bind("version", expectedVersion);
+
+      return spec.fetch()
+         .rowsUpdated()
+         .map(Long::intValue)
+         .onErrorMap(DuplicateKeyException.class,
+            e -> new EmailAlreadyExistsException("The email " + req.email() + " is already registered"))
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The record could not be partially updated in the database", e));
+   }
+
+   @Override
+   public Mono<Integer> getVersion(Integer id) {
+      return databaseClient.sql("select version from student where id = :id")
+         .bind("id", id)
+         .map(row -> row.get(0, Integer.class))
+         .one()
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The version of the record with ID " + id + " could not be retrieved from the database", e));
+   }
+
+   @Override
+   public Flux<StudentResponseDto> listResponsePage(Integer after, int limit, Set<StudentField> fields) {
+      return databaseClient.sql("select " + projection(fields) + " from student where id > :after order by id limit :limit")
+         .bind("after", after == null ? 0 : after)
+         .bind("limit", limit)
+         .map(projectionMapper(fields))
+         .all()
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The records after ID " + after + " could not be retrieved from the database", e));
+   }
+
+   @Override
+   public Mono<StudentResponseDto> getResponseById(Integer id) {
+      return databaseClient.sql("select id, name, email from student where id = :id")
+         .bind("id", id)
+         .map(projectionMapper(StudentField.ALL))
+         .one()
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The record with ID " + id + " could not be retrieved from the database", e));
+   }
+
+   @Override
+   public Mono<Long> count() {
+      return databaseClient.sql("select count(*) from student")
+         .map(row -> row.get(0, Long.class))
+         .one()
+         .onErrorMap(DataAccessException.class,
+            e -> new DatabaseOperationException("The records could not be counted in the database", e));
+   }
+
+   private static Student student(Readable row) {
+      return new Student(
+         row.get("id", Integer.class),
+         row.get("name", String.class),
+         row.get("email", String.class),
+         row.get("birth_date", LocalDate.class),
+         row.get("sex", String.class));
+   }
+
+   // same column order as StudentDaoImpl: id first, then the other selected columns in StudentField order
+   private static String projection(Set<StudentField> fields) {
+      StringBuilder columns = new StringBuilder("id");
+      for (StudentField field : StudentField.values())
+         if (field != StudentField.ID && fields.contains(field))
+            columns.append(", ").append(field.column());
+      return columns.toString();
+   }
+
+   private static Function<Readable, StudentResponseDto> projectionMapper(Set<StudentField> fields) {
+      boolean name = fields.contains(StudentField.NAME);
+      boolean email = fields.contains(StudentField.EMAIL);
+
+      return row -> {
+         int column = 1;
+         return new StudentResponseDto(
+            row.get(0, Integer.class),
+            name ? row.get(column++, String.class) : null,
+            email ? row.get(column, String.class) : null);
+      };
+   }
+}
@@ -0,0 +1,45 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reads and trims the change log that {@link StudentDao} writes append to.
+ */
+public interface StudentChangeDao {
+
+   /**
+    * Up to {@code limit} published changes after {@code since}, in sequence order.
+    */
+   List<StudentChangeDto> changesSince(long since, int limit) throws DatabaseOperationException;
+
+   /**
+    * Sequence of the last published change; every change published later gets a higher one.
+    */
+   long latestSequence() throws DatabaseOperationException;
+
+   /**
+    * Gives up to {@code limit} committed but unpublished changes the next sequences, and returns how many it published.
+    * Only committed changes are seen, so sequences follow commit order and a reader never skips a late commit.
+    */
+   int publish(int limit) throws DatabaseOperationException;
+
+   /**
+    * Highest sequence dropped by {@link #purge}; readers resuming below it have missed changes.
+    */
+   long purgedThrough() throws DatabaseOperationException;
+
+   /**
+    * Drops every change older than {@code retention}, tombstones included, and returns how many were dropped.
+    */
+   int purge(Duration retention) throws DatabaseOperationException;
+
+   /**
+    * Drops the changes older than {@code age} that a newer change of the same student supersedes, and returns how many
+    * were dropped. A reader replaying from any sequence still ends at the latest state of every student.
+    */
+   int compact(Duration age) throws DatabaseOperationException;
+}
@@ -0,0 +1,168 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Profile("!reactive & !memory & !file")
+@Repository
+public class StudentChangeDaoImpl implements StudentChangeDao {
+   // superseded changes are looked up and deleted this many at a time
+   private static final int COMPACTION_CHUNK = 1000;
+   // a point in time relative to the database clock, so the application and database clocks never need to agree
+   private static final String BEFORE_NOW = "timestampadd(microsecond, ?, current_timestamp(3))";
+
+   private final JdbcTemplate jdbcTemplate;
+   private final RowMapper<StudentChangeDto> changeMapper = (rs, rowNum) -> {
+      StudentChangeDto.Type type = StudentChangeDto.Type.valueOf(rs.getString("type"));
+      int studentId = rs.getInt("student_id");
+      Integer version = rs.getObject("version", Integer.class);
+      return new StudentChangeDto(
+         rs.getLong("feed_seq"),
+         type,
+         studentId,
+         version,
+         type == StudentChangeDto.Type.DELETED
+            ? null
+            : new StudentResponseDto(studentId, rs.getString("name"), rs.getString("email"), version),
+         rs.getTimestamp("changed_at").toLocalDateTime());
+   };
+
+   public StudentChangeDaoImpl(JdbcTemplate jdbcTemplate) {
+      this.jdbcTemplate = jdbcTemplate;
+   }
+
+   // the feed reads feed_seq, handed out by publish() in commit order; seq only orders changes by when they were written
+   @Override
+   public List<StudentChangeDto> changesSince(long since, int limit) throws DatabaseOperationException {
+      try {
+         return jdbcTemplate.query(
+            "select feed_seq, student_id, type, name, email, version, changed_at from student_change " +
+               "where feed_seq > ? order by feed_seq limit ?",
+            changeMapper,
+            since,
+            limit);
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The student changes after " + since + " could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public long latestSequence() throws DatabaseOperationException {
+      try {
+         Long latest = jdbcTemplate.queryForObject(
+            "select published_through from student_change_horizon where id = 1",
+            Long.class);
+         return latest == null ? 0 : latest;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The latest student change could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   @Transactional
+   public int publish(int limit) throws DatabaseOperationException {
+      try {
+         // one publisher at a time, on any instance: each commits its sequences before the next one starts, so a reader
+         // that sees a sequence also sees every lower one. The lock is taken before anything else is read, so the
+         // unpublished changes read next include every one committed before it
+         Long through = jdbcTemplate.queryForObject(
+            "select published_through from student_change_horizon where id = 1 for update",
+            Long.class);
+         List<Long> unpublished = jdbcTemplate.queryForList(
+            "select seq from student_change where feed_seq is null order by seq limit ?",
+            Long.class,
+            limit);
+         if (unpublished.isEmpty())
+            return 0;
+
+         long next = through == null ? 0 : through;
+         List<Object[]> sequences = new ArrayList<>(unpublished.size());
+         for (Long seq : unpublished)
+            sequences.add(new Object[]{++next, seq});
+         jdbcTemplate.batchUpdate("update student_change set feed_seq = ? where seq = ?", sequences);
+         jdbcTemplate.update("update student_change_horizon set published_through = ? where id = 1", next);
+         return unpublished.size();
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The student changes could not be published in the database", e);
+      }
+   }
+
+   @Override
+   public long purgedThrough() throws DatabaseOperationException {
+      try {
+         Long purged = jdbcTemplate.queryForObject(
+            "select purged_through from student_change_horizon where id = 1",
+            Long.class);
+         return purged == null ? 0 : purged;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The change log horizon could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   @Transactional
+   public int purge(Duration retention) throws DatabaseOperationException {
+      try {
+         Long through = jdbcTemplate.queryForObject(
+            "select max(feed_seq) from student_change where changed_at < " + BEFORE_NOW,
+            Long.class,
+            -micros(retention));
+         if (through == null)
+            return 0;
+
+         // the horizon moves first, so nobody is told to resume from a sequence that is about to disappear
+         jdbcTemplate.update(
+            "update student_change_horizon set purged_through = ? where id = 1 and purged_through < ?",
+            through,
+            through);
+         return jdbcTemplate.update("delete from student_change where feed_seq <= ?", through);
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The student changes could not be purged from the database", e);
+      }
+   }
+
+   @Override
+   public int compact(Duration age) throws DatabaseOperationException {
+      int removed = 0;
+      long after = 0;
+
+      try {
+         while (true) {
+            List<Long> superseded = jdbcTemplate.queryForList(
+               "select c.seq from student_change c " +
+                  "where c.seq > ? and c.feed_seq is not null and c.changed_at < " + BEFORE_NOW + " " +
+                  "and exists (select 1 from student_change n where n.student_id = c.student_id and n.seq > c.seq) " +
+                  "order by c.seq limit ?",
+               Long.class,
+               after,
+               -micros(age),
+               COMPACTION_CHUNK);
+            if (superseded.isEmpty())
+               return removed;
+
+            jdbcTemplate.batchUpdate(
+               "delete from student_change where seq = ?",
+               superseded.stream().map(seq -> new Object[]{seq}).toList());
+            removed += superseded.size();
+            after = superseded.get(superseded.size() - 1);
+         }
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The student changes could not be compacted in the database", e);
+      }
+   }
+
+   private static long micros(Duration duration) {
+      return duration.toNanos() / 1000;
+   }
+}
@@ -0,0 +1,169 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Maintained number of students in total, by sex and by birth year, so reading any of them never counts the table.
+ * <p>
+ * Loaded by one grouped count on first use and then moved by every committed insert and delete, each group on its own
+ * {@link LongAdder} so concurrent writers do not contend on a single counter. Writes made by other instances are only
+ * picked up by reconciliation: the first read after {@code reconcileInterval} recounts in the background while the
+ * current values keep being served. Changes committed while any count runs, the first load included, are carried over
+ * onto its result, since the count may have read the table before they committed.
+ */
+final class StudentCounters {
+
+   private static final Logger log = LoggerFactory.getLogger(StudentCounters.class);
+   static final String UNKNOWN_SEX = "unknown";
+
+   private final Supplier<List<GroupCount>> recount;
+   private final long reconcileIntervalNanos;
+   private final AtomicBoolean reconciling = new AtomicBoolean();
+   private final Object loadLock = new Object();
+   // orders changes recorded for a running count against the count installing its result
+   private final Object swapLock = new Object();
+   private volatile Totals totals;
+   // changes committed while a count runs, added onto its result
+   private volatile Totals sinceRecount;
+   private volatile long reconciledAt;
+
+   /**
+    * Students of one sex born in one year, as counted by the database.
+    */
+   record GroupCount(String sex, int birthYear, long students) {
+   }
+
+   StudentCounters(Supplier<List<GroupCount>> recount, Duration reconcileInterval) {
+      this.recount = recount;
+      this.reconcileIntervalNanos = reconcileInterval.toNanos();
+   }
+
+   void added(String sex, int birthYear) {
+      change(sex, birthYear, 1);
+   }
+
+   void removed(String sex, int birthYear) {
+      change(sex, birthYear, -1);
+   }
+
+   long total() {
+      return totals().total.sum();
+   }
+
+   StudentCountsDto counts() {
+      Totals current = totals();
+      return new StudentCountsDto(current.total.sum(), nonZero(current.bySex), nonZero(current.byBirthYear));
+   }
+
+   /**
+    * Replaces the counters with a fresh count of the table plus whatever was committed while counting.
+    */
+   void reconcile() {
+      try {
+         count();
+      } catch (RuntimeException e) {
+         log.warn("Student counters could not be reconciled, keeping the maintained values", e);
+      } finally {
+         reconciling.set(false);
+      }
+   }
+
+   private void count() {
+      Totals changes = new Totals();
+      sinceRecount = changes;
+      try {
+         Totals counted = Totals.of(recount.get());
+         synchronized (swapLock) {
+            counted.addAll(changes);
+            totals = counted;
+            sinceRecount = null;
+         }
+      } finally {
+         sinceRecount = null;
+         reconciledAt = System.nanoTime();
+      }
+   }
+
+   private void change(String sex, int birthYear, int delta) {
+      // read before sinceRecount: a count starting after this read sees the row, which committed before this call
+      Totals current = totals;
+      Totals changes = sinceRecount;
+      if (changes == null) {
+         // nothing loaded yet and nothing counting: the first load counts this row itself
+         if (current != null)
+            current.add(sex, birthYear, delta);
+         return;
+      }
+
+      synchronized (swapLock) {
+         if (sinceRecount == changes)
+            changes.add(sex, birthYear, delta);
+         current = totals;
+         if (current != null)
+            current.add(sex, birthYear, delta);
+      }
+   }
+
+   private Totals totals() {
+      Totals current = totals;
+      if (current == null) {
+         synchronized (loadLock) {
+            if (totals == null)
+               count();
+            return totals;
+         }
+      }
+
+      if (System.nanoTime() - reconciledAt > reconcileIntervalNanos && reconciling.compareAndSet(false, true))
+         CompletableFuture.runAsync(this::reconcile);
+      return current;
+   }
+
+   private static <K> Map<K, Long> nonZero(Map<K, LongAdder> counters) {
+      Map<K, Long> values = new TreeMap<>();
+      counters.forEach((key, counter) -> {
+         long value = counter.sum();
+         if (value != 0)
+            values.put(key, value);
+      });
+      return values;
+   }
+
+   private static final class Totals {
+      final LongAdder total = new LongAdder();
+      final ConcurrentMap<String, LongAdder> bySex = new ConcurrentHashMap<>();
+      final ConcurrentMap<Integer, LongAdder> byBirthYear = new ConcurrentHashMap<>();
+
+      static Totals of(List<GroupCount> groups) {
+         Totals totals = new Totals();
+         groups.forEach(group -> totals.add(group.sex(), group.birthYear(), group.students()));
+         return totals;
+      }
+
+      void add(String sex, int birthYear, long delta) {
+         total.add(delta);
+         bySex.computeIfAbsent(sex == null ? UNKNOWN_SEX : sex, key -> new LongAdder()).add(delta);
+         byBirthYear.computeIfAbsent(birthYear, key -> new LongAdder()).add(delta);
+      }
+
+      void addAll(Totals other) {
+         total.add(other.total.sum());
+         other.bySex.forEach((sex, counter) -> bySex.computeIfAbsent(sex, key -> new LongAdder()).add(counter.sum()));
+         other.byBirthYear.forEach((year, counter) ->
+            byBirthYear.computeIfAbsent(year, key -> new LongAdder()).add(counter.sum()));
+      }
+   }
+}
@@ -1,13 +1,121 @@
 package com.dlvi.studentmanagement.dao;
 
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
 import com.dlvi.studentmanagement.exception.DatabaseOperationException;
 import com.dlvi.studentmanagement.model.Student;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link #save} relies on the unique index on {@code email} and throws
+ * {@link com.dlvi.studentmanagement.exception.EmailAlreadyExistsException} when it is violated.
+ */
 public interface StudentDao extends GenericDAO<Student, Integer> {
 
    boolean emailExists(String email) throws DatabaseOperationException;
 
-   Integer partialUpdate(Integer id, StudentPatchDto patch) throws DatabaseOperationException;
+   default Integer partialUpdate(Integer id, StudentPatchDto patch) throws DatabaseOperationException {
+      return partialUpdate(id, patch, null);
+   }
+
+   /**
+    * Writes only the non-null fields of the patch and bumps the row version. When {@code expectedVersion} is given
+    * the row is only updated if its version still matches. Returns the number of rows updated.
+    */
+   Integer partialUpdate(Integer id, StudentPatchDto patch, Integer expectedVersion) throws DatabaseOperationException;
+
+   Optional<Integer> getVersion(Integer id) throws DatabaseOperationException;
+
+   /**
+    * Deletes the student only if its row version still matches {@code expectedVersion}; {@code null} deletes
+    * unconditionally. Returns the number of rows deleted.
+    */
+   Integer deleteById(Integer id, Integer expectedVersion) throws DatabaseOperationException;
+
+   /**
+    * Deletes the students with the given ids with one {@code id in (...)} delete per chunk of ids and returns those that
+    * existed and were deleted, in no particular order.
+    */
+   List<Integer> deleteAllById(Collection<Integer> ids) throws DatabaseOperationException;
+
+   /**
+    * Applies the patches, in order, as a single JDBC batch of updates and returns the number of rows each one updated:
+    * 0 when the student does not exist or its version no longer matches the expected one.
+    */
+   int[] partialUpdateAll(List<StudentBatchPatchDto> patches) throws DatabaseOperationException;
+
+   /**
+    * Keyset page ordered by id: at most {@code limit} students whose id is greater than {@code after}.
+    */
+   List<Student> listPage(Integer after, int limit) throws DatabaseOperationException;
+
+   /**
+    * Same keyset page as {@link #listPage}, but selecting only the projected columns (the id and version are always
+    * read, they are the cursor and the entity tag) and mapping them straight into response records.
+    */
+   List<StudentResponseDto> listResponsePage(Integer after, int limit, Set<StudentField> fields) throws DatabaseOperationException;
+
+   default List<StudentResponseDto> search(StudentSearchCriteria criteria, Integer after, int limit,
+                                           Set<StudentField> fields) throws DatabaseOperationException {
+      return search(criteria, null, after, limit, fields);
+   }
+
+   /**
+    * Keyset page, ordered by id, of the students matching every given filter of {@code criteria}, projected like
+    * {@link #listResponsePage}. When {@code ids} is not null only those students are considered; callers keep it
+    * within the placeholder limits of an IN list.
+    */
+   List<StudentResponseDto> search(StudentSearchCriteria criteria, Collection<Integer> ids, Integer after, int limit,
+                                   Set<StudentField> fields) throws DatabaseOperationException;
+
+   Optional<StudentResponseDto> getResponseById(Integer id) throws DatabaseOperationException;
+
+   /**
+    * Full representations of the students with the given ids, in no particular order; ids that do not exist are
+    * simply missing from the result and duplicates are read once.
+    */
+   List<StudentResponseDto> getResponsesByIds(Collection<Integer> ids) throws DatabaseOperationException;
+
+   /**
+    * Maintained number of students, kept current by every committed insert and delete instead of counted per call.
+    */
+   long count() throws DatabaseOperationException;
+
+   /**
+    * Maintained numbers of students in total, by sex and by birth year, like {@link #count}.
+    */
+   StudentCountsDto counts() throws DatabaseOperationException;
+
+   /**
+    * Streams every student to {@code action} straight from a forward-only cursor, without buffering the table.
+    */
+   void streamAll(Consumer<Student> action) throws DatabaseOperationException;
+
+   void streamEmails(Consumer<String> action) throws DatabaseOperationException;
+
+   /**
+    * Inserts the students in a single JDBC batch and returns their generated ids, in input order.
+    */
+   List<Integer> saveAll(List<Student> students) throws DatabaseOperationException;
+
+   /**
+    * Returns, lower-cased, those of the given emails that are already registered.
+    */
+   Set<String> findExistingEmails(Collection<String> emails) throws DatabaseOperationException;
+
+   /**
+    * Maps those of the given emails that are already registered, lower-cased, to the id of the student holding them.
+    */
+   Map<String, Integer> findEmailOwners(Collection<String> emails) throws DatabaseOperationException;
 
 }
@@ -1,24 +1,59 @@
 package com.dlvi.studentmanagement.dao;
 
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
 import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
 import com.dlvi.studentmanagement.model.Student;
+import com.dlvi.studentmanagement.support.Transactions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+@Profile("!reactive & !memory & !file")
 @Repository
 public class StudentDaoImpl implements StudentDao {
+   // keeps IN lists well below driver and server placeholder limits
+   private static final int IN_CLAUSE_CHUNK = 1000;
+
    private final JdbcTemplate jdbcTemplate;
-   private final RowMapper<Student> rowMapper = (rs, rowNum) -> {
+   private final int exportFetchSize;
+   // row mappers are package-private so the JMH benchmarks can measure them in isolation
+   final RowMapper<Student> rowMapper = (rs, rowNum) -> {
       Student student = new Student();
       student.setId(rs.getInt("id"));
       student.setName(rs.getString("name"));
@@ -27,22 +62,35 @@ public class StudentDaoImpl implements StudentDao {
       student.setSex(rs.getString("sex"));
       return student;
    };
+   // maintained counts, loaded lazily with a single grouped count and then adjusted on every committed write
+   private final StudentCounters counters;
+
+   public StudentDaoImpl(JdbcTemplate jdbcTemplate, int exportFetchSize) {
+      this(jdbcTemplate, exportFetchSize, Duration.ofMinutes(5));
+   }
 
-   public StudentDaoImpl(JdbcTemplate jdbcTemplate) {
+   @Autowired
+   public StudentDaoImpl(JdbcTemplate jdbcTemplate,
+                         @Value("${student.export.fetch-size:500}") int exportFetchSize,
+                         @Value("${student.counts.reconcile-interval:5m}") Duration reconcileInterval) {
       this.jdbcTemplate = jdbcTemplate;
+      this.exportFetchSize = exportFetchSize;
+      this.counters = new StudentCounters(this::countGroups, reconcileInterval);
    }
 
    @Override
+   @Transactional
    public Integer save(Student student) throws DatabaseOperationException {
       try {
-         String sql = "insert into student (name, email, birth_date, sex) values (?,?,?,?)";
+         String sql = "insert into student (name, email, email_domain, birth_date, sex) values (?,?,?,?,?)";
          KeyHolder key = new GeneratedKeyHolder();
          int insert = jdbcTemplate.update(con -> {
             PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, student.getName());
             ps.setString(2, student.getEmail());
-            ps.setObject(3, student.getBirthDate());
-            ps.setString(4, student.getSex());
+            ps.setString(3, Student.emailDomain(student.getEmail()));
+            ps.setObject(4, student.getBirthDate());
+            ps.setString(5, student.getSex());
             return ps;
          }, key);
 
@@ -50,24 +98,96 @@ public class StudentDaoImpl implements StudentDao {
 
          if (insert == 0 || generatedKey == null)
             throw new DatabaseOperationException("The record was not inserted, no key generated.");
-         else
-            return generatedKey.intValue();
+
+         int id = generatedKey.intValue();
+         recordCreated(List.of(id), List.of(student));
+         added(List.of(student));
+         return id;
+      } catch (DuplicateKeyException e) {
+         // email is the only unique key besides the generated id
+         throw new EmailAlreadyExistsException("The email " + student.getEmail() + " is already registered");
       } catch (DataAccessException e) {
          throw new DatabaseOperationException("The record could not be inserted into the database", e);
       }
    }
 
    @Override
+   @Transactional
    public Integer deleteById(Integer id) throws DatabaseOperationException {
       try {
-         return jdbcTemplate.update(
+         Optional<Student> row = lockedGroup("id = ?", id);
+         int deleted = row.isEmpty() ? 0 : jdbcTemplate.update(
             "delete from student where id = ?",
             id);
+         if (deleted > 0) {
+            recordChange(id, StudentChangeDto.Type.DELETED);
+            removed(row.get());
+         }
+         return deleted;
       } catch (DataAccessException e) {
          throw new DatabaseOperationException("The record with ID " + id + " could not be deleted from the database", e);
       }
    }
 
+   @Override
+   @Transactional
+   public Integer deleteById(Integer id, Integer expectedVersion) throws DatabaseOperationException {
+      if (expectedVersion == null)
+         return deleteById(id);
+
+      try {
+         Optional<Student> row = lockedGroup("id = ? and version = ?", id, expectedVersion);
+         int deleted = row.isEmpty() ? 0 : jdbcTemplate.update(
+            "delete from student where id = ? and version = ?",
+            id,
+            expectedVersion);
+         if (deleted > 0) {
+            recordChange(id, StudentChangeDto.Type.DELETED);
+            removed(row.get());
+         }
+         return deleted;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The record with ID " + id + " could not be deleted from the database", e);
+      }
+   }
+
+   @Override
+   @Transactional
+   public List<Integer> deleteAllById(Collection<Integer> ids) throws DatabaseOperationException {
+      List<Integer> distinct = List.copyOf(new LinkedHashSet<>(ids));
+      List<Integer> deleted = new ArrayList<>();
+
+      try {
+         for (int from = 0; from < distinct.size(); from += IN_CLAUSE_CHUNK) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + IN_CLAUSE_CHUNK, distinct.size()));
+
+            // locking the rows first makes the ids read here exactly the ones the delete removes, and their groups
+            // exactly the counts it takes away
+            List<Student> rows = jdbcTemplate.query(
+               "select id, sex, birth_date from student where id in (" + placeholders(chunk.size()) + ") for update",
+               (rs, rowNum) -> {
+                  Student student = new Student();
+                  student.setId(rs.getInt(1));
+                  student.setSex(rs.getString(2));
+                  student.setBirthDate(rs.getDate(3).toLocalDate());
+                  return student;
+               },
+               chunk.toArray());
+            if (rows.isEmpty())
+               continue;
+
+            List<Integer> found = rows.stream().map(Student::getId).toList();
+            jdbcTemplate.update("delete from student where id in (" + placeholders(found.size()) + ")", found.toArray());
+            recordChanges(found, StudentChangeDto.Type.DELETED);
+            rows.forEach(this::removed);
+            deleted.addAll(found);
+         }
+         return deleted;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The " + distinct.size() + " records could not be deleted from the database", e);
+      }
+   }
+
    @Override
    public List<Student> listAll() throws DatabaseOperationException {
       try {
@@ -82,16 +202,11 @@ public class StudentDaoImpl implements StudentDao {
    @Override
    public Optional<Student> getById(Integer id) throws DatabaseOperationException {
       try {
-         String sql = "select * from student where id = ?";
-         List<Student> students = jdbcTemplate.query(sql, new Object[]{id}, rowMapper);
-
-         return students.stream()
-            .map(student -> new Student(
-               student.getId(),
-               student.getName(),
-               student.getEmail(),
-               student.getBirthDate(),
-               student.getSex()))
+         return jdbcTemplate.query(
+               "select * from student where id = ?",
+               rowMapper,
+               id)
+            .stream()
             .findFirst();
       } catch (DataAccessException e) {
          throw new DatabaseOperationException("The record with ID " + id + " could not be retrieved from the database", e);
@@ -110,15 +225,434 @@ public class StudentDaoImpl implements StudentDao {
    }
 
    @Override
-   public Integer partialUpdate(Integer id, StudentPatchDto req) throws DatabaseOperationException {
+   @Transactional
+   public Integer partialUpdate(Integer id, StudentPatchDto req, Integer expectedVersion) throws DatabaseOperationException {
+      StringBuilder sql = new StringBuilder("update student set ");
+      List<Object> args = new ArrayList<>();
+
+      if (req.name() != null) {
+         sql.append("name = ?, ");
+         args.add(req.name());
+      }
+      if (req.email() != null) {
+         sql.append("email = ?, email_domain = ?, ");
+         args.add(req.email());
+         args.add(Student.emailDomain(req.email()));
+      }
+      sql.append("version = version + 1 where id = ?");
+      args.add(id);
+
+      if (expectedVersion != null) {
+         sql.append(" and version = ?");
+         args.add(expectedVersion);
+      }
+
       try {
-         return jdbcTemplate.update(
-            "update student set name = ?, email = ? where id = ?",
-            req.name(),
-            req.email(),
-            id);
+         int updated = jdbcTemplate.update(sql.toString(), args.toArray());
+         if (updated > 0)
+            recordChange(id, StudentChangeDto.Type.UPDATED);
+         return updated;
+      } catch (DuplicateKeyException e) {
+         throw new EmailAlreadyExistsException("The email " + req.email() + " is already registered");
       } catch (DataAccessException e) {
          throw new DatabaseOperationException("The record could not be partially updated in the database", e);
       }
    }
+
+   @Override
+   @Transactional
+   public int[] partialUpdateAll(List<StudentBatchPatchDto> patches) throws DatabaseOperationException {
+      try {
+         // one statement shape for every patch so they all fit in one batch: a null parameter keeps the column, and a
+         // null expected version compares the version with itself
+         int[] updated = jdbcTemplate.batchUpdate(
+            "update student set name = coalesce(?, name), email = coalesce(?, email), email_domain = coalesce(?, email_domain), "
+               + "version = version + 1 where id = ? and version = coalesce(?, version)",
+            new BatchPreparedStatementSetter() {
+               @Override
+               public void setValues(PreparedStatement ps, int i) throws SQLException {
+                  StudentBatchPatchDto item = patches.get(i);
+                  String email = item.patch().email();
+                  ps.setObject(1, item.patch().name(), Types.VARCHAR);
+                  ps.setObject(2, email, Types.VARCHAR);
+                  ps.setObject(3, email == null ? null : Student.emailDomain(email), Types.VARCHAR);
+                  ps.setInt(4, item.id());
+                  ps.setObject(5, item.expectedVersion(), Types.INTEGER);
+               }
+
+               @Override
+               public int getBatchSize() {
+                  return patches.size();
+               }
+            });
+
+         List<Integer> changed = new ArrayList<>();
+         for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0)
+               changed.add(patches.get(i).id());
+         }
+         recordChanges(changed, StudentChangeDto.Type.UPDATED);
+         return updated;
+      } catch (DuplicateKeyException e) {
+         throw new EmailAlreadyExistsException("One of the " + patches.size() + " emails is already registered");
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The " + patches.size() + " records could not be partially updated in the database", e);
+      }
+   }
+
+   @Override
+   public Optional<Integer> getVersion(Integer id) throws DatabaseOperationException {
+      try {
+         return jdbcTemplate.queryForList("select version from student where id = ?", Integer.class, id)
+            .stream()
+            .findFirst();
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The version of the record with ID " + id + " could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public List<Student> listPage(Integer after, int limit) throws DatabaseOperationException {
+      try {
+         return jdbcTemplate.query(
+            "select * from student where id > ? order by id limit ?",
+            rowMapper,
+            after == null ? 0 : after,
+            limit);
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The records after ID " + after + " could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public List<StudentResponseDto> listResponsePage(Integer after, int limit, Set<StudentField> fields) throws DatabaseOperationException {
+      try {
+         return jdbcTemplate.query(
+            "select " + projection(fields) + " from student where id > ? order by id limit ?",
+            projectionMapper(fields),
+            after == null ? 0 : after,
+            limit);
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The records after ID " + after + " could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public Optional<StudentResponseDto> getResponseById(Integer id) throws DatabaseOperationException {
+      try {
+         return jdbcTemplate.query(
+               "select " + projection(StudentField.ALL) + " from student where id = ?",
+               projectionMapper(StudentField.ALL),
+               id)
+            .stream()
+            .findFirst();
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The record with ID " + id + " could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public List<StudentResponseDto> getResponsesByIds(Collection<Integer> ids) throws DatabaseOperationException {
+      List<Integer> distinct = List.copyOf(new LinkedHashSet<>(ids));
+      List<StudentResponseDto> found = new ArrayList<>(distinct.size());
+
+      try {
+         for (int from = 0; from < distinct.size(); from += IN_CLAUSE_CHUNK) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + IN_CLAUSE_CHUNK, distinct.size()));
+            found.addAll(jdbcTemplate.query(
+               "select " + projection(StudentField.ALL) + " from student where id in (" +
+                  placeholders(chunk.size()) + ")",
+               projectionMapper(StudentField.ALL),
+               chunk.toArray()));
+         }
+         return found;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The records with " + distinct.size() + " IDs could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public List<StudentResponseDto> search(StudentSearchCriteria criteria, Collection<Integer> ids, Integer after, int limit,
+                                          Set<StudentField> fields) throws DatabaseOperationException {
+      StringBuilder sql = new StringBuilder("select ").append(projection(fields)).append(" from student where id > ?");
+      List<Object> args = new ArrayList<>();
+      args.add(after == null ? 0 : after);
+
+      if (ids != null) {
+         if (ids.isEmpty())
+            return Collections.emptyList();
+         sql.append(" and id in (").append(placeholders(ids.size())).append(")");
+         args.addAll(ids);
+      }
+      // a constant prefix without a leading wildcard is a range scan on idx_student_name
+      if (criteria.namePrefix() != null) {
+         sql.append(" and name like ?");
+         args.add(escapeLike(criteria.namePrefix()) + "%");
+      }
+      // no index can serve a substring anyway, so lower() costs nothing and matches the name index on every database
+      if (criteria.nameContains() != null) {
+         sql.append(" and lower(name) like ?");
+         args.add("%" + escapeLike(criteria.nameContains().toLowerCase(Locale.ROOT)) + "%");
+      }
+      if (criteria.emailDomain() != null) {
+         sql.append(" and email_domain = ?");
+         args.add(criteria.emailDomain().trim().toLowerCase(Locale.ROOT));
+      }
+      if (criteria.sex() != null) {
+         sql.append(" and sex = ?");
+         args.add(criteria.sex());
+      }
+      if (criteria.bornFrom() != null) {
+         sql.append(" and birth_date >= ?");
+         args.add(criteria.bornFrom());
+      }
+      if (criteria.bornTo() != null) {
+         sql.append(" and birth_date <= ?");
+         args.add(criteria.bornTo());
+      }
+      sql.append(" order by id limit ?");
+      args.add(limit);
+
+      try {
+         return jdbcTemplate.query(sql.toString(), projectionMapper(fields), args.toArray());
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The students matching the search could not be retrieved from the database", e);
+      }
+   }
+
+   @Override
+   public long count() throws DatabaseOperationException {
+      return counters.total();
+   }
+
+   @Override
+   public StudentCountsDto counts() throws DatabaseOperationException {
+      return counters.counts();
+   }
+
+   private List<StudentCounters.GroupCount> countGroups() {
+      try {
+         return jdbcTemplate.query(
+            "select sex, year(birth_date), count(*) from student group by sex, year(birth_date)",
+            (rs, rowNum) -> new StudentCounters.GroupCount(rs.getString(1), rs.getInt(2), rs.getLong(3)));
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The records could not be counted in the database", e);
+      }
+   }
+
+   @Override
+   public void streamAll(Consumer<Student> action) throws DatabaseOperationException {
+      try {
+         jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+               "select * from student order by id",
+               ResultSet.TYPE_FORWARD_ONLY,
+               ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportFetchSize);
+            return ps;
+         }, new RowCallbackHandler() {
+            private int rowNum;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+               action.accept(rowMapper.mapRow(rs, rowNum++));
+            }
+         });
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The records could not be streamed from the database", e);
+      }
+   }
+
+   @Override
+   public void streamEmails(Consumer<String> action) throws DatabaseOperationException {
+      try {
+         jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+               "select email from student",
+               ResultSet.TYPE_FORWARD_ONLY,
+               ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportFetchSize);
+            return ps;
+         }, (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The emails could not be streamed from the database", e);
+      }
+   }
+
+   @Override
+   @Transactional
+   public List<Integer> saveAll(List<Student> students) throws DatabaseOperationException {
+      if (students.isEmpty())
+         return Collections.emptyList();
+
+      try {
+         KeyHolder keys = new GeneratedKeyHolder();
+         int[] inserted = jdbcTemplate.batchUpdate(
+            con -> con.prepareStatement(
+               "insert into student (name, email, email_domain, birth_date, sex) values (?,?,?,?,?)",
+               new String[]{"id"}),
+            new BatchPreparedStatementSetter() {
+               @Override
+               public void setValues(PreparedStatement ps, int i) throws SQLException {
+                  Student student = students.get(i);
+                  ps.setString(1, student.getName());
+                  ps.setString(2, student.getEmail());
+                  ps.setString(3, Student.emailDomain(student.getEmail()));
+                  ps.setObject(4, student.getBirthDate());
+                  ps.setString(5, student.getSex());
+               }
+
+               @Override
+               public int getBatchSize() {
+                  return students.size();
+               }
+            },
+            keys);
+
+         List<Map<String, Object>> keyList = keys.getKeyList();
+         if (inserted.length != students.size() || keyList.size() != students.size())
+            throw new DatabaseOperationException("The batch was not fully inserted, expected " + students.size() + " generated keys but got " + keyList.size());
+
+         List<Integer> ids = new ArrayList<>(keyList.size());
+         for (Map<String, Object> key : keyList)
+            ids.add(((Number) key.values().iterator().next()).intValue());
+
+         recordCreated(ids, students);
+         added(students);
+         return ids;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("The batch of " + students.size() + " records could not be inserted into the database", e);
+      }
+   }
+
+   @Override
+   public Set<String> findExistingEmails(Collection<String> emails) throws DatabaseOperationException {
+      return findEmailOwners(emails).keySet();
+   }
+
+   @Override
+   public Map<String, Integer> findEmailOwners(Collection<String> emails) throws DatabaseOperationException {
+      List<String> distinct = List.copyOf(new HashSet<>(emails));
+      Map<String, Integer> owners = new HashMap<>();
+
+      try {
+         for (int from = 0; from < distinct.size(); from += IN_CLAUSE_CHUNK) {
+            List<String> chunk = distinct.subList(from, Math.min(from + IN_CLAUSE_CHUNK, distinct.size()));
+
+            jdbcTemplate.query(
+               "select email, id from student where email in (" + placeholders(chunk.size()) + ")",
+               rs -> {
+                  owners.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getInt(2));
+               },
+               chunk.toArray());
+         }
+         return owners;
+      } catch (DataAccessException e) {
+         throw new DatabaseOperationException("An error occurred while checking which of " + distinct.size() + " emails exist in the database", e);
+      }
+   }
+
+   private static String placeholders(int count) {
+      return String.join(",", Collections.nCopies(count, "?"));
+   }
+
+   // the default escape character of like is the backslash in both MySQL and H2
+   private static String escapeLike(String value) {
+      return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+   }
+
+   // id and version first, then the other selected columns in StudentField order; projectionMapper reads them back
+   // by index. The version is always read so every response can carry its entity tag
+   static String projection(Set<StudentField> fields) {
+      StringBuilder columns = new StringBuilder("id, version");
+      for (StudentField field : StudentField.values())
+         if (field != StudentField.ID && fields.contains(field))
+            columns.append(", ").append(field.column());
+      return columns.toString();
+   }
+
+   static RowMapper<StudentResponseDto> projectionMapper(Set<StudentField> fields) {
+      boolean name = fields.contains(StudentField.NAME);
+      boolean email = fields.contains(StudentField.EMAIL);
+
+      return (rs, rowNum) -> {
+         int column = 3;
+         return new StudentResponseDto(
+            rs.getInt(1),
+            name ? rs.getString(column++) : null,
+            email ? rs.getString(column) : null,
+            rs.getInt(2));
+      };
+   }
+
+   // outbox rows of the change feed, written in the same transaction as the change they describe; a new row is recorded
+   // from the values just inserted, an update copies the row it left behind and a delete only leaves a tombstone
+   private void recordCreated(List<Integer> ids, List<Student> students) {
+      jdbcTemplate.batchUpdate(
+         "insert into student_change (student_id, type, name, email, version) values (?, ?, ?, ?, 0)",
+         new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+               ps.setInt(1, ids.get(i));
+               ps.setString(2, StudentChangeDto.Type.CREATED.name());
+               ps.setString(3, students.get(i).getName());
+               ps.setString(4, students.get(i).getEmail());
+            }
+
+            @Override
+            public int getBatchSize() {
+               return ids.size();
+            }
+         });
+   }
+
+   private void recordChange(Integer id, StudentChangeDto.Type type) {
+      recordChanges(List.of(id), type);
+   }
+
+   private void recordChanges(List<Integer> ids, StudentChangeDto.Type type) {
+      if (ids.isEmpty())
+         return;
+
+      String sql = type == StudentChangeDto.Type.DELETED
+         ? "insert into student_change (student_id, type) values (?, ?)"
+         : "insert into student_change (student_id, type, name, email, version) select ?, ?, name, email, version from student where id = ?";
+      jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+         @Override
+         public void setValues(PreparedStatement ps, int i) throws SQLException {
+            ps.setInt(1, ids.get(i));
+            ps.setString(2, type.name());
+            if (type != StudentChangeDto.Type.DELETED)
+               ps.setInt(3, ids.get(i));
+         }
+
+         @Override
+         public int getBatchSize() {
+            return ids.size();
+         }
+      });
+   }
+
+   private void added(List<Student> students) {
+      Transactions.afterCommit(() -> students.forEach(student ->
+         counters.added(student.getSex(), student.getBirthDate().getYear())));
+   }
+
+   // a primary-key read of the row about to be deleted; locking it makes its group exactly the one the delete takes
+   // away from the counts, as deleteAllById does for its chunks
+   private Optional<Student> lockedGroup(String condition, Object... args) {
+      return jdbcTemplate.query("select sex, birth_date from student where " + condition + " for update",
+            (rs, rowNum) -> {
+               Student student = new Student();
+               student.setSex(rs.getString(1));
+               student.setBirthDate(rs.getDate(2).toLocalDate());
+               return student;
+            }, args)
+         .stream()
+         .findFirst();
+   }
+
+   private void removed(Student row) {
+      Transactions.afterCommit(() -> counters.removed(row.getSex(), row.getBirthDate().getYear()));
+   }
 }
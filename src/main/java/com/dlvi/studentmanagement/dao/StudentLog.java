@@ -0,0 +1,472 @@
+package com.dlvi.studentmanagement.dao;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of checksummed student records, the storage of {@link FileStudentDao}.
+ * <p>
+ * The file starts with a magic number and a format version. Every record is its body length and the CRC32C of the body,
+ * followed by the body: a type, the student id and row version and, for a {@link Type#PUT}, the whole row. A put
+ * supersedes every earlier record of the same id and a delete leaves a tombstone, so the last record of an id is its
+ * current state.
+ * <p>
+ * Appends are serialised by the caller. {@link #awaitDurable} is a group fsync: the first writer to wait forces the
+ * file for everything appended so far and the writers that arrive meanwhile wait for that force or the next one, so
+ * concurrent writes share their fsyncs.
+ */
+final class StudentLog implements AutoCloseable {
+
+   static final int HEADER_BYTES = 8;
+   // length and checksum in front of every body
+   static final int RECORD_OVERHEAD = 8;
+   private static final int MAGIC = 0x53544C47;
+   private static final int FORMAT = 1;
+   // far above the largest valid row, so a garbage length is recognised instead of read
+   private static final int MAX_BODY = 1 << 16;
+   private static final int SCAN_BUFFER = 1 << 20;
+
+   private final FileChannel channel;
+   private final boolean sync;
+   private final Object syncLock = new Object();
+   private final ThreadLocal<ByteBuffer> readBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+   // end of the appended records; only moved by the single appending thread
+   private volatile long end;
+   // guarded by syncLock
+   private long durable;
+   private boolean syncing;
+   private boolean retired;
+   private long syncs;
+   // readers streaming from the file outside the caller's locks, which close() leaves it open for; guarded by itself
+   private final Object streamLock = new Object();
+   private int streams;
+   private boolean closing;
+
+   enum Type {
+      PUT, DELETE,
+      // the highest id handed out, written by compaction so ids of dropped students are never handed out again
+      ID_MARK
+   }
+
+   /**
+    * One decoded record; only a {@link Type#PUT} carries the row.
+    */
+   record Entry(Type type, int id, int version, String name, String email, LocalDate birthDate, String sex) {
+
+      static Entry put(int id, int version, String name, String email, LocalDate birthDate, String sex) {
+         return new Entry(Type.PUT, id, version, name, email, birthDate, sex);
+      }
+
+      static Entry delete(int id) {
+         return new Entry(Type.DELETE, id, 0, null, null, null, null);
+      }
+
+      static Entry idMark(int lastId) {
+         return new Entry(Type.ID_MARK, lastId, 0, null, null, null, null);
+      }
+   }
+
+   /**
+    * Called for every intact record, in file order.
+    */
+   interface Visitor {
+      void visit(Entry entry, long offset, int length) throws IOException;
+   }
+
+   private StudentLog(FileChannel channel, boolean sync, long end) {
+      this.channel = channel;
+      this.sync = sync;
+      this.end = end;
+      this.durable = end;
+   }
+
+   /**
+    * Opens the log at {@code path}, creating it when missing, and visits every intact record. A torn or corrupt record
+    * with nothing intact after it is what a crash left half written and is cut off; one followed by intact records is
+    * damage to the file, and the log is refused rather than cut there and lose them.
+    */
+   static StudentLog recover(Path path, boolean sync, Visitor visitor) throws IOException {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+         if (channel.size() < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT).flip();
+            channel.truncate(0);
+            writeFully(channel, header, 0);
+            channel.force(true);
+            return new StudentLog(channel, sync, HEADER_BYTES);
+         }
+
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+         readFully(channel, header, 0);
+         if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT)
+            throw new IOException(path + " is not a student log of format " + FORMAT);
+
+         long valid = scan(channel, visitor);
+         if (valid < channel.size()) {
+            long intact = nextIntact(channel, valid);
+            if (intact >= 0)
+               throw new IOException(path + " has a corrupt record at offset " + valid + " followed by intact records from"
+                  + " offset " + intact + "; restore it from a backup, or cut it at " + valid + " to drop what follows");
+            channel.truncate(valid);
+            channel.force(true);
+         }
+         return new StudentLog(channel, sync, valid);
+      } catch (IOException | RuntimeException e) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Creates an empty log at {@code path}, replacing any file there, for compaction to copy the live records into.
+    */
+   static StudentLog create(Path path, boolean sync) throws IOException {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+         StandardOpenOption.READ, StandardOpenOption.WRITE);
+      writeFully(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT).flip(), 0);
+      return new StudentLog(channel, sync, HEADER_BYTES);
+   }
+
+   long size() {
+      return end;
+   }
+
+   /**
+    * Visits every record again, e.g. for a second pass over a log {@link #recover} has already checked.
+    */
+   void forEach(Visitor visitor) throws IOException {
+      scan(channel, visitor);
+   }
+
+   /**
+    * Appends the encoded records and returns the offset of the first one. Callers append one at a time.
+    */
+   long append(ByteBuffer records) throws IOException {
+      long offset = end;
+      writeFully(channel, records, offset);
+      end = offset + records.limit();
+      return offset;
+   }
+
+   /**
+    * Returns once everything up to {@code position} is on disk.
+    */
+   void awaitDurable(long position) throws IOException {
+      if (!sync)
+         return;
+
+      while (true) {
+         long target;
+         synchronized (syncLock) {
+            while (syncing && durable < position) {
+               try {
+                  syncLock.wait();
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  throw new InterruptedIOException("Interrupted while waiting for the student log to be synced");
+               }
+            }
+            if (durable >= position)
+               return;
+
+            syncing = true;
+            target = end;
+         }
+
+         boolean forced = false;
+         try {
+            channel.force(false);
+            forced = true;
+         } catch (ClosedChannelException e) {
+            // retired by a compaction, whose copy already holds these records on disk
+            synchronized (syncLock) {
+               if (!retired)
+                  throw e;
+            }
+         } finally {
+            synchronized (syncLock) {
+               syncing = false;
+               if (forced) {
+                  durable = Math.max(durable, target);
+                  syncs++;
+               }
+               syncLock.notifyAll();
+            }
+         }
+      }
+   }
+
+   long syncs() {
+      synchronized (syncLock) {
+         return syncs;
+      }
+   }
+
+   void force() throws IOException {
+      channel.force(true);
+   }
+
+   /**
+    * Marks the log replaced: whatever was appended to it is durable in its replacement, so nobody waits for it anymore.
+    */
+   void retire() {
+      synchronized (syncLock) {
+         retired = true;
+         durable = Long.MAX_VALUE;
+         syncLock.notifyAll();
+      }
+   }
+
+   Entry read(long offset, int length) throws IOException {
+      ByteBuffer buffer = readBuffers.get();
+      if (buffer.capacity() < length) {
+         buffer = ByteBuffer.allocate(length);
+         readBuffers.set(buffer);
+      }
+      buffer.clear().limit(length);
+      readFully(channel, buffer, offset);
+      buffer.flip();
+
+      Entry entry = decode(buffer);
+      if (entry == null)
+         throw new IOException("The student record at offset " + offset + " is corrupt");
+      return entry;
+   }
+
+   /**
+    * Keeps the file open for reading until the matching {@link #release}, even if the log is closed meanwhile, as a
+    * compaction does with the log it replaces.
+    */
+   void retain() throws IOException {
+      synchronized (streamLock) {
+         if (closing)
+            throw new ClosedChannelException();
+         streams++;
+      }
+   }
+
+   void release() throws IOException {
+      synchronized (streamLock) {
+         if (--streams == 0 && closing)
+            channel.close();
+      }
+   }
+
+   /**
+    * Closes the file, or once the last reader that {@link #retain retained} it is done.
+    */
+   @Override
+   public void close() throws IOException {
+      synchronized (streamLock) {
+         closing = true;
+         if (streams == 0)
+            channel.close();
+      }
+   }
+
+   /**
+    * Encodes the records, refusing with {@link IllegalArgumentException} one that could not be decoded again: a string
+    * longer than its length prefix can tell, or a body over the size recovery accepts.
+    */
+   static ByteBuffer encode(List<Entry> entries) {
+      int size = 0;
+      for (Entry entry : entries) {
+         int bodyLength = bodyLength(entry);
+         if (bodyLength > MAX_BODY)
+            throw new IllegalArgumentException("The record of student " + entry.id() + " has a body of " + bodyLength
+               + " bytes, at most " + MAX_BODY + " can be read back");
+         size += RECORD_OVERHEAD + bodyLength;
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      for (Entry entry : entries)
+         encode(entry, buffer);
+      return buffer.flip();
+   }
+
+   static int length(Entry entry) {
+      return RECORD_OVERHEAD + bodyLength(entry);
+   }
+
+   private static void encode(Entry entry, ByteBuffer buffer) {
+      int start = buffer.position();
+      buffer.position(start + RECORD_OVERHEAD);
+      buffer.put((byte) entry.type().ordinal()).putInt(entry.id()).putInt(entry.version());
+      if (entry.type() == Type.PUT) {
+         buffer.putInt((int) entry.birthDate().toEpochDay());
+         putString(buffer, entry.name());
+         putString(buffer, entry.email());
+         putString(buffer, entry.sex());
+      }
+
+      int bodyLength = buffer.position() - start - RECORD_OVERHEAD;
+      CRC32C crc = new CRC32C();
+      crc.update(buffer.array(), start + RECORD_OVERHEAD, bodyLength);
+      buffer.putInt(start, bodyLength).putInt(start + 4, (int) crc.getValue());
+   }
+
+   private static int bodyLength(Entry entry) {
+      int length = 1 + 4 + 4;
+      if (entry.type() == Type.PUT)
+         length += 4 + stringLength(entry.name()) + stringLength(entry.email()) + stringLength(entry.sex());
+      return length;
+   }
+
+   // a whole record from the buffer's position, or null when it is torn or does not match its checksum
+   private static Entry decode(ByteBuffer buffer) {
+      if (buffer.remaining() < RECORD_OVERHEAD)
+         return null;
+
+      int start = buffer.position();
+      int bodyLength = buffer.getInt(start);
+      int checksum = buffer.getInt(start + 4);
+      if (bodyLength < 9 || bodyLength > MAX_BODY || buffer.remaining() < RECORD_OVERHEAD + bodyLength)
+         return null;
+
+      CRC32C crc = new CRC32C();
+      crc.update(buffer.slice(start + RECORD_OVERHEAD, bodyLength));
+      if ((int) crc.getValue() != checksum)
+         return null;
+
+      ByteBuffer body = buffer.slice(start + RECORD_OVERHEAD, bodyLength);
+      buffer.position(start + RECORD_OVERHEAD + bodyLength);
+      int type = body.get();
+      if (type < 0 || type >= Type.values().length)
+         return null;
+
+      Entry entry = new Entry(Type.values()[type], body.getInt(), body.getInt(), null, null, null, null);
+      if (entry.type() != Type.PUT)
+         return entry;
+
+      LocalDate birthDate = LocalDate.ofEpochDay(body.getInt());
+      return Entry.put(entry.id(), entry.version(), getString(body), getString(body), birthDate, getString(body));
+   }
+
+   // sequential read of every record after the header; returns where the intact records end
+   private static long scan(FileChannel channel, Visitor visitor) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+      long position = HEADER_BYTES;
+      long size = channel.size();
+
+      while (position < size) {
+         buffer.clear();
+         int read = readUpTo(channel, buffer, position, size);
+         buffer.flip();
+
+         int consumed = 0;
+         while (true) {
+            int start = buffer.position();
+            Entry entry = decode(buffer);
+            if (entry == null)
+               break;
+
+            int length = buffer.position() - start;
+            visitor.visit(entry, position + start, length);
+            consumed += length;
+         }
+
+         // nothing whole in a full buffer, or a bad record before the end of the file: the rest is torn
+         if (consumed == 0 || consumed < read && position + read == size)
+            return position + consumed;
+         position += consumed;
+      }
+      return position;
+   }
+
+   // offset of the first intact record after the bad one at {@code bad}, or -1 when there is none up to the end
+   private static long nextIntact(FileChannel channel, long bad) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+      long size = channel.size();
+      // the declared length usually survives the damage, so the record it points past is tried first
+      ByteBuffer length = ByteBuffer.allocate(4);
+      if (bad + RECORD_OVERHEAD < size) {
+         readFully(channel, length, bad);
+         long next = bad + RECORD_OVERHEAD + length.getInt(0);
+         if (length.getInt(0) > 0 && next < size) {
+            readUpTo(channel, buffer, next, size);
+            if (decode(buffer.flip()) != null)
+               return next;
+         }
+      }
+
+      // otherwise every later offset is tried; only a record of a matching checksum is taken for intact
+      long position = bad + 1;
+      while (position + RECORD_OVERHEAD <= size) {
+         buffer.clear();
+         int read = readUpTo(channel, buffer, position, size);
+         buffer.flip();
+         boolean last = position + read == size;
+         // a record starting past this point may not fit in the buffer, the next window starts there
+         int window = last ? read : read - RECORD_OVERHEAD - MAX_BODY;
+         for (int i = 0; i < window; i++) {
+            if (decode(buffer.position(i)) != null)
+               return position + i;
+         }
+         if (last)
+            return -1;
+         position += window;
+      }
+      return -1;
+   }
+
+   private static int stringLength(String value) {
+      if (value == null)
+         return 2;
+      int length = value.getBytes(StandardCharsets.UTF_8).length;
+      if (length > Short.MAX_VALUE)
+         throw new IllegalArgumentException("A string of " + length + " bytes does not fit its length prefix");
+      return 2 + length;
+   }
+
+   private static void putString(ByteBuffer buffer, String value) {
+      if (value == null) {
+         buffer.putShort((short) -1);
+         return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      buffer.putShort((short) bytes.length).put(bytes);
+   }
+
+   private static String getString(ByteBuffer buffer) {
+      int length = buffer.getShort();
+      if (length < 0)
+         return null;
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining())
+         position += channel.write(buffer, position);
+   }
+
+   private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining()) {
+         int read = channel.read(buffer, position);
+         if (read < 0)
+            throw new IOException("Unexpected end of the student log at offset " + position);
+         position += read;
+      }
+   }
+
+   private static int readUpTo(FileChannel channel, ByteBuffer buffer, long position, long size) throws IOException {
+      int total = 0;
+      while (buffer.hasRemaining() && position + total < size) {
+         int read = channel.read(buffer, position + total);
+         if (read < 0)
+            break;
+         total += read;
+      }
+      return total;
+   }
+}
@@ -0,0 +1,98 @@
+package com.dlvi.studentmanagement.dao;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped array from student id to the offset and length of its current record in the {@link StudentLog}: one
+ * long per id at {@code id * 8}, so a lookup is a single read of mapped memory. The file is mapped in regions of
+ * {@link #REGION_IDS} ids as ids grow.
+ * <p>
+ * The index is rebuilt by the recovery scan on every start, so it is never trusted after a crash; the file only backs
+ * the mapping, which keeps millions of offsets out of the heap and lets the OS page them. Entries are written by the
+ * single appending thread and read by any thread with volatile semantics.
+ */
+final class StudentOffsetIndex implements AutoCloseable {
+
+   static final int REGION_IDS = 1 << 20;
+   // offsets up to 1 TiB, records up to 16 MiB
+   private static final int LENGTH_BITS = 24;
+   private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+   private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+   private final Path path;
+   private final FileChannel channel;
+   private final Object growLock = new Object();
+   // only replaced, under growLock, by a longer copy
+   private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+   StudentOffsetIndex(Path path) throws IOException {
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+         StandardOpenOption.READ, StandardOpenOption.WRITE);
+   }
+
+   /**
+    * The packed location of the id's record, or 0 when it has none.
+    */
+   long get(int id) {
+      MappedByteBuffer[] current = regions;
+      int region = id / REGION_IDS;
+      if (id <= 0 || region >= current.length)
+         return 0;
+      return (long) LONGS.getVolatile(current[region], (id % REGION_IDS) * Long.BYTES);
+   }
+
+   void put(int id, long offset, int length) throws IOException {
+      LONGS.setVolatile(region(id), (id % REGION_IDS) * Long.BYTES, offset << LENGTH_BITS | length);
+   }
+
+   void remove(int id) {
+      MappedByteBuffer[] current = regions;
+      int region = id / REGION_IDS;
+      if (id > 0 && region < current.length)
+         LONGS.setVolatile(current[region], (id % REGION_IDS) * Long.BYTES, 0L);
+   }
+
+   static long offset(long location) {
+      return location >>> LENGTH_BITS;
+   }
+
+   static int length(long location) {
+      return (int) (location & LENGTH_MASK);
+   }
+
+   @Override
+   public void close() throws IOException {
+      regions = new MappedByteBuffer[0];
+      channel.close();
+      Files.deleteIfExists(path);
+   }
+
+   private MappedByteBuffer region(int id) throws IOException {
+      int region = id / REGION_IDS;
+      MappedByteBuffer[] current = regions;
+      if (region < current.length)
+         return current[region];
+
+      synchronized (growLock) {
+         current = regions;
+         if (region >= current.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(current, region + 1);
+            for (int i = current.length; i < grown.length; i++)
+               grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * REGION_IDS * Long.BYTES, (long) REGION_IDS * Long.BYTES);
+            regions = grown;
+            current = grown;
+         }
+         return current[region];
+      }
+   }
+}
@@ -0,0 +1,17 @@
+package com.dlvi.studentmanagement.dto;
+
+public record StudentBatchItemDto(int index, boolean success, Integer id, String error) {
+
+   public static StudentBatchItemDto created(int index, Integer id) {
+      return new StudentBatchItemDto(index, true, id, null);
+   }
+
+   // a student deleted or updated by a bulk request
+   public static StudentBatchItemDto succeeded(int index, Integer id) {
+      return new StudentBatchItemDto(index, true, id, null);
+   }
+
+   public static StudentBatchItemDto failed(int index, String error) {
+      return new StudentBatchItemDto(index, false, null, error);
+   }
+}
@@ -0,0 +1,17 @@
+package com.dlvi.studentmanagement.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One entry of a bulk patch: the student, the fields to write and, optionally, the version the client last read.
+ */
+public record StudentBatchPatchDto(@NotNull(message = "The id cannot be null")
+                                   @Min(value = 1, message = "The id must be positive")
+                                   Integer id,
+                                   Integer expectedVersion,
+                                   @NotNull(message = "The patch cannot be null")
+                                   @Valid
+                                   StudentPatchDto patch) {
+}
@@ -0,0 +1,9 @@
+package com.dlvi.studentmanagement.dto;
+
+public record StudentCacheStatsDto(boolean enabled,
+                                   long size,
+                                   long hitCount,
+                                   long missCount,
+                                   double hitRate,
+                                   long evictionCount) {
+}
@@ -0,0 +1,21 @@
+package com.dlvi.studentmanagement.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// one entry of the change feed; student holds the state after the change and is left out of a DELETED tombstone
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StudentChangeDto(long seq,
+                               Type type,
+                               int studentId,
+                               Integer version,
+                               StudentResponseDto student,
+                               LocalDateTime changedAt) {
+
+   public enum Type {
+      CREATED,
+      UPDATED,
+      DELETED
+   }
+}
@@ -0,0 +1,7 @@
+package com.dlvi.studentmanagement.dto;
+
+import java.util.List;
+
+// next is the since of the following request, the seq of the last change or the given since when there are none
+public record StudentChangePageDto(List<StudentChangeDto> changes, long next, boolean more) {
+}
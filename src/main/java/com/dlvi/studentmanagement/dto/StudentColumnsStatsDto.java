@@ -0,0 +1,10 @@
+package com.dlvi.studentmanagement.dto;
+
+public record StudentColumnsStatsDto(boolean ready,
+                                     int rows,
+                                     int deletedRows,
+                                     int distinctSexes,
+                                     int distinctEmailDomains,
+                                     long memoryBytes,
+                                     long bytesPerRow) {
+}
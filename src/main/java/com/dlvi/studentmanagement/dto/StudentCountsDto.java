@@ -0,0 +1,12 @@
+package com.dlvi.studentmanagement.dto;
+
+import java.util.Map;
+
+/**
+ * Students in total, by sex (missing ones under {@code unknown}) and by birth year; groups without students are left
+ * out.
+ */
+public record StudentCountsDto(long total,
+                               Map<String, Long> bySex,
+                               Map<Integer, Long> byBirthYear) {
+}
@@ -0,0 +1,16 @@
+package com.dlvi.studentmanagement.dto;
+
+/**
+ * Sizing of the email Bloom filter and how the batch pre-checks it answered split between emails it ruled out and
+ * possible positives sent to the database.
+ */
+public record StudentEmailIndexStatsDto(boolean ready,
+                                        long emails,
+                                        long memoryBytes,
+                                        long bytesPerMillionEmails,
+                                        int hashFunctions,
+                                        double configuredFalsePositiveRate,
+                                        double expectedFalsePositiveRate,
+                                        long negatives,
+                                        long possiblePositives) {
+}
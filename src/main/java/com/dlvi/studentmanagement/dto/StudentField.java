@@ -0,0 +1,38 @@
+package com.dlvi.studentmanagement.dto;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Fields of {@link StudentResponseDto} a client can select with {@code ?fields=}, and the column behind each one.
+ */
+public enum StudentField {
+   ID("id"),
+   NAME("name"),
+   EMAIL("email");
+
+   public static final Set<StudentField> ALL = EnumSet.allOf(StudentField.class);
+
+   private final String column;
+
+   StudentField(String column) {
+      this.column = column;
+   }
+
+   public String column() {
+      return column;
+   }
+
+   public static StudentField from(String name) {
+      try {
+         return valueOf(name.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+         throw new IllegalArgumentException("Unknown student field '" + name + "', expected one of id, name, email");
+      }
+   }
+
+   public static Set<StudentField> orAll(Set<StudentField> fields) {
+      return fields == null || fields.isEmpty() ? ALL : fields;
+   }
+}
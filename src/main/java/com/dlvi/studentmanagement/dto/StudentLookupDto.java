@@ -0,0 +1,7 @@
+package com.dlvi.studentmanagement.dto;
+
+import java.util.List;
+
+// data follows the order of the requested ids, each id once; missing lists the requested ids that do not exist
+public record StudentLookupDto(List<StudentResponseDto> data, List<Integer> missing) {
+}
@@ -0,0 +1,11 @@
+package com.dlvi.studentmanagement.dto;
+
+import java.util.List;
+
+// etag is a strong validator derived from the ids and versions behind the page, see StudentServiceImpl#pageTag
+public record StudentPageDto(List<StudentResponseDto> data, Integer nextCursor, long total, String etag) {
+
+   public StudentPageDto(List<StudentResponseDto> data, Integer nextCursor, long total) {
+      this(data, nextCursor, total, null);
+   }
+}
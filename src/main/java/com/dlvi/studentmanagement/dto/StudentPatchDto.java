@@ -1,13 +1,25 @@
 package com.dlvi.studentmanagement.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Email;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 
-public record StudentPatchDto(@NotBlank
-                              @NotNull(message = "The name cannot be void")
+/**
+ * Partial update: only the non-null fields are written.
+ */
+public record StudentPatchDto(@Pattern(regexp = ".*\\S.*", message = "The name cannot be void")
+                              @Size(max = 100, message = "The name cannot be longer than 100 characters")
                               String name,
-                              @NotBlank
+                              @Pattern(regexp = ".*\\S.*", message = "The email cannot be void")
                               @Email(message = "The email cannot be void")
+                              @Size(max = 150, message = "The email cannot be longer than 150 characters")
                               String email) {
+
+   @JsonIgnore
+   @AssertTrue(message = "At least one of name or email is required")
+   public boolean isNotEmpty() {
+      return name != null || email != null;
+   }
 }
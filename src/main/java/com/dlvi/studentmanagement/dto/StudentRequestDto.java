@@ -3,16 +3,20 @@ package com.dlvi.studentmanagement.dto;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.time.LocalDate;
 
 public record StudentRequestDto(@NotBlank
                                 @NotNull(message = "The name cannot be void")
+                                @Size(max = 100, message = "The name cannot be longer than 100 characters")
                                 String name,
                                 @NotBlank
                                 @Email(message = "The email cannot be void")
+                                @Size(max = 150, message = "The email cannot be longer than 150 characters")
                                 String email,
                                 @NotNull(message = "The date is mandatory")
                                 LocalDate birthDate,
+                                @Size(max = 20, message = "The sex cannot be longer than 20 characters")
                                 String sex) {
 }
@@ -1,4 +1,27 @@
 package com.dlvi.studentmanagement.dto;
 
-public record StudentResponseDto(Integer id, String name, String email) {
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Set;
+
+// fields left out of a ?fields= projection are null and omitted from the JSON; the row version travels in the
+// ETag header instead of the body and is null when it is not known
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StudentResponseDto(Integer id, String name, String email, @JsonIgnore Integer version) {
+
+   public StudentResponseDto(Integer id, String name, String email) {
+      this(id, name, email, null);
+   }
+
+   public StudentResponseDto select(Set<StudentField> fields) {
+      if (fields.containsAll(StudentField.ALL))
+         return this;
+
+      return new StudentResponseDto(
+         fields.contains(StudentField.ID) ? id : null,
+         fields.contains(StudentField.NAME) ? name : null,
+         fields.contains(StudentField.EMAIL) ? email : null,
+         version);
+   }
 }
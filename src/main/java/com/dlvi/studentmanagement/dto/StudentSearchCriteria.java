@@ -0,0 +1,29 @@
+package com.dlvi.studentmanagement.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of {@code GET /student/search}; every one is optional and the given ones are combined with AND.
+ */
+public record StudentSearchCriteria(@Size(max = 100)
+                                    String namePrefix,
+                                    @Size(min = 1, max = 100)
+                                    String nameContains,
+                                    @Size(max = 150)
+                                    String emailDomain,
+                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                    LocalDate bornFrom,
+                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                    LocalDate bornTo,
+                                    @Size(max = 20)
+                                    String sex) {
+
+   @AssertTrue(message = "bornFrom must not be after bornTo")
+   public boolean isBirthRangeValid() {
+      return bornFrom == null || bornTo == null || !bornFrom.isAfter(bornTo);
+   }
+}
@@ -0,0 +1,24 @@
+package com.dlvi.studentmanagement.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates over every student: counts by sex (missing ones under {@code unknown}), by birth year and by the most
+ * common email domains, an age histogram and age percentiles. Students without a birth date, or born in the future,
+ * are only counted in {@code students} and {@code unknownBirthDate}.
+ */
+public record StudentStatsDto(long students,
+                              long unknownBirthDate,
+                              Map<String, Long> bySex,
+                              Map<Integer, Long> byBirthYear,
+                              Map<String, Long> topEmailDomains,
+                              List<AgeBucket> ageHistogram,
+                              Map<String, Integer> agePercentiles) {
+
+   /**
+    * Students aged {@code fromAge} to {@code toAge}, both inclusive.
+    */
+   public record AgeBucket(int fromAge, int toAge, long students) {
+   }
+}
@@ -0,0 +1,7 @@
+package com.dlvi.studentmanagement.exception;
+
+public class ChangeStreamFullException extends RuntimeException {
+   public ChangeStreamFullException(String message) {
+      super(message);
+   }
+}
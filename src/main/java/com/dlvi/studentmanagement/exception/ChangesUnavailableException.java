@@ -0,0 +1,7 @@
+package com.dlvi.studentmanagement.exception;
+
+public class ChangesUnavailableException extends RuntimeException {
+   public ChangesUnavailableException(String message) {
+      super(message);
+   }
+}
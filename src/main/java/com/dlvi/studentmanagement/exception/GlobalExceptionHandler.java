@@ -1,7 +1,10 @@
 package com.dlvi.studentmanagement.exception;
 
 import com.dlvi.studentmanagement.model.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -11,11 +14,19 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.util.HashMap;
 import java.util.Map;
 
+@Profile("!reactive")
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+   private final MeterRegistry meterRegistry;
+
+   public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+      this.meterRegistry = meterRegistry;
+   }
+
    @ExceptionHandler(MethodArgumentNotValidException.class)
    public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationErrors(MethodArgumentNotValidException ex) {
+      count(ex);
       Map<String, String> errors = new HashMap<>();
 
       ex.getBindingResult().getFieldErrors().forEach(error ->
@@ -33,19 +44,66 @@ public class GlobalExceptionHandler {
 
    @ExceptionHandler(ResourceNotFoundException.class)
    public ResponseEntity<ErrorResponse> handleNotFound(ResourceNotFoundException ex, HttpServletRequest request) {
+      count(ex);
       return ResponseEntity.status(HttpStatus.NOT_FOUND.value()).body(buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request));
    }
 
    @ExceptionHandler(DatabaseOperationException.class)
    public ResponseEntity<ErrorResponse> handleDatabaseOperationError(DatabaseOperationException ex, HttpServletRequest request) {
+      count(ex);
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).body(buildErrorResponse(ex, HttpStatus.INTERNAL_SERVER_ERROR, request));
    }
 
    @ExceptionHandler(EmailAlreadyExistsException.class)
    public ResponseEntity<ErrorResponse> handleValidation(EmailAlreadyExistsException ex, HttpServletRequest request) {
+      count(ex);
       return ResponseEntity.status(HttpStatus.CONFLICT.value()).body(buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request));
    }
 
+   @ExceptionHandler(PreconditionFailedException.class)
+   public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex, HttpServletRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED.value()).body(buildErrorResponse(ex, HttpStatus.PRECONDITION_FAILED, request));
+   }
+
+   @ExceptionHandler(RegistrationQueueFullException.class)
+   public ResponseEntity<ErrorResponse> handleRegistrationQueueFull(RegistrationQueueFullException ex, HttpServletRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE.value())
+         .header(HttpHeaders.RETRY_AFTER, "1")
+         .body(buildErrorResponse(ex, HttpStatus.SERVICE_UNAVAILABLE, request));
+   }
+
+   @ExceptionHandler(StatisticsUnavailableException.class)
+   public ResponseEntity<ErrorResponse> handleStatisticsUnavailable(StatisticsUnavailableException ex, HttpServletRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE.value()).body(buildErrorResponse(ex, HttpStatus.SERVICE_UNAVAILABLE, request));
+   }
+
+   @ExceptionHandler(ChangesUnavailableException.class)
+   public ResponseEntity<ErrorResponse> handleChangesUnavailable(ChangesUnavailableException ex, HttpServletRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED.value()).body(buildErrorResponse(ex, HttpStatus.NOT_IMPLEMENTED, request));
+   }
+
+   @ExceptionHandler(ChangesExpiredException.class)
+   public ResponseEntity<ErrorResponse> handleChangesExpired(ChangesExpiredException ex, HttpServletRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.GONE.value()).body(buildErrorResponse(ex, HttpStatus.GONE, request));
+   }
+
+   @ExceptionHandler(ChangeStreamFullException.class)
+   public ResponseEntity<ErrorResponse> handleChangeStreamFull(ChangeStreamFullException ex, HttpServletRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE.value())
+         .header(HttpHeaders.RETRY_AFTER, "5")
+         .body(buildErrorResponse(ex, HttpStatus.SERVICE_UNAVAILABLE, request));
+   }
+
+   private void count(Exception ex) {
+      meterRegistry.counter("student.exceptions", "type", ex.getClass().getSimpleName()).increment();
+   }
+
    private ErrorResponse buildErrorResponse(Exception ex, HttpStatus status, HttpServletRequest request) {
       return new ErrorResponse(
          status.value(),
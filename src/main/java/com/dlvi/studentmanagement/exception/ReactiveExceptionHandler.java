@@ -0,0 +1,79 @@
+package com.dlvi.studentmanagement.exception;
+
+import com.dlvi.studentmanagement.model.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link GlobalExceptionHandler} for the WebFlux stack: same statuses, bodies and {@code student.exceptions} counter.
+ */
+@Profile("reactive")
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+   private final MeterRegistry meterRegistry;
+
+   public ReactiveExceptionHandler(MeterRegistry meterRegistry) {
+      this.meterRegistry = meterRegistry;
+   }
+
+   @ExceptionHandler(WebExchangeBindException.class)
+   public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationErrors(WebExchangeBindException ex) {
+      count(ex);
+      Map<String, String> errors = new HashMap<>();
+
+      ex.getBindingResult().getFieldErrors().forEach(error ->
+         errors.put(error.getField(), error.getDefaultMessage())
+      );
+
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(
+         false,
+         "Validation failed",
+         errors));
+   }
+
+   @ExceptionHandler(ResourceNotFoundException.class)
+   public ResponseEntity<ErrorResponse> handleNotFound(ResourceNotFoundException ex, ServerHttpRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.NOT_FOUND.value()).body(buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request));
+   }
+
+   @ExceptionHandler(DatabaseOperationException.class)
+   public ResponseEntity<ErrorResponse> handleDatabaseOperationError(DatabaseOperationException ex, ServerHttpRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).body(buildErrorResponse(ex, HttpStatus.INTERNAL_SERVER_ERROR, request));
+   }
+
+   @ExceptionHandler(EmailAlreadyExistsException.class)
+   public ResponseEntity<ErrorResponse> handleValidation(EmailAlreadyExistsException ex, ServerHttpRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.CONFLICT.value()).body(buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request));
+   }
+
+   @ExceptionHandler(PreconditionFailedException.class)
+   public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex, ServerHttpRequest request) {
+      count(ex);
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED.value()).body(buildErrorResponse(ex, HttpStatus.PRECONDITION_FAILED, request));
+   }
+
+   private void count(Exception ex) {
+      meterRegistry.counter("student.exceptions", "type", ex.getClass().getSimpleName()).increment();
+   }
+
+   private ErrorResponse buildErrorResponse(Exception ex, HttpStatus status, ServerHttpRequest request) {
+      return new ErrorResponse(
+         status.value(),
+         status.getReasonPhrase(),
+         ex.getMessage(),
+         request.getPath().value());
+   }
+}
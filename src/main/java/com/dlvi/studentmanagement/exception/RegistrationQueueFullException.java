@@ -0,0 +1,7 @@
+package com.dlvi.studentmanagement.exception;
+
+public class RegistrationQueueFullException extends RuntimeException {
+   public RegistrationQueueFullException(String message) {
+      super(message);
+   }
+}
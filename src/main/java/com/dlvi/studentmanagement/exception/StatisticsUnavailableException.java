@@ -0,0 +1,7 @@
+package com.dlvi.studentmanagement.exception;
+
+public class StatisticsUnavailableException extends RuntimeException {
+   public StatisticsUnavailableException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,89 @@
+package com.dlvi.studentmanagement.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@code StudentDao} and service call as {@code student.dao} / {@code student.service}, tagged by
+ * operation and outcome, with percentile histograms so latency quantiles can be aggregated in Prometheus.
+ * DAO calls returning a collection also record its size in {@code student.dao.rows}.
+ * <p>
+ * Meters are resolved once per operation/outcome and cached, so the per-call cost is a map lookup and a clock read.
+ */
+@Aspect
+@Component
+public class StudentMetricsAspect {
+
+   private final MeterRegistry registry;
+   private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+   private final Map<String, DistributionSummary> rowCounts = new ConcurrentHashMap<>();
+
+   public StudentMetricsAspect(MeterRegistry registry) {
+      this.registry = registry;
+   }
+
+   @Around("execution(* com.dlvi.studentmanagement.dao.StudentDao+.*(..))")
+   public Object timeDao(ProceedingJoinPoint joinPoint) throws Throwable {
+      Object result = time("student.dao", "StudentDao", joinPoint);
+
+      if (result instanceof Collection<?> rows)
+         rowCounts(joinPoint.getSignature().getName()).record(rows.size());
+
+      return result;
+   }
+
+   @Around("execution(* com.dlvi.studentmanagement.service.StudentService+.*(..))")
+   public Object timeStudentService(ProceedingJoinPoint joinPoint) throws Throwable {
+      return time("student.service", "StudentService", joinPoint);
+   }
+
+   @Around("execution(* com.dlvi.studentmanagement.service.StudentBatchService+.*(..))")
+   public Object timeBatchService(ProceedingJoinPoint joinPoint) throws Throwable {
+      return time("student.service", "StudentBatchService", joinPoint);
+   }
+
+   private Object time(String name, String component, ProceedingJoinPoint joinPoint) throws Throwable {
+      String operation = joinPoint.getSignature().getName();
+      long start = System.nanoTime();
+      String exception = "none";
+
+      try {
+         return joinPoint.proceed();
+      } catch (Throwable e) {
+         exception = e.getClass().getSimpleName();
+         throw e;
+      } finally {
+         timer(name, component, operation, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+   }
+
+   private Timer timer(String name, String component, String operation, String exception) {
+      return timers.computeIfAbsent(name + '|' + component + '|' + operation + '|' + exception, key -> Timer.builder(name)
+         .description("Latency of " + component + " calls")
+         .tag("component", component)
+         .tag("operation", operation)
+         .tag("outcome", "none".equals(exception) ? "success" : "error")
+         .tag("exception", exception)
+         .publishPercentileHistogram()
+         .register(registry));
+   }
+
+   private DistributionSummary rowCounts(String operation) {
+      return rowCounts.computeIfAbsent(operation, key -> DistributionSummary.builder("student.dao.rows")
+         .description("Rows returned by StudentDao calls that return collections")
+         .baseUnit("rows")
+         .tag("operation", operation)
+         .publishPercentileHistogram()
+         .register(registry));
+   }
+}
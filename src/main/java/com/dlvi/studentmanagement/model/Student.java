@@ -4,6 +4,7 @@ import com.dlvi.studentmanagement.dto.StudentRequestDto;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.util.Locale;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -23,4 +24,9 @@ public class Student {
       this.birthDate = dto.birthDate();
       this.sex = dto.sex();
    }
+
+   // written next to the email on every insert and update so searching by domain can use its own index
+   public static String emailDomain(String email) {
+      return email.substring(email.indexOf('@') + 1).toLowerCase(Locale.ROOT);
+   }
 }
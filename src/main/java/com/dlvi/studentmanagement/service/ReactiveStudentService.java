@@ -0,0 +1,33 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentRequestDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Non-blocking counterpart of {@link StudentService}, active with the {@code reactive} profile.
+ */
+public interface ReactiveStudentService {
+
+   Mono<StudentResponseDto> registerStudent(StudentRequestDto student);
+
+   Mono<Void> deleteStudent(Integer id);
+
+   Mono<StudentPageDto> studentList(Integer after, int limit, Set<StudentField> fields);
+
+   /**
+    * Every student, read from the database only as fast as the subscriber consumes them.
+    */
+   Flux<StudentResponseDto> exportStudents();
+
+   Mono<StudentResponseDto> getStudent(Integer id);
+
+   Mono<StudentResponseDto> patchStudent(Integer id, StudentPatchDto req, Integer expectedVersion);
+
+}
@@ -0,0 +1,105 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.ReactiveStudentDao;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentRequestDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.PreconditionFailedException;
+import com.dlvi.studentmanagement.exception.ResourceNotFoundException;
+import com.dlvi.studentmanagement.model.Student;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+@Profile("reactive")
+@Service
+public class ReactiveStudentServiceImpl implements ReactiveStudentService {
+
+   private static final String ID_NOT_FOUND = "Student not found with id ";
+   private final ReactiveStudentDao studentDao;
+   private final TransactionalOperator transactionalOperator;
+
+   public ReactiveStudentServiceImpl(ReactiveStudentDao studentDao, TransactionalOperator transactionalOperator) {
+      this.studentDao = studentDao;
+      this.transactionalOperator = transactionalOperator;
+   }
+
+   @Override
+   public Mono<StudentResponseDto> registerStudent(StudentRequestDto req) {
+      return studentDao.save(new Student(req))
+         .map(id -> new StudentResponseDto(id, req.name(), req.email()));
+   }
+
+   @Override
+   public Mono<Void> deleteStudent(Integer id) {
+      return studentDao.deleteById(id)
+         .filter(deleted -> deleted > 0)
+         .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(ID_NOT_FOUND + id)))
+         .then();
+   }
+
+   @Override
+   public Mono<StudentPageDto> studentList(Integer after, int limit, Set<StudentField> fields) {
+      Set<StudentField> selected = StudentField.orAll(fields);
+
+      // same shape as the blocking service: one extra row decides the next cursor, the id is only shown when selected
+      Mono<List<StudentResponseDto>> rows = studentDao.listResponsePage(after, limit + 1, selected).collectList();
+
+      return Mono.zip(rows, studentDao.count(), (page, total) -> {
+         List<StudentResponseDto> data = page.size() > limit ? page.subList(0, limit) : page;
+         Integer nextCursor = page.size() > limit ? data.get(data.size() - 1).id() : null;
+
+         if (!selected.contains(StudentField.ID))
+            data = data.stream().map(student -> student.select(selected)).toList();
+
+         return new StudentPageDto(data, nextCursor, total);
+      });
+   }
+
+   @Override
+   public Flux<StudentResponseDto> exportStudents() {
+      return studentDao.listAll()
+         .map(student -> new StudentResponseDto(student.getId(), student.getName(), student.getEmail()));
+   }
+
+   @Override
+   public Mono<StudentResponseDto> getStudent(Integer id) {
+      return studentDao.getResponseById(id)
+         .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(ID_NOT_FOUND + id)));
+   }
+
+   @Override
+   public Mono<StudentResponseDto> patchStudent(Integer id, StudentPatchDto patch, Integer expectedVersion) {
+      Mono<StudentResponseDto> patched = studentDao.partialUpdate(id, patch, expectedVersion)
+         .flatMap(updated -> updated > 0
+            ? patchedResponse(id, patch)
+            : notUpdated(id, expectedVersion));
+
+      return patched.as(transactionalOperator::transactional);
+   }
+
+   private Mono<StudentResponseDto> patchedResponse(Integer id, StudentPatchDto patch) {
+      if (patch.name() != null && patch.email() != null)
+         return Mono.just(new StudentResponseDto(id, patch.name(), patch.email()));
+
+      return getStudent(id);
+   }
+
+   private Mono<StudentResponseDto> notUpdated(Integer id, Integer expectedVersion) {
+      Mono<StudentResponseDto> notFound = Mono.error(() -> new ResourceNotFoundException("The record could not be updated into the database"));
+      if (expectedVersion == null)
+         return notFound;
+
+      return studentDao.getVersion(id)
+         .flatMap(version -> Mono.<StudentResponseDto>error(
+            new PreconditionFailedException("Student " + id + " has been modified since version " + expectedVersion)))
+         .switchIfEmpty(notFound);
+   }
+}
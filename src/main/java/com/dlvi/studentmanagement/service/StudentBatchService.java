@@ -0,0 +1,17 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentBatchItemDto;
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentRequestDto;
+
+import java.util.List;
+
+public interface StudentBatchService {
+
+   List<StudentBatchItemDto> registerStudents(List<StudentRequestDto> requests);
+
+   List<StudentBatchItemDto> deleteStudents(List<Integer> ids);
+
+   List<StudentBatchItemDto> patchStudents(List<StudentBatchPatchDto> patches);
+
+}
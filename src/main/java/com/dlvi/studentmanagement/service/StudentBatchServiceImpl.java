@@ -0,0 +1,297 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentBatchItemDto;
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentRequestDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Profile("!reactive")
+@Service
+public class StudentBatchServiceImpl implements StudentBatchService {
+
+   private static final String ID_NOT_FOUND = "Student not found with id ";
+
+   private final StudentDao studentDao;
+   private final StudentCache studentCache;
+   private final StudentEmailIndex emailIndex;
+   private final StudentNameIndex nameIndex;
+   private final StudentColumns columns;
+   private final StudentReadCoalescer readCoalescer;
+   private final Validator validator;
+   private final TransactionTemplate transactionTemplate;
+   private final int chunkSize;
+
+   public StudentBatchServiceImpl(StudentDao studentDao,
+                                  StudentCache studentCache,
+                                  StudentEmailIndex emailIndex,
+                                  StudentNameIndex nameIndex,
+                                  StudentColumns columns,
+                                  StudentReadCoalescer readCoalescer,
+                                  Validator validator,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${student.batch.chunk-size:500}") int chunkSize) {
+      this.studentDao = studentDao;
+      this.studentCache = studentCache;
+      this.emailIndex = emailIndex;
+      this.nameIndex = nameIndex;
+      this.columns = columns;
+      this.readCoalescer = readCoalescer;
+      this.validator = validator;
+      this.transactionTemplate = transactionTemplate;
+      this.chunkSize = chunkSize;
+   }
+
+   @Override
+   public List<StudentBatchItemDto> registerStudents(List<StudentRequestDto> requests) {
+      StudentBatchItemDto[] results = new StudentBatchItemDto[requests.size()];
+
+      // one set-based lookup for the whole batch instead of an emailExists round trip per student, restricted to the
+      // emails the index cannot rule out; one it misses, registered elsewhere, fails its chunk on the unique index
+      List<String> candidates = requests.stream()
+         .filter(req -> req != null && req.email() != null)
+         .map(StudentRequestDto::email)
+         .filter(emailIndex::mightContain)
+         .toList();
+      Set<String> taken = new HashSet<>(candidates.isEmpty() ? Set.of() : studentDao.findExistingEmails(candidates));
+
+      List<Integer> pendingIndexes = new ArrayList<>();
+      for (int i = 0; i < requests.size(); i++) {
+         StudentRequestDto req = requests.get(i);
+         String error = validate(req);
+
+         if (error == null && !taken.add(req.email().toLowerCase(Locale.ROOT)))
+            error = "The email " + req.email() + " is already registered";
+
+         if (error != null)
+            results[i] = StudentBatchItemDto.failed(i, error);
+         else
+            pendingIndexes.add(i);
+      }
+
+      for (int from = 0; from < pendingIndexes.size(); from += chunkSize) {
+         List<Integer> chunk = pendingIndexes.subList(from, Math.min(from + chunkSize, pendingIndexes.size()));
+         insertChunk(requests, chunk, results);
+      }
+      if (!pendingIndexes.isEmpty())
+         readCoalescer.forgetPages();
+
+      return Arrays.asList(results);
+   }
+
+   private void insertChunk(List<StudentRequestDto> requests, List<Integer> indexes, StudentBatchItemDto[] results) {
+      List<Student> students = indexes.stream()
+         .map(i -> new Student(requests.get(i)))
+         .toList();
+
+      try {
+         List<Integer> ids = transactionTemplate.execute(status -> studentDao.saveAll(students));
+         for (int i = 0; i < indexes.size(); i++) {
+            results[indexes.get(i)] = StudentBatchItemDto.created(indexes.get(i), ids.get(i));
+            emailIndex.add(students.get(i).getEmail());
+            nameIndex.add(ids.get(i), students.get(i).getName());
+            columns.add(ids.get(i), students.get(i));
+         }
+      } catch (DatabaseOperationException e) {
+         // the chunk was rolled back as a whole; retry row by row so only the offending rows fail
+         for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
+            try {
+               Integer id = studentDao.save(students.get(i));
+               results[index] = StudentBatchItemDto.created(index, id);
+               emailIndex.add(students.get(i).getEmail());
+               nameIndex.add(id, students.get(i).getName());
+               columns.add(id, students.get(i));
+            } catch (DatabaseOperationException | EmailAlreadyExistsException rowError) {
+               results[index] = StudentBatchItemDto.failed(index, rowError.getMessage());
+            }
+         }
+      }
+   }
+
+   @Override
+   public List<StudentBatchItemDto> deleteStudents(List<Integer> ids) {
+      StudentBatchItemDto[] results = new StudentBatchItemDto[ids.size()];
+
+      // a repeated id is deleted once and reported at each of its positions
+      Map<Integer, List<Integer>> indexesById = new LinkedHashMap<>();
+      for (int i = 0; i < ids.size(); i++) {
+         if (ids.get(i) == null)
+            results[i] = StudentBatchItemDto.failed(i, "The id cannot be null");
+         else
+            indexesById.computeIfAbsent(ids.get(i), id -> new ArrayList<>()).add(i);
+      }
+
+      List<Integer> distinct = List.copyOf(indexesById.keySet());
+      for (int from = 0; from < distinct.size(); from += chunkSize) {
+         List<Integer> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+         deleteChunk(chunk, indexesById, results);
+      }
+
+      return Arrays.asList(results);
+   }
+
+   private void deleteChunk(List<Integer> ids, Map<Integer, List<Integer>> indexesById, StudentBatchItemDto[] results) {
+      List<Integer> deleted;
+      try {
+         deleted = transactionTemplate.execute(status -> {
+            ids.forEach(this::forget);
+            return studentDao.deleteAllById(ids);
+         });
+      } catch (DatabaseOperationException e) {
+         // the chunk was rolled back as a whole and nothing in it was deleted
+         for (Integer id : ids)
+            indexesById.get(id).forEach(index -> results[index] = StudentBatchItemDto.failed(index, e.getMessage()));
+         return;
+      }
+
+      Set<Integer> removed = new HashSet<>(deleted);
+      for (Integer id : ids) {
+         boolean found = removed.contains(id);
+         if (found)
+            columns.remove(id);
+         for (int index : indexesById.get(id))
+            results[index] = found ? StudentBatchItemDto.succeeded(index, id) : StudentBatchItemDto.failed(index, ID_NOT_FOUND + id);
+      }
+   }
+
+   @Override
+   public List<StudentBatchItemDto> patchStudents(List<StudentBatchPatchDto> patches) {
+      StudentBatchItemDto[] results = new StudentBatchItemDto[patches.size()];
+
+      // one set-based lookup of who holds each new email, restricted to the emails the index cannot rule out, the
+      // unique index catching the ones it misses; a student may keep their own email
+      List<String> candidates = patches.stream()
+         .filter(item -> item != null && item.patch() != null && item.patch().email() != null)
+         .map(item -> item.patch().email())
+         .filter(emailIndex::mightContain)
+         .toList();
+      Map<String, Integer> owners = new HashMap<>(candidates.isEmpty() ? Map.of() : studentDao.findEmailOwners(candidates));
+
+      List<Integer> pendingIndexes = new ArrayList<>();
+      for (int i = 0; i < patches.size(); i++) {
+         StudentBatchPatchDto item = patches.get(i);
+         String error = validate(item, "The entry cannot be null");
+
+         if (error == null && item.patch().email() != null) {
+            Integer owner = owners.putIfAbsent(item.patch().email().toLowerCase(Locale.ROOT), item.id());
+            if (owner != null && !owner.equals(item.id()))
+               error = "The email " + item.patch().email() + " is already registered";
+         }
+
+         if (error != null)
+            results[i] = StudentBatchItemDto.failed(i, error);
+         else
+            pendingIndexes.add(i);
+      }
+
+      for (int from = 0; from < pendingIndexes.size(); from += chunkSize) {
+         List<Integer> chunk = pendingIndexes.subList(from, Math.min(from + chunkSize, pendingIndexes.size()));
+         patchChunk(patches, chunk, results);
+      }
+
+      return Arrays.asList(results);
+   }
+
+   private void patchChunk(List<StudentBatchPatchDto> patches, List<Integer> indexes, StudentBatchItemDto[] results) {
+      List<StudentBatchPatchDto> chunk = indexes.stream()
+         .map(patches::get)
+         .toList();
+
+      int[] updated;
+      try {
+         updated = transactionTemplate.execute(status -> {
+            chunk.forEach(item -> forget(item.id()));
+            return studentDao.partialUpdateAll(chunk);
+         });
+      } catch (DatabaseOperationException | EmailAlreadyExistsException e) {
+         // the chunk was rolled back as a whole; retry row by row so only the offending rows fail
+         updated = new int[chunk.size()];
+         for (int i = 0; i < chunk.size(); i++) {
+            StudentBatchPatchDto item = chunk.get(i);
+            try {
+               // in its own transaction, so the reads forgotten before the update are forgotten again once it commits
+               updated[i] = transactionTemplate.execute(status -> {
+                  forget(item.id());
+                  return studentDao.partialUpdate(item.id(), item.patch(), item.expectedVersion());
+               });
+            } catch (DatabaseOperationException | EmailAlreadyExistsException rowError) {
+               results[indexes.get(i)] = StudentBatchItemDto.failed(indexes.get(i), rowError.getMessage());
+               updated[i] = -1;
+            }
+         }
+      }
+
+      for (int i = 0; i < chunk.size(); i++) {
+         int index = indexes.get(i);
+         StudentBatchPatchDto item = chunk.get(i);
+         if (updated[i] > 0) {
+            results[index] = StudentBatchItemDto.succeeded(index, item.id());
+            patched(item);
+         } else if (updated[i] == 0) {
+            results[index] = StudentBatchItemDto.failed(index, notUpdated(item));
+         }
+      }
+   }
+
+   private void patched(StudentBatchPatchDto item) {
+      if (item.patch().email() != null) {
+         emailIndex.add(item.patch().email());
+         columns.updateEmail(item.id(), item.patch().email());
+      }
+      if (item.patch().name() != null)
+         nameIndex.add(item.id(), item.patch().name());
+   }
+
+   // only the few patches that matched no row pay for finding out why
+   private String notUpdated(StudentBatchPatchDto item) {
+      Optional<Integer> version = item.expectedVersion() == null ? Optional.empty() : studentDao.getVersion(item.id());
+      return version.isPresent()
+         ? "Student " + item.id() + " has been modified since version " + item.expectedVersion()
+         : ID_NOT_FOUND + item.id();
+   }
+
+   // inside the chunk's transaction, so the cached and in-flight reads are dropped again once it commits
+   private void forget(Integer id) {
+      studentCache.invalidate(id);
+      readCoalescer.forget(id);
+   }
+
+   private String validate(StudentRequestDto req) {
+      return validate(req, "The student cannot be null");
+   }
+
+   private <T> String validate(T req, String nullMessage) {
+      if (req == null)
+         return nullMessage;
+
+      Set<ConstraintViolation<T>> violations = validator.validate(req);
+      if (violations.isEmpty())
+         return null;
+
+      return violations.stream()
+         .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+         .sorted()
+         .collect(Collectors.joining(", "));
+   }
+}
@@ -0,0 +1,89 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentCacheStatsDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.support.Transactions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of student responses in front of {@link com.dlvi.studentmanagement.dao.StudentDao#getById}.
+ * <p>
+ * Loads for the same id are computed atomically, and an invalidation issued while a load is in flight waits for it
+ * and then drops its result. Writers therefore invalidate both immediately and again after their transaction
+ * commits, so a load that read the pre-commit row can never outlive the write.
+ */
+@Profile("!reactive")
+@Component
+public class StudentCache implements MeterBinder {
+
+   private final boolean enabled;
+   private final Cache<Integer, StudentResponseDto> cache;
+
+   public StudentCache(@Value("${student.cache.enabled:true}") boolean enabled,
+                       @Value("${student.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${student.cache.ttl:60s}") Duration ttl) {
+      this.enabled = enabled;
+      this.cache = Caffeine.newBuilder()
+         .maximumSize(maximumSize)
+         .expireAfterWrite(ttl)
+         .recordStats()
+         .build();
+   }
+
+   /**
+    * Returns the cached student, loading it on a miss; a {@code null} from the loader is not cached.
+    */
+   public StudentResponseDto get(Integer id, Function<Integer, StudentResponseDto> loader) {
+      if (!enabled)
+         return loader.apply(id);
+
+      return cache.get(id, loader);
+   }
+
+   /**
+    * Returns the cached student without loading it, or {@code null}.
+    */
+   public StudentResponseDto getIfPresent(Integer id) {
+      return enabled ? cache.getIfPresent(id) : null;
+   }
+
+   public void putAfterCommit(StudentResponseDto student) {
+      if (enabled)
+         Transactions.afterCommit(() -> cache.put(student.id(), student));
+   }
+
+   public void invalidate(Integer id) {
+      if (!enabled)
+         return;
+
+      cache.invalidate(id);
+      Transactions.afterCommit(() -> cache.invalidate(id));
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      CaffeineCacheMetrics.monitor(registry, cache, "student");
+   }
+
+   public StudentCacheStatsDto stats() {
+      CacheStats stats = cache.stats();
+      return new StudentCacheStatsDto(
+         enabled,
+         cache.estimatedSize(),
+         stats.hitCount(),
+         stats.missCount(),
+         stats.hitRate(),
+         stats.evictionCount());
+   }
+}
@@ -0,0 +1,305 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+import com.dlvi.studentmanagement.exception.ChangeStreamFullException;
+import com.dlvi.studentmanagement.exception.ChangesExpiredException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pushes the change log to any number of subscribers. A single poller reads the log once per {@code poll-interval}
+ * while anyone is subscribed and hands every change to each subscriber's bounded buffer, so the database sees one query
+ * per interval however many subscribers there are, and changes made by other instances are pushed as well.
+ * <p>
+ * Each subscriber is sent its changes by its own task, so a slow one never holds up the poller or the others. A
+ * subscriber resuming from an older sequence first catches up from the log and only then reads its buffer. One whose
+ * buffer overflows is closed with {@link CloseReason#OVERFLOW} and can resume from the last sequence it was sent.
+ */
+@Profile("!reactive & !memory & !file")
+@Component
+public class StudentChangeFeed implements MeterBinder {
+
+   private static final Logger log = LoggerFactory.getLogger(StudentChangeFeed.class);
+   // changes read per query, by the poller and by a catching up subscriber
+   private static final int PAGE_SIZE = 500;
+
+   private final StudentChangeService changeService;
+   private final int bufferSize;
+   private final int maxSubscribers;
+   private final long pollIntervalNanos;
+   private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+   // at most one sending task per subscriber, so at most max-subscribers threads
+   private final ExecutorService senders;
+   private final Thread poller;
+   private final Map<CloseReason, LongAdder> closed = new EnumMap<>(CloseReason.class);
+   private final Object headLock = new Object();
+   private volatile boolean running = true;
+   // last sequence handed to the subscribers, -1 while nobody is subscribed; only leaves or returns to -1 under headLock
+   private volatile long head = -1;
+
+   /**
+    * Why the feed ended a subscription.
+    */
+   public enum CloseReason {
+      // the subscriber fell more than buffer-size changes behind and can resume from its last sequence
+      OVERFLOW,
+      // retention dropped changes the subscriber had not been sent yet, it has to resync from a full listing
+      EXPIRED,
+      // the application is shutting down
+      SHUTDOWN
+   }
+
+   /**
+    * Receives the changes of one subscription, in sequence order and never concurrently.
+    */
+   public interface Listener {
+
+      void onChange(StudentChangeDto change);
+
+      /**
+       * The feed ended the subscription; nothing is sent afterwards.
+       */
+      void onClose(CloseReason reason);
+   }
+
+   public StudentChangeFeed(StudentChangeService changeService,
+                            @Value("${student.changes.stream.buffer-size:1000}") int bufferSize,
+                            @Value("${student.changes.stream.max-subscribers:1000}") int maxSubscribers,
+                            @Value("${student.changes.stream.poll-interval:200ms}") Duration pollInterval) {
+      this.changeService = changeService;
+      this.bufferSize = bufferSize;
+      this.maxSubscribers = maxSubscribers;
+      this.pollIntervalNanos = pollInterval.toNanos();
+      this.senders = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable, "student-change-sender");
+         thread.setDaemon(true);
+         return thread;
+      });
+      for (CloseReason reason : CloseReason.values())
+         closed.put(reason, new LongAdder());
+
+      this.poller = new Thread(this::poll, "student-change-poller");
+      this.poller.setDaemon(true);
+      this.poller.start();
+   }
+
+   /**
+    * Sends {@code listener} every change after {@code since}, or only the ones made from now on when it is
+    * {@code null}, until the subscription is cancelled or closed by the feed.
+    */
+   public Subscription subscribe(Long since, Listener listener) {
+      if (subscriptions.size() >= maxSubscribers)
+         throw new ChangeStreamFullException("Too many change stream subscribers, please retry later");
+
+      Subscription subscription;
+      synchronized (headLock) {
+         if (head < 0)
+            head = changeService.latestSequence();
+         subscription = new Subscription(since == null ? head : since, listener);
+         subscriptions.add(subscription);
+      }
+      LockSupport.unpark(poller);
+      subscription.schedule();
+      return subscription;
+   }
+
+   public int subscribers() {
+      return subscriptions.size();
+   }
+
+   private void poll() {
+      while (running) {
+         long from;
+         synchronized (headLock) {
+            // forget the position while nobody listens, so the next subscriber does not make the poller replay
+            // everything since
+            if (subscriptions.isEmpty())
+               head = -1;
+            from = head;
+         }
+         if (from < 0) {
+            LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+            continue;
+         }
+
+         boolean more = false;
+         try {
+            // a page larger than the buffers would overflow every subscriber at once
+            StudentChangePageDto page = changeService.changes(from, Math.min(PAGE_SIZE, bufferSize));
+            if (!page.changes().isEmpty()) {
+               // the head moves before the hand-off, see Subscription#catchUp
+               head = page.next();
+               for (Subscription subscription : subscriptions)
+                  subscription.offer(page.changes());
+            }
+            more = page.more();
+         } catch (ChangesExpiredException e) {
+            // the poller itself fell behind retention, so every subscriber may have missed changes
+            synchronized (headLock) {
+               head = -1;
+               subscriptions.forEach(subscription -> subscription.close(CloseReason.EXPIRED));
+            }
+         } catch (RuntimeException e) {
+            log.warn("Student changes could not be polled, retrying", e);
+         }
+
+         if (!more)
+            LockSupport.parkNanos(this, pollIntervalNanos);
+      }
+   }
+
+   @PreDestroy
+   public void close() throws InterruptedException {
+      running = false;
+      LockSupport.unpark(poller);
+      poller.join(TimeUnit.SECONDS.toMillis(10));
+      subscriptions.forEach(subscription -> subscription.close(CloseReason.SHUTDOWN));
+      senders.shutdown();
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("student.changes.subscribers", subscriptions, Set::size)
+         .description("Open change stream subscriptions")
+         .register(registry);
+      closed.forEach((reason, count) -> FunctionCounter.builder("student.changes.closed", count, LongAdder::sum)
+         .description("Change stream subscriptions ended by the feed")
+         .tag("reason", reason.name().toLowerCase())
+         .register(registry));
+   }
+
+   public final class Subscription {
+
+      private final Listener listener;
+      private final BlockingQueue<StudentChangeDto> buffer = new ArrayBlockingQueue<>(bufferSize);
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+      private final AtomicBoolean open = new AtomicBoolean(true);
+      // last sequence sent, only touched by the sending task
+      private long position;
+      // until caught up the log is read directly and the poller's changes are not buffered
+      private volatile boolean caughtUp;
+
+      private Subscription(long since, Listener listener) {
+         this.position = since;
+         this.listener = listener;
+      }
+
+      public long position() {
+         return position;
+      }
+
+      /**
+       * Ends the subscription without notifying the listener, e.g. once the client went away.
+       */
+      public void cancel() {
+         if (open.compareAndSet(true, false))
+            subscriptions.remove(this);
+      }
+
+      private void offer(List<StudentChangeDto> changes) {
+         if (!caughtUp)
+            return;
+
+         for (StudentChangeDto change : changes) {
+            if (!buffer.offer(change)) {
+               close(CloseReason.OVERFLOW);
+               return;
+            }
+         }
+         schedule();
+      }
+
+      private void close(CloseReason reason) {
+         if (!open.compareAndSet(true, false))
+            return;
+
+         subscriptions.remove(this);
+         closed.get(reason).increment();
+         buffer.clear();
+         try {
+            senders.execute(() -> listener.onClose(reason));
+         } catch (RuntimeException e) {
+            // the senders are already shut down
+            listener.onClose(reason);
+         }
+      }
+
+      private void schedule() {
+         if (open.get() && scheduled.compareAndSet(false, true))
+            senders.execute(this::send);
+      }
+
+      private void send() {
+         try {
+            if (!caughtUp) {
+               catchUp();
+               caughtUp = true;
+               // the poller may have handed off changes between the last read and the flag flip, read up to its head
+               catchUp();
+            }
+
+            StudentChangeDto change;
+            while (open.get() && (change = buffer.poll()) != null) {
+               if (change.seq() > position)
+                  deliver(change);
+            }
+         } catch (ChangesExpiredException e) {
+            close(CloseReason.EXPIRED);
+         } catch (RuntimeException e) {
+            // the listener could not take the change, most likely because the client is gone
+            log.debug("Change stream subscriber failed, cancelling it", e);
+            cancel();
+         } finally {
+            scheduled.set(false);
+         }
+
+         if (open.get() && !buffer.isEmpty())
+            schedule();
+      }
+
+      // reads the log until the poller's head: the poller moves its head before handing changes off, so whatever it
+      // handed off while this subscription was not buffering yet is at or below the head read here
+      private void catchUp() {
+         while (open.get() && position < head) {
+            StudentChangePageDto page = changeService.changes(position, PAGE_SIZE);
+            if (page.changes().isEmpty())
+               return;
+
+            for (StudentChangeDto change : page.changes()) {
+               if (!open.get())
+                  return;
+               deliver(change);
+            }
+         }
+      }
+
+      private void deliver(StudentChangeDto change) {
+         listener.onChange(change);
+         position = change.seq();
+      }
+   }
+}
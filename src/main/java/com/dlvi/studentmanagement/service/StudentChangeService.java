@@ -0,0 +1,29 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+
+public interface StudentChangeService {
+
+   /**
+    * Up to {@code limit} changes after {@code since}, oldest first. Throws
+    * {@link com.dlvi.studentmanagement.exception.ChangesExpiredException} when retention has already dropped changes
+    * after {@code since}, in which case the reader has to resync from a full listing.
+    */
+   StudentChangePageDto changes(long since, int limit);
+
+   /**
+    * The {@code since} of a reader that only wants the changes made from now on.
+    */
+   long latestSequence();
+
+   /**
+    * Gives the committed changes not published yet their sequences, after which readers see them; also run
+    * periodically.
+    */
+   void publish();
+
+   /**
+    * Compacts and purges the change log according to the configured ages; also run periodically.
+    */
+   void maintain();
+}
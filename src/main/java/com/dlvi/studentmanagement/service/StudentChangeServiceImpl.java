@@ -0,0 +1,135 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentChangeDao;
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+import com.dlvi.studentmanagement.exception.ChangesExpiredException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delta sync over the change log. Every {@code publish-interval} the committed changes not published yet are given
+ * the next sequences, in the order they became visible, so a transaction that commits late is never skipped by a
+ * reader that already read past the changes written after it. Every {@code maintenance-interval} changes superseded by a newer
+ * change of the same student are compacted away once older than {@code compact-after}, and every change, tombstones
+ * included, is purged once older than {@code retention}; a zero duration turns either off.
+ */
+@Profile("!reactive & !memory & !file")
+@Service
+public class StudentChangeServiceImpl implements StudentChangeService {
+
+   private static final Logger log = LoggerFactory.getLogger(StudentChangeServiceImpl.class);
+   // changes given sequences per publishing transaction
+   private static final int PUBLISH_CHUNK = 1000;
+
+   private final StudentChangeDao changeDao;
+   private final Duration retention;
+   private final Duration compactAfter;
+   private final ScheduledExecutorService maintenance;
+   // its own thread, so a long compaction never holds up publishing
+   private final ScheduledExecutorService publisher;
+
+   public StudentChangeServiceImpl(StudentChangeDao changeDao,
+                                   @Value("${student.changes.publish-interval:100ms}") Duration publishInterval,
+                                   @Value("${student.changes.retention:7d}") Duration retention,
+                                   @Value("${student.changes.compact-after:1d}") Duration compactAfter,
+                                   @Value("${student.changes.maintenance-interval:10m}") Duration maintenanceInterval) {
+      this.changeDao = changeDao;
+      this.retention = retention;
+      this.compactAfter = compactAfter;
+      this.maintenance = daemon("student-change-maintenance");
+      this.publisher = daemon("student-change-publisher");
+
+      if (!publishInterval.isZero())
+         publisher.scheduleWithFixedDelay(this::publishQuietly,
+            publishInterval.toMillis(), publishInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+      if (!maintenanceInterval.isZero())
+         maintenance.scheduleWithFixedDelay(this::maintainQuietly,
+            maintenanceInterval.toMillis(), maintenanceInterval.toMillis(), TimeUnit.MILLISECONDS);
+   }
+
+   private static ScheduledExecutorService daemon(String name) {
+      return Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, name);
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   @Override
+   public StudentChangePageDto changes(long since, int limit) {
+      // one extra row tells us whether another page exists without a second query
+      List<StudentChangeDto> changes = changeDao.changesSince(since, limit + 1);
+
+      // checked after the read: a purge moves the horizon and drops the rows in one transaction, so either the page
+      // was read before the purge or the horizon already tells that it is incomplete
+      long purgedThrough = changeDao.purgedThrough();
+      if (since < purgedThrough)
+         throw new ChangesExpiredException("Changes up to " + purgedThrough + " are no longer retained, resync from GET /student");
+
+      boolean more = changes.size() > limit;
+      List<StudentChangeDto> page = more ? changes.subList(0, limit) : changes;
+      long next = page.isEmpty() ? since : page.get(page.size() - 1).seq();
+      return new StudentChangePageDto(page, next, more);
+   }
+
+   @Override
+   public long latestSequence() {
+      return Math.max(changeDao.latestSequence(), changeDao.purgedThrough());
+   }
+
+   @Override
+   public void publish() {
+      int published;
+      // a full chunk may have left more behind
+      do {
+         published = changeDao.publish(PUBLISH_CHUNK);
+      } while (published == PUBLISH_CHUNK);
+   }
+
+   private void publishQuietly() {
+      try {
+         publish();
+      } catch (RuntimeException e) {
+         // the changes stay unpublished and are picked up by the next run
+         log.warn("Change log publishing failed", e);
+      }
+   }
+
+   @Override
+   public void maintain() {
+      long start = System.nanoTime();
+      int compacted = compactAfter.isZero() ? 0 : changeDao.compact(compactAfter);
+      int purged = retention.isZero() ? 0 : changeDao.purge(retention);
+
+      if (compacted > 0 || purged > 0)
+         log.info("Change log maintenance compacted {} and purged {} changes in {} ms",
+            compacted, purged, (System.nanoTime() - start) / 1_000_000);
+   }
+
+   private void maintainQuietly() {
+      try {
+         maintain();
+      } catch (RuntimeException e) {
+         // a failed run is retried at the next interval instead of cancelling the schedule
+         log.warn("Change log maintenance failed", e);
+      }
+   }
+
+   @PreDestroy
+   public void close() {
+      maintenance.shutdownNow();
+      publisher.shutdownNow();
+   }
+}
@@ -0,0 +1,307 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentColumnsStatsDto;
+import com.dlvi.studentmanagement.model.Student;
+import com.dlvi.studentmanagement.support.Transactions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Optional columnar snapshot of the student table for reporting: a primitive array per column instead of a
+ * {@link Student} per row, so aggregating millions of students is a sequential scan over a few contiguous arrays.
+ * <p>
+ * Rows are ordered by id. The birth date is kept as an epoch day, the sex as a byte code and the email domain as an int
+ * code into dictionaries holding every distinct value once; names and emails are not kept. The snapshot is built once
+ * at startup and every write of this instance is applied after it commits, including writes made while it is being
+ * built. Deleted rows are only marked and compacted away in bulk. Writes made by other instances are not seen.
+ */
+@Profile("!reactive")
+@Component
+public class StudentColumns implements MeterBinder {
+
+   private static final Logger log = LoggerFactory.getLogger(StudentColumns.class);
+
+   // birth day of a student without a birth date
+   static final int NO_BIRTH_DATE = Integer.MIN_VALUE;
+   // sex code of a deleted row, which keeps its place until the next compaction
+   static final byte DELETED = -1;
+   // dictionary code of a missing sex or email domain, and of every sex past the first MAX_SEXES distinct ones
+   static final int UNKNOWN = 0;
+   private static final int MAX_SEXES = Byte.MAX_VALUE;
+   private static final int ROW_BYTES = Integer.BYTES + Integer.BYTES + Byte.BYTES + Integer.BYTES;
+   // rough heap cost of one dictionary entry besides its characters: String, byte[], map node and list slot
+   private static final int DICTIONARY_ENTRY_BYTES = 96;
+   private static final int MIN_COMPACTION = 1024;
+
+   private final StudentDao studentDao;
+   private final boolean enabled;
+   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+   // guarded by lock
+   private Columns columns = new Columns(16);
+   // writes applied while the snapshot is being built, replayed onto it before it replaces the current one
+   private List<Consumer<Columns>> pending;
+   private volatile boolean ready;
+
+   public StudentColumns(StudentDao studentDao,
+                         @Value("${student.analytics.enabled:false}") boolean enabled) {
+      this.studentDao = studentDao;
+      this.enabled = enabled;
+   }
+
+   @EventListener(ApplicationReadyEvent.class)
+   public void build() {
+      if (!enabled)
+         return;
+
+      long start = System.nanoTime();
+      withWriteLock(() -> pending = new ArrayList<>());
+
+      Columns built = new Columns(1024);
+      try {
+         studentDao.streamAll(student -> built.upsert(
+            student.getId(), birthDay(student.getBirthDate()), student.getSex(), domain(student.getEmail())));
+      } catch (RuntimeException e) {
+         withWriteLock(() -> pending = null);
+         throw e;
+      }
+
+      withWriteLock(() -> {
+         pending.forEach(write -> write.accept(built));
+         pending = null;
+         columns = built;
+         ready = true;
+      });
+
+      log.info("Analytics snapshot built with {} students in {} ms, {} bytes",
+         built.rows(), (System.nanoTime() - start) / 1_000_000, built.memoryBytes());
+   }
+
+   public void add(int id, Student student) {
+      int birthDay = birthDay(student.getBirthDate());
+      String sex = student.getSex();
+      String domain = domain(student.getEmail());
+      write(columns -> columns.upsert(id, birthDay, sex, domain));
+   }
+
+   public void updateEmail(int id, String email) {
+      String domain = domain(email);
+      write(columns -> columns.updateDomain(id, domain));
+   }
+
+   public void remove(int id) {
+      write(columns -> columns.remove(id));
+   }
+
+   public boolean isReady() {
+      return ready;
+   }
+
+   public StudentColumnsStatsDto stats() {
+      return read(columns -> new StudentColumnsStatsDto(
+         ready,
+         columns.rows(),
+         columns.deleted,
+         // without the reserved unknown entry
+         columns.sexValues.size() - 1,
+         columns.domainValues.size() - 1,
+         columns.memoryBytes(),
+         columns.rows() == 0 ? 0 : columns.memoryBytes() / columns.rows()));
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      Gauge.builder("student.analytics.rows", this, snapshot -> snapshot.read(Columns::rows))
+         .register(registry);
+      Gauge.builder("student.analytics.memory", this, snapshot -> snapshot.read(Columns::memoryBytes))
+         .baseUnit("bytes")
+         .register(registry);
+   }
+
+   /**
+    * Runs {@code reader} over the current columns while no write can change them. The reader may fan the scan out to
+    * other threads but must be done with the columns when it returns, and must not modify them.
+    */
+   <R> R read(Function<Columns, R> reader) {
+      lock.readLock().lock();
+      try {
+         return reader.apply(columns);
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   private void write(Consumer<Columns> write) {
+      if (!enabled)
+         return;
+
+      Transactions.afterCommit(() -> withWriteLock(() -> {
+         write.accept(columns);
+         if (pending != null)
+            pending.add(write);
+      }));
+   }
+
+   private void withWriteLock(Runnable action) {
+      lock.writeLock().lock();
+      try {
+         action.run();
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   private static int birthDay(LocalDate birthDate) {
+      return birthDate == null ? NO_BIRTH_DATE : (int) birthDate.toEpochDay();
+   }
+
+   private static String domain(String email) {
+      return email == null ? null : Student.emailDomain(email);
+   }
+
+   /**
+    * The column arrays, filled up to {@code size}, and the dictionaries their codes point into.
+    */
+   static final class Columns {
+      int[] ids;
+      int[] birthDays;
+      byte[] sexes;
+      int[] domains;
+      int size;
+      int deleted;
+      final List<String> sexValues = new ArrayList<>();
+      final List<String> domainValues = new ArrayList<>();
+      private final Map<String, Byte> sexCodes = new HashMap<>();
+      private final Map<String, Integer> domainCodes = new HashMap<>();
+      private long dictionaryBytes;
+
+      Columns(int capacity) {
+         ids = new int[capacity];
+         birthDays = new int[capacity];
+         sexes = new byte[capacity];
+         domains = new int[capacity];
+         sexCode(null);
+         domainCode(null);
+      }
+
+      int rows() {
+         return size - deleted;
+      }
+
+      long memoryBytes() {
+         return (long) ids.length * ROW_BYTES + dictionaryBytes;
+      }
+
+      void upsert(int id, int birthDay, String sex, String domain) {
+         // rows mostly arrive in id order, from the initial scan and from auto-increment inserts
+         int at = size == 0 || id > ids[size - 1] ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+         if (at < 0) {
+            at = -at - 1;
+            insertAt(at);
+            ids[at] = id;
+         } else if (sexes[at] == DELETED) {
+            deleted--;
+         }
+
+         birthDays[at] = birthDay;
+         sexes[at] = sexCode(sex);
+         domains[at] = domainCode(domain);
+      }
+
+      void updateDomain(int id, String domain) {
+         int at = Arrays.binarySearch(ids, 0, size, id);
+         if (at >= 0 && sexes[at] != DELETED)
+            domains[at] = domainCode(domain);
+      }
+
+      void remove(int id) {
+         int at = Arrays.binarySearch(ids, 0, size, id);
+         if (at < 0 || sexes[at] == DELETED)
+            return;
+
+         sexes[at] = DELETED;
+         deleted++;
+         if (deleted >= MIN_COMPACTION && deleted > size / 4)
+            compact();
+      }
+
+      private void insertAt(int at) {
+         if (size == ids.length) {
+            int capacity = size + (size >> 1) + 1;
+            ids = Arrays.copyOf(ids, capacity);
+            birthDays = Arrays.copyOf(birthDays, capacity);
+            sexes = Arrays.copyOf(sexes, capacity);
+            domains = Arrays.copyOf(domains, capacity);
+         }
+
+         int tail = size - at;
+         if (tail > 0) {
+            System.arraycopy(ids, at, ids, at + 1, tail);
+            System.arraycopy(birthDays, at, birthDays, at + 1, tail);
+            System.arraycopy(sexes, at, sexes, at + 1, tail);
+            System.arraycopy(domains, at, domains, at + 1, tail);
+         }
+         size++;
+      }
+
+      private void compact() {
+         int kept = 0;
+         for (int row = 0; row < size; row++) {
+            if (sexes[row] == DELETED)
+               continue;
+
+            ids[kept] = ids[row];
+            birthDays[kept] = birthDays[row];
+            sexes[kept] = sexes[row];
+            domains[kept] = domains[row];
+            kept++;
+         }
+         size = kept;
+         deleted = 0;
+      }
+
+      private byte sexCode(String sex) {
+         Byte code = sexCodes.get(sex);
+         if (code != null)
+            return code;
+         if (sexValues.size() >= MAX_SEXES)
+            return UNKNOWN;
+
+         code = (byte) sexValues.size();
+         sexValues.add(sex);
+         sexCodes.put(sex, code);
+         dictionaryBytes += DICTIONARY_ENTRY_BYTES + (sex == null ? 0 : sex.length());
+         return code;
+      }
+
+      private int domainCode(String domain) {
+         Integer code = domainCodes.get(domain);
+         if (code != null)
+            return code;
+
+         code = domainValues.size();
+         domainValues.add(domain);
+         domainCodes.put(domain, code);
+         dictionaryBytes += DICTIONARY_ENTRY_BYTES + (domain == null ? 0 : domain.length());
+         return code;
+      }
+   }
+}
@@ -0,0 +1,171 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentEmailIndexStatsDto;
+import com.dlvi.studentmanagement.support.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory membership index of registered emails, built at startup, fed by the writes of this instance and rebuilt
+ * from the table every {@code student.email-index.rebuild-interval}.
+ * <p>
+ * Emails registered by other instances or outside the application since the last build are missing from it, so a
+ * negative answer is only likely, never a substitute for the unique email index, which stays the authority on every
+ * write path. The batch endpoints use it to narrow their set-based pre-check to the emails it cannot rule out: a miss
+ * there makes a chunk fail on the unique index and fall back to single rows, it never lets a duplicate in. A positive
+ * answer only means "possibly registered". The filter is add-only: deleted and replaced emails stay in it as false
+ * positives until the next rebuild, which is what keeps the false-positive rate from creeping up with the churn. Until
+ * the index is built every email is reported as a possible positive.
+ */
+@Profile("!reactive")
+@Component
+public class StudentEmailIndex implements MeterBinder {
+
+   private static final Logger log = LoggerFactory.getLogger(StudentEmailIndex.class);
+
+   private final StudentDao studentDao;
+   private final long expectedInsertions;
+   private final double falsePositiveRate;
+   private final Duration rebuildInterval;
+   private final ScheduledExecutorService rebuilder;
+   private volatile BloomFilter filter;
+   // the filter a rebuild is filling, which writes go to as well, so none made while it reads the table is lost
+   private volatile BloomFilter building;
+   private final LongAdder negatives = new LongAdder();
+   private final LongAdder possiblePositives = new LongAdder();
+   private volatile boolean ready;
+
+   public StudentEmailIndex(StudentDao studentDao,
+                            @Value("${student.email-index.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${student.email-index.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${student.email-index.rebuild-interval:6h}") Duration rebuildInterval) {
+      this.studentDao = studentDao;
+      this.expectedInsertions = expectedInsertions;
+      this.falsePositiveRate = falsePositiveRate;
+      this.rebuildInterval = rebuildInterval;
+      this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+      this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "student-email-index-rebuild");
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   @EventListener(ApplicationReadyEvent.class)
+   public void build() {
+      long start = System.nanoTime();
+      rebuild();
+      ready = true;
+
+      log.info("Email index built with {} emails in {} ms, {} bytes",
+         filter.insertions(), (System.nanoTime() - start) / 1_000_000, filter.numBits() / 8);
+
+      if (!rebuildInterval.isZero())
+         rebuilder.scheduleWithFixedDelay(this::rebuildQuietly,
+            rebuildInterval.toMillis(), rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Replaces the filter with one holding just the emails now in the table, plus those this instance writes meanwhile.
+    */
+   public synchronized void rebuild() {
+      BloomFilter rebuilt = new BloomFilter(expectedInsertions, falsePositiveRate);
+      building = rebuilt;
+      try {
+         studentDao.streamEmails(email -> rebuilt.add(normalize(email)));
+         filter = rebuilt;
+      } finally {
+         building = null;
+      }
+   }
+
+   private void rebuildQuietly() {
+      long start = System.nanoTime();
+      try {
+         rebuild();
+         log.info("Email index rebuilt with {} emails in {} ms", filter.insertions(), (System.nanoTime() - start) / 1_000_000);
+      } catch (RuntimeException e) {
+         // the current filter keeps answering, only with the false positives of the emails gone since it was built
+         log.warn("Email index could not be rebuilt", e);
+      }
+   }
+
+   /**
+    * Whether the email may be registered; {@code false} only says this instance has not seen it.
+    */
+   public boolean mightContain(String email) {
+      if (!ready || filter.mightContain(normalize(email))) {
+         possiblePositives.increment();
+         return true;
+      }
+
+      negatives.increment();
+      return false;
+   }
+
+   public void add(String email) {
+      String normalized = normalize(email);
+      // building before filter: a rebuild installs its filter before it stops taking writes, so one of the two gets it
+      BloomFilter rebuilt = building;
+      filter.add(normalized);
+      if (rebuilt != null)
+         rebuilt.add(normalized);
+   }
+
+   public boolean isReady() {
+      return ready;
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      FunctionCounter.builder("student.email.index.lookups", negatives, LongAdder::sum)
+         .description("Batch pre-check lookups of an email, by answer")
+         .tag("result", "negative")
+         .register(registry);
+      FunctionCounter.builder("student.email.index.lookups", possiblePositives, LongAdder::sum)
+         .description("Batch pre-check lookups of an email, by answer")
+         .tag("result", "possible-positive")
+         .register(registry);
+      Gauge.builder("student.email.index.expected.fpp", this, index -> index.filter.expectedFalsePositiveRate())
+         .register(registry);
+   }
+
+   public StudentEmailIndexStatsDto stats() {
+      BloomFilter filter = this.filter;
+      long memoryBytes = filter.numBits() / 8;
+      long emails = filter.insertions();
+
+      return new StudentEmailIndexStatsDto(
+         ready,
+         emails,
+         memoryBytes,
+         memoryBytes * 1_000_000 / expectedInsertions,
+         filter.numHashes(),
+         falsePositiveRate,
+         filter.expectedFalsePositiveRate(),
+         negatives.sum(),
+         possiblePositives.sum());
+   }
+
+   // MySQL compares emails case-insensitively, so the filter must too
+   private static String normalize(String email) {
+      return email.trim().toLowerCase(Locale.ROOT);
+   }
+}
@@ -0,0 +1,146 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Batches concurrent single-student lookups into one {@code id in (...)} query. Callers enqueue their id and a few
+ * worker threads drain the queue, each taking whatever has queued up (up to {@code max-batch-size} ids) while the
+ * previous query ran. There is no linger: a lone lookup is read on its own right away, and batches only grow under
+ * load, when they save the most round trips.
+ * <p>
+ * A lookup that finds the queue full is read on the caller's thread instead.
+ */
+@Profile("!reactive")
+@Component
+public class StudentLookupBatcher implements MeterBinder {
+
+   private final StudentDao studentDao;
+   private final boolean enabled;
+   private final int maxBatchSize;
+   private final BlockingQueue<PendingLookup> queue;
+   private final List<Thread> workers = new ArrayList<>();
+   private volatile boolean running = true;
+
+   private DistributionSummary batchSizes;
+
+   public StudentLookupBatcher(StudentDao studentDao,
+                               @Value("${student.lookup-batching.enabled:false}") boolean enabled,
+                               @Value("${student.lookup-batching.max-batch-size:100}") int maxBatchSize,
+                               @Value("${student.lookup-batching.workers:2}") int workers,
+                               @Value("${student.lookup-batching.queue-capacity:10000}") int queueCapacity) {
+      this.studentDao = studentDao;
+      this.enabled = enabled;
+      this.maxBatchSize = maxBatchSize;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+      if (enabled) {
+         for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::drain, "student-lookup-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this.workers.add(worker);
+         }
+      }
+   }
+
+   /**
+    * The student with the given id, read in a batch with other concurrent lookups, or by {@code single} when batching
+    * is disabled.
+    */
+   public Optional<StudentResponseDto> get(Integer id, Supplier<Optional<StudentResponseDto>> single) {
+      if (!enabled)
+         return single.get();
+
+      PendingLookup pending = new PendingLookup(id, new CompletableFuture<>());
+      if (!running || !queue.offer(pending))
+         return single.get();
+
+      try {
+         return pending.student().join();
+      } catch (CompletionException e) {
+         if (e.getCause() instanceof RuntimeException cause)
+            throw cause;
+         throw e;
+      }
+   }
+
+   private void drain() {
+      List<PendingLookup> batch = new ArrayList<>(maxBatchSize);
+
+      while (running || !queue.isEmpty()) {
+         try {
+            PendingLookup first = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null)
+               continue;
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+         } catch (InterruptedException e) {
+            // close() wakes an idle worker up; whatever was already taken is still read below
+         }
+         if (batch.isEmpty())
+            continue;
+
+         try {
+            read(batch);
+         } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.student().completeExceptionally(e));
+         } finally {
+            batch.clear();
+         }
+      }
+   }
+
+   private void read(List<PendingLookup> batch) {
+      Map<Integer, StudentResponseDto> found = new HashMap<>();
+      for (StudentResponseDto student : studentDao.getResponsesByIds(batch.stream().map(PendingLookup::id).toList()))
+         found.put(student.id(), student);
+
+      if (batchSizes != null)
+         batchSizes.record(batch.size());
+      for (PendingLookup pending : batch)
+         pending.student().complete(Optional.ofNullable(found.get(pending.id())));
+   }
+
+   @PreDestroy
+   public void close() throws InterruptedException {
+      running = false;
+      for (Thread worker : workers)
+         worker.interrupt();
+      for (Thread worker : workers)
+         worker.join(TimeUnit.SECONDS.toMillis(10));
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      batchSizes = DistributionSummary.builder("student.lookup.batch.size")
+         .description("Single-student lookups read per query")
+         .register(registry);
+      Gauge.builder("student.lookup.queue.size", queue, BlockingQueue::size)
+         .description("Single-student lookups waiting for the next batch")
+         .register(registry);
+   }
+
+   private record PendingLookup(Integer id, CompletableFuture<Optional<StudentResponseDto>> student) {
+   }
+}
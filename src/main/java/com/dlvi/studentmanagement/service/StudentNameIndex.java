@@ -0,0 +1,185 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional in-memory trigram index of student names, used to narrow a {@code nameContains} search down to candidate
+ * ids instead of scanning every name with {@code like '%term%'}.
+ * <p>
+ * Built once at startup and fed by every write. Candidates are a superset of the matches: renamed students keep the
+ * trigrams of their old name and deleted ones are never removed, so the database still applies the filter to every
+ * candidate and stale entries only cost a wasted comparison. Terms shorter than a trigram, a disabled index or one
+ * that is not built yet return {@code null} and the search falls back to the plain scan.
+ */
+@Profile("!reactive")
+@Component
+public class StudentNameIndex implements MeterBinder {
+
+   private static final Logger log = LoggerFactory.getLogger(StudentNameIndex.class);
+   private static final int GRAM = 3;
+
+   private final StudentDao studentDao;
+   private final boolean enabled;
+   private final Map<Long, Postings> postings = new ConcurrentHashMap<>();
+   private final LongAdder indexedLookups = new LongAdder();
+   private final LongAdder scanFallbacks = new LongAdder();
+   private volatile boolean ready;
+
+   public StudentNameIndex(StudentDao studentDao,
+                           @Value("${student.name-index.enabled:false}") boolean enabled) {
+      this.studentDao = studentDao;
+      this.enabled = enabled;
+   }
+
+   @EventListener(ApplicationReadyEvent.class)
+   public void build() {
+      if (!enabled)
+         return;
+
+      long start = System.nanoTime();
+      studentDao.streamAll(student -> add(student.getId(), student.getName()));
+      ready = true;
+
+      log.info("Name index built with {} trigrams in {} ms", postings.size(), (System.nanoTime() - start) / 1_000_000);
+   }
+
+   public void add(int id, String name) {
+      if (!enabled || name == null)
+         return;
+
+      String normalized = normalize(name);
+      for (int i = 0; i + GRAM <= normalized.length(); i++)
+         postings.computeIfAbsent(trigram(normalized, i), key -> new Postings()).add(id);
+   }
+
+   /**
+    * Ids, ascending, of every student whose name may contain {@code term}, or {@code null} when the index cannot
+    * answer and the caller has to scan.
+    */
+   public int[] candidates(String term) {
+      String normalized = term == null ? "" : normalize(term);
+      if (!enabled || !ready || normalized.length() < GRAM) {
+         scanFallbacks.increment();
+         return null;
+      }
+
+      List<Postings> lists = new ArrayList<>();
+      for (int i = 0; i + GRAM <= normalized.length(); i++) {
+         Postings list = postings.get(trigram(normalized, i));
+         if (list == null) {
+            indexedLookups.increment();
+            return new int[0];
+         }
+         lists.add(list);
+      }
+
+      // start from the rarest trigram so every following intersection only probes a short candidate list
+      Postings rarest = lists.get(0);
+      for (Postings list : lists)
+         if (list.size() < rarest.size())
+            rarest = list;
+
+      int[] candidates = rarest.snapshot();
+      for (int i = 0; i < lists.size() && candidates.length > 0; i++)
+         if (lists.get(i) != rarest)
+            candidates = lists.get(i).retain(candidates);
+
+      indexedLookups.increment();
+      return candidates;
+   }
+
+   public boolean isReady() {
+      return ready;
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      FunctionCounter.builder("student.name.index.lookups", indexedLookups, LongAdder::sum)
+         .tag("result", "indexed")
+         .register(registry);
+      FunctionCounter.builder("student.name.index.lookups", scanFallbacks, LongAdder::sum)
+         .tag("result", "scan")
+         .register(registry);
+      Gauge.builder("student.name.index.trigrams", postings, Map::size)
+         .register(registry);
+   }
+
+   private static String normalize(String value) {
+      return value.toLowerCase(Locale.ROOT);
+   }
+
+   private static long trigram(String value, int at) {
+      return (long) value.charAt(at) << 32 | (long) value.charAt(at + 1) << 16 | value.charAt(at + 2);
+   }
+
+   /**
+    * Growable id list of one trigram. Ids mostly arrive in ascending order; anything else marks the list unsorted and
+    * it is sorted and deduplicated on its next read.
+    */
+   private static final class Postings {
+      private int[] ids = new int[4];
+      private int size;
+      private boolean sorted = true;
+
+      synchronized void add(int id) {
+         if (size > 0 && ids[size - 1] == id)
+            return;
+         if (size > 0 && ids[size - 1] > id)
+            sorted = false;
+         if (size == ids.length)
+            ids = Arrays.copyOf(ids, size * 2);
+         ids[size++] = id;
+      }
+
+      synchronized int size() {
+         return size;
+      }
+
+      synchronized int[] snapshot() {
+         compact();
+         return Arrays.copyOf(ids, size);
+      }
+
+      synchronized int[] retain(int[] candidates) {
+         compact();
+         int[] kept = new int[candidates.length];
+         int count = 0;
+         for (int candidate : candidates)
+            if (Arrays.binarySearch(ids, 0, size, candidate) >= 0)
+               kept[count++] = candidate;
+         return Arrays.copyOf(kept, count);
+      }
+
+      private void compact() {
+         if (sorted)
+            return;
+
+         Arrays.sort(ids, 0, size);
+         int unique = 0;
+         for (int i = 0; i < size; i++)
+            if (unique == 0 || ids[unique - 1] != ids[i])
+               ids[unique++] = ids[i];
+         size = unique;
+         sorted = true;
+      }
+   }
+}
@@ -0,0 +1,94 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.support.SingleFlight;
+import com.dlvi.studentmanagement.support.Transactions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates identical reads that are in flight at the same time, so a burst of polls for the same student or the
+ * same page costs one query. Unlike {@link StudentCache} nothing outlives the query, which makes it safe with the
+ * cache disabled or at zero TTL.
+ * <p>
+ * Writers call {@link #forget} both before writing and after their transaction commits, the same way they invalidate
+ * the cache, so a read that joins after a write has committed never shares a result loaded before it.
+ */
+@Profile("!reactive")
+@Component
+public class StudentReadCoalescer implements MeterBinder {
+
+   private final boolean enabled;
+   private final SingleFlight<Integer, Optional<StudentResponseDto>> byId = new SingleFlight<>();
+   private final SingleFlight<PageKey, List<StudentResponseDto>> pages = new SingleFlight<>();
+
+   public StudentReadCoalescer(@Value("${student.read-coalescing.enabled:true}") boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   public Optional<StudentResponseDto> getById(Integer id, Supplier<Optional<StudentResponseDto>> loader) {
+      return enabled ? byId.run(id, loader) : loader.get();
+   }
+
+   public List<StudentResponseDto> page(Integer after, int limit, Set<StudentField> fields, Supplier<List<StudentResponseDto>> loader) {
+      return enabled ? pages.run(new PageKey(after, limit, Set.copyOf(fields)), loader) : loader.get();
+   }
+
+   /**
+    * Forgets the in-flight reads of the student and every in-flight page, which may contain it.
+    */
+   public void forget(Integer id) {
+      if (!enabled)
+         return;
+
+      forgetNow(id);
+      Transactions.afterCommit(() -> forgetNow(id));
+   }
+
+   /**
+    * Forgets every in-flight page, for writes that add rows.
+    */
+   public void forgetPages() {
+      if (!enabled)
+         return;
+
+      pages.forgetAll();
+      Transactions.afterCommit(pages::forgetAll);
+   }
+
+   private void forgetNow(Integer id) {
+      byId.forget(id);
+      pages.forgetAll();
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      bind(registry, "get", byId);
+      bind(registry, "page", pages);
+   }
+
+   private static void bind(MeterRegistry registry, String operation, SingleFlight<?, ?> flight) {
+      // shared / (leader + shared) is the coalescing ratio
+      FunctionCounter.builder("student.reads.coalescing", flight, SingleFlight::leaders)
+         .description("Reads that queried the database (leader) or shared a concurrent identical query (shared)")
+         .tags("operation", operation, "result", "leader")
+         .register(registry);
+      FunctionCounter.builder("student.reads.coalescing", flight, SingleFlight::followers)
+         .description("Reads that queried the database (leader) or shared a concurrent identical query (shared)")
+         .tags("operation", operation, "result", "shared")
+         .register(registry);
+   }
+
+   private record PageKey(Integer after, int limit, Set<StudentField> fields) {
+   }
+}
@@ -0,0 +1,211 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.exception.RegistrationQueueFullException;
+import com.dlvi.studentmanagement.model.Student;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single registrations. Concurrent callers enqueue their student on a bounded queue and a single
+ * writer thread drains it, inserting up to {@code batch-size} students with one JDBC batch in one transaction as soon
+ * as the batch is full or {@code max-linger} has passed since its first student arrived. Each caller then gets its own
+ * generated id or its own error: when the batch is rolled back, its rows are retried one by one.
+ * <p>
+ * A caller that cannot enqueue within {@code offer-timeout} is rejected with {@link RegistrationQueueFullException},
+ * and so is every registration still queued when the writer has stopped at shutdown.
+ */
+@Profile("!reactive")
+@Component
+public class StudentRegistrationBatcher implements MeterBinder {
+
+   private final StudentDao studentDao;
+   private final TransactionTemplate transactionTemplate;
+   private final boolean enabled;
+   private final int batchSize;
+   private final long maxLingerNanos;
+   private final long offerTimeoutNanos;
+   private final BlockingQueue<PendingRegistration> queue;
+   private final Thread writer;
+   private volatile boolean running = true;
+
+   private DistributionSummary batchSizes;
+   private Counter commits;
+
+   public StudentRegistrationBatcher(StudentDao studentDao,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${student.registration.group-commit.enabled:false}") boolean enabled,
+                                     @Value("${student.registration.group-commit.batch-size:100}") int batchSize,
+                                     @Value("${student.registration.group-commit.max-linger:5ms}") Duration maxLinger,
+                                     @Value("${student.registration.group-commit.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${student.registration.group-commit.offer-timeout:1s}") Duration offerTimeout) {
+      this.studentDao = studentDao;
+      this.transactionTemplate = transactionTemplate;
+      this.enabled = enabled;
+      this.batchSize = batchSize;
+      this.maxLingerNanos = maxLinger.toNanos();
+      this.offerTimeoutNanos = offerTimeout.toNanos();
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.writer = new Thread(this::drain, "student-registration-writer");
+      this.writer.setDaemon(true);
+
+      if (enabled)
+         writer.start();
+   }
+
+   public boolean enabled() {
+      return enabled;
+   }
+
+   /**
+    * Queues the student for the next group commit and waits for its generated id. Errors are rethrown as the same
+    * exceptions {@link StudentDao#save} would have thrown for this student alone.
+    */
+   public Integer save(Student student) {
+      PendingRegistration pending = new PendingRegistration(student, new CompletableFuture<>());
+
+      try {
+         if (!running || !queue.offer(pending, offerTimeoutNanos, TimeUnit.NANOSECONDS))
+            throw new RegistrationQueueFullException("Too many registrations in progress, please retry later");
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RegistrationQueueFullException("Interrupted while waiting to queue the registration");
+      }
+      // queued while close() ran: the writer may already have stopped, and close() may already have failed the queue
+      if (!running && queue.remove(pending))
+         throw shuttingDown();
+
+      try {
+         return pending.id().join();
+      } catch (CompletionException e) {
+         if (e.getCause() instanceof RuntimeException cause)
+            throw cause;
+         throw e;
+      }
+   }
+
+   private void drain() {
+      List<PendingRegistration> batch = new ArrayList<>(batchSize);
+
+      while (running || !queue.isEmpty()) {
+         try {
+            collect(batch);
+         } catch (InterruptedException e) {
+            // close() wakes an idle writer up; whatever was already taken is still written below
+         }
+         if (batch.isEmpty())
+            continue;
+
+         try {
+            write(batch);
+         } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.id().completeExceptionally(e));
+         } finally {
+            batch.clear();
+         }
+      }
+   }
+
+   // waits for a first registration, then keeps adding until the batch is full or the linger time has passed
+   private void collect(List<PendingRegistration> batch) throws InterruptedException {
+      PendingRegistration first = queue.poll(100, TimeUnit.MILLISECONDS);
+      if (first == null)
+         return;
+
+      batch.add(first);
+      long deadline = System.nanoTime() + maxLingerNanos;
+      while (batch.size() < batchSize) {
+         if (queue.drainTo(batch, batchSize - batch.size()) > 0)
+            continue;
+
+         long remaining = deadline - System.nanoTime();
+         PendingRegistration next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+         if (next == null)
+            return;
+         batch.add(next);
+      }
+   }
+
+   private void write(List<PendingRegistration> batch) {
+      List<Student> students = batch.stream().map(PendingRegistration::student).toList();
+
+      try {
+         List<Integer> ids = transactionTemplate.execute(status -> studentDao.saveAll(students));
+         count(batch.size());
+         for (int i = 0; i < batch.size(); i++)
+            batch.get(i).id().complete(ids.get(i));
+      } catch (DatabaseOperationException e) {
+         // the batch was rolled back as a whole; retry row by row so only the offending registrations fail
+         for (PendingRegistration pending : batch) {
+            try {
+               pending.id().complete(studentDao.save(pending.student()));
+               count(1);
+            } catch (DatabaseOperationException | EmailAlreadyExistsException rowError) {
+               pending.id().completeExceptionally(rowError);
+            }
+         }
+      }
+   }
+
+   private void count(int rows) {
+      if (commits != null) {
+         commits.increment();
+         batchSizes.record(rows);
+      }
+   }
+
+   @PreDestroy
+   public void close() throws InterruptedException {
+      close(Duration.ofSeconds(10));
+   }
+
+   // waits for the writer to flush the queue, then fails whatever it left, so no caller waits forever
+   void close(Duration timeout) throws InterruptedException {
+      running = false;
+      writer.interrupt();
+      writer.join(Math.max(1, timeout.toMillis()));
+
+      List<PendingRegistration> left = new ArrayList<>();
+      queue.drainTo(left);
+      left.forEach(pending -> pending.id().completeExceptionally(shuttingDown()));
+   }
+
+   private static RegistrationQueueFullException shuttingDown() {
+      return new RegistrationQueueFullException("The registration queue is shutting down, please retry");
+   }
+
+   @Override
+   public void bindTo(MeterRegistry registry) {
+      commits = Counter.builder("student.registration.commits")
+         .description("Transactions committed by the registration writer")
+         .register(registry);
+      batchSizes = DistributionSummary.builder("student.registration.batch.size")
+         .description("Registrations inserted per commit")
+         .register(registry);
+      Gauge.builder("student.registration.queue.size", queue, BlockingQueue::size)
+         .description("Registrations waiting for the next group commit")
+         .register(registry);
+   }
+
+   private record PendingRegistration(Student student, CompletableFuture<Integer> id) {
+   }
+}
@@ -1,21 +1,79 @@
 package com.dlvi.studentmanagement.service;
 
+import com.dlvi.studentmanagement.dto.StudentCacheStatsDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentEmailIndexStatsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentLookupDto;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
 import com.dlvi.studentmanagement.dto.StudentRequestDto;
 import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface StudentService {
 
    StudentResponseDto registerStudent(StudentRequestDto student);
 
-   void deleteStudent(Integer id);
+   default void deleteStudent(Integer id) {
+      deleteStudent(id, null);
+   }
 
-   List<StudentResponseDto> studentList();
+   /**
+    * Deletes the student; {@code expectedVersion} is optional and, when given, makes the delete conditional on the
+    * current row version.
+    */
+   void deleteStudent(Integer id, Integer expectedVersion);
+
+   /**
+    * Keyset page of students holding only the requested fields; {@code null} or empty selects all of them.
+    */
+   StudentPageDto studentList(Integer after, int limit, Set<StudentField> fields);
+
+   /**
+    * Entity tag of the page {@link #studentList} would return for the same arguments, computed from the ids and
+    * versions alone so a conditional GET can be answered without reading or serialising the selected columns.
+    */
+   String studentListTag(Integer after, int limit, Set<StudentField> fields);
+
+   /**
+    * Keyset page of the students matching every given filter of {@code criteria}, holding only the requested fields.
+    * Matches are not counted, so the total of the page is {@code -1}.
+    */
+   StudentPageDto searchStudents(StudentSearchCriteria criteria, Integer after, int limit, Set<StudentField> fields);
+
+   void exportStudents(Consumer<StudentResponseDto> consumer);
 
    StudentResponseDto getStudent(Integer id);
 
-   StudentResponseDto patchStudent(Integer id, StudentPatchDto req);
+   /**
+    * The students with the given ids, holding only the requested fields, read with as few queries as possible.
+    */
+   StudentLookupDto lookupStudents(List<Integer> ids, Set<StudentField> fields);
+
+   /**
+    * Current row version of the student, empty when it does not exist.
+    */
+   Optional<Integer> studentVersion(Integer id);
+
+   /**
+    * Applies the non-null fields of the patch; {@code expectedVersion} is optional and, when given, makes the update
+    * conditional on the current row version.
+    */
+   StudentResponseDto patchStudent(Integer id, StudentPatchDto req, Integer expectedVersion);
+
+   StudentCacheStatsDto cacheStats();
+
+   StudentEmailIndexStatsDto emailIndexStats();
+
+   /**
+    * Number of students in total, by sex and by birth year, read from maintained counters instead of counting rows.
+    */
+   StudentCountsDto counts();
 
 }
@@ -1,79 +1,295 @@
 package com.dlvi.studentmanagement.service;
 
 import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentCacheStatsDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentEmailIndexStatsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentLookupDto;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
 import com.dlvi.studentmanagement.dto.StudentRequestDto;
 import com.dlvi.studentmanagement.dto.StudentResponseDto;
-import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import com.dlvi.studentmanagement.exception.PreconditionFailedException;
 import com.dlvi.studentmanagement.exception.ResourceNotFoundException;
 import com.dlvi.studentmanagement.model.Student;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+@Profile("!reactive")
 @Service
 public class StudentServiceImpl implements StudentService {
 
    private static final String ID_NOT_FOUND = "Student not found with id ";
+   private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+   private static final long FNV_PRIME = 0x100000001b3L;
+   // name index candidates are checked by the database this many ids at a time
+   private static final int CANDIDATE_CHUNK = 1000;
    private final StudentDao studentDao;
+   private final StudentCache studentCache;
+   private final StudentEmailIndex emailIndex;
+   private final StudentNameIndex nameIndex;
+   private final StudentColumns columns;
+   private final StudentRegistrationBatcher registrationBatcher;
+   private final StudentReadCoalescer readCoalescer;
+   private final StudentLookupBatcher lookupBatcher;
 
-   public StudentServiceImpl(StudentDao studentDao) {
+   public StudentServiceImpl(StudentDao studentDao,
+                             StudentCache studentCache,
+                             StudentEmailIndex emailIndex,
+                             StudentNameIndex nameIndex,
+                             StudentColumns columns,
+                             StudentRegistrationBatcher registrationBatcher,
+                             StudentReadCoalescer readCoalescer,
+                             StudentLookupBatcher lookupBatcher) {
       this.studentDao = studentDao;
+      this.studentCache = studentCache;
+      this.emailIndex = emailIndex;
+      this.nameIndex = nameIndex;
+      this.columns = columns;
+      this.registrationBatcher = registrationBatcher;
+      this.readCoalescer = readCoalescer;
+      this.lookupBatcher = lookupBatcher;
    }
 
    @Override
    public StudentResponseDto registerStudent(StudentRequestDto req) {
-      if (studentDao.emailExists(req.email()))
-         throw new EmailAlreadyExistsException("The email " + req.email() + " is already registered");
+      // a single insert: the unique email index rejects duplicates and the response is built from the request;
+      // with group commit enabled the insert shares a transaction with other concurrent registrations
+      Student student = new Student(req);
+      Integer id = registrationBatcher.enabled() ? registrationBatcher.save(student) : studentDao.save(student);
+      emailIndex.add(req.email());
+      nameIndex.add(id, req.name());
+      columns.add(id, student);
+      readCoalescer.forgetPages();
 
-      Integer id = studentDao.save(new Student(req));
-
-      return studentDao.getById(id)
-         .map(student -> new StudentResponseDto(student.getId(), student.getName(), student.getEmail()))
-         .orElseThrow(() -> new ResourceNotFoundException(ID_NOT_FOUND + id));
+      // a fresh row always starts at version 0
+      StudentResponseDto response = new StudentResponseDto(id, req.name(), req.email(), 0);
+      studentCache.putAfterCommit(response);
+      return response;
    }
 
    @Override
-   public void deleteStudent(Integer id) {
-      if (studentDao.deleteById(id) == 0)
+   public void deleteStudent(Integer id, Integer expectedVersion) {
+      studentCache.invalidate(id);
+      readCoalescer.forget(id);
+
+      if (expectedVersion == null) {
+         if (studentDao.deleteById(id) == 0)
+            throw new ResourceNotFoundException(ID_NOT_FOUND + id);
+         columns.remove(id);
+         return;
+      }
+
+      if (studentDao.deleteById(id, expectedVersion) == 0) {
+         if (studentDao.getVersion(id).isPresent())
+            throw new PreconditionFailedException("Student " + id + " has been modified since version " + expectedVersion);
+
          throw new ResourceNotFoundException(ID_NOT_FOUND + id);
+      }
+      columns.remove(id);
+   }
+
+   @Override
+   public StudentPageDto studentList(Integer after, int limit, Set<StudentField> fields) {
+      Set<StudentField> selected = StudentField.orAll(fields);
+
+      // one extra row tells us whether another page exists without a second query
+      List<StudentResponseDto> rows = readCoalescer.page(after, limit + 1, selected,
+         () -> studentDao.listResponsePage(after, limit + 1, selected));
+
+      long total = studentDao.count();
+      return page(rows, limit, selected, total, pageTag(rows, limit, selected, total));
+   }
+
+   @Override
+   public StudentPageDto searchStudents(StudentSearchCriteria criteria, Integer after, int limit, Set<StudentField> fields) {
+      Set<StudentField> selected = StudentField.orAll(fields);
+      int[] candidates = criteria.nameContains() == null ? null : nameIndex.candidates(criteria.nameContains());
+
+      List<StudentResponseDto> rows = candidates == null
+         ? studentDao.search(criteria, after, limit + 1, selected)
+         : searchCandidates(criteria, candidates, after, limit + 1, selected);
+      return page(rows, limit, selected, -1, null);
+   }
+
+   // walks the ascending candidate ids past the cursor, letting the database apply every filter, until a page is full
+   private List<StudentResponseDto> searchCandidates(StudentSearchCriteria criteria, int[] candidates, Integer after,
+                                                    int limit, Set<StudentField> selected) {
+      int from = 0;
+      if (after != null) {
+         int found = Arrays.binarySearch(candidates, after);
+         from = found >= 0 ? found + 1 : -found - 1;
+      }
+
+      List<StudentResponseDto> rows = new ArrayList<>();
+      while (from < candidates.length && rows.size() < limit) {
+         int to = Math.min(from + CANDIDATE_CHUNK, candidates.length);
+         List<Integer> ids = Arrays.stream(candidates, from, to).boxed().toList();
+         rows.addAll(studentDao.search(criteria, ids, after, limit - rows.size(), selected));
+         from = to;
+      }
+      return rows;
+   }
+
+   // rows holds up to limit + 1 students, the extra one only tells whether another page exists
+   private static StudentPageDto page(List<StudentResponseDto> rows, int limit, Set<StudentField> selected, long total,
+                                      String etag) {
+      List<StudentResponseDto> page = rows.size() > limit ? rows.subList(0, limit) : rows;
+      Integer nextCursor = rows.size() > limit ? page.get(page.size() - 1).id() : null;
+
+      // the id is always read because it is the cursor, but it is only returned when asked for
+      List<StudentResponseDto> data = selected.contains(StudentField.ID)
+         ? page
+         : page.stream().map(student -> student.select(selected)).toList();
+
+      return new StudentPageDto(data, nextCursor, total, etag);
+   }
+
+   @Override
+   public String studentListTag(Integer after, int limit, Set<StudentField> fields) {
+      Set<StudentField> selected = StudentField.orAll(fields);
+      Set<StudentField> idOnly = EnumSet.of(StudentField.ID);
+
+      // the id-only projection reads just the id and version columns of the same keyset range
+      List<StudentResponseDto> rows = readCoalescer.page(after, limit + 1, idOnly,
+         () -> studentDao.listResponsePage(after, limit + 1, idOnly));
+      return pageTag(rows, limit, selected, studentDao.count());
    }
 
    @Override
-   public List<StudentResponseDto> studentList() {
-      return studentDao.listAll().stream()
-         .map(student -> new StudentResponseDto(
-            student.getId(),
-            student.getName(),
-            student.getEmail()
-         ))
-         .toList();
+   public void exportStudents(Consumer<StudentResponseDto> consumer) {
+      studentDao.streamAll(student -> consumer.accept(new StudentResponseDto(
+         student.getId(),
+         student.getName(),
+         student.getEmail()
+      )));
    }
 
    @Override
    public StudentResponseDto getStudent(Integer id) {
-      return studentDao.getById(id)
-         .map(student -> new StudentResponseDto(
-            student.getId(),
-            student.getName(),
-            student.getEmail()
-         ))
-         .orElseThrow(() -> new ResourceNotFoundException(ID_NOT_FOUND + id));
+      // concurrent misses for the same id share one query even when the cache is disabled, and with lookup batching
+      // concurrent misses for different ids share one query too
+      StudentResponseDto response = studentCache.get(id, key -> readCoalescer.getById(key,
+         () -> lookupBatcher.get(key, () -> studentDao.getResponseById(key))).orElse(null));
 
+      if (response == null)
+         throw new ResourceNotFoundException(ID_NOT_FOUND + id);
+
+      return response;
+   }
+
+   @Override
+   public StudentLookupDto lookupStudents(List<Integer> ids, Set<StudentField> fields) {
+      Set<StudentField> selected = StudentField.orAll(fields);
+      Set<Integer> requested = new LinkedHashSet<>(ids);
+
+      // cached students are taken as they are; the rest is read with one id in (...) query per chunk and, unlike a
+      // cache load, not put into the cache, where it could overwrite the invalidation of a concurrent write
+      Map<Integer, StudentResponseDto> found = new HashMap<>();
+      List<Integer> misses = new ArrayList<>();
+      for (Integer id : requested) {
+         StudentResponseDto cached = studentCache.getIfPresent(id);
+         if (cached != null)
+            found.put(id, cached);
+         else
+            misses.add(id);
+      }
+      if (!misses.isEmpty())
+         studentDao.getResponsesByIds(misses).forEach(student -> found.put(student.id(), student));
+
+      List<StudentResponseDto> data = new ArrayList<>(found.size());
+      List<Integer> missing = new ArrayList<>();
+      for (Integer id : requested) {
+         StudentResponseDto student = found.get(id);
+         if (student == null)
+            missing.add(id);
+         else
+            data.add(student.select(selected));
+      }
+      return new StudentLookupDto(data, missing);
    }
 
    @Override
-   public StudentResponseDto patchStudent(Integer id, StudentPatchDto patch) {
-      if (studentDao.emailExists(patch.email()))
-         throw new EmailAlreadyExistsException("The email " + patch.email() + " is already registered");
+   public Optional<Integer> studentVersion(Integer id) {
+      StudentResponseDto cached = studentCache.getIfPresent(id);
+      if (cached != null && cached.version() != null)
+         return Optional.of(cached.version());
+
+      return studentDao.getVersion(id);
+   }
+
+   @Override
+   public StudentResponseDto patchStudent(Integer id, StudentPatchDto patch, Integer expectedVersion) {
+      studentCache.invalidate(id);
+      readCoalescer.forget(id);
+
+      // duplicates are rejected by the unique email index, so a student may keep their own email
+      if (studentDao.partialUpdate(id, patch, expectedVersion) == 0) {
+         if (expectedVersion != null && studentDao.getVersion(id).isPresent())
+            throw new PreconditionFailedException("Student " + id + " has been modified since version " + expectedVersion);
 
-      if (studentDao.partialUpdate(id, patch) == 0)
          throw new ResourceNotFoundException("The record could not be updated into the database");
+      }
+      // again once written: without a surrounding transaction the update has already committed and the calls above
+      // ran before it, so a read that loaded the old row in between would otherwise be served until it expires
+      studentCache.invalidate(id);
+      readCoalescer.forget(id);
+
+      if (patch.email() != null) {
+         emailIndex.add(patch.email());
+         columns.updateEmail(id, patch.email());
+      }
+      if (patch.name() != null)
+         nameIndex.add(id, patch.name());
 
-      return studentDao.getById(id).map(student -> new StudentResponseDto(
-            student.getId(),
-            student.getName(),
-            student.getEmail()))
+      // read back even when the patch names every field: the version the update gave the row is only known to the
+      // database, and the response carries it as the ETag a client sends with its next conditional write
+      return studentDao.getResponseById(id)
          .orElseThrow(() -> new ResourceNotFoundException(ID_NOT_FOUND + id));
    }
+
+   // strong validator for a page: every id and version read for it (including the look-ahead row that decides the
+   // cursor) plus the selected fields, the limit and the total, so any write that could change the body changes the tag
+   static String pageTag(List<StudentResponseDto> rows, int limit, Set<StudentField> fields, long total) {
+      long hash = FNV_OFFSET;
+      for (StudentResponseDto row : rows) {
+         hash = (hash ^ row.id()) * FNV_PRIME;
+         hash = (hash ^ Objects.requireNonNullElse(row.version(), -1)) * FNV_PRIME;
+      }
+      for (StudentField field : fields)
+         hash = (hash ^ field.ordinal()) * FNV_PRIME;
+      hash = (hash ^ limit) * FNV_PRIME;
+      hash = (hash ^ total) * FNV_PRIME;
+
+      return Long.toHexString(hash);
+   }
+
+   @Override
+   public StudentCacheStatsDto cacheStats() {
+      return studentCache.stats();
+   }
+
+   @Override
+   public StudentEmailIndexStatsDto emailIndexStats() {
+      return emailIndex.stats();
+   }
+
+   @Override
+   public StudentCountsDto counts() {
+      return studentDao.counts();
+   }
 }
@@ -0,0 +1,17 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentColumnsStatsDto;
+import com.dlvi.studentmanagement.dto.StudentStatsDto;
+
+import java.util.List;
+
+public interface StudentStatsService {
+
+   /**
+    * Aggregates over every student in the analytics snapshot: an age histogram in buckets of {@code ageBucket} years,
+    * the given age percentiles (nearest rank) and the {@code topDomains} most common email domains.
+    */
+   StudentStatsDto stats(int ageBucket, List<Double> percentiles, int topDomains);
+
+   StudentColumnsStatsDto snapshotStats();
+}
@@ -0,0 +1,286 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentColumnsStatsDto;
+import com.dlvi.studentmanagement.dto.StudentStatsDto;
+import com.dlvi.studentmanagement.exception.StatisticsUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Computes every aggregate in one parallel scan of the {@link StudentColumns} snapshot: the rows are split into
+ * slices counted by fork-join tasks on the common pool, and the per-slice counters are summed on the way back up.
+ */
+@Profile("!reactive")
+@Service
+public class StudentStatsServiceImpl implements StudentStatsService {
+
+   // ages above this are counted as this age, and their birth years as the earliest one kept
+   static final int MAX_AGE = 150;
+   // below this many rows a slice is not split any further, splitting would cost more than it saves
+   private static final int MIN_SLICE = 1 << 16;
+
+   private final StudentColumns columns;
+   private final Clock clock;
+
+   @Autowired
+   public StudentStatsServiceImpl(StudentColumns columns) {
+      this(columns, Clock.systemDefaultZone());
+   }
+
+   StudentStatsServiceImpl(StudentColumns columns, Clock clock) {
+      this.columns = columns;
+      this.clock = clock;
+   }
+
+   @Override
+   public StudentStatsDto stats(int ageBucket, List<Double> percentiles, int topDomains) {
+      if (!columns.isReady())
+         throw new StatisticsUnavailableException(
+            "Student statistics need the analytics snapshot, which is disabled or still being built");
+
+      LocalDate today = LocalDate.now(clock);
+      Calendar calendar = new Calendar(today);
+      return columns.read(snapshot -> {
+         int slice = Math.max(MIN_SLICE, snapshot.size / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+         Counts counts = ForkJoinPool.commonPool().invoke(new Scan(snapshot, calendar, 0, snapshot.size, slice));
+
+         return new StudentStatsDto(
+            counts.students,
+            counts.unknownBirthDate,
+            bySex(snapshot, counts),
+            byBirthYear(counts, today),
+            topEmailDomains(snapshot, counts, topDomains),
+            ageHistogram(counts, ageBucket),
+            agePercentiles(counts, percentiles));
+      });
+   }
+
+   @Override
+   public StudentColumnsStatsDto snapshotStats() {
+      return columns.stats();
+   }
+
+   private static Map<String, Long> bySex(StudentColumns.Columns snapshot, Counts counts) {
+      return largest(counts.sexes, code -> Objects.requireNonNullElse(snapshot.sexValues.get(code), "unknown"),
+         counts.sexes.length);
+   }
+
+   private static Map<String, Long> topEmailDomains(StudentColumns.Columns snapshot, Counts counts, int limit) {
+      return largest(counts.domains, code -> Objects.requireNonNullElse(snapshot.domainValues.get(code), "unknown"),
+         limit);
+   }
+
+   // the non-zero counters, largest first
+   private static Map<String, Long> largest(long[] counters, IntFunction<String> label, int limit) {
+      Map<String, Long> result = new LinkedHashMap<>();
+      IntStream.range(0, counters.length)
+         .filter(code -> counters[code] > 0)
+         .boxed()
+         .sorted(Comparator.comparingLong((Integer code) -> counters[code]).reversed())
+         .limit(limit)
+         .forEach(code -> result.put(label.apply(code), counters[code]));
+      return result;
+   }
+
+   private static Map<Integer, Long> byBirthYear(Counts counts, LocalDate today) {
+      Map<Integer, Long> result = new TreeMap<>();
+      int firstYear = today.getYear() - MAX_AGE - 1;
+      for (int i = 0; i < counts.years.length; i++)
+         if (counts.years[i] > 0)
+            result.put(firstYear + i, counts.years[i]);
+      return result;
+   }
+
+   // contiguous buckets from the youngest to the oldest student, empty ones in between included
+   private static List<StudentStatsDto.AgeBucket> ageHistogram(Counts counts, int width) {
+      int youngest = 0;
+      while (youngest <= MAX_AGE && counts.ages[youngest] == 0)
+         youngest++;
+      int oldest = MAX_AGE;
+      while (oldest >= youngest && counts.ages[oldest] == 0)
+         oldest--;
+
+      List<StudentStatsDto.AgeBucket> buckets = new ArrayList<>();
+      for (int from = youngest - youngest % width; from <= oldest; from += width) {
+         int to = Math.min(from + width - 1, MAX_AGE);
+         long students = 0;
+         for (int age = from; age <= to; age++)
+            students += counts.ages[age];
+         buckets.add(new StudentStatsDto.AgeBucket(from, to, students));
+      }
+      return buckets;
+   }
+
+   private static Map<String, Integer> agePercentiles(Counts counts, List<Double> percentiles) {
+      long known = counts.students - counts.unknownBirthDate;
+      Map<String, Integer> result = new LinkedHashMap<>();
+      if (known == 0)
+         return result;
+
+      for (double percentile : percentiles) {
+         long rank = Math.max(1, (long) Math.ceil(percentile / 100 * known));
+         long seen = 0;
+         int age = 0;
+         while (age < MAX_AGE && (seen += counts.ages[age]) < rank)
+            age++;
+         result.put(percentileLabel(percentile), age);
+      }
+      return result;
+   }
+
+   private static String percentileLabel(double percentile) {
+      return percentile == Math.rint(percentile) ? "p" + (long) percentile : "p" + percentile;
+   }
+
+   /**
+    * Proleptic Gregorian date of an epoch day packed as {@code yyyymmdd}, without creating a {@link LocalDate} per
+    * day of the calendar. Only meant for years after 0.
+    */
+   static int civil(int epochDay) {
+      int z = epochDay + 719_468;
+      int era = (z >= 0 ? z : z - 146_096) / 146_097;
+      int dayOfEra = z - era * 146_097;
+      int yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+      int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      // months counted from March, so the leap day is the last day of the year
+      int shiftedMonth = (5 * dayOfYear + 2) / 153;
+      int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+      int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+      int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+      return year * 10_000 + month * 100 + day;
+   }
+
+   /**
+    * Age and birth year index of every birth day from {@code MAX_AGE + 1} years ago up to today, worked out once per
+    * request so a row costs a table lookup instead of a date calculation; older birth days count as the oldest entry.
+    */
+   private static final class Calendar {
+      final int firstDay;
+      final int today;
+      // age << 16 | birth year - (today's year - MAX_AGE - 1)
+      final int[] days;
+
+      Calendar(LocalDate today) {
+         this.today = (int) today.toEpochDay();
+         this.firstDay = (int) today.minusYears(MAX_AGE + 1).toEpochDay();
+         this.days = new int[this.today - firstDay + 1];
+
+         int todayYear = today.getYear();
+         int todayMonthDay = today.getMonthValue() * 100 + today.getDayOfMonth();
+         int firstYear = todayYear - MAX_AGE - 1;
+         for (int day = firstDay; day <= this.today; day++) {
+            int date = civil(day);
+            int year = date / 10_000;
+            int age = todayYear - year - (date % 10_000 > todayMonthDay ? 1 : 0);
+            days[day - firstDay] = Math.min(age, MAX_AGE) << 16 | year - firstYear;
+         }
+      }
+   }
+
+   /**
+    * Counters of one slice of rows; the arrays are indexed by dictionary code, age and birth year from
+    * {@code today - MAX_AGE - 1}.
+    */
+   private static final class Counts {
+      final long[] sexes;
+      final long[] domains;
+      final long[] ages = new long[MAX_AGE + 1];
+      final long[] years = new long[MAX_AGE + 2];
+      long students;
+      long unknownBirthDate;
+
+      Counts(StudentColumns.Columns snapshot) {
+         sexes = new long[snapshot.sexValues.size()];
+         domains = new long[snapshot.domainValues.size()];
+      }
+
+      Counts add(Counts other) {
+         addTo(sexes, other.sexes);
+         addTo(domains, other.domains);
+         addTo(ages, other.ages);
+         addTo(years, other.years);
+         students += other.students;
+         unknownBirthDate += other.unknownBirthDate;
+         return this;
+      }
+
+      private static void addTo(long[] target, long[] source) {
+         for (int i = 0; i < target.length; i++)
+            target[i] += source[i];
+      }
+   }
+
+   private static final class Scan extends RecursiveTask<Counts> {
+      private final StudentColumns.Columns snapshot;
+      private final Calendar calendar;
+      private final int from;
+      private final int to;
+      private final int slice;
+
+      Scan(StudentColumns.Columns snapshot, Calendar calendar, int from, int to, int slice) {
+         this.snapshot = snapshot;
+         this.calendar = calendar;
+         this.from = from;
+         this.to = to;
+         this.slice = slice;
+      }
+
+      @Override
+      protected Counts compute() {
+         if (to - from <= slice)
+            return count();
+
+         int middle = (from + to) >>> 1;
+         Scan left = new Scan(snapshot, calendar, from, middle, slice);
+         left.fork();
+         Counts right = new Scan(snapshot, calendar, middle, to, slice).compute();
+         return left.join().add(right);
+      }
+
+      private Counts count() {
+         Counts counts = new Counts(snapshot);
+         int[] days = calendar.days;
+         int firstDay = calendar.firstDay;
+         int today = calendar.today;
+
+         int[] birthDays = snapshot.birthDays;
+         byte[] sexes = snapshot.sexes;
+         int[] domains = snapshot.domains;
+         for (int row = from; row < to; row++) {
+            byte sex = sexes[row];
+            if (sex == StudentColumns.DELETED)
+               continue;
+
+            counts.students++;
+            counts.sexes[sex]++;
+            counts.domains[domains[row]]++;
+
+            int birthDay = birthDays[row];
+            if (birthDay == StudentColumns.NO_BIRTH_DATE || birthDay > today) {
+               counts.unknownBirthDate++;
+               continue;
+            }
+
+            int ageAndYear = days[Math.max(birthDay - firstDay, 0)];
+            counts.ages[ageAndYear >>> 16]++;
+            counts.years[ageAndYear & 0xFFFF]++;
+         }
+         return counts;
+      }
+   }
+}
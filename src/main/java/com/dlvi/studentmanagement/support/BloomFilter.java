@@ -0,0 +1,94 @@
+package com.dlvi.studentmanagement.support;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter over strings: {@link #mightContain} never returns {@code false} for an added value,
+ * and returns {@code true} for an absent one with roughly the configured false-positive rate.
+ */
+public class BloomFilter {
+
+   private final AtomicLongArray words;
+   private final long numBits;
+   private final int numHashes;
+   private final LongAdder insertions = new LongAdder();
+
+   public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+      if (expectedInsertions <= 0)
+         throw new IllegalArgumentException("expectedInsertions must be positive");
+      if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+         throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+
+      long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+      this.words = new AtomicLongArray(wordCount);
+      this.numBits = (long) wordCount * 64;
+      this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+   }
+
+   public void add(String value) {
+      long hash = hash(value);
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+
+      for (int i = 1; i <= numHashes; i++) {
+         long bit = Math.floorMod(h1 + (long) i * h2, numBits);
+         int word = (int) (bit >>> 6);
+         long mask = 1L << bit;
+
+         long current = words.get(word);
+         while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask))
+            current = words.get(word);
+      }
+      insertions.increment();
+   }
+
+   public boolean mightContain(String value) {
+      long hash = hash(value);
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+
+      for (int i = 1; i <= numHashes; i++) {
+         long bit = Math.floorMod(h1 + (long) i * h2, numBits);
+         if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+            return false;
+      }
+      return true;
+   }
+
+   public long numBits() {
+      return numBits;
+   }
+
+   public int numHashes() {
+      return numHashes;
+   }
+
+   public long insertions() {
+      return insertions.sum();
+   }
+
+   /**
+    * False-positive rate expected for the number of values added so far.
+    */
+   public double expectedFalsePositiveRate() {
+      return Math.pow(1 - Math.exp(-numHashes * (double) insertions() / numBits), numHashes);
+   }
+
+   // 64-bit FNV-1a over the UTF-16 code units, finished with the murmur3 avalanche
+   private static long hash(String value) {
+      long hash = 0xcbf29ce484222325L;
+      for (int i = 0; i < value.length(); i++) {
+         hash ^= value.charAt(i);
+         hash *= 0x100000001b3L;
+      }
+
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb93fe53e87d9L;
+      hash ^= hash >>> 33;
+      return hash;
+   }
+}
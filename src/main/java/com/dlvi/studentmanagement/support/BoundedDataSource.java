@@ -0,0 +1,105 @@
+package com.dlvi.studentmanagement.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of connections checked out of the pool with a fair semaphore. Callers beyond the limit wait on the
+ * semaphore, which is cheap for virtual threads, instead of piling into the pool's own hand-off queue. The permit is
+ * held until the connection is closed. Time spent waiting is recorded in {@code student.db.permit.wait}.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+   private final Semaphore permits;
+   private final long acquireTimeoutNanos;
+   private final Timer waitTimer;
+
+   public BoundedDataSource(DataSource target, int maxConcurrency, Duration acquireTimeout, MeterRegistry registry) {
+      super(target);
+      this.permits = new Semaphore(maxConcurrency, true);
+      this.acquireTimeoutNanos = acquireTimeout.toNanos();
+      this.waitTimer = Timer.builder("student.db.permit.wait")
+         .description("Time spent queueing for a database permit before borrowing a pooled connection")
+         .publishPercentileHistogram()
+         .register(registry);
+
+      Gauge.builder("student.db.permit.queued", permits, Semaphore::getQueueLength)
+         .description("Callers currently queueing for a database permit")
+         .register(registry);
+      Gauge.builder("student.db.permit.available", permits, Semaphore::availablePermits)
+         .register(registry);
+   }
+
+   @Override
+   public Connection getConnection() throws SQLException {
+      acquire();
+      try {
+         return releasingOnClose(super.getConnection());
+      } catch (SQLException | RuntimeException e) {
+         permits.release();
+         throw e;
+      }
+   }
+
+   @Override
+   public Connection getConnection(String username, String password) throws SQLException {
+      acquire();
+      try {
+         return releasingOnClose(super.getConnection(username, password));
+      } catch (SQLException | RuntimeException e) {
+         permits.release();
+         throw e;
+      }
+   }
+
+   private void acquire() throws SQLException {
+      long start = System.nanoTime();
+      try {
+         if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS))
+            throw new SQLTransientConnectionException("Timed out after " + Duration.ofNanos(acquireTimeoutNanos) + " waiting for a database permit");
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+      } finally {
+         waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+   }
+
+   private Connection releasingOnClose(Connection target) {
+      AtomicBoolean released = new AtomicBoolean();
+
+      return (Connection) Proxy.newProxyInstance(
+         Connection.class.getClassLoader(),
+         new Class<?>[]{Connection.class},
+         (proxy, method, args) -> {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+               try {
+                  target.close();
+               } finally {
+                  if (released.compareAndSet(false, true))
+                     permits.release();
+               }
+               return null;
+            }
+
+            try {
+               return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+               throw e.getTargetException();
+            }
+         });
+   }
+}
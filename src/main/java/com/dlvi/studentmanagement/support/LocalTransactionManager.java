@@ -0,0 +1,50 @@
+package com.dlvi.studentmanagement.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager for storage that is not a database. It opens no connection and has nothing to commit or roll
+ * back, but it keeps transaction synchronization, so {@code @Transactional} boundaries and
+ * {@link Transactions#afterCommit} behave as they do over JDBC. Writes made inside a transaction take effect when they
+ * are made, and a rollback does not undo them.
+ */
+public class LocalTransactionManager extends AbstractPlatformTransactionManager {
+
+   @Override
+   protected Object doGetTransaction() {
+      return new LocalTransaction(TransactionSynchronizationManager.isActualTransactionActive());
+   }
+
+   @Override
+   protected boolean isExistingTransaction(Object transaction) {
+      return ((LocalTransaction) transaction).existing();
+   }
+
+   @Override
+   protected void doBegin(Object transaction, TransactionDefinition definition) {
+   }
+
+   @Override
+   protected Object doSuspend(Object transaction) {
+      // nothing is bound to the thread, only the synchronizations are suspended
+      return null;
+   }
+
+   @Override
+   protected void doResume(Object transaction, Object suspendedResources) {
+   }
+
+   @Override
+   protected void doCommit(DefaultTransactionStatus status) {
+   }
+
+   @Override
+   protected void doRollback(DefaultTransactionStatus status) {
+   }
+
+   private record LocalTransaction(boolean existing) {
+   }
+}
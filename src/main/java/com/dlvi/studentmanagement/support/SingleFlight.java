@@ -0,0 +1,82 @@
+package com.dlvi.studentmanagement.support;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the loader and every caller that
+ * arrives while it is running waits for and shares its result, or its exception. Nothing is kept once the call
+ * returns, so a later caller always runs the loader again.
+ * <p>
+ * Shared results are handed to several threads at once and must not be mutated.
+ */
+public class SingleFlight<K, V> {
+
+   private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+   private final LongAdder leaders = new LongAdder();
+   private final LongAdder followers = new LongAdder();
+
+   public V run(K key, Supplier<V> loader) {
+      CompletableFuture<V> flight = new CompletableFuture<>();
+      CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+
+      if (existing != null) {
+         followers.increment();
+         return join(existing);
+      }
+
+      leaders.increment();
+      try {
+         V value = loader.get();
+         flight.complete(value);
+         return value;
+      } catch (RuntimeException | Error e) {
+         flight.completeExceptionally(e);
+         throw e;
+      } finally {
+         inFlight.remove(key, flight);
+      }
+   }
+
+   /**
+    * Detaches the call in flight for the key, if any: callers already waiting on it still get its result, but the
+    * next caller starts a new call instead of joining one that may have read data older than a write.
+    */
+   public void forget(K key) {
+      inFlight.remove(key);
+   }
+
+   public void forgetAll() {
+      inFlight.clear();
+   }
+
+   /**
+    * Calls that ran the loader.
+    */
+   public long leaders() {
+      return leaders.sum();
+   }
+
+   /**
+    * Calls that were answered by another caller's loader.
+    */
+   public long followers() {
+      return followers.sum();
+   }
+
+   private static <V> V join(CompletableFuture<V> flight) {
+      try {
+         return flight.join();
+      } catch (CompletionException e) {
+         if (e.getCause() instanceof RuntimeException cause)
+            throw cause;
+         if (e.getCause() instanceof Error cause)
+            throw cause;
+         throw e;
+      }
+   }
+}
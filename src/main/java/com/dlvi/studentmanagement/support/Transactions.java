@@ -0,0 +1,27 @@
+package com.dlvi.studentmanagement.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class Transactions {
+
+   private Transactions() {
+   }
+
+   /**
+    * Runs the action once the current transaction commits, or immediately when no transaction is active.
+    */
+   public static void afterCommit(Runnable action) {
+      if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+         action.run();
+         return;
+      }
+
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+         @Override
+         public void afterCommit() {
+            action.run();
+         }
+      });
+   }
+}
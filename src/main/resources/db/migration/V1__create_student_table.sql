@@ -0,0 +1,8 @@
+-- matches the table that existed before the schema was managed, so existing databases are left untouched
+create table if not exists student (
+   id         int          not null auto_increment primary key,
+   name       varchar(100) not null,
+   email      varchar(150) not null,
+   birth_date date         not null,
+   sex        varchar(20)
+);
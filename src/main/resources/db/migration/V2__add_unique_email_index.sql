@@ -0,0 +1,2 @@
+-- registration relies on this constraint instead of a check-then-insert, which also closes the duplicate-email race
+create unique index uk_student_email on student (email);
@@ -0,0 +1,2 @@
+-- bumped by every update so clients can patch conditionally with If-Match
+alter table student add column version int not null default 0;
@@ -0,0 +1,10 @@
+-- GET /student/search filters: a name prefix is a range scan on the name index, sex and birth date share a composite
+-- index (the birth date one serves ranges without a sex), and the email domain is kept in its own column so it is an
+-- indexed equality match instead of a leading-wildcard like over every email
+alter table student add column email_domain varchar(150);
+update student set email_domain = lower(substring(email, locate('@', email) + 1));
+
+create index idx_student_name on student (name);
+create index idx_student_birth_date on student (birth_date);
+create index idx_student_sex_birth_date on student (sex, birth_date);
+create index idx_student_email_domain on student (email_domain);
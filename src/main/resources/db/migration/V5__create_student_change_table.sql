@@ -0,0 +1,22 @@
+-- transactional outbox: every student write appends a row here in its own transaction, and seq orders the change feed
+-- read by GET /student/changes and the change stream; deletes leave a tombstone without name or email
+create table student_change (
+   seq        bigint       not null auto_increment primary key,
+   student_id int          not null,
+   type       varchar(10)  not null,
+   name       varchar(100),
+   email      varchar(150),
+   version    int,
+   changed_at timestamp(3) not null default current_timestamp(3)
+);
+
+-- compaction looks for newer changes of the same student, retention and the settle time range over changed_at
+create index idx_student_change_student on student_change (student_id, seq);
+create index idx_student_change_changed_at on student_change (changed_at);
+
+-- highest sequence dropped by retention: a reader resuming below it has missed changes and must resync
+create table student_change_horizon (
+   id             int    not null primary key,
+   purged_through bigint not null
+);
+insert into student_change_horizon (id, purged_through) values (1, 0);
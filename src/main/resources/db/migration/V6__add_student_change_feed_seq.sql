@@ -0,0 +1,9 @@
+-- seq is drawn when a change is inserted, so a transaction that commits late can hold a lower one than changes already
+-- read. The feed orders by feed_seq instead, which the publisher hands out to committed changes only: rows it has not
+-- published yet have none, and published_through is the last one handed out
+alter table student_change add column feed_seq bigint;
+update student_change set feed_seq = seq;
+create unique index idx_student_change_feed_seq on student_change (feed_seq);
+
+alter table student_change_horizon add column published_through bigint not null default 0;
+update student_change_horizon set published_through = (select coalesce(max(seq), 0) from student_change) where id = 1;
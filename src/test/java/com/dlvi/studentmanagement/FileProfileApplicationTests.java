@@ -0,0 +1,80 @@
+package com.dlvi.studentmanagement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Boots the application with the {@code file} profile and no datasource configured: nothing may need a database.
+ */
+@SpringBootTest(properties = "spring.datasource.url=")
+@AutoConfigureMockMvc
+@ActiveProfiles("file")
+class FileProfileApplicationTests {
+
+   @TempDir
+   static Path directory;
+
+   @Autowired
+   private ApplicationContext context;
+
+   @Autowired
+   private MockMvc mockMvc;
+
+   @DynamicPropertySource
+   static void storage(DynamicPropertyRegistry registry) {
+      registry.add("student.storage.file.directory", directory::toString);
+   }
+
+   @Test
+   void startsWithoutADataSource() {
+      assertTrue(context.getBeansOfType(DataSource.class).isEmpty());
+   }
+
+   @Test
+   void transactionalRoutesWorkAndTheChangeLogIsNotServed() throws Exception {
+      mockMvc.perform(post("/student")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\":\"Maximo\",\"email\":\"maximo@gmail.com\",\"birthDate\":\"2000-01-01\",\"sex\":\"Man\"}"))
+         .andExpect(status().isCreated());
+      assertTrue(Files.size(directory.resolve("students.log")) > 0);
+      mockMvc.perform(post("/student/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[{\"name\":\"Kaka\",\"email\":\"kaka@gmail.com\",\"birthDate\":\"2000-01-01\",\"sex\":\"Man\"}]"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.success").value(true));
+
+      mockMvc.perform(patch("/student/1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\":\"Maxi\"}"))
+         .andExpect(status().isOk());
+      mockMvc.perform(get("/student/1"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.name").value("Maxi"));
+      mockMvc.perform(delete("/student/1"))
+         .andExpect(status().isOk());
+      mockMvc.perform(get("/student/1"))
+         .andExpect(status().isNotFound());
+
+      mockMvc.perform(get("/student/changes"))
+         .andExpect(status().isNotImplemented());
+      mockMvc.perform(get("/student/changes/stream"))
+         .andExpect(status().isNotImplemented());
+   }
+}
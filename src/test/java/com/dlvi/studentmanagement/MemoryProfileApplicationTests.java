@@ -0,0 +1,66 @@
+package com.dlvi.studentmanagement;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Boots the application with the {@code memory} profile and no datasource configured: nothing may need a database.
+ */
+@SpringBootTest(properties = "spring.datasource.url=")
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+class MemoryProfileApplicationTests {
+
+   @Autowired
+   private ApplicationContext context;
+
+   @Autowired
+   private MockMvc mockMvc;
+
+   @Test
+   void startsWithoutADataSource() {
+      assertTrue(context.getBeansOfType(DataSource.class).isEmpty());
+   }
+
+   @Test
+   void transactionalRoutesWorkAndTheChangeLogIsNotServed() throws Exception {
+      mockMvc.perform(post("/student")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\":\"Maximo\",\"email\":\"maximo@gmail.com\",\"birthDate\":\"2000-01-01\",\"sex\":\"Man\"}"))
+         .andExpect(status().isCreated());
+      mockMvc.perform(post("/student/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[{\"name\":\"Kaka\",\"email\":\"kaka@gmail.com\",\"birthDate\":\"2000-01-01\",\"sex\":\"Man\"}]"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.success").value(true));
+
+      mockMvc.perform(patch("/student/1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\":\"Maxi\"}"))
+         .andExpect(status().isOk());
+      mockMvc.perform(get("/student/1"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.name").value("Maxi"));
+      mockMvc.perform(delete("/student/1"))
+         .andExpect(status().isOk());
+      mockMvc.perform(get("/student/1"))
+         .andExpect(status().isNotFound());
+
+      mockMvc.perform(get("/student/changes"))
+         .andExpect(status().isNotImplemented());
+      mockMvc.perform(get("/student/changes/stream"))
+         .andExpect(status().isNotImplemented());
+   }
+}
@@ -1,9 +1,11 @@
 package com.dlvi.studentmanagement;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 
 @SpringBootTest
+@AutoConfigureTestDatabase
 class StudentmanagementApplicationTests {
 
 	@Test
@@ -0,0 +1,134 @@
+package com.dlvi.studentmanagement.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+
+/**
+ * Boots the application with the {@code reactive} profile on an embedded database: Flyway migrates it over JDBC and
+ * the WebFlux routes read and write it over R2DBC.
+ */
+@SpringBootTest(properties = {
+   "spring.datasource.url=jdbc:h2:mem:reactive-web;DB_CLOSE_DELAY=-1;MODE=MySQL",
+   "spring.datasource.username=sa",
+   "spring.datasource.password=",
+   "spring.r2dbc.url=r2dbc:h2:mem:///reactive-web?options=DB_CLOSE_DELAY=-1;MODE=MySQL",
+   "spring.r2dbc.username=sa",
+   "spring.r2dbc.password="
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+class ReactiveStudentControllerTest {
+
+   @Autowired
+   private WebTestClient webTestClient;
+
+   private Integer register(String name) {
+      return webTestClient.post().uri("/student")
+         .contentType(MediaType.APPLICATION_JSON)
+         .bodyValue(Map.of("name", name, "email", name.toLowerCase() + "@gmail.com", "birthDate", "2000-01-01", "sex", "Man"))
+         .exchange()
+         .expectStatus().isCreated()
+         .expectBody(Map.class)
+         .returnResult()
+         .getResponseBody()
+         .get("data") instanceof Map<?, ?> data ? (Integer) data.get("id") : null;
+   }
+
+   @Test
+   void registerGetPatchAndDelete() {
+      Integer id = register("Maximo");
+
+      webTestClient.get().uri("/student/{id}?fields=name", id)
+         .exchange()
+         .expectStatus().isOk()
+         .expectBody()
+         .jsonPath("$.data.name").isEqualTo("Maximo")
+         .jsonPath("$.data.email").doesNotExist();
+
+      webTestClient.patch().uri("/student/{id}", id)
+         .header(HttpHeaders.IF_MATCH, "\"0\"")
+         .contentType(MediaType.APPLICATION_JSON)
+         .bodyValue(Map.of("name", "Kaka"))
+         .exchange()
+         .expectStatus().isOk()
+         .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+         .expectBody()
+         .jsonPath("$.name").isEqualTo("Kaka")
+         .jsonPath("$.email").isEqualTo("maximo@gmail.com");
+
+      webTestClient.patch().uri("/student/{id}", id)
+         .header(HttpHeaders.IF_MATCH, "\"0\"")
+         .contentType(MediaType.APPLICATION_JSON)
+         .bodyValue(Map.of("name", "Max"))
+         .exchange()
+         .expectStatus().isEqualTo(412);
+
+      webTestClient.delete().uri("/student/{id}", id)
+         .exchange()
+         .expectStatus().isOk();
+
+      webTestClient.get().uri("/student/{id}", id)
+         .exchange()
+         .expectStatus().isNotFound()
+         .expectBody()
+         .jsonPath("$.path").isEqualTo("/student/" + id);
+   }
+
+   @Test
+   void duplicateEmailIsAConflict() {
+      register("Ronaldo");
+
+      webTestClient.post().uri("/student")
+         .contentType(MediaType.APPLICATION_JSON)
+         .bodyValue(Map.of("name", "Ronaldo", "email", "ronaldo@gmail.com", "birthDate", "2000-01-01"))
+         .exchange()
+         .expectStatus().isEqualTo(409);
+   }
+
+   @Test
+   void invalidBodyIsRejected() {
+      webTestClient.post().uri("/student")
+         .contentType(MediaType.APPLICATION_JSON)
+         .bodyValue(Map.of("name", "Ronaldinho", "email", "not-an-email"))
+         .exchange()
+         .expectStatus().isBadRequest()
+         .expectBody()
+         .jsonPath("$.success").isEqualTo(false)
+         .jsonPath("$.data.email").exists();
+   }
+
+   @Test
+   void listsAKeysetPageAndExportsNdjson() {
+      Integer first = register("Ricardo");
+      register("Rivaldo");
+
+      webTestClient.get().uri("/student?after={after}&limit=1&fields=email", first - 1)
+         .exchange()
+         .expectStatus().isOk()
+         .expectBody()
+         .jsonPath("$.success").isEqualTo(true)
+         .jsonPath("$.data.length()").isEqualTo(1)
+         .jsonPath("$.data[0].email").isEqualTo("ricardo@gmail.com")
+         .jsonPath("$.data[0].id").doesNotExist()
+         .jsonPath("$.meta.nextCursor").isEqualTo(first)
+         .jsonPath("$.meta.limit").isEqualTo(1);
+
+      webTestClient.get().uri("/student/export")
+         .accept(MediaType.APPLICATION_NDJSON)
+         .exchange()
+         .expectStatus().isOk()
+         .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+         .expectBody(String.class)
+         .value(containsString("{\"id\":" + first + ",\"name\":\"Ricardo\",\"email\":\"ricardo@gmail.com\"}\n"));
+   }
+}
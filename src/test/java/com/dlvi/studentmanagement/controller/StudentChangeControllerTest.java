@@ -0,0 +1,101 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.ChangesExpiredException;
+import com.dlvi.studentmanagement.service.StudentChangeFeed;
+import com.dlvi.studentmanagement.service.StudentChangeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StudentChangeController.class)
+class StudentChangeControllerTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+
+   @Autowired
+   private StudentChangeService changeService;
+
+   @Autowired
+   private StudentChangeFeed changeFeed;
+
+   @TestConfiguration
+   static class MockServiceConfig {
+      @Bean
+      public StudentChangeService studentChangeService() {
+         return mock(StudentChangeService.class);
+      }
+
+      @Bean
+      public StudentChangeFeed studentChangeFeed() {
+         return mock(StudentChangeFeed.class);
+      }
+
+      @Bean
+      public MeterRegistry meterRegistry() {
+         return new SimpleMeterRegistry();
+      }
+   }
+
+   @BeforeEach
+   void resetMocks() {
+      reset(changeService, changeFeed);
+   }
+
+   @Test
+   void changesReturnsAPageWithTombstones() throws Exception {
+      when(changeService.changes(10, 2)).thenReturn(new StudentChangePageDto(List.of(
+         new StudentChangeDto(11, StudentChangeDto.Type.UPDATED, 3, 2,
+            new StudentResponseDto(3, "Maximo", "maximo@gmail.com", 2), LocalDateTime.now()),
+         new StudentChangeDto(12, StudentChangeDto.Type.DELETED, 4, null, null, LocalDateTime.now())),
+         12, true));
+
+      mockMvc.perform(get("/student/changes").param("since", "10").param("limit", "2"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.changes[0].type").value("UPDATED"))
+         .andExpect(jsonPath("$.data.changes[0].version").value(2))
+         .andExpect(jsonPath("$.data.changes[0].student.name").value("Maximo"))
+         .andExpect(jsonPath("$.data.changes[1].type").value("DELETED"))
+         .andExpect(jsonPath("$.data.changes[1].student").doesNotExist())
+         .andExpect(jsonPath("$.data.next").value(12))
+         .andExpect(jsonPath("$.data.more").value(true));
+   }
+
+   @Test
+   void expiredSinceIsGone() throws Exception {
+      when(changeService.changes(anyLong(), anyInt())).thenThrow(new ChangesExpiredException("resync"));
+
+      mockMvc.perform(get("/student/changes").param("since", "1"))
+         .andExpect(status().isGone());
+   }
+
+   @Test
+   void streamResumesFromTheLastEventId() throws Exception {
+      when(changeFeed.subscribe(any(), any())).thenReturn(mock(StudentChangeFeed.Subscription.class));
+
+      mockMvc.perform(get("/student/changes/stream").param("since", "3").header("Last-Event-ID", "42"))
+         .andExpect(request().asyncStarted());
+
+      verify(changeFeed).subscribe(eq(42L), any());
+   }
+}
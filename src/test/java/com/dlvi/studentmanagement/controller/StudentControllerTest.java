@@ -1,28 +1,63 @@
 package com.dlvi.studentmanagement.controller;
 
+import com.dlvi.studentmanagement.dto.StudentBatchItemDto;
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentCacheStatsDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentLookupDto;
+import com.dlvi.studentmanagement.dto.StudentPageDto;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
 import com.dlvi.studentmanagement.dto.StudentRequestDto;
 import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import com.dlvi.studentmanagement.exception.PreconditionFailedException;
+import com.dlvi.studentmanagement.exception.RegistrationQueueFullException;
+import com.dlvi.studentmanagement.service.StudentBatchService;
 import com.dlvi.studentmanagement.service.StudentService;
+import com.dlvi.studentmanagement.config.BinaryFormatConfig;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
+// the JSON cache is disabled by default, so every response here still goes through Jackson
 @WebMvcTest(StudentController.class)
+@Import({StudentJsonCache.class, BinaryFormatConfig.class})
 class StudentControllerTest {
 
    @Autowired
@@ -36,12 +71,36 @@ class StudentControllerTest {
    @Autowired
    private StudentService studentService;
 
+   @Autowired
+   private StudentBatchService studentBatchService;
+
    @TestConfiguration
    static class MockServiceConfig {
       @Bean
       public StudentService studentService() {
          return mock(StudentService.class);
       }
+
+      @Bean
+      public StudentBatchService studentBatchService() {
+         return mock(StudentBatchService.class);
+      }
+
+      // the exception handler counts handled exceptions; @WebMvcTest does not configure metrics
+      @Bean
+      public MeterRegistry meterRegistry() {
+         return new SimpleMeterRegistry();
+      }
+   }
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   // the mocks and the registry are context beans shared by every test, so each test starts from a clean slate
+   @BeforeEach
+   void resetSharedBeans() {
+      reset(studentService, studentBatchService);
+      meterRegistry.clear();
    }
 
    // it is used when the endpoint expects a @RequestBody
@@ -77,9 +136,88 @@ class StudentControllerTest {
       verify(studentService).registerStudent(req);
    }
 
+   @Test
+   void registerStudentWhenQueueIsFullAsksToRetry() throws Exception {
+      var req = new StudentRequestDto(
+         "Maximo",
+         "maximo@gmail.com",
+         LocalDate.now(),
+         "Man"
+      );
+
+      when(studentService.registerStudent(req))
+         .thenThrow(new RegistrationQueueFullException("Too many registrations in progress, please retry later"));
+
+      mockMvc.perform(post("/student")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(req)))
+         .andExpect(status().isServiceUnavailable())
+         .andExpect(header().string("Retry-After", "1"));
+   }
+
+   @Test
+   void registerStudentsReturnsPerItemResults() throws Exception {
+      var req = List.of(
+         new StudentRequestDto("Maximo", "maximo@gmail.com", LocalDate.now(), "Man"),
+         new StudentRequestDto("Kaka", "maximo@gmail.com", LocalDate.now(), "Man"));
+
+      when(studentBatchService.registerStudents(req)).thenReturn(List.of(
+         StudentBatchItemDto.created(0, 1),
+         StudentBatchItemDto.failed(1, "The email maximo@gmail.com is already registered")));
+
+      mockMvc.perform(post("/student/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(req)))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.success").value(false))
+         .andExpect(jsonPath("$.message").value("1 of 2 students registered"))
+         .andExpect(jsonPath("$.data[0].id").value(1))
+         .andExpect(jsonPath("$.data[1].success").value(false))
+         .andExpect(jsonPath("$.data[1].error").value("The email maximo@gmail.com is already registered"));
+
+      verify(studentBatchService).registerStudents(req);
+   }
+
+   @Test
+   void deleteStudentsReturnsPerItemResults() throws Exception {
+      when(studentBatchService.deleteStudents(List.of(1, 2))).thenReturn(List.of(
+         StudentBatchItemDto.succeeded(0, 1),
+         StudentBatchItemDto.failed(1, "Student not found with id 2")));
+
+      mockMvc.perform(delete("/student/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[1, 2]"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.success").value(false))
+         .andExpect(jsonPath("$.message").value("1 of 2 students deleted"))
+         .andExpect(jsonPath("$.data[0].id").value(1))
+         .andExpect(jsonPath("$.data[1].error").value("Student not found with id 2"));
+   }
+
+   @Test
+   void patchStudentsReturnsPerItemResults() throws Exception {
+      var req = List.of(
+         new StudentBatchPatchDto(1, null, new StudentPatchDto("Maxi", null)),
+         new StudentBatchPatchDto(2, 3, new StudentPatchDto(null, "kaka@gmail.com")));
+
+      when(studentBatchService.patchStudents(req)).thenReturn(List.of(
+         StudentBatchItemDto.succeeded(0, 1),
+         StudentBatchItemDto.succeeded(1, 2)));
+
+      mockMvc.perform(patch("/student/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(req)))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.success").value(true))
+         .andExpect(jsonPath("$.message").value("2 of 2 students updated"))
+         .andExpect(jsonPath("$.data[1].id").value(2));
+
+      verify(studentBatchService).patchStudents(req);
+   }
+
    @Test
    void deleteStudent() throws Exception {
-      doNothing().when(studentService).deleteStudent(anyInt());
+      doNothing().when(studentService).deleteStudent(anyInt(), isNull());
 
       mockMvc.perform(delete("/student/{id}", 1)
             .contentType(MediaType.APPLICATION_JSON))
@@ -88,7 +226,17 @@ class StudentControllerTest {
          .andExpect(jsonPath("$.message").value("student successfully removed"))
          .andExpect(jsonPath("$.data").value("{}"));
 
-      verify(studentService).deleteStudent(1);
+      verify(studentService).deleteStudent(1, null);
+   }
+
+   @Test
+   void deleteStudentWithStaleIfMatchIsRejected() throws Exception {
+      doThrow(new PreconditionFailedException("Student 1 has been modified since version 3"))
+         .when(studentService).deleteStudent(1, 3);
+
+      mockMvc.perform(delete("/student/{id}", 1)
+            .header("If-Match", "\"3\""))
+         .andExpect(status().isPreconditionFailed());
    }
 
    @Test
@@ -97,16 +245,216 @@ class StudentControllerTest {
          new StudentResponseDto(1, "Maximo", "maximo@gmail.com")
       );
 
-      when(studentService.studentList()).thenReturn(student);
+      when(studentService.studentList(null, 50, null)).thenReturn(new StudentPageDto(student, null, 1));
 
       mockMvc.perform(get("/student")
             .contentType(MediaType.APPLICATION_JSON))
          .andExpect(status().isOk())
          .andExpect(jsonPath("$.data[0].id").value(1))
          .andExpect(jsonPath("$.data[0].name").value("Maximo"))
-         .andExpect(jsonPath("$.data[0].email").value("maximo@gmail.com"));
+         .andExpect(jsonPath("$.data[0].email").value("maximo@gmail.com"))
+         .andExpect(jsonPath("$.meta.total").value(1))
+         .andExpect(jsonPath("$.meta.nextCursor").isEmpty());
+
+      verify(studentService).studentList(null, 50, null);
+   }
+
+   @Test
+   void getStudentsPageReturnsNextCursor() throws Exception {
+      List<StudentResponseDto> student = List.of(
+         new StudentResponseDto(5, "Maximo", "maximo@gmail.com")
+      );
+
+      when(studentService.studentList(4, 1, null)).thenReturn(new StudentPageDto(student, 5, 10));
+
+      mockMvc.perform(get("/student")
+            .param("after", "4")
+            .param("limit", "1")
+            .contentType(MediaType.APPLICATION_JSON))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data[0].id").value(5))
+         .andExpect(jsonPath("$.meta.total").value(10))
+         .andExpect(jsonPath("$.meta.limit").value(1))
+         .andExpect(jsonPath("$.meta.nextCursor").value(5));
+
+      verify(studentService).studentList(4, 1, null);
+   }
+
+   @Test
+   void getStudentsWithSparseFieldset() throws Exception {
+      List<StudentResponseDto> student = List.of(
+         new StudentResponseDto(null, "Maximo", null)
+      );
+
+      when(studentService.studentList(null, 50, Set.of(StudentField.NAME))).thenReturn(new StudentPageDto(student, null, 1));
+
+      mockMvc.perform(get("/student")
+            .param("fields", "Name"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data[0].name").value("Maximo"))
+         .andExpect(jsonPath("$.data[0].id").doesNotExist())
+         .andExpect(jsonPath("$.data[0].email").doesNotExist());
+   }
 
-      verify(studentService).studentList();
+   @Test
+   void getStudentsWithUnknownFieldIsRejected() throws Exception {
+      mockMvc.perform(get("/student")
+            .param("fields", "id,password"))
+         .andExpect(status().isBadRequest());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   void exportStudentsStreamsNdjson() throws Exception {
+      doAnswer(invocation -> {
+         Consumer<StudentResponseDto> consumer = invocation.getArgument(0);
+         consumer.accept(new StudentResponseDto(1, "Maximo", "maximo@gmail.com"));
+         consumer.accept(new StudentResponseDto(2, "Kaka", "kaka@gmail.com"));
+         return null;
+      }).when(studentService).exportStudents(any(Consumer.class));
+
+      var result = mockMvc.perform(get("/student/export"))
+         .andExpect(request().asyncStarted())
+         .andReturn();
+
+      mockMvc.perform(asyncDispatch(result))
+         .andExpect(status().isOk())
+         .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+         .andExpect(content().string(
+            "{\"id\":1,\"name\":\"Maximo\",\"email\":\"maximo@gmail.com\"}\n" +
+            "{\"id\":2,\"name\":\"Kaka\",\"email\":\"kaka@gmail.com\"}\n"));
+   }
+
+   @Test
+   void exportStudentsStreamsCborFrames() throws Exception {
+      doAnswer(invocation -> {
+         Consumer<StudentResponseDto> consumer = invocation.getArgument(0);
+         consumer.accept(new StudentResponseDto(1, "Maximo", "maximo@gmail.com"));
+         consumer.accept(new StudentResponseDto(2, "Kaka", "kaka@gmail.com"));
+         return null;
+      }).when(studentService).exportStudents(any(Consumer.class));
+
+      var result = mockMvc.perform(get("/student/export").accept(LengthDelimitedFrames.CBOR))
+         .andExpect(request().asyncStarted())
+         .andReturn();
+
+      byte[] body = mockMvc.perform(asyncDispatch(result))
+         .andExpect(status().isOk())
+         .andExpect(content().contentType(LengthDelimitedFrames.CBOR))
+         .andReturn().getResponse().getContentAsByteArray();
+
+      List<StudentResponseDto> students = new ArrayList<>();
+      LengthDelimitedFrames.<StudentResponseDto>read(new ByteArrayInputStream(body), new CBORMapper().readerFor(StudentResponseDto.class), students::add);
+      assertEquals(List.of(
+         new StudentResponseDto(1, "Maximo", "maximo@gmail.com"),
+         new StudentResponseDto(2, "Kaka", "kaka@gmail.com")), students);
+   }
+
+   @Test
+   void getStudentAsCbor() throws Exception {
+      when(studentService.getStudent(1)).thenReturn(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 3));
+
+      byte[] body = mockMvc.perform(get("/student/{id}", 1).accept(MediaType.APPLICATION_CBOR))
+         .andExpect(status().isOk())
+         .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+         .andReturn().getResponse().getContentAsByteArray();
+
+      JsonNode response = new CBORMapper().readTree(body);
+      assertEquals("Maximo", response.at("/data/name").asText());
+      assertEquals(true, response.get("success").asBoolean());
+      // the same date shape as the JSON output, not a timestamp array
+      assertEquals(true, response.get("timestamp").isTextual());
+   }
+
+   @Test
+   void getStudentsAsSmile() throws Exception {
+      var student = List.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com"));
+      when(studentService.studentList(null, 50, null)).thenReturn(new StudentPageDto(student, null, 1));
+
+      byte[] body = mockMvc.perform(get("/student").accept("application/x-jackson-smile"))
+         .andExpect(status().isOk())
+         .andExpect(content().contentType("application/x-jackson-smile"))
+         .andReturn().getResponse().getContentAsByteArray();
+
+      JsonNode response = new SmileMapper().readTree(body);
+      assertEquals("maximo@gmail.com", response.at("/data/0/email").asText());
+      assertEquals(1, response.at("/meta/total").asInt());
+   }
+
+   @Test
+   void getStudentWithoutPreferenceStaysJson() throws Exception {
+      when(studentService.getStudent(1)).thenReturn(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 3));
+
+      mockMvc.perform(get("/student/{id}", 1).accept(MediaType.ALL))
+         .andExpect(status().isOk())
+         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+         .andExpect(jsonPath("$.data.name").value("Maximo"));
+   }
+
+   @Test
+   void negotiatesJsonUnlessABinaryTypeIsNamed() {
+      assertTrue(StudentController.negotiatesJson(withAccept(null)));
+      assertTrue(StudentController.negotiatesJson(withAccept("application/json, */*;q=0.5")));
+      assertFalse(StudentController.negotiatesJson(withAccept("application/cbor")));
+      assertFalse(StudentController.negotiatesJson(withAccept("application/json;q=0.9, application/x-jackson-smile")));
+   }
+
+   private static WebRequest withAccept(String accept) {
+      var request = new MockHttpServletRequest();
+      if (accept != null)
+         request.addHeader("Accept", accept);
+      return new ServletWebRequest(request);
+   }
+
+   @Test
+   void cacheStats() throws Exception {
+      when(studentService.cacheStats()).thenReturn(new StudentCacheStatsDto(true, 1, 9, 1, 0.9, 0));
+
+      mockMvc.perform(get("/student/cache/stats"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.hitCount").value(9))
+         .andExpect(jsonPath("$.data.hitRate").value(0.9));
+   }
+
+   @Test
+   void counts() throws Exception {
+      when(studentService.counts()).thenReturn(new StudentCountsDto(3, Map.of("Man", 2L, "unknown", 1L), Map.of(2000, 3L)));
+
+      mockMvc.perform(get("/student/counts"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.total").value(3))
+         .andExpect(jsonPath("$.data.bySex.Man").value(2))
+         .andExpect(jsonPath("$.data.byBirthYear.2000").value(3));
+   }
+
+   @Test
+   void lookupStudentsByIdParameter() throws Exception {
+      when(studentService.lookupStudents(List.of(2, 1, 9), Set.of(StudentField.NAME))).thenReturn(new StudentLookupDto(
+         List.of(new StudentResponseDto(null, "Kaka", null), new StudentResponseDto(null, "Maximo", null)),
+         List.of(9)));
+
+      mockMvc.perform(get("/student").param("ids", "2,1,9").param("fields", "name"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.message").value("2 of 3 students found"))
+         .andExpect(jsonPath("$.data.data[0].name").value("Kaka"))
+         .andExpect(jsonPath("$.data.data[1].name").value("Maximo"))
+         .andExpect(jsonPath("$.data.missing[0]").value(9));
+
+      verify(studentService, never()).studentList(any(), anyInt(), any());
+   }
+
+   @Test
+   void lookupStudentsByBody() throws Exception {
+      when(studentService.lookupStudents(eq(List.of(1, 2)), isNull())).thenReturn(new StudentLookupDto(
+         List.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com")),
+         List.of(2)));
+
+      mockMvc.perform(post("/student/lookup")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[1,2]"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.data[0].email").value("maximo@gmail.com"))
+         .andExpect(jsonPath("$.data.missing[0]").value(2));
    }
 
    @Test
@@ -125,6 +473,108 @@ class StudentControllerTest {
       verify(studentService).getStudent(1);
    }
 
+   @Test
+   void getStudentCarriesRowVersionAsEntityTag() throws Exception {
+      when(studentService.getStudent(1)).thenReturn(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 3));
+
+      mockMvc.perform(get("/student/{id}", 1))
+         .andExpect(status().isOk())
+         .andExpect(header().string("ETag", "\"3\""))
+         .andExpect(jsonPath("$.data.version").doesNotExist());
+
+      mockMvc.perform(get("/student/{id}", 1)
+            .param("fields", "name"))
+         .andExpect(status().isOk())
+         .andExpect(header().string("ETag", "W/\"3\""));
+   }
+
+   @Test
+   void getStudentRevalidationIsAnsweredFromVersionAlone() throws Exception {
+      when(studentService.studentVersion(1)).thenReturn(Optional.of(3));
+
+      mockMvc.perform(get("/student/{id}", 1)
+            .header("If-None-Match", "\"3\""))
+         .andExpect(status().isNotModified())
+         .andExpect(header().string("ETag", "\"3\""))
+         .andExpect(content().string(""));
+
+      verify(studentService, never()).getStudent(anyInt());
+   }
+
+   @Test
+   void getStudentWithOutdatedIfNoneMatchReturnsBody() throws Exception {
+      when(studentService.studentVersion(1)).thenReturn(Optional.of(4));
+      when(studentService.getStudent(1)).thenReturn(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 4));
+
+      mockMvc.perform(get("/student/{id}", 1)
+            .header("If-None-Match", "\"3\""))
+         .andExpect(status().isOk())
+         .andExpect(header().string("ETag", "\"4\""))
+         .andExpect(jsonPath("$.data.name").value("Maximo"));
+   }
+
+   @Test
+   void getStudentsRevalidationSkipsThePage() throws Exception {
+      when(studentService.studentListTag(null, 50, null)).thenReturn("1f2e");
+
+      mockMvc.perform(get("/student")
+            .header("If-None-Match", "\"1f2e\""))
+         .andExpect(status().isNotModified());
+
+      verify(studentService, never()).studentList(any(), anyInt(), any());
+   }
+
+   @Test
+   void getStudentsCarriesPageEntityTag() throws Exception {
+      List<StudentResponseDto> student = List.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0));
+      when(studentService.studentList(null, 50, null)).thenReturn(new StudentPageDto(student, null, 1, "1f2e"));
+
+      mockMvc.perform(get("/student"))
+         .andExpect(status().isOk())
+         .andExpect(header().string("ETag", "\"1f2e\""));
+   }
+
+   @Test
+   void searchStudentsBindsFiltersAndOmitsTotal() throws Exception {
+      var criteria = new StudentSearchCriteria("Max", null, "gmail.com", LocalDate.of(2000, 1, 1), null, "Man");
+      when(studentService.searchStudents(criteria, 4, 10, null)).thenReturn(new StudentPageDto(
+         List.of(new StudentResponseDto(5, "Maximo", "maximo@gmail.com", 0)), 5, -1));
+
+      mockMvc.perform(get("/student/search")
+            .param("namePrefix", "Max")
+            .param("emailDomain", "gmail.com")
+            .param("bornFrom", "2000-01-01")
+            .param("sex", "Man")
+            .param("after", "4")
+            .param("limit", "10"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data[0].name").value("Maximo"))
+         .andExpect(jsonPath("$.meta.nextCursor").value(5))
+         .andExpect(jsonPath("$.meta.total").doesNotExist());
+   }
+
+   @Test
+   void searchStudentsWithInvertedBirthRangeIsRejected() throws Exception {
+      mockMvc.perform(get("/student/search")
+            .param("bornFrom", "2001-01-01")
+            .param("bornTo", "2000-01-01"))
+         .andExpect(status().isBadRequest());
+
+      verify(studentService, never()).searchStudents(any(), any(), anyInt(), any());
+   }
+
+   @Test
+   void getStudentWithSparseFieldset() throws Exception {
+      when(studentService.getStudent(1)).thenReturn(new StudentResponseDto(1, "Maximo", "maximo@gmail.com"));
+
+      mockMvc.perform(get("/student/{id}", 1)
+            .param("fields", "id,email"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.id").value(1))
+         .andExpect(jsonPath("$.data.email").value("maximo@gmail.com"))
+         .andExpect(jsonPath("$.data.name").doesNotExist());
+   }
+
    @Test
    void partialUpdate() throws Exception{
       var req = new StudentPatchDto(
@@ -138,7 +588,7 @@ class StudentControllerTest {
          "maximo@gmail.com"
       );
 
-      when(studentService.patchStudent(anyInt(), eq(req))).thenReturn(res);
+      when(studentService.patchStudent(anyInt(), eq(req), isNull())).thenReturn(res);
 
       mockMvc.perform(patch("/student/{id}", 1)
             .contentType(MediaType.APPLICATION_JSON)
@@ -147,6 +597,66 @@ class StudentControllerTest {
          .andExpect(jsonPath("$.name").value("Maximo"))
          .andExpect(jsonPath("$.email").value("maximo@gmail.com"));
 
-      verify(studentService).patchStudent(1, req);
+      verify(studentService).patchStudent(1, req, null);
+   }
+
+   @Test
+   void partialUpdateWithIfMatchIsConditional() throws Exception {
+      var req = new StudentPatchDto(null, "maximo@gmail.com");
+      var res = new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 4);
+
+      when(studentService.patchStudent(1, req, 3)).thenReturn(res);
+
+      mockMvc.perform(patch("/student/{id}", 1)
+            .header("If-Match", "\"3\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(req)))
+         .andExpect(status().isOk())
+         .andExpect(header().string("ETag", "\"4\""))
+         .andExpect(jsonPath("$.email").value("maximo@gmail.com"));
+   }
+
+   @Test
+   void partialUpdateWithStaleIfMatchIsRejected() throws Exception {
+      var req = new StudentPatchDto("Maximo", null);
+
+      when(studentService.patchStudent(1, req, 3))
+         .thenThrow(new PreconditionFailedException("Student 1 has been modified since version 3"));
+
+      mockMvc.perform(patch("/student/{id}", 1)
+            .header("If-Match", "\"3\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(req)))
+         .andExpect(status().isPreconditionFailed());
+
+      assertEquals(1.0, meterRegistry.counter("student.exceptions", "type", "PreconditionFailedException").count());
+   }
+
+   @Test
+   void partialUpdateWithoutFieldsIsRejected() throws Exception {
+      mockMvc.perform(patch("/student/{id}", 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{}"))
+         .andExpect(status().isBadRequest());
+
+      verify(studentService, never()).patchStudent(anyInt(), any(), any());
+   }
+
+   @Test
+   void valuesLongerThanTheColumnsAreRejected() throws Exception {
+      mockMvc.perform(post("/student")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(
+               new StudentRequestDto("M".repeat(101), "maximo@gmail.com", LocalDate.of(2000, 1, 1), "Man"))))
+         .andExpect(status().isBadRequest())
+         .andExpect(jsonPath("$.data.name").exists());
+      mockMvc.perform(patch("/student/{id}", 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new StudentPatchDto(null, "m".repeat(141) + "@gmail.com"))))
+         .andExpect(status().isBadRequest())
+         .andExpect(jsonPath("$.data.email").exists());
+
+      verify(studentService, never()).registerStudent(any());
+      verify(studentService, never()).patchStudent(anyInt(), any(), any());
    }
 }
@@ -0,0 +1,81 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentPageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentJsonCacheTest {
+
+   private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+   private final Clock clock = Clock.fixed(Instant.parse("2026-01-02T03:04:05.678Z"), ZoneOffset.UTC);
+   private final StudentJsonCache cache = new StudentJsonCache(objectMapper, clock, true, 100);
+
+   @Test
+   void envelopeIsByteForByteWhatJacksonWritesForTheApiResponse() throws Exception {
+      var student = new StudentResponseDto(1, "Máximo \"Max\"", "maximo@gmail.com", 3);
+      var response = new ApiResponse<>(LocalDateTime.now(clock), true, "Student data: ", student);
+
+      assertArrayEquals(objectMapper.writeValueAsBytes(response), cache.envelope("Student data: ", student).toByteArray());
+   }
+
+   @Test
+   void pageMatchesTheMapBuiltByTheController() throws Exception {
+      var page = new StudentPageDto(List.of(
+         new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0),
+         new StudentResponseDto(2, "Kaka", "kaka@gmail.com", 4)), 2, 10);
+
+      assertEquals(
+         objectMapper.readTree(objectMapper.writeValueAsBytes(StudentController.pageResponse(page, 2))),
+         objectMapper.readTree(cache.page(page, 2).toByteArray()));
+      assertEquals(
+         objectMapper.readTree(objectMapper.writeValueAsBytes(StudentController.pageResponse(new StudentPageDto(List.of(), null, -1), 5))),
+         objectMapper.readTree(cache.page(new StudentPageDto(List.of(), null, -1), 5).toByteArray()));
+   }
+
+   @Test
+   void encodedStudentIsReusedOnlyForTheSameVersion() {
+      byte[] first = cache.json(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0));
+
+      assertSame(first, cache.json(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0)));
+      assertNotSame(first, cache.json(new StudentResponseDto(1, "Kaka", "maximo@gmail.com", 1)));
+
+      cache.invalidate(1);
+      assertNotSame(first, cache.json(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0)));
+   }
+
+   @Test
+   void studentsWithoutVersionOrWhenDisabledAreNeverCached() {
+      var unversioned = new StudentResponseDto(1, "Maximo", "maximo@gmail.com");
+      var disabled = new StudentJsonCache(objectMapper, clock, false, 100);
+      var versioned = new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0);
+
+      assertNotSame(cache.json(unversioned), cache.json(unversioned));
+      assertNotSame(disabled.json(versioned), disabled.json(versioned));
+   }
+
+   @Test
+   void converterWritesEveryFragmentWithItsLength() throws Exception {
+      var converter = new PreEncodedJsonHttpMessageConverter();
+      var output = new MockHttpOutputMessage();
+
+      converter.write(cache.envelope("Student data: ", new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0)),
+         MediaType.APPLICATION_JSON, output);
+
+      assertEquals(output.getBodyAsBytes().length, output.getHeaders().getContentLength());
+      assertEquals("Maximo", objectMapper.readTree(output.getBodyAsBytes()).at("/data/name").asText());
+      assertFalse(converter.canRead(PreEncodedJson.class, MediaType.APPLICATION_JSON));
+   }
+}
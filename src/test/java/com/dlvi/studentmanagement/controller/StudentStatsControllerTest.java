@@ -0,0 +1,93 @@
+package com.dlvi.studentmanagement.controller;
+
+import com.dlvi.studentmanagement.dto.StudentColumnsStatsDto;
+import com.dlvi.studentmanagement.dto.StudentStatsDto;
+import com.dlvi.studentmanagement.exception.StatisticsUnavailableException;
+import com.dlvi.studentmanagement.service.StudentStatsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StudentStatsController.class)
+class StudentStatsControllerTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+
+   @Autowired
+   private StudentStatsService studentStatsService;
+
+   @TestConfiguration
+   static class MockServiceConfig {
+      @Bean
+      public StudentStatsService studentStatsService() {
+         return mock(StudentStatsService.class);
+      }
+
+      @Bean
+      public MeterRegistry meterRegistry() {
+         return new SimpleMeterRegistry();
+      }
+   }
+
+   @BeforeEach
+   void resetMocks() {
+      reset(studentStatsService);
+   }
+
+   @Test
+   void statsPassesTheRequestedAggregates() throws Exception {
+      when(studentStatsService.stats(10, List.of(50.0, 99.9), 5)).thenReturn(new StudentStatsDto(
+         2, 0,
+         Map.of("Man", 2L),
+         Map.of(2000, 2L),
+         Map.of("gmail.com", 2L),
+         List.of(new StudentStatsDto.AgeBucket(20, 29, 2)),
+         Map.of("p50", 26, "p99.9", 26)));
+
+      mockMvc.perform(get("/student/stats")
+            .param("ageBucket", "10")
+            .param("percentiles", "50,99.9")
+            .param("topDomains", "5"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.students").value(2))
+         .andExpect(jsonPath("$.data.bySex.Man").value(2))
+         .andExpect(jsonPath("$.data.ageHistogram[0].fromAge").value(20))
+         .andExpect(jsonPath("$.data.agePercentiles.p50").value(26));
+   }
+
+   @Test
+   void statsWithoutSnapshotIsUnavailable() throws Exception {
+      when(studentStatsService.stats(anyInt(), any(), anyInt()))
+         .thenThrow(new StatisticsUnavailableException("Student statistics need the analytics snapshot"));
+
+      mockMvc.perform(get("/student/stats"))
+         .andExpect(status().isServiceUnavailable());
+
+      verify(studentStatsService).stats(5, List.of(50.0, 90.0, 99.0), 20);
+   }
+
+   @Test
+   void snapshotStatsReportMemoryPerRow() throws Exception {
+      when(studentStatsService.snapshotStats()).thenReturn(new StudentColumnsStatsDto(true, 1000, 0, 2, 10, 14_000, 14));
+
+      mockMvc.perform(get("/student/stats/snapshot"))
+         .andExpect(status().isOk())
+         .andExpect(jsonPath("$.data.bytesPerRow").value(14));
+   }
+}
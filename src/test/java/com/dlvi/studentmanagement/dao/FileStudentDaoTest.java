@@ -0,0 +1,312 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileStudentDaoTest extends StudentDaoContractTest {
+
+   @TempDir
+   Path directory;
+
+   private FileStudentDao dao;
+
+   @BeforeEach
+   void createDao() {
+      open();
+   }
+
+   @AfterEach
+   void closeDao() throws Exception {
+      dao.close();
+   }
+
+   private void open() {
+      open(DataSize.ofBytes(0));
+   }
+
+   private void open(DataSize compactionMinGarbage) {
+      dao = new FileStudentDao(directory, true, 0.5, compactionMinGarbage);
+      studentDao = dao;
+   }
+
+   private void reopen() throws Exception {
+      dao.close();
+      open();
+   }
+
+   private Path logFile() {
+      return directory.resolve(FileStudentDao.LOG_FILE);
+   }
+
+   private static Student student(int i) {
+      return new Student(0, "Student " + i, "student" + i + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   private List<Integer> saveStudents(int count) {
+      List<Student> students = new ArrayList<>();
+      for (int i = 0; i < count; i++)
+         students.add(student(i));
+      return studentDao.saveAll(students);
+   }
+
+   @Test
+   void reopeningRecoversTheStudentsTheirVersionsAndEmails() throws Exception {
+      List<Integer> ids = saveStudents(3);
+      studentDao.partialUpdate(ids.get(0), new StudentPatchDto("Renamed", "renamed@gmail.com"));
+      studentDao.deleteById(ids.get(2));
+
+      reopen();
+
+      assertEquals(2, studentDao.count());
+      assertEquals("Renamed", studentDao.getById(ids.get(0)).orElseThrow().getName());
+      assertEquals(1, studentDao.getVersion(ids.get(0)).orElseThrow());
+      assertTrue(studentDao.getById(ids.get(2)).isEmpty());
+      assertTrue(studentDao.emailExists("renamed@gmail.com"));
+      assertFalse(studentDao.emailExists("student0@gmail.com"));
+      assertThrows(EmailAlreadyExistsException.class, () -> studentDao.save(student(1)));
+   }
+
+   @Test
+   void idsOfDeletedStudentsAreNotReusedAfterReopening() throws Exception {
+      Integer id = studentDao.save(student(1));
+      studentDao.deleteById(id);
+
+      reopen();
+
+      assertEquals(id + 1, studentDao.save(student(1)));
+   }
+
+   @Test
+   void aTornTailIsCutOffOnRecovery() throws Exception {
+      List<Integer> ids = saveStudents(2);
+      dao.close();
+      long intact = Files.size(logFile());
+      try (RandomAccessFile file = new RandomAccessFile(logFile().toFile(), "rw")) {
+         // the length prefix and part of a record that never finished
+         file.seek(intact);
+         file.writeInt(200);
+         file.writeInt(0);
+         file.write(new byte[20]);
+      }
+
+      open();
+
+      assertEquals(intact, Files.size(logFile()));
+      assertEquals(2, studentDao.count());
+      assertEquals(ids.get(1) + 1, studentDao.save(student(2)));
+   }
+
+   @Test
+   void aCorruptLastRecordIsDroppedOnRecovery() throws Exception {
+      List<Integer> ids = saveStudents(2);
+      dao.close();
+      try (RandomAccessFile file = new RandomAccessFile(logFile().toFile(), "rw")) {
+         file.seek(file.length() - 1);
+         int last = file.read();
+         file.seek(file.length() - 1);
+         file.write(last ^ 0xFF);
+      }
+
+      open();
+
+      assertEquals(1, studentDao.count());
+      assertTrue(studentDao.getById(ids.get(0)).isPresent());
+      assertTrue(studentDao.getById(ids.get(1)).isEmpty());
+   }
+
+   // a copy of the log with its first record damaged, the open DAO keeps the original
+   private Path damagedCopy(long position, int value) throws IOException {
+      Path other = Files.createDirectory(directory.resolve("damaged"));
+      Files.copy(logFile(), other.resolve(FileStudentDao.LOG_FILE));
+      try (RandomAccessFile file = new RandomAccessFile(other.resolve(FileStudentDao.LOG_FILE).toFile(), "rw")) {
+         file.seek(position);
+         file.writeInt(value);
+      }
+      return other;
+   }
+
+   @Test
+   void aCorruptRecordFollowedByIntactOnesIsRefused() throws Exception {
+      saveStudents(3);
+      Path damaged = damagedCopy(StudentLog.HEADER_BYTES + StudentLog.RECORD_OVERHEAD + 2, 0x5A5A5A5A);
+      long size = Files.size(damaged.resolve(FileStudentDao.LOG_FILE));
+
+      assertThrows(DatabaseOperationException.class, () -> new FileStudentDao(damaged, true, 0.5, DataSize.ofBytes(0)));
+      assertEquals(size, Files.size(damaged.resolve(FileStudentDao.LOG_FILE)));
+   }
+
+   @Test
+   void aCorruptLengthFollowedByIntactRecordsIsRefused() throws Exception {
+      saveStudents(3);
+      Path damaged = damagedCopy(StudentLog.HEADER_BYTES, -1);
+      long size = Files.size(damaged.resolve(FileStudentDao.LOG_FILE));
+
+      assertThrows(DatabaseOperationException.class, () -> new FileStudentDao(damaged, true, 0.5, DataSize.ofBytes(0)));
+      assertEquals(size, Files.size(damaged.resolve(FileStudentDao.LOG_FILE)));
+   }
+
+   @Test
+   void valuesLongerThanTheColumnsAreNeverLogged() throws Exception {
+      Integer id = studentDao.save(student(1));
+      long size = Files.size(logFile());
+      Student longName = student(2);
+      longName.setName("é".repeat(20_000));
+
+      assertThrows(DatabaseOperationException.class, () -> studentDao.save(longName));
+      assertThrows(DatabaseOperationException.class,
+         () -> studentDao.partialUpdate(id, new StudentPatchDto(null, "s".repeat(141) + "@gmail.com")));
+      assertEquals(size, Files.size(logFile()));
+   }
+
+   @Test
+   void recordsThatCouldNotBeReadBackAreNotEncoded() {
+      LocalDate born = LocalDate.of(2000, 1, 1);
+
+      assertThrows(IllegalArgumentException.class, () -> StudentLog.encode(List.of(
+         StudentLog.Entry.put(1, 0, "x".repeat(40_000), "x@gmail.com", born, "Man"))));
+      assertThrows(IllegalArgumentException.class, () -> StudentLog.encode(List.of(
+         StudentLog.Entry.put(1, 0, "x".repeat(30_000), "x".repeat(30_000), born, "x".repeat(30_000)))));
+   }
+
+   @Test
+   void compactionDropsSupersededRecordsAndSurvivesReopening() throws Exception {
+      // compacted here only
+      dao.close();
+      open(DataSize.ofGigabytes(1));
+      List<Integer> ids = saveStudents(100);
+      for (int i = 0; i < 50; i++)
+         studentDao.deleteById(ids.get(i));
+      for (int i = 50; i < 100; i++)
+         studentDao.partialUpdate(ids.get(i), new StudentPatchDto("Renamed " + i, null));
+      long before = Files.size(logFile());
+
+      dao.compact();
+
+      assertTrue(Files.size(logFile()) < before / 2);
+      assertEquals(50, studentDao.count());
+      assertEquals("Renamed 99", studentDao.getById(ids.get(99)).orElseThrow().getName());
+      assertEquals(1, studentDao.getVersion(ids.get(99)).orElseThrow());
+
+      reopen();
+
+      assertEquals(50, studentDao.count());
+      assertEquals(50, studentDao.listAll().size());
+      assertTrue(studentDao.getById(ids.get(0)).isEmpty());
+      assertEquals("Renamed 50", studentDao.getById(ids.get(50)).orElseThrow().getName());
+      assertEquals(ids.get(99) + 1, studentDao.save(student(0)));
+   }
+
+   @Test
+   void supersededBytesAreCountedAgainAfterReopening() throws Exception {
+      dao.close();
+      open(DataSize.ofGigabytes(1));
+      List<Integer> ids = saveStudents(10);
+      studentDao.deleteById(ids.get(0));
+      studentDao.partialUpdate(ids.get(1), new StudentPatchDto("Renamed", null));
+      double garbage = garbage();
+
+      dao.close();
+      open(DataSize.ofGigabytes(1));
+
+      assertTrue(garbage > 0);
+      assertEquals(garbage, garbage());
+   }
+
+   private double garbage() {
+      SimpleMeterRegistry registry = new SimpleMeterRegistry();
+      dao.bindTo(registry);
+      return registry.get("student.storage.log.garbage").gauge().value();
+   }
+
+   @Test
+   void writesKeepWorkingWhileCompactionRunsInTheBackground() throws Exception {
+      // min-garbage 0 schedules a compaction on every write that leaves half of the log superseded
+      Integer id = studentDao.save(student(1));
+      for (int i = 0; i < 200; i++)
+         studentDao.partialUpdate(id, new StudentPatchDto("Renamed " + i, null));
+
+      assertEquals("Renamed 199", studentDao.getById(id).orElseThrow().getName());
+      assertEquals(200, studentDao.getVersion(id).orElseThrow());
+
+      reopen();
+
+      assertEquals("Renamed 199", studentDao.getById(id).orElseThrow().getName());
+      assertTrue(Files.size(logFile()) < 200L * StudentLog.length(StudentLog.Entry.put(id, 0, "Renamed 0",
+         "student1@gmail.com", LocalDate.of(2000, 1, 1), "Man")));
+   }
+
+   @Test
+   void anExportThatIsNotReadDoesNotHoldUpCompactionOrWrites() throws Exception {
+      List<Integer> ids = saveStudents(10);
+      for (int i = 0; i < 5; i++)
+         studentDao.deleteById(ids.get(i));
+      CountDownLatch reading = new CountDownLatch(1);
+      CountDownLatch resume = new CountDownLatch(1);
+      List<String> exported = new CopyOnWriteArrayList<>();
+      CompletableFuture<Void> export = CompletableFuture.runAsync(() -> studentDao.streamAll(student -> {
+         exported.add(student.getName());
+         reading.countDown();
+         try {
+            resume.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }));
+      assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+      Integer saved;
+      try {
+         CompletableFuture.runAsync(dao::compact).get(5, TimeUnit.SECONDS);
+         saved = CompletableFuture.supplyAsync(() -> studentDao.save(student(10))).get(5, TimeUnit.SECONDS);
+      } finally {
+         resume.countDown();
+      }
+      export.get(5, TimeUnit.SECONDS);
+
+      // the export reads the log it started on to the end, though a compaction has replaced it
+      assertEquals(List.of("Student 5", "Student 6", "Student 7", "Student 8", "Student 9"), exported);
+      assertEquals("Student 10", studentDao.getById(saved).orElseThrow().getName());
+   }
+
+   @Test
+   void aCompactionLeftHalfWayIsDiscarded() throws Exception {
+      saveStudents(2);
+      dao.close();
+      Files.write(directory.resolve("students.log.compact"), new byte[]{1, 2, 3});
+
+      open();
+
+      assertEquals(2, studentDao.count());
+      assertFalse(Files.exists(directory.resolve("students.log.compact")));
+   }
+
+   @Test
+   void aFileThatIsNotAStudentLogIsRejected() throws IOException {
+      Path other = Files.createDirectory(directory.resolve("other"));
+      Files.write(other.resolve(FileStudentDao.LOG_FILE), new byte[]{'n', 'o', 't', ' ', 'a', ' ', 'l', 'o', 'g'});
+
+      assertThrows(DatabaseOperationException.class, () -> new FileStudentDao(other, true, 0.5, DataSize.ofBytes(0)));
+   }
+}
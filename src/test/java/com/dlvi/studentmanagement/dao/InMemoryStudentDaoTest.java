@@ -0,0 +1,108 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStudentDaoTest extends StudentDaoContractTest {
+
+   @BeforeEach
+   void createDao() {
+      studentDao = new InMemoryStudentDao();
+   }
+
+   private static Student student(int i) {
+      return new Student(0, "Student " + i, "student" + i + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   @Test
+   void emailsAreUniqueRegardlessOfCase() {
+      Integer id = studentDao.save(student(1));
+
+      assertThrows(EmailAlreadyExistsException.class,
+         () -> studentDao.save(new Student(0, "Other", "STUDENT1@gmail.com", LocalDate.of(2000, 1, 1), "Man")));
+      assertEquals(1, studentDao.partialUpdate(id, new StudentPatchDto(null, "Student1@Gmail.com")));
+      assertTrue(studentDao.emailExists("student1@gmail.com"));
+   }
+
+   @Test
+   void patchingTheEmailReleasesThePreviousOne() {
+      Integer id = studentDao.save(student(1));
+      studentDao.partialUpdate(id, new StudentPatchDto(null, "renamed@gmail.com"));
+
+      assertFalse(studentDao.emailExists("student1@gmail.com"));
+      assertNotEquals(id, studentDao.save(student(1)));
+   }
+
+   @Test
+   void idsSpanSeveralPages() {
+      List<Student> students = new ArrayList<>();
+      for (int i = 0; i < 10_000; i++)
+         students.add(student(i));
+
+      List<Integer> ids = studentDao.saveAll(students);
+
+      assertEquals(10_000, studentDao.count());
+      assertEquals("Student 9999", studentDao.getById(ids.get(9_999)).orElseThrow().getName());
+      assertEquals(ids.get(5_001), studentDao.listResponsePage(ids.get(5_000), 1, StudentField.ALL).get(0).id());
+   }
+
+   @Test
+   void concurrentRegistrationsOfOneEmailLetExactlyOneWin() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<Boolean>> attempts = new ArrayList<>();
+         for (int i = 0; i < 64; i++) {
+            attempts.add(executor.submit(() -> {
+               try {
+                  studentDao.save(student(1));
+                  return true;
+               } catch (EmailAlreadyExistsException e) {
+                  return false;
+               }
+            }));
+         }
+
+         int saved = 0;
+         for (Future<Boolean> attempt : attempts)
+            saved += attempt.get(10, TimeUnit.SECONDS) ? 1 : 0;
+         assertEquals(1, saved);
+         assertEquals(1, studentDao.listAll().size());
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   void listAllSeesABatchEntirelyOrNotAtAll() throws Exception {
+      List<Student> batch = new ArrayList<>();
+      for (int i = 0; i < 1_000; i++)
+         batch.add(student(i));
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<?> writer = executor.submit(() -> studentDao.saveAll(batch));
+         while (!writer.isDone()) {
+            int size = studentDao.listAll().size();
+            assertTrue(size == 0 || size == 1_000, "saw " + size + " students");
+         }
+         writer.get();
+         assertEquals(1_000, studentDao.listAll().size());
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
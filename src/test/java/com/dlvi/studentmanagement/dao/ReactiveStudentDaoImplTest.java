@@ -0,0 +1,133 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataR2dbcTest(properties = {
+   "spring.r2dbc.url=r2dbc:h2:mem:///reactive-dao?options=DB_CLOSE_DELAY=-1;MODE=MySQL",
+   "spring.r2dbc.username=sa",
+   "spring.r2dbc.password=",
+   "spring.flyway.url=jdbc:h2:mem:reactive-dao;DB_CLOSE_DELAY=-1;MODE=MySQL",
+   "spring.flyway.user=sa",
+   "spring.flyway.password="
+})
+@ActiveProfiles("reactive")
+@Import(ReactiveStudentDaoImpl.class)
+class ReactiveStudentDaoImplTest {
+
+   @Autowired
+   private ReactiveStudentDao studentDao;
+
+   @Autowired
+   private DatabaseClient databaseClient;
+
+   private static Student student(String name) {
+      return new Student(0, name, name.toLowerCase() + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   // R2DBC slices do not roll back, so every test starts from an empty table
+   @BeforeEach
+   void emptyTable() {
+      databaseClient.sql("delete from student").then().block();
+   }
+
+   @Test
+   void saveAndGetById() {
+      Integer id = studentDao.save(student("Maximo")).block();
+
+      StepVerifier.create(studentDao.getById(id))
+         .assertNext(found -> assertAll(
+            () -> assertEquals(id, found.getId()),
+            () -> assertEquals("Maximo", found.getName()),
+            () -> assertEquals(LocalDate.of(2000, 1, 1), found.getBirthDate())))
+         .verifyComplete();
+   }
+
+   @Test
+   void saveRejectsDuplicateEmail() {
+      studentDao.save(student("Maximo")).block();
+
+      StepVerifier.create(studentDao.save(student("Maximo")))
+         .expectError(EmailAlreadyExistsException.class)
+         .verify();
+   }
+
+   @Test
+   void emailExists() {
+      studentDao.save(student("Maximo")).block();
+
+      assertEquals(Boolean.TRUE, studentDao.emailExists("maximo@gmail.com").block());
+      assertEquals(Boolean.FALSE, studentDao.emailExists("kaka@gmail.com").block());
+   }
+
+   @Test
+   void partialUpdateWritesOnlyGivenFieldsAndBumpsVersion() {
+      Integer id = studentDao.save(student("Maximo")).block();
+
+      assertEquals(1, studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null), null).block());
+
+      Student updated = studentDao.getById(id).block();
+      assertAll(
+         () -> assertEquals("Kaka", updated.getName()),
+         () -> assertEquals("maximo@gmail.com", updated.getEmail()),
+         () -> assertEquals(1, studentDao.getVersion(id).block())
+      );
+   }
+
+   @Test
+   void partialUpdateWithStaleVersionUpdatesNothing() {
+      Integer id = studentDao.save(student("Maximo")).block();
+      studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null), 0).block();
+
+      assertEquals(0, studentDao.partialUpdate(id, new StudentPatchDto("Max", null), 0).block());
+      assertEquals("Kaka", studentDao.getById(id).block().getName());
+   }
+
+   @Test
+   void deleteById() {
+      Integer id = studentDao.save(student("Maximo")).block();
+
+      assertEquals(1, studentDao.deleteById(id).block());
+      assertEquals(0, studentDao.deleteById(id).block());
+      StepVerifier.create(studentDao.getById(id)).verifyComplete();
+   }
+
+   @Test
+   void listResponsePageReadsOnlyProjectedColumnsAfterCursor() {
+      Integer first = studentDao.save(student("Maximo")).block();
+      Integer second = studentDao.save(student("Kaka")).block();
+
+      StepVerifier.create(studentDao.listResponsePage(first, 10, Set.of(StudentField.NAME)))
+         .expectNext(new StudentResponseDto(second, "Kaka", null))
+         .verifyComplete();
+      assertEquals(2L, studentDao.count().block());
+   }
+
+   @Test
+   void listAllHonoursDemand() {
+      Flux.range(1, 20).concatMap(i -> studentDao.save(student("Student" + i))).blockLast();
+
+      StepVerifier.create(studentDao.listAll(), 5)
+         .expectNextCount(5)
+         .thenRequest(15)
+         .expectNextCount(15)
+         .verifyComplete();
+   }
+}
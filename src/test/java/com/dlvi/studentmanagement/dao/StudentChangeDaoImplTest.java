@@ -0,0 +1,170 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@Import({StudentDaoImpl.class, StudentChangeDaoImpl.class})
+class StudentChangeDaoImplTest {
+
+   // the test transaction shares one database clock reading, so "older than" only holds with a cutoff in the future
+   private static final Duration EVERYTHING = Duration.ofSeconds(-1);
+
+   @Autowired
+   private StudentDao studentDao;
+
+   @Autowired
+   private StudentChangeDao changeDao;
+
+   @Autowired
+   private PlatformTransactionManager transactionManager;
+
+   private static Student student(String name) {
+      return new Student(0, name, name.toLowerCase() + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   private long latest() {
+      changeDao.publish(100);
+      return changeDao.latestSequence();
+   }
+
+   private List<StudentChangeDto> changesAfter(long since) {
+      changeDao.publish(100);
+      return changeDao.changesSince(since, 100);
+   }
+
+   @Test
+   void everyWriteAppendsAChangeInSequenceOrder() {
+      long since = latest();
+      Integer id = studentDao.save(student("Maximo"));
+      List<Integer> ids = studentDao.saveAll(List.of(student("Kaka"), student("Ronaldo")));
+      studentDao.partialUpdate(id, new StudentPatchDto("Maxi", null));
+      studentDao.deleteById(ids.get(0));
+
+      List<StudentChangeDto> changes = changesAfter(since);
+
+      assertEquals(
+         List.of(StudentChangeDto.Type.CREATED, StudentChangeDto.Type.CREATED, StudentChangeDto.Type.CREATED,
+            StudentChangeDto.Type.UPDATED, StudentChangeDto.Type.DELETED),
+         changes.stream().map(StudentChangeDto::type).toList());
+      assertEquals(new StudentResponseDto(id, "Maximo", "maximo@gmail.com", 0), changes.get(0).student());
+      assertEquals(new StudentResponseDto(id, "Maxi", "maximo@gmail.com", 1), changes.get(3).student());
+      assertEquals(1, changes.get(3).version());
+      assertEquals(ids.get(0), changes.get(4).studentId());
+      assertNull(changes.get(4).student());
+      assertEquals(changes.get(4).seq(), changeDao.latestSequence());
+   }
+
+   @Test
+   void writesThatChangeNothingAppendNothing() {
+      Integer id = studentDao.save(student("Maximo"));
+      long since = latest();
+
+      studentDao.partialUpdate(id, new StudentPatchDto("Maxi", null), 7);
+      studentDao.deleteById(id, 7);
+      studentDao.deleteById(Integer.MAX_VALUE);
+
+      assertTrue(changesAfter(since).isEmpty());
+   }
+
+   @Test
+   void changesAreReadOnceTheyArePublished() {
+      long since = latest();
+      studentDao.save(student("Maximo"));
+
+      assertTrue(changeDao.changesSince(since, 100).isEmpty());
+      assertEquals(since, changeDao.latestSequence());
+      assertEquals(1, changeDao.publish(100));
+      assertEquals(since + 1, changeDao.latestSequence());
+      assertEquals(1, changeDao.changesSince(since, 100).size());
+   }
+
+   @Test
+   @Transactional(propagation = Propagation.NOT_SUPPORTED)
+   void aChangeCommittedLateIsReadAfterTheOnesReadBeforeIt() throws Exception {
+      long since = latest();
+      CountDownLatch written = new CountDownLatch(1);
+      CountDownLatch commit = new CountDownLatch(1);
+      // inserted first, so its seq is the lower one, but committed only after the later write has been read
+      CompletableFuture<Integer> late = CompletableFuture.supplyAsync(() ->
+         new TransactionTemplate(transactionManager).execute(status -> {
+            Integer id = studentDao.save(student("Late"));
+            written.countDown();
+            try {
+               commit.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+            return id;
+         }));
+      assertTrue(written.await(5, TimeUnit.SECONDS));
+      Integer early = studentDao.save(student("Early"));
+      Integer lateId = null;
+
+      try {
+         List<StudentChangeDto> first = changesAfter(since);
+         commit.countDown();
+         lateId = late.get(5, TimeUnit.SECONDS);
+         List<StudentChangeDto> second = changesAfter(first.get(first.size() - 1).seq());
+
+         assertEquals(List.of(early), first.stream().map(StudentChangeDto::studentId).toList());
+         assertEquals(List.of(lateId), second.stream().map(StudentChangeDto::studentId).toList());
+      } finally {
+         commit.countDown();
+         studentDao.deleteById(early);
+         if (lateId != null)
+            studentDao.deleteById(lateId);
+      }
+   }
+
+   @Test
+   void compactionKeepsTheLatestChangeOfEveryStudent() {
+      long since = latest();
+      Integer kept = studentDao.save(student("Maximo"));
+      Integer changed = studentDao.save(student("Kaka"));
+      studentDao.partialUpdate(changed, new StudentPatchDto("Ricardo", null));
+      studentDao.partialUpdate(changed, new StudentPatchDto("Ricky", null));
+
+      changeDao.publish(100);
+
+      int compacted = changeDao.compact(EVERYTHING);
+
+      List<StudentChangeDto> changes = changesAfter(since);
+      assertTrue(compacted >= 2);
+      assertEquals(List.of(kept, changed), changes.stream().map(StudentChangeDto::studentId).toList());
+      assertEquals("Ricky", changes.get(1).student().name());
+   }
+
+   @Test
+   void purgeDropsOldChangesAndMovesTheHorizon() {
+      studentDao.save(student("Maximo"));
+      long latest = latest();
+
+      assertEquals(0, changeDao.purge(Duration.ofDays(1)));
+      assertTrue(changeDao.purge(EVERYTHING) > 0);
+
+      assertEquals(latest, changeDao.purgedThrough());
+      assertTrue(changesAfter(0).isEmpty());
+      // an empty log still knows the last sequence it published
+      assertEquals(latest, latest());
+   }
+}
@@ -0,0 +1,149 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCountersTest {
+
+   private final List<StudentCounters.GroupCount> table = new ArrayList<>(List.of(
+      new StudentCounters.GroupCount("Man", 2000, 3),
+      new StudentCounters.GroupCount("Woman", 2000, 2),
+      new StudentCounters.GroupCount(null, 1999, 1)));
+   private final AtomicInteger recounts = new AtomicInteger();
+
+   private StudentCounters counters(Duration reconcileInterval) {
+      return new StudentCounters(() -> {
+         recounts.incrementAndGet();
+         return List.copyOf(table);
+      }, reconcileInterval);
+   }
+
+   @Test
+   void firstReadLoadsTheGroupedCountOnce() {
+      StudentCounters counters = counters(Duration.ofMinutes(5));
+
+      StudentCountsDto counts = counters.counts();
+
+      assertEquals(6, counts.total());
+      assertEquals(Map.of("Man", 3L, "Woman", 2L, "unknown", 1L), counts.bySex());
+      assertEquals(Map.of(1999, 1L, 2000, 5L), counts.byBirthYear());
+      assertEquals(6, counters.total());
+      assertEquals(1, recounts.get());
+   }
+
+   @Test
+   void changesMoveEveryGroupAndDropEmptyOnes() {
+      StudentCounters counters = counters(Duration.ofMinutes(5));
+      counters.total();
+
+      counters.added("Woman", 2001);
+      counters.removed(null, 1999);
+
+      StudentCountsDto counts = counters.counts();
+      assertEquals(6, counts.total());
+      assertEquals(Map.of("Man", 3L, "Woman", 3L), counts.bySex());
+      assertEquals(Map.of(2000, 5L, 2001, 1L), counts.byBirthYear());
+   }
+
+   @Test
+   void changesBeforeTheFirstLoadAreLeftToIt() {
+      StudentCounters counters = counters(Duration.ofMinutes(5));
+
+      counters.added("Man", 2000);
+
+      assertEquals(6, counters.total());
+   }
+
+   @Test
+   void firstLoadKeepsChangesCommittedWhileCounting() throws Exception {
+      CountDownLatch counting = new CountDownLatch(1);
+      CountDownLatch committed = new CountDownLatch(1);
+      StudentCounters counters = new StudentCounters(() -> {
+         List<StudentCounters.GroupCount> counted = List.copyOf(table);
+         counting.countDown();
+         try {
+            // a write commits on another thread after the count read the table
+            committed.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return counted;
+      }, Duration.ofMinutes(5));
+
+      CompletableFuture<Long> firstRead = CompletableFuture.supplyAsync(counters::total);
+      assertTrue(counting.await(5, TimeUnit.SECONDS));
+      counters.added("Man", 2002);
+      committed.countDown();
+
+      assertEquals(7, firstRead.get(5, TimeUnit.SECONDS));
+      assertEquals(Map.of(1999, 1L, 2000, 5L, 2002, 1L), counters.counts().byBirthYear());
+   }
+
+   @Test
+   void reconcileKeepsChangesCommittedWhileCounting() {
+      StudentCounters[] holder = new StudentCounters[1];
+      StudentCounters counters = new StudentCounters(() -> {
+         List<StudentCounters.GroupCount> counted = List.copyOf(table);
+         // committed after the count read the table, so only the carried over change accounts for it
+         if (holder[0] != null)
+            holder[0].added("Man", 2002);
+         return counted;
+      }, Duration.ofMinutes(5));
+      counters.total();
+      holder[0] = counters;
+      table.add(new StudentCounters.GroupCount("Woman", 1998, 4));
+
+      counters.reconcile();
+
+      StudentCountsDto counts = counters.counts();
+      assertEquals(11, counts.total());
+      assertEquals(Map.of(1998, 4L, 1999, 1L, 2000, 5L, 2002, 1L), counts.byBirthYear());
+   }
+
+   @Test
+   void failedReconcileKeepsTheMaintainedValues() {
+      StudentCounters counters = new StudentCounters(new Supplier<>() {
+         private boolean loaded;
+
+         @Override
+         public List<StudentCounters.GroupCount> get() {
+            if (loaded)
+               throw new DatabaseOperationException("down");
+            loaded = true;
+            return List.copyOf(table);
+         }
+      }, Duration.ofMinutes(5));
+      counters.total();
+
+      counters.reconcile();
+
+      assertEquals(6, counters.total());
+   }
+
+   @Test
+   void readAfterTheIntervalRecountsInTheBackground() throws InterruptedException {
+      StudentCounters counters = counters(Duration.ZERO);
+      counters.total();
+      table.add(new StudentCounters.GroupCount("Man", 2003, 10));
+
+      long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+      while (counters.total() != 16 && System.nanoTime() < deadline)
+         Thread.sleep(10);
+
+      assertEquals(16, counters.total());
+      assertTrue(recounts.get() >= 2);
+   }
+}
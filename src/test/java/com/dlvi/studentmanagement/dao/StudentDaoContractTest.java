@@ -0,0 +1,352 @@
+package com.dlvi.studentmanagement.dao;
+
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentCountsDto;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link StudentDao} implementation has to share, run once per implementation by its subclass.
+ * Text comparisons that differ between MySQL and the H2 test database (case sensitivity) are left out.
+ * <p>
+ * Spring reads the class-level {@code @Transactional} of the class declaring the test method, so it is repeated here
+ * for the database to roll every test back; without a Spring context it has no effect.
+ */
+@Transactional
+abstract class StudentDaoContractTest {
+
+   protected StudentDao studentDao;
+
+   private static Student student(String name) {
+      return new Student(0, name, name.toLowerCase() + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   @Test
+   void saveAndGetById() {
+      Integer id = studentDao.save(student("Maximo"));
+
+      var found = studentDao.getById(id);
+
+      assertTrue(found.isPresent());
+      assertAll(
+         () -> assertEquals(id, found.get().getId()),
+         () -> assertEquals("Maximo", found.get().getName()),
+         () -> assertEquals(LocalDate.of(2000, 1, 1), found.get().getBirthDate())
+      );
+   }
+
+   @Test
+   void saveRejectsDuplicateEmail() {
+      studentDao.save(student("Maximo"));
+
+      assertThrows(EmailAlreadyExistsException.class,
+         () -> studentDao.save(student("Maximo")));
+   }
+
+   @Test
+   void partialUpdateWritesOnlyGivenFieldsAndBumpsVersion() {
+      Integer id = studentDao.save(student("Maximo"));
+
+      assertEquals(1, studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null)));
+
+      var updated = studentDao.getById(id).orElseThrow();
+      assertAll(
+         () -> assertEquals("Kaka", updated.getName()),
+         () -> assertEquals("maximo@gmail.com", updated.getEmail()),
+         () -> assertEquals(1, studentDao.getVersion(id).orElseThrow())
+      );
+   }
+
+   @Test
+   void partialUpdateKeepingOwnEmailIsAllowed() {
+      Integer id = studentDao.save(student("Maximo"));
+
+      assertEquals(1, studentDao.partialUpdate(id, new StudentPatchDto("Max", "maximo@gmail.com")));
+   }
+
+   @Test
+   void partialUpdateToAnotherStudentsEmailIsRejected() {
+      studentDao.save(student("Maximo"));
+      Integer id = studentDao.save(student("Kaka"));
+
+      assertThrows(EmailAlreadyExistsException.class,
+         () -> studentDao.partialUpdate(id, new StudentPatchDto(null, "maximo@gmail.com")));
+   }
+
+   @Test
+   void partialUpdateWithExpectedVersionOnlyMatchesCurrentVersion() {
+      Integer id = studentDao.save(student("Maximo"));
+
+      assertEquals(0, studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null), 5));
+      assertEquals(1, studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null), 0));
+      assertEquals(0, studentDao.partialUpdate(id, new StudentPatchDto("Max", null), 0));
+      assertTrue(studentDao.getVersion(999_999).isEmpty());
+   }
+
+   @Test
+   void deleteWithExpectedVersionOnlyMatchesCurrentVersion() {
+      Integer id = studentDao.save(student("Maximo"));
+      studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null));
+
+      assertEquals(0, studentDao.deleteById(id, 0));
+      assertEquals(1, studentDao.deleteById(id, 1));
+      assertTrue(studentDao.getById(id).isEmpty());
+   }
+
+   @Test
+   void responseProjectionsCarryRowVersion() {
+      Integer id = studentDao.save(student("Maximo"));
+      studentDao.partialUpdate(id, new StudentPatchDto("Kaka", null));
+
+      assertEquals(1, studentDao.getResponseById(id).orElseThrow().version());
+      assertEquals(1, studentDao.listResponsePage(id - 1, 1, Set.of(StudentField.ID)).get(0).version());
+   }
+
+   @Test
+   void listPageFollowsKeysetCursor() {
+      Integer first = studentDao.save(student("Maximo"));
+      Integer second = studentDao.save(student("Kaka"));
+      Integer third = studentDao.save(student("Ronaldo"));
+
+      var page = studentDao.listPage(first, 1);
+
+      assertEquals(1, page.size());
+      assertEquals(second, page.get(0).getId());
+      assertEquals(third, studentDao.listPage(second, 10).get(0).getId());
+      assertTrue(studentDao.listPage(third, 10).isEmpty());
+   }
+
+   // the maintained count only moves on commit, so against the database this runs outside the rolled-back test transaction
+   @Test
+   @Transactional(propagation = Propagation.NOT_SUPPORTED)
+   void countTracksCommittedInsertsAndDeletes() {
+      long before = studentDao.count();
+      Integer id = studentDao.save(student("Maximo"));
+      List<Integer> ids = studentDao.saveAll(List.of(student("Kaka"), student("Ronaldo")));
+
+      try {
+         assertEquals(before + 3, studentDao.count());
+
+         studentDao.deleteById(id);
+
+         assertEquals(before + 2, studentDao.count());
+      } finally {
+         ids.forEach(studentDao::deleteById);
+         studentDao.deleteById(id);
+      }
+   }
+
+   @Test
+   @Transactional(propagation = Propagation.NOT_SUPPORTED)
+   void countsTrackCommittedInsertsAndDeletesByGroup() {
+      StudentCountsDto before = studentDao.counts();
+      Student woman = student("Marta");
+      woman.setSex("Woman");
+      woman.setBirthDate(LocalDate.of(1987, 2, 19));
+      Integer id = studentDao.save(woman);
+      List<Integer> ids = studentDao.saveAll(List.of(student("Kaka"), student("Ronaldo")));
+
+      try {
+         StudentCountsDto counts = studentDao.counts();
+         assertEquals(before.total() + 3, counts.total());
+         assertEquals(before.bySex().getOrDefault("Man", 0L) + 2, counts.bySex().get("Man"));
+         assertEquals(before.bySex().getOrDefault("Woman", 0L) + 1, counts.bySex().get("Woman"));
+         assertEquals(before.byBirthYear().getOrDefault(1987, 0L) + 1, counts.byBirthYear().get(1987));
+
+         studentDao.deleteById(id);
+
+         assertEquals(before.byBirthYear().get(1987), studentDao.counts().byBirthYear().get(1987));
+         assertEquals(before.total() + 2, studentDao.count());
+      } finally {
+         ids.forEach(studentDao::deleteById);
+         studentDao.deleteById(id);
+      }
+      assertEquals(before, studentDao.counts());
+   }
+
+   @Test
+   void getResponsesByIdsReadsEveryExistingIdOnce() {
+      List<Integer> ids = studentDao.saveAll(List.of(student("Maximo"), student("Kaka"), student("Ronaldo")));
+
+      List<StudentResponseDto> found = studentDao.getResponsesByIds(
+         List.of(ids.get(2), ids.get(0), ids.get(2), Integer.MAX_VALUE));
+
+      assertEquals(Set.of("Maximo", "Ronaldo"), found.stream().map(StudentResponseDto::name).collect(Collectors.toSet()));
+      assertEquals(2, found.size());
+      assertEquals(0, found.get(0).version());
+   }
+
+   @Test
+   void getResponsesByIdsSplitsLongIdLists() {
+      List<Integer> ids = new ArrayList<>(studentDao.saveAll(List.of(student("Maximo"), student("Kaka"))));
+      for (int missing = -2500; missing < 0; missing++)
+         ids.add(missing);
+
+      assertEquals(2, studentDao.getResponsesByIds(ids).size());
+   }
+
+   @Test
+   void streamAllVisitsEveryRowInIdOrder() {
+      studentDao.saveAll(List.of(student("Maximo"), student("Kaka"), student("Ronaldo")));
+      List<String> names = new ArrayList<>();
+
+      studentDao.streamAll(s -> names.add(s.getName()));
+
+      assertEquals(List.of("Maximo", "Kaka", "Ronaldo"), names);
+   }
+
+   @Test
+   void saveAllReturnsGeneratedKeysInInputOrder() {
+      List<Integer> ids = studentDao.saveAll(List.of(student("Maximo"), student("Kaka"), student("Ronaldo")));
+
+      assertEquals(3, ids.size());
+      assertEquals("Maximo", studentDao.getById(ids.get(0)).orElseThrow().getName());
+      assertEquals("Kaka", studentDao.getById(ids.get(1)).orElseThrow().getName());
+      assertEquals("Ronaldo", studentDao.getById(ids.get(2)).orElseThrow().getName());
+   }
+
+   @Test
+   void saveAllFailsOnDuplicateEmail() {
+      studentDao.save(student("Maximo"));
+
+      assertThrows(DatabaseOperationException.class,
+         () -> studentDao.saveAll(List.of(student("Kaka"), student("Maximo"))));
+   }
+
+   @Test
+   void findExistingEmailsReturnsOnlyRegisteredOnes() {
+      studentDao.saveAll(List.of(student("Maximo"), student("Kaka")));
+
+      Set<String> existing = studentDao.findExistingEmails(List.of("maximo@gmail.com", "nobody@gmail.com", "kaka@gmail.com"));
+
+      assertEquals(Set.of("maximo@gmail.com", "kaka@gmail.com"), existing);
+   }
+
+   @Test
+   void findEmailOwnersMapsEmailsToTheirStudent() {
+      List<Integer> ids = studentDao.saveAll(List.of(student("Maximo"), student("Kaka")));
+
+      var owners = studentDao.findEmailOwners(List.of("maximo@gmail.com", "nobody@gmail.com", "kaka@gmail.com"));
+
+      assertEquals(Map.of("maximo@gmail.com", ids.get(0), "kaka@gmail.com", ids.get(1)), owners);
+   }
+
+   @Test
+   @Transactional(propagation = Propagation.NOT_SUPPORTED)
+   void deleteAllByIdReturnsOnlyTheDeletedIds() {
+      long before = studentDao.count();
+      List<Integer> ids = studentDao.saveAll(List.of(student("Maximo"), student("Kaka"), student("Ronaldo")));
+
+      try {
+         List<Integer> deleted = studentDao.deleteAllById(List.of(ids.get(0), ids.get(2), ids.get(2), 999_999));
+
+         assertAll(
+            () -> assertEquals(Set.of(ids.get(0), ids.get(2)), Set.copyOf(deleted)),
+            () -> assertEquals(2, deleted.size()),
+            () -> assertTrue(studentDao.getById(ids.get(0)).isEmpty()),
+            () -> assertTrue(studentDao.getById(ids.get(1)).isPresent()),
+            () -> assertEquals(before + 1, studentDao.count())
+         );
+      } finally {
+         studentDao.deleteAllById(ids);
+      }
+   }
+
+   @Test
+   void partialUpdateAllAppliesEachPatchAndReportsMisses() {
+      List<Integer> ids = studentDao.saveAll(List.of(student("Maximo"), student("Kaka"), student("Ronaldo")));
+
+      int[] updated = studentDao.partialUpdateAll(List.of(
+         new StudentBatchPatchDto(ids.get(0), null, new StudentPatchDto("Maxi", null)),
+         new StudentBatchPatchDto(ids.get(1), 0, new StudentPatchDto(null, "kaka@Yahoo.com")),
+         new StudentBatchPatchDto(ids.get(2), 5, new StudentPatchDto("Cristiano", null)),
+         new StudentBatchPatchDto(999_999, null, new StudentPatchDto("Nobody", null))));
+
+      var maximo = studentDao.getById(ids.get(0)).orElseThrow();
+      var kaka = studentDao.getById(ids.get(1)).orElseThrow();
+      assertAll(
+         () -> assertArrayEquals(new int[]{1, 1, 0, 0}, updated),
+         () -> assertEquals("Maxi", maximo.getName()),
+         () -> assertEquals("maximo@gmail.com", maximo.getEmail()),
+         () -> assertEquals(Optional.of(1), studentDao.getVersion(ids.get(0))),
+         () -> assertEquals("Kaka", kaka.getName()),
+         () -> assertEquals("kaka@Yahoo.com", kaka.getEmail()),
+         () -> assertEquals("Ronaldo", studentDao.getById(ids.get(2)).orElseThrow().getName())
+      );
+   }
+
+   @Test
+   void partialUpdateAllFailsOnDuplicateEmail() {
+      List<Integer> ids = studentDao.saveAll(List.of(student("Maximo"), student("Kaka")));
+
+      assertThrows(EmailAlreadyExistsException.class, () -> studentDao.partialUpdateAll(List.of(
+         new StudentBatchPatchDto(ids.get(1), null, new StudentPatchDto(null, "maximo@gmail.com")))));
+   }
+
+   @Test
+   void searchAppliesEveryGivenFilterInIdOrder() {
+      Integer maximo = studentDao.save(new Student(0, "Maximo", "maximo@Gmail.com", LocalDate.of(2000, 1, 1), "Man"));
+      Integer maxine = studentDao.save(new Student(0, "Maxine", "maxine@outlook.com", LocalDate.of(2001, 6, 1), "Woman"));
+      Integer maxwell = studentDao.save(new Student(0, "Maxwell", "maxwell@gmail.com", LocalDate.of(2003, 1, 1), "Man"));
+
+      assertEquals(List.of(maximo, maxwell), ids(new StudentSearchCriteria(null, null, "GMAIL.com", null, null, null)));
+      assertEquals(List.of(maxwell), ids(new StudentSearchCriteria("Max", "well", null, null, null, "Man")));
+      assertEquals(List.of(maximo), ids(new StudentSearchCriteria(null, null, null,
+         LocalDate.of(1999, 1, 1), LocalDate.of(2002, 1, 1), "Man")));
+      assertEquals(List.of(maxine, maxwell), studentDao.search(new StudentSearchCriteria("Max", null, null, null, null, null),
+         maximo, 10, Set.of(StudentField.ID)).stream().map(StudentResponseDto::id).toList());
+   }
+
+   @Test
+   void searchTreatsLikeWildcardsLiterally() {
+      studentDao.save(student("Max_imo"));
+      Integer percent = studentDao.save(student("100% Kaka"));
+
+      assertEquals(List.of(percent), ids(new StudentSearchCriteria(null, "0%", null, null, null, null)));
+      assertEquals(List.of(), ids(new StudentSearchCriteria("Max_x", null, null, null, null, null)));
+   }
+
+   @Test
+   void searchCanBeRestrictedToCandidateIds() {
+      Integer maximo = studentDao.save(student("Maximo"));
+      studentDao.save(student("Maxwell"));
+
+      assertEquals(List.of(maximo), studentDao.search(new StudentSearchCriteria(null, "max", null, null, null, null),
+         List.of(maximo), null, 10, Set.of(StudentField.ID)).stream().map(StudentResponseDto::id).toList());
+      assertTrue(studentDao.search(new StudentSearchCriteria(null, null, null, null, null, null),
+         List.of(), null, 10, Set.of(StudentField.ID)).isEmpty());
+   }
+
+   @Test
+   void patchingTheEmailMovesTheStudentToTheNewDomain() {
+      Integer id = studentDao.save(student("Maximo"));
+      studentDao.partialUpdate(id, new StudentPatchDto(null, "maximo@outlook.com"));
+
+      assertEquals(List.of(id), ids(new StudentSearchCriteria(null, null, "outlook.com", null, null, null)));
+      assertEquals(List.of(), ids(new StudentSearchCriteria(null, null, "gmail.com", null, null, null)));
+   }
+
+   private List<Integer> ids(StudentSearchCriteria criteria) {
+      return studentDao.search(criteria, null, 10, Set.of(StudentField.ID)).stream()
+         .map(StudentResponseDto::id)
+         .toList();
+   }
+}
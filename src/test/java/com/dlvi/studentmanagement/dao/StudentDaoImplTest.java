@@ -0,0 +1,15 @@
+package com.dlvi.studentmanagement.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+
+@JdbcTest
+@Import(StudentDaoImpl.class)
+class StudentDaoImplTest extends StudentDaoContractTest {
+
+   @Autowired
+   void setStudentDao(StudentDao studentDao) {
+      this.studentDao = studentDao;
+   }
+}
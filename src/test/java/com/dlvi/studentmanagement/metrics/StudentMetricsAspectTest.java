@@ -0,0 +1,59 @@
+package com.dlvi.studentmanagement.metrics;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StudentMetricsAspectTest {
+
+   private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+   private StudentDao proxy(StudentDao target) {
+      AspectJProxyFactory factory = new AspectJProxyFactory(target);
+      factory.addAspect(new StudentMetricsAspect(registry));
+      return factory.getProxy();
+   }
+
+   @Test
+   void timesDaoCallsAndRecordsRowCounts() {
+      StudentDao dao = mock(StudentDao.class);
+      when(dao.listResponsePage(null, 3, StudentField.ALL)).thenReturn(List.of(
+         new StudentResponseDto(1, "Maximo", "maximo@gmail.com"),
+         new StudentResponseDto(2, "Kaka", "kaka@gmail.com")));
+
+      proxy(dao).listResponsePage(null, 3, StudentField.ALL);
+
+      var timer = registry.get("student.dao")
+         .tags("operation", "listResponsePage", "outcome", "success")
+         .timer();
+      var rows = registry.get("student.dao.rows")
+         .tag("operation", "listResponsePage")
+         .summary();
+
+      assertEquals(1, timer.count());
+      assertEquals(2.0, rows.totalAmount());
+   }
+
+   @Test
+   void tagsFailedCallsWithTheException() {
+      StudentDao dao = mock(StudentDao.class);
+      when(dao.count()).thenThrow(new DatabaseOperationException("down"));
+
+      assertThrows(DatabaseOperationException.class, () -> proxy(dao).count());
+
+      var timer = registry.get("student.dao")
+         .tags("operation", "count", "outcome", "error", "exception", "DatabaseOperationException")
+         .timer();
+      assertEquals(1, timer.count());
+   }
+}
@@ -0,0 +1,281 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dao.StudentDaoImpl;
+import com.dlvi.studentmanagement.dto.StudentBatchItemDto;
+import com.dlvi.studentmanagement.dto.StudentBatchPatchDto;
+import com.dlvi.studentmanagement.dto.StudentPatchDto;
+import com.dlvi.studentmanagement.dto.StudentRequestDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.model.Student;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+ * runs against the embedded database without the test-managed transaction,
+ * so every chunk commits (or rolls back) exactly as it does in production
+ */
+@JdbcTest
+@Import({StudentDaoImpl.class, StudentCache.class, StudentEmailIndex.class, StudentNameIndex.class, StudentColumns.class, StudentReadCoalescer.class, StudentBatchServiceImpl.class})
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@TestPropertySource(properties = "student.batch.chunk-size=3")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StudentBatchServiceImplTest {
+
+   @Autowired
+   private StudentBatchService studentBatchService;
+
+   @Autowired
+   private StudentDao studentDao;
+
+   @Autowired
+   private JdbcTemplate jdbcTemplate;
+
+   @Autowired
+   private Validator validator;
+
+   @Autowired
+   private TransactionTemplate transactionTemplate;
+
+   @Autowired
+   private StudentEmailIndex emailIndex;
+
+   @BeforeEach
+   void cleanTable() {
+      jdbcTemplate.update("delete from student");
+   }
+
+   private static StudentRequestDto request(int i) {
+      return new StudentRequestDto("Student " + i, "student" + i + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   @Test
+   void registerStudentsInsertsEveryChunk() {
+      List<StudentRequestDto> requests = new ArrayList<>();
+      for (int i = 0; i < 10; i++)
+         requests.add(request(i));
+
+      var results = studentBatchService.registerStudents(requests);
+
+      assertEquals(10, results.size());
+      assertTrue(results.stream().allMatch(StudentBatchItemDto::success));
+      for (int i = 0; i < 10; i++) {
+         var result = results.get(i);
+         assertEquals(i, result.index());
+         assertEquals("student" + i + "@gmail.com", studentDao.getById(result.id()).orElseThrow().getEmail());
+      }
+   }
+
+   @Test
+   void registerStudentsReportsPerItemErrors() {
+      studentDao.save(new Student(request(0)));
+
+      var results = studentBatchService.registerStudents(List.of(
+         request(0),
+         request(1),
+         new StudentRequestDto("", "not-an-email", null, "Man"),
+         request(1),
+         request(2)));
+
+      assertAll(
+         () -> assertFalse(results.get(0).success()),
+         () -> assertTrue(results.get(0).error().contains("already registered")),
+         () -> assertTrue(results.get(1).success()),
+         () -> assertFalse(results.get(2).success()),
+         () -> assertTrue(results.get(2).error().contains("birthDate")),
+         () -> assertFalse(results.get(3).success()),
+         () -> assertTrue(results.get(4).success()),
+         () -> assertEquals(3, jdbcTemplate.queryForObject("select count(*) from student", Integer.class))
+      );
+   }
+
+   @Test
+   void registerStudentsFallsBackToSingleRowsWhenAChunkFails() {
+      // a concurrent registration slipping in after the set-based email check makes the whole chunk fail
+      StudentDao racingDao = mock(StudentDao.class);
+      when(racingDao.findExistingEmails(anyCollection())).thenReturn(Set.of());
+      when(racingDao.saveAll(anyList())).thenThrow(new DatabaseOperationException("Duplicate entry"));
+      when(racingDao.save(any(Student.class)))
+         .thenReturn(7)
+         .thenThrow(new DatabaseOperationException("Duplicate entry"))
+         .thenReturn(9);
+
+      var service = new StudentBatchServiceImpl(racingDao, new StudentCache(false, 1, Duration.ofSeconds(1)), new StudentEmailIndex(racingDao, 1000, 0.01, Duration.ZERO), new StudentNameIndex(racingDao, false), new StudentColumns(racingDao, false), new StudentReadCoalescer(true), validator, transactionTemplate, 3);
+      var results = service.registerStudents(List.of(request(0), request(1), request(2)));
+
+      assertAll(
+         () -> assertEquals(7, results.get(0).id()),
+         () -> assertFalse(results.get(1).success()),
+         () -> assertEquals("Duplicate entry", results.get(1).error()),
+         () -> assertEquals(9, results.get(2).id())
+      );
+   }
+
+   @Test
+   void deleteStudentsDeletesEveryChunkAndReportsMissingIds() {
+      List<Integer> ids = studentBatchService.registerStudents(List.of(request(0), request(1), request(2), request(3), request(4)))
+         .stream()
+         .map(StudentBatchItemDto::id)
+         .toList();
+
+      var results = studentBatchService.deleteStudents(Arrays.asList(ids.get(0), 999_999, ids.get(1), null, ids.get(3), ids.get(4), ids.get(0)));
+
+      assertAll(
+         () -> assertEquals(7, results.size()),
+         () -> assertEquals(ids.get(0), results.get(0).id()),
+         () -> assertFalse(results.get(1).success()),
+         () -> assertEquals("Student not found with id 999999", results.get(1).error()),
+         () -> assertTrue(results.get(2).success()),
+         () -> assertEquals("The id cannot be null", results.get(3).error()),
+         () -> assertTrue(results.get(4).success()),
+         () -> assertTrue(results.get(5).success()),
+         () -> assertTrue(results.get(6).success()),
+         () -> assertEquals(List.of(ids.get(2)), jdbcTemplate.queryForList("select id from student", Integer.class))
+      );
+   }
+
+   @Test
+   void patchStudentsReportsPerItemErrors() {
+      List<Integer> ids = studentBatchService.registerStudents(List.of(request(0), request(1), request(2), request(3)))
+         .stream()
+         .map(StudentBatchItemDto::id)
+         .toList();
+
+      var results = studentBatchService.patchStudents(Arrays.asList(
+         new StudentBatchPatchDto(ids.get(0), null, new StudentPatchDto("Renamed", "student0@gmail.com")),
+         new StudentBatchPatchDto(ids.get(1), null, new StudentPatchDto(null, "student2@gmail.com")),
+         new StudentBatchPatchDto(ids.get(2), 0, new StudentPatchDto(null, "fresh@gmail.com")),
+         new StudentBatchPatchDto(ids.get(3), null, new StudentPatchDto(null, "fresh@gmail.com")),
+         new StudentBatchPatchDto(ids.get(3), 7, new StudentPatchDto("Stale", null)),
+         new StudentBatchPatchDto(999_999, null, new StudentPatchDto("Nobody", null)),
+         new StudentBatchPatchDto(ids.get(3), null, new StudentPatchDto(null, "not-an-email")),
+         null));
+
+      assertAll(
+         () -> assertTrue(results.get(0).success()),
+         () -> assertEquals("Renamed", studentDao.getById(ids.get(0)).orElseThrow().getName()),
+         () -> assertEquals("The email student2@gmail.com is already registered", results.get(1).error()),
+         () -> assertTrue(results.get(2).success()),
+         () -> assertEquals("fresh@gmail.com", studentDao.getById(ids.get(2)).orElseThrow().getEmail()),
+         () -> assertEquals("The email fresh@gmail.com is already registered", results.get(3).error()),
+         () -> assertEquals("Student " + ids.get(3) + " has been modified since version 7", results.get(4).error()),
+         () -> assertEquals("Student not found with id 999999", results.get(5).error()),
+         () -> assertTrue(results.get(6).error().contains("patch.email")),
+         () -> assertEquals("The entry cannot be null", results.get(7).error()),
+         () -> assertEquals("student3@gmail.com", studentDao.getById(ids.get(3)).orElseThrow().getEmail())
+      );
+   }
+
+   @Test
+   void emailsRegisteredBehindTheIndexAreStillRejected() {
+      emailIndex.build();
+      // written by another instance: the filter never sees it
+      Integer elsewhere = studentDao.save(new Student(0, "Elsewhere", "elsewhere@gmail.com", LocalDate.of(2000, 1, 1), "Man"));
+      Integer own = studentBatchService.registerStudents(List.of(request(0))).get(0).id();
+
+      var registered = studentBatchService.registerStudents(List.of(
+         new StudentRequestDto("Copy", "elsewhere@gmail.com", LocalDate.of(2000, 1, 1), "Man"), request(1)));
+      var patched = studentBatchService.patchStudents(List.of(
+         new StudentBatchPatchDto(own, null, new StudentPatchDto(null, "elsewhere@gmail.com"))));
+
+      assertAll(
+         () -> assertEquals("The email elsewhere@gmail.com is already registered", registered.get(0).error()),
+         () -> assertTrue(registered.get(1).success()),
+         () -> assertFalse(patched.get(0).success()),
+         () -> assertEquals(1, jdbcTemplate.queryForObject(
+            "select count(*) from student where email = 'elsewhere@gmail.com'", Integer.class)),
+         () -> assertEquals(elsewhere, studentDao.findEmailOwners(List.of("elsewhere@gmail.com")).get("elsewhere@gmail.com"))
+      );
+   }
+
+   @Test
+   void patchStudentsFallsBackToSingleRowsWhenAChunkFails() {
+      // an email taken concurrently after the set-based check makes the whole batch fail
+      StudentDao racingDao = mock(StudentDao.class);
+      when(racingDao.findEmailOwners(anyCollection())).thenReturn(Map.of());
+      when(racingDao.partialUpdateAll(anyList())).thenThrow(new EmailAlreadyExistsException("One of the 2 emails is already registered"));
+      when(racingDao.partialUpdate(eq(1), any(StudentPatchDto.class), isNull())).thenReturn(1);
+      when(racingDao.partialUpdate(eq(2), any(StudentPatchDto.class), isNull()))
+         .thenThrow(new EmailAlreadyExistsException("The email taken@gmail.com is already registered"));
+
+      var service = new StudentBatchServiceImpl(racingDao, new StudentCache(false, 1, Duration.ofSeconds(1)), new StudentEmailIndex(racingDao, 1000, 0.01, Duration.ZERO), new StudentNameIndex(racingDao, false), new StudentColumns(racingDao, false), new StudentReadCoalescer(true), validator, transactionTemplate, 3);
+      var results = service.patchStudents(List.of(
+         new StudentBatchPatchDto(1, null, new StudentPatchDto(null, "free@gmail.com")),
+         new StudentBatchPatchDto(2, null, new StudentPatchDto(null, "taken@gmail.com"))));
+
+      assertAll(
+         () -> assertTrue(results.get(0).success()),
+         () -> assertFalse(results.get(1).success()),
+         () -> assertEquals("The email taken@gmail.com is already registered", results.get(1).error())
+      );
+   }
+
+   @Test
+   void singleRowFallbackForgetsReadsThatStartedDuringTheUpdate() throws Exception {
+      StudentDao racingDao = mock(StudentDao.class);
+      StudentReadCoalescer readCoalescer = new StudentReadCoalescer(true);
+      CountDownLatch reading = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      StudentResponseDto before = new StudentResponseDto(1, "Before", "before@gmail.com");
+      StudentResponseDto after = new StudentResponseDto(1, "After", "before@gmail.com");
+      when(racingDao.findEmailOwners(anyCollection())).thenReturn(Map.of());
+      when(racingDao.partialUpdateAll(anyList())).thenThrow(new DatabaseOperationException("deadlock"));
+      // a read of the row joins the coalescer while the single-row update is running, before it commits
+      when(racingDao.partialUpdate(eq(1), any(StudentPatchDto.class), isNull())).thenAnswer(invocation -> {
+         CompletableFuture.runAsync(() -> readCoalescer.getById(1, () -> {
+            reading.countDown();
+            try {
+               release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+            return Optional.of(before);
+         }));
+         assertTrue(reading.await(5, TimeUnit.SECONDS));
+         return 1;
+      });
+
+      var service = new StudentBatchServiceImpl(racingDao, new StudentCache(false, 1, Duration.ofSeconds(1)), new StudentEmailIndex(racingDao, 1000, 0.01, Duration.ZERO), new StudentNameIndex(racingDao, false), new StudentColumns(racingDao, false), readCoalescer, validator, transactionTemplate, 3);
+      service.patchStudents(List.of(new StudentBatchPatchDto(1, null, new StudentPatchDto("After", null))));
+
+      try {
+         assertEquals(Optional.of(after), readCoalescer.getById(1, () -> Optional.of(after)));
+      } finally {
+         release.countDown();
+      }
+   }
+}
@@ -0,0 +1,90 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCacheTest {
+
+   private final StudentCache cache = new StudentCache(true, 100, Duration.ofMinutes(1));
+
+   @Test
+   void missingStudentsAreNotCached() {
+      AtomicInteger loads = new AtomicInteger();
+
+      assertNull(cache.get(1, id -> {
+         loads.incrementAndGet();
+         return null;
+      }));
+      assertNull(cache.get(1, id -> {
+         loads.incrementAndGet();
+         return null;
+      }));
+
+      assertEquals(2, loads.get());
+   }
+
+   @Test
+   void disabledCacheAlwaysLoads() {
+      StudentCache disabled = new StudentCache(false, 100, Duration.ofMinutes(1));
+      AtomicInteger loads = new AtomicInteger();
+
+      disabled.get(1, id -> new StudentResponseDto(id, "Maximo", "maximo@gmail.com" + loads.incrementAndGet()));
+      disabled.get(1, id -> new StudentResponseDto(id, "Maximo", "maximo@gmail.com" + loads.incrementAndGet()));
+
+      assertEquals(2, loads.get());
+      assertFalse(disabled.stats().enabled());
+   }
+
+   @Test
+   void invalidationDuringLoadDropsTheStaleResult() throws Exception {
+      CountDownLatch loading = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+
+      CompletableFuture<StudentResponseDto> staleRead = CompletableFuture.supplyAsync(() -> cache.get(1, id -> {
+         loading.countDown();
+         await(release);
+         return new StudentResponseDto(id, "Maximo", "old@gmail.com");
+      }));
+
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      // the writer's invalidation blocks until the in-flight load finishes, then removes its result
+      CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> cache.invalidate(1));
+      release.countDown();
+
+      writer.get(5, TimeUnit.SECONDS);
+      assertEquals("old@gmail.com", staleRead.get(5, TimeUnit.SECONDS).email());
+
+      var fresh = cache.get(1, id -> new StudentResponseDto(id, "Maximo", "new@gmail.com"));
+      assertEquals("new@gmail.com", fresh.email());
+   }
+
+   @Test
+   void statsCountHitsAndMisses() {
+      cache.get(1, id -> new StudentResponseDto(id, "Maximo", "maximo@gmail.com"));
+      cache.get(1, id -> new StudentResponseDto(id, "Maximo", "maximo@gmail.com"));
+
+      var stats = cache.stats();
+
+      assertAll(
+         () -> assertEquals(1, stats.hitCount()),
+         () -> assertEquals(1, stats.missCount()),
+         () -> assertEquals(1, stats.size())
+      );
+   }
+
+   private static void await(CountDownLatch latch) {
+      try {
+         latch.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
@@ -0,0 +1,193 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+import com.dlvi.studentmanagement.exception.ChangesExpiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentChangeFeedTest {
+
+   private final InMemoryChanges changes = new InMemoryChanges();
+   private StudentChangeFeed feed;
+
+   private StudentChangeFeed feed(int bufferSize) {
+      feed = new StudentChangeFeed(changes, bufferSize, 10, Duration.ofMillis(5));
+      return feed;
+   }
+
+   @AfterEach
+   void close() throws InterruptedException {
+      feed.close();
+   }
+
+   private static void await(BooleanSupplier condition) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (!condition.getAsBoolean() && System.nanoTime() < deadline)
+         Thread.sleep(5);
+      assertTrue(condition.getAsBoolean());
+   }
+
+   @Test
+   void subscriberCatchesUpFromItsSequenceAndThenReceivesNewChanges() throws InterruptedException {
+      changes.append(3);
+      Recorder recorder = new Recorder();
+
+      feed(100).subscribe(1L, recorder);
+      await(() -> recorder.seqs().size() == 2);
+      changes.append(2);
+
+      await(() -> recorder.seqs().size() == 4);
+      assertEquals(List.of(2L, 3L, 4L, 5L), recorder.seqs());
+   }
+
+   @Test
+   void subscriberWithoutSequenceOnlyReceivesNewChanges() throws InterruptedException {
+      changes.append(3);
+      Recorder recorder = new Recorder();
+
+      StudentChangeFeed.Subscription subscription = feed(100).subscribe(null, recorder);
+      changes.append(1);
+
+      await(() -> recorder.seqs().size() == 1);
+      assertEquals(List.of(4L), recorder.seqs());
+      assertEquals(4, subscription.position());
+   }
+
+   @Test
+   void everySubscriberReceivesEveryChange() throws InterruptedException {
+      Recorder first = new Recorder();
+      Recorder second = new Recorder();
+      feed(100).subscribe(null, first);
+      feed.subscribe(null, second);
+
+      changes.append(50);
+
+      await(() -> first.seqs().size() == 50 && second.seqs().size() == 50);
+      assertEquals(first.seqs(), second.seqs());
+   }
+
+   @Test
+   void slowSubscriberIsClosedOnceItsBufferOverflows() throws InterruptedException {
+      CountDownLatch release = new CountDownLatch(1);
+      Recorder slow = new Recorder() {
+         @Override
+         public void onChange(StudentChangeDto change) {
+            super.onChange(change);
+            try {
+               release.await();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+      Recorder fast = new Recorder();
+      feed(4).subscribe(null, slow);
+      feed.subscribe(null, fast);
+
+      changes.append(1);
+      await(() -> slow.seqs().size() == 1);
+      // one at a time, so only the stuck subscriber falls behind
+      for (int i = 0; i < 10; i++) {
+         changes.append(1);
+         Thread.sleep(20);
+      }
+
+      await(() -> slow.closed.isDone());
+      release.countDown();
+      assertEquals(StudentChangeFeed.CloseReason.OVERFLOW, slow.closed.join());
+      await(() -> fast.seqs().size() == 11);
+      assertEquals(1, feed.subscribers());
+   }
+
+   @Test
+   void subscriberBehindRetentionIsClosedAsExpired() throws InterruptedException {
+      changes.purgedThrough = 5;
+      Recorder recorder = new Recorder();
+
+      feed(100).subscribe(1L, recorder);
+
+      await(() -> recorder.closed.isDone());
+      assertEquals(StudentChangeFeed.CloseReason.EXPIRED, recorder.closed.join());
+      assertTrue(recorder.seqs().isEmpty());
+   }
+
+   @Test
+   void cancelledSubscriberReceivesNothingMore() throws InterruptedException {
+      Recorder recorder = new Recorder();
+      StudentChangeFeed.Subscription subscription = feed(100).subscribe(null, recorder);
+
+      subscription.cancel();
+      changes.append(3);
+      Thread.sleep(50);
+
+      assertTrue(recorder.seqs().isEmpty());
+      assertEquals(0, feed.subscribers());
+   }
+
+   private static class Recorder implements StudentChangeFeed.Listener {
+      private final List<Long> seqs = new CopyOnWriteArrayList<>();
+      final CompletableFuture<StudentChangeFeed.CloseReason> closed = new CompletableFuture<>();
+
+      List<Long> seqs() {
+         return seqs;
+      }
+
+      @Override
+      public void onChange(StudentChangeDto change) {
+         seqs.add(change.seq());
+      }
+
+      @Override
+      public void onClose(StudentChangeFeed.CloseReason reason) {
+         closed.complete(reason);
+      }
+   }
+
+   private static class InMemoryChanges implements StudentChangeService {
+      private final List<StudentChangeDto> log = new CopyOnWriteArrayList<>();
+      private volatile long purgedThrough;
+
+      synchronized void append(int count) {
+         for (int i = 0; i < count; i++) {
+            long seq = log.size() + 1;
+            log.add(new StudentChangeDto(seq, StudentChangeDto.Type.DELETED, (int) seq, null, null, LocalDateTime.now()));
+         }
+      }
+
+      @Override
+      public StudentChangePageDto changes(long since, int limit) {
+         if (since < purgedThrough)
+            throw new ChangesExpiredException("expired");
+
+         List<StudentChangeDto> page = log.stream().filter(change -> change.seq() > since).limit(limit + 1).toList();
+         boolean more = page.size() > limit;
+         page = more ? page.subList(0, limit) : page;
+         return new StudentChangePageDto(page, page.isEmpty() ? since : page.get(page.size() - 1).seq(), more);
+      }
+
+      @Override
+      public long latestSequence() {
+         return Math.max(log.size(), purgedThrough);
+      }
+
+      @Override
+      public void publish() {
+      }
+
+      @Override
+      public void maintain() {
+      }
+   }
+}
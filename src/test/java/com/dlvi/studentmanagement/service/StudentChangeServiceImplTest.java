@@ -0,0 +1,92 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentChangeDao;
+import com.dlvi.studentmanagement.dto.StudentChangeDto;
+import com.dlvi.studentmanagement.dto.StudentChangePageDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.ChangesExpiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StudentChangeServiceImplTest {
+
+   private final StudentChangeDao changeDao = mock(StudentChangeDao.class);
+   private final StudentChangeServiceImpl changeService =
+      new StudentChangeServiceImpl(changeDao, Duration.ZERO, Duration.ofDays(7), Duration.ZERO, Duration.ZERO);
+
+   private static StudentChangeDto created(long seq) {
+      return new StudentChangeDto(seq, StudentChangeDto.Type.CREATED, (int) seq, 0,
+         new StudentResponseDto((int) seq, "Student " + seq, seq + "@gmail.com", 0), LocalDateTime.now());
+   }
+
+   @AfterEach
+   void close() {
+      changeService.close();
+   }
+
+   @Test
+   void pageReadsOneExtraChangeToTellWhetherMoreFollow() {
+      when(changeDao.changesSince(10, 3)).thenReturn(List.of(created(11), created(12), created(13)));
+
+      StudentChangePageDto page = changeService.changes(10, 2);
+
+      assertEquals(List.of(11L, 12L), page.changes().stream().map(StudentChangeDto::seq).toList());
+      assertEquals(12, page.next());
+      assertTrue(page.more());
+   }
+
+   @Test
+   void emptyPageKeepsTheGivenSince() {
+      when(changeDao.changesSince(10, 101)).thenReturn(List.of());
+
+      StudentChangePageDto page = changeService.changes(10, 100);
+
+      assertEquals(10, page.next());
+      assertFalse(page.more());
+   }
+
+   @Test
+   void readerBehindTheRetentionHorizonMustResync() {
+      when(changeDao.changesSince(anyLong(), eq(101))).thenReturn(List.of(created(40)));
+      when(changeDao.purgedThrough()).thenReturn(39L);
+
+      assertThrows(ChangesExpiredException.class, () -> changeService.changes(10, 100));
+      assertEquals(1, changeService.changes(39, 100).changes().size());
+   }
+
+   @Test
+   void latestSequenceNeverFallsBehindTheHorizon() {
+      when(changeDao.latestSequence()).thenReturn(0L);
+      when(changeDao.purgedThrough()).thenReturn(39L);
+
+      assertEquals(39, changeService.latestSequence());
+   }
+
+   @Test
+   void publishingGoesOnWhileChunksComeBackFull() {
+      when(changeDao.publish(anyInt())).thenReturn(1000, 1000, 3);
+
+      changeService.publish();
+
+      verify(changeDao, times(3)).publish(1000);
+   }
+
+   @Test
+   void maintenanceSkipsWhatIsTurnedOff() {
+      changeService.maintain();
+
+      verify(changeDao, never()).compact(any());
+      verify(changeDao).purge(Duration.ofDays(7));
+   }
+}
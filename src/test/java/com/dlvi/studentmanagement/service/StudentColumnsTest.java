@@ -0,0 +1,133 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class StudentColumnsTest {
+
+   private final StudentDao studentDao = mock(StudentDao.class);
+
+   private static Student student(int id, String email, String sex) {
+      return new Student(id, "Student " + id, email, LocalDate.of(2000, 1, id % 28 + 1), sex);
+   }
+
+   @SuppressWarnings("unchecked")
+   private StudentColumns builtColumns(Student... students) {
+      doAnswer(invocation -> {
+         Consumer<Student> action = invocation.getArgument(0);
+         for (Student student : students)
+            action.accept(student);
+         return null;
+      }).when(studentDao).streamAll(any(Consumer.class));
+
+      StudentColumns columns = new StudentColumns(studentDao, true);
+      columns.build();
+      return columns;
+   }
+
+   private static int[] ids(StudentColumns columns) {
+      return columns.read(snapshot -> Arrays.stream(snapshot.ids, 0, snapshot.size)
+         .filter(id -> snapshot.sexes[Arrays.binarySearch(snapshot.ids, 0, snapshot.size, id)] != StudentColumns.DELETED)
+         .toArray());
+   }
+
+   @Test
+   void buildEncodesEveryColumnWithSharedDictionaries() {
+      StudentColumns columns = builtColumns(
+         student(1, "a@gmail.com", "Man"),
+         student(2, "b@Gmail.com", "Woman"),
+         student(3, "c@unal.edu.co", null));
+
+      columns.read(snapshot -> {
+         assertArrayEquals(new int[]{1, 2, 3}, Arrays.copyOf(snapshot.ids, snapshot.size));
+         assertEquals(LocalDate.of(2000, 1, 2).toEpochDay(), snapshot.birthDays[0]);
+         assertEquals("Man", snapshot.sexValues.get(snapshot.sexes[0]));
+         assertEquals(StudentColumns.UNKNOWN, snapshot.sexes[2]);
+         // one dictionary entry per distinct domain, whatever the case of the email
+         assertEquals(snapshot.domains[0], snapshot.domains[1]);
+         assertEquals("unal.edu.co", snapshot.domainValues.get(snapshot.domains[2]));
+         return null;
+      });
+
+      var stats = columns.stats();
+      assertAll(
+         () -> assertTrue(stats.ready()),
+         () -> assertEquals(3, stats.rows()),
+         () -> assertEquals(2, stats.distinctSexes()),
+         () -> assertEquals(2, stats.distinctEmailDomains())
+      );
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   void writesMadeWhileBuildingAreNotLost() {
+      StudentColumns columns = new StudentColumns(studentDao, true);
+      doAnswer(invocation -> {
+         Consumer<Student> action = invocation.getArgument(0);
+         action.accept(student(1, "a@gmail.com", "Man"));
+         // committed after the scan read its rows
+         columns.add(2, student(2, "b@gmail.com", "Man"));
+         columns.remove(1);
+         return null;
+      }).when(studentDao).streamAll(any(Consumer.class));
+
+      columns.build();
+
+      assertArrayEquals(new int[]{2}, ids(columns));
+   }
+
+   @Test
+   void writesKeepIdOrderAndRevivedRowsCountAgain() {
+      StudentColumns columns = builtColumns(student(1, "a@gmail.com", "Man"), student(5, "e@gmail.com", "Man"));
+
+      columns.add(3, student(3, "c@gmail.com", "Woman"));
+      columns.remove(5);
+      columns.remove(5);
+      columns.add(5, student(5, "e@gmail.com", "Woman"));
+      columns.updateEmail(3, "c@unal.edu.co");
+
+      assertArrayEquals(new int[]{1, 3, 5}, ids(columns));
+      assertEquals(3, columns.stats().rows());
+      assertEquals("unal.edu.co", columns.read(snapshot -> snapshot.domainValues.get(snapshot.domains[1])));
+   }
+
+   @Test
+   void deletedRowsAreCompactedInBulk() {
+      StudentColumns columns = builtColumns();
+      for (int id = 1; id <= 8000; id++)
+         columns.add(id, student(id, id + "@gmail.com", "Man"));
+
+      // a quarter of the rows may be marked deleted before they are dropped
+      for (int id = 1; id <= 2000; id++)
+         columns.remove(id);
+      assertEquals(2000, columns.stats().deletedRows());
+
+      columns.remove(2001);
+      var stats = columns.stats();
+      assertAll(
+         () -> assertEquals(0, stats.deletedRows()),
+         () -> assertEquals(5999, stats.rows()),
+         () -> assertEquals(2002, ids(columns)[0])
+      );
+   }
+
+   @Test
+   void disabledColumnsStayEmpty() {
+      StudentColumns columns = new StudentColumns(studentDao, false);
+      columns.build();
+      columns.add(1, student(1, "a@gmail.com", "Man"));
+
+      assertFalse(columns.isReady());
+      assertEquals(0, columns.stats().rows());
+   }
+}
@@ -0,0 +1,102 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.exception.DatabaseOperationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class StudentLookupBatcherTest {
+
+   private final StudentDao studentDao = mock(StudentDao.class);
+   private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+   private StudentLookupBatcher batcher;
+
+   private static StudentResponseDto student(int id) {
+      return new StudentResponseDto(id, "Student " + id, id + "@gmail.com", 0);
+   }
+
+   @AfterEach
+   void close() throws InterruptedException {
+      if (batcher != null)
+         batcher.close();
+   }
+
+   @Test
+   void disabledBatcherReadsEveryLookupOnItsOwn() {
+      batcher = new StudentLookupBatcher(studentDao, false, 100, 1, 10);
+
+      assertEquals(Optional.of(student(1)), batcher.get(1, () -> Optional.of(student(1))));
+      verifyNoInteractions(studentDao);
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   void lookupsQueuedWhileAQueryRunsShareTheNextOne() throws Exception {
+      CountDownLatch firstQueryStarted = new CountDownLatch(1);
+      CountDownLatch releaseFirstQuery = new CountDownLatch(1);
+      List<List<Integer>> queries = new ArrayList<>();
+      when(studentDao.getResponsesByIds(anyCollection())).thenAnswer(invocation -> {
+         List<Integer> ids = List.copyOf((Collection<Integer>) invocation.getArgument(0));
+         synchronized (queries) {
+            queries.add(ids);
+         }
+         if (ids.contains(1)) {
+            firstQueryStarted.countDown();
+            releaseFirstQuery.await();
+         }
+         // id 4 does not exist
+         return ids.stream().filter(id -> id != 4).map(StudentLookupBatcherTest::student).toList();
+      });
+      batcher = new StudentLookupBatcher(studentDao, true, 100, 1, 10);
+      batcher.bindTo(registry);
+      ExecutorService callers = Executors.newFixedThreadPool(4);
+
+      try {
+         Future<Optional<StudentResponseDto>> first = callers.submit(() -> batcher.get(1, Optional::empty));
+         firstQueryStarted.await();
+         List<Future<Optional<StudentResponseDto>>> queued = new ArrayList<>();
+         for (int id = 2; id <= 4; id++) {
+            int lookup = id;
+            queued.add(callers.submit(() -> batcher.get(lookup, Optional::empty)));
+         }
+         while (registry.get("student.lookup.queue.size").gauge().value() < queued.size())
+            Thread.sleep(5);
+         releaseFirstQuery.countDown();
+
+         assertEquals(Optional.of(student(1)), first.get());
+         assertEquals(Optional.of(student(2)), queued.get(0).get());
+         assertEquals(Optional.of(student(3)), queued.get(1).get());
+         assertEquals(Optional.empty(), queued.get(2).get());
+         assertEquals(2, queries.size());
+         assertEquals(Set.of(2, 3, 4), Set.copyOf(queries.get(1)));
+         assertEquals(4, registry.get("student.lookup.batch.size").summary().totalAmount());
+      } finally {
+         callers.shutdownNow();
+      }
+   }
+
+   @Test
+   void failedQueryFailsEveryLookupOfTheBatch() {
+      when(studentDao.getResponsesByIds(any())).thenThrow(new DatabaseOperationException("down"));
+      batcher = new StudentLookupBatcher(studentDao, true, 100, 1, 10);
+
+      assertThrows(DatabaseOperationException.class, () -> batcher.get(1, Optional::empty));
+   }
+}
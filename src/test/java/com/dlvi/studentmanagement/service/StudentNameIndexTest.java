@@ -0,0 +1,59 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class StudentNameIndexTest {
+
+   private final StudentDao studentDao = mock(StudentDao.class);
+
+   @SuppressWarnings("unchecked")
+   private StudentNameIndex builtIndex(String... names) {
+      doAnswer(invocation -> {
+         Consumer<Student> action = invocation.getArgument(0);
+         for (int i = 0; i < names.length; i++)
+            action.accept(new Student(i + 1, names[i], "student" + i + "@gmail.com", LocalDate.now(), "Man"));
+         return null;
+      }).when(studentDao).streamAll(any(Consumer.class));
+
+      StudentNameIndex index = new StudentNameIndex(studentDao, true);
+      index.build();
+      return index;
+   }
+
+   @Test
+   void candidatesContainEveryNameWithAllTrigramsOfTheTerm() {
+      StudentNameIndex index = builtIndex("Maximo", "Kaka", "Maxwell", "Ronaldo");
+
+      assertArrayEquals(new int[]{1, 3}, index.candidates("MAX"));
+      assertArrayEquals(new int[]{1}, index.candidates("ximo"));
+      assertArrayEquals(new int[0], index.candidates("zzz"));
+   }
+
+   @Test
+   void shortTermsAndUnbuiltOrDisabledIndexesFallBackToTheScan() {
+      assertNull(builtIndex("Maximo").candidates("ma"));
+      assertNull(new StudentNameIndex(studentDao, true).candidates("max"));
+      assertNull(new StudentNameIndex(studentDao, false).candidates("max"));
+   }
+
+   @Test
+   void writesAfterTheBuildAreIndexedInIdOrder() {
+      StudentNameIndex index = builtIndex("Maximo");
+
+      index.add(9, "Maxi");
+      index.add(5, "Maxence");
+      index.add(5, "Maxence");
+
+      assertArrayEquals(new int[]{1, 5, 9}, index.candidates("max"));
+   }
+}
@@ -0,0 +1,203 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dao.StudentDaoImpl;
+import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.exception.RegistrationQueueFullException;
+import com.dlvi.studentmanagement.model.Student;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// like the batch service test: real commits against the embedded database, without the test-managed transaction
+@JdbcTest
+@Import({StudentDaoImpl.class, StudentRegistrationBatcher.class})
+@TestPropertySource(properties = {
+   "student.registration.group-commit.enabled=true",
+   "student.registration.group-commit.batch-size=10",
+   "student.registration.group-commit.max-linger=300ms"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StudentRegistrationBatcherTest {
+
+   @Autowired
+   private StudentRegistrationBatcher batcher;
+
+   @Autowired
+   private StudentDao studentDao;
+
+   @Autowired
+   private JdbcTemplate jdbcTemplate;
+
+   @Autowired
+   private TransactionTemplate transactionTemplate;
+
+   private SimpleMeterRegistry registry;
+
+   @BeforeEach
+   void cleanTable() {
+      jdbcTemplate.update("delete from student");
+      registry = new SimpleMeterRegistry();
+      batcher.bindTo(registry);
+   }
+
+   private static Student student(int i) {
+      return new Student(0, "Student " + i, "student" + i + "@gmail.com", LocalDate.of(2000, 1, 1), "Man");
+   }
+
+   private int rows() {
+      return jdbcTemplate.queryForObject("select count(*) from student", Integer.class);
+   }
+
+   private List<Future<Integer>> registerConcurrently(ExecutorService pool, int count) {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+         Student student = student(i);
+         results.add(pool.submit(() -> {
+            start.await();
+            return batcher.save(student);
+         }));
+      }
+      start.countDown();
+      return results;
+   }
+
+   @Test
+   void concurrentRegistrationsShareOneCommit() throws Exception {
+      ExecutorService pool = Executors.newFixedThreadPool(10);
+      try {
+         List<Future<Integer>> results = registerConcurrently(pool, 10);
+
+         var ids = new HashSet<Integer>();
+         for (Future<Integer> result : results)
+            ids.add(result.get());
+
+         assertEquals(10, ids.size());
+         assertEquals(10, rows());
+         assertEquals(1, registry.get("student.registration.commits").counter().count());
+         assertEquals(10, registry.get("student.registration.batch.size").summary().max());
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   @Test
+   void duplicateEmailFailsOnlyItsOwnRegistration() throws Exception {
+      studentDao.save(student(0));
+
+      ExecutorService pool = Executors.newFixedThreadPool(5);
+      try {
+         List<Future<Integer>> results = registerConcurrently(pool, 5);
+
+         ExecutionException duplicate = assertThrows(ExecutionException.class, () -> results.get(0).get());
+         assertInstanceOf(EmailAlreadyExistsException.class, duplicate.getCause());
+         for (Future<Integer> result : results.subList(1, 5))
+            assertNotNull(result.get());
+         assertEquals(5, rows());
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   @Test
+   void registrationIsRejectedWhenTheQueueStaysFull() throws Exception {
+      CountDownLatch writing = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      StudentDao slowDao = mock(StudentDao.class);
+      when(slowDao.saveAll(anyList())).thenAnswer(invocation -> {
+         writing.countDown();
+         release.await();
+         return List.of(1);
+      });
+
+      StudentRegistrationBatcher bounded = new StudentRegistrationBatcher(
+         slowDao, transactionTemplate, true, 1, Duration.ZERO, 1, Duration.ofMillis(50));
+      SimpleMeterRegistry boundedRegistry = new SimpleMeterRegistry();
+      bounded.bindTo(boundedRegistry);
+      try {
+         // the writer is stuck on the first registration and the second one fills the queue
+         CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> bounded.save(student(1)));
+         writing.await();
+         CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> bounded.save(student(2)));
+         while (boundedRegistry.get("student.registration.queue.size").gauge().value() < 1)
+            Thread.onSpinWait();
+
+         assertThrows(RegistrationQueueFullException.class, () -> bounded.save(student(3)));
+
+         release.countDown();
+         assertEquals(1, first.get());
+         assertEquals(1, second.get());
+      } finally {
+         release.countDown();
+         bounded.close();
+      }
+   }
+
+   @Test
+   void registrationsLeftQueuedAtShutdownAreRejected() throws Exception {
+      CountDownLatch writing = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      StudentDao stuckDao = mock(StudentDao.class);
+      when(stuckDao.saveAll(anyList())).thenAnswer(invocation -> {
+         writing.countDown();
+         // a statement that does not give up when the writer is interrupted
+         while (release.getCount() > 0) {
+            try {
+               release.await();
+            } catch (InterruptedException ignored) {
+            }
+         }
+         return List.of(1);
+      });
+
+      StudentRegistrationBatcher stuck = new StudentRegistrationBatcher(
+         stuckDao, transactionTemplate, true, 1, Duration.ZERO, 10, Duration.ofMillis(50));
+      try {
+         CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> stuck.save(student(1)));
+         writing.await();
+         CompletableFuture<Integer> queued = CompletableFuture.supplyAsync(() -> stuck.save(student(2)));
+         SimpleMeterRegistry stuckRegistry = new SimpleMeterRegistry();
+         stuck.bindTo(stuckRegistry);
+         while (stuckRegistry.get("student.registration.queue.size").gauge().value() < 1)
+            Thread.onSpinWait();
+
+         stuck.close(Duration.ofMillis(100));
+
+         ExecutionException rejected = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+         assertInstanceOf(RegistrationQueueFullException.class, rejected.getCause());
+         assertThrows(RegistrationQueueFullException.class, () -> stuck.save(student(3)));
+
+         release.countDown();
+         assertEquals(1, first.get(5, TimeUnit.SECONDS));
+      } finally {
+         release.countDown();
+      }
+   }
+}
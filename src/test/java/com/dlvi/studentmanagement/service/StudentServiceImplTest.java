@@ -1,25 +1,37 @@
 package com.dlvi.studentmanagement.service;
 
 import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentField;
+import com.dlvi.studentmanagement.dto.StudentLookupDto;
 import com.dlvi.studentmanagement.dto.StudentPatchDto;
 import com.dlvi.studentmanagement.dto.StudentRequestDto;
+import com.dlvi.studentmanagement.dto.StudentResponseDto;
+import com.dlvi.studentmanagement.dto.StudentSearchCriteria;
 import com.dlvi.studentmanagement.exception.DatabaseOperationException;
 import com.dlvi.studentmanagement.exception.EmailAlreadyExistsException;
+import com.dlvi.studentmanagement.exception.PreconditionFailedException;
 import com.dlvi.studentmanagement.exception.ResourceNotFoundException;
 import com.dlvi.studentmanagement.model.Student;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +40,32 @@ class StudentServiceImplTest {
    @Mock
    private StudentDao studentDao;
 
+   @Spy
+   private StudentCache studentCache = new StudentCache(true, 100, Duration.ofMinutes(1));
+
+   // not built yet, so every email is a possible positive and falls through to the DAO
+   @Spy
+   private StudentEmailIndex emailIndex = new StudentEmailIndex(mock(StudentDao.class), 1000, 0.01, Duration.ZERO);
+
+   // disabled, so name searches are left to the database unless a test stubs candidates
+   @Spy
+   private StudentNameIndex nameIndex = new StudentNameIndex(mock(StudentDao.class), false);
+
+   // disabled, so writes are not applied to any snapshot unless a test enables one
+   @Spy
+   private StudentColumns columns = new StudentColumns(mock(StudentDao.class), false);
+
+   // group commit disabled unless a test enables it, so registrations go straight to the DAO
+   @Mock
+   private StudentRegistrationBatcher registrationBatcher;
+
+   @Spy
+   private StudentReadCoalescer readCoalescer = new StudentReadCoalescer(true);
+
+   // disabled, so single lookups go straight to the DAO
+   @Spy
+   private StudentLookupBatcher lookupBatcher = new StudentLookupBatcher(mock(StudentDao.class), false, 100, 1, 10);
+
    @InjectMocks
    private StudentServiceImpl studentService;
 
@@ -39,12 +77,7 @@ class StudentServiceImplTest {
          LocalDate.now(),
          "Man");
 
-      Student student = new Student(req);
-      student.setId(1);
-
-      when(studentDao.emailExists(req.email())).thenReturn(false);
       when(studentDao.save(any(Student.class))).thenReturn(1);
-      when(studentDao.getById(1)).thenReturn(Optional.of(student));
 
       var res = studentService.registerStudent(req);
 
@@ -53,61 +86,104 @@ class StudentServiceImplTest {
          () -> assertEquals("Maximo", res.name()),
          () -> assertEquals("maximo@gmail.com", res.email())
       );
+      // one round trip: no pre-check and no re-read
+      verify(studentDao, never()).emailExists(any());
+      verify(studentDao, never()).getResponseById(any());
    }
 
    @Test
-   void registerStudentEmailAlreadyExists() {
+   void registerStudentThroughGroupCommit() {
       StudentRequestDto req = new StudentRequestDto(
          "Maximo",
          "maximo@gmail.com",
          LocalDate.now(),
          "Man");
 
-      when(studentDao.emailExists(req.email())).thenReturn(true);
+      when(registrationBatcher.enabled()).thenReturn(true);
+      when(registrationBatcher.save(any(Student.class))).thenReturn(7);
 
-      assertThrows(EmailAlreadyExistsException.class,
-         () -> studentService.registerStudent(req));
+      var res = studentService.registerStudent(req);
 
+      assertEquals(7, res.id());
       verify(studentDao, never()).save(any());
-      verify(studentDao, never()).getById(any());
    }
 
    @Test
-   void registerStudentFailed() {
+   void registerStudentEmailAlreadyExists() {
       StudentRequestDto req = new StudentRequestDto(
-         "maximo",
+         "Maximo",
          "maximo@gmail.com",
          LocalDate.now(),
          "Man");
 
-      when(studentDao.emailExists(req.email())).thenReturn(false);
-      when(studentDao.save(any(Student.class))).thenThrow(new DatabaseOperationException("The record could not be inserted into the database"));
-      verify(studentDao, never()).getById(anyInt());
+      when(studentDao.save(any(Student.class)))
+         .thenThrow(new EmailAlreadyExistsException("The email maximo@gmail.com is already registered"));
 
-      assertThrows(DatabaseOperationException.class,
+      assertThrows(EmailAlreadyExistsException.class,
          () -> studentService.registerStudent(req));
+
+      verify(studentDao, never()).getResponseById(any());
    }
 
    @Test
-   void studentNotFoundAfterSave() {
+   void registerStudentFeedsEmailIndexAndCache() {
       StudentRequestDto req = new StudentRequestDto(
          "Maximo",
          "maximo@gmail.com",
          LocalDate.now(),
          "Man");
 
-      when(studentDao.emailExists(req.email())).thenReturn(false);
+      emailIndex.build();
       when(studentDao.save(any(Student.class))).thenReturn(1);
-      when(studentDao.getById(1)).thenReturn(Optional.empty());
 
-      assertThrows(ResourceNotFoundException.class,
+      studentService.registerStudent(req);
+
+      assertTrue(emailIndex.mightContain("MAXIMO@gmail.com"));
+      assertEquals("Maximo", studentService.getStudent(1).name());
+      verify(studentDao, never()).getResponseById(any());
+   }
+
+   @Test
+   void rebuildingTheEmailIndexShedsEmailsNoLongerRegisteredAndKeepsThoseWrittenMeanwhile() {
+      StudentDao dao = mock(StudentDao.class);
+      StudentEmailIndex index = new StudentEmailIndex(dao, 1000, 0.01, Duration.ZERO);
+      index.build();
+      index.add("deleted@gmail.com");
+
+      doAnswer(invocation -> {
+         Consumer<String> emails = invocation.getArgument(0);
+         emails.accept("stored@gmail.com");
+         // registered while the rebuild reads the table, after its read has gone past the row
+         index.add("registered@gmail.com");
+         return null;
+      }).when(dao).streamEmails(any());
+      index.rebuild();
+
+      assertFalse(index.mightContain("deleted@gmail.com"));
+      assertTrue(index.mightContain("stored@gmail.com"));
+      assertTrue(index.mightContain("registered@gmail.com"));
+   }
+
+   @Test
+   void registerStudentFailed() {
+      StudentRequestDto req = new StudentRequestDto(
+         "maximo",
+         "maximo@gmail.com",
+         LocalDate.now(),
+         "Man");
+
+      when(studentDao.save(any(Student.class))).thenThrow(new DatabaseOperationException("The record could not be inserted into the database"));
+
+      assertThrows(DatabaseOperationException.class,
          () -> studentService.registerStudent(req));
+      verify(studentDao, never()).getResponseById(anyInt());
    }
 
    @Test
    void deleteStudent() {
       when(studentDao.deleteById(anyInt())).thenReturn(1);
       assertDoesNotThrow(() -> studentService.deleteStudent(4));
+      verify(readCoalescer).forget(4);
    }
 
    @Test
@@ -117,17 +193,61 @@ class StudentServiceImplTest {
          () -> studentService.deleteStudent(3));
    }
 
+   @Test
+   void deleteStudentWithStaleVersionIsRejected() {
+      when(studentDao.deleteById(3, 2)).thenReturn(0);
+      when(studentDao.getVersion(3)).thenReturn(Optional.of(4));
+
+      assertThrows(PreconditionFailedException.class,
+         () -> studentService.deleteStudent(3, 2));
+   }
+
+   @Test
+   void studentVersionIsServedFromCacheOnceLoaded() {
+      when(studentDao.getResponseById(1)).thenReturn(Optional.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 2)));
+
+      studentService.getStudent(1);
+
+      assertEquals(Optional.of(2), studentService.studentVersion(1));
+      verify(studentDao, never()).getVersion(anyInt());
+   }
+
+   @Test
+   void studentListTagMatchesPageAndFollowsRowVersions() {
+      var rows = List.of(
+         new StudentResponseDto(3, "Maximo", "maximo@gmail.com", 0),
+         new StudentResponseDto(7, "Kaka", "kaka@gmail.com", 1));
+      var versions = List.of(
+         new StudentResponseDto(3, null, null, 0),
+         new StudentResponseDto(7, null, null, 1));
+      when(studentDao.listResponsePage(null, 51, StudentField.ALL)).thenReturn(rows);
+      when(studentDao.listResponsePage(null, 51, Set.of(StudentField.ID))).thenReturn(versions);
+      when(studentDao.count()).thenReturn(2L);
+
+      String tag = studentService.studentListTag(null, 50, null);
+
+      assertEquals(tag, studentService.studentList(null, 50, null).etag());
+      assertNotEquals(tag, studentService.studentListTag(null, 50, Set.of(StudentField.NAME)));
+
+      when(studentDao.listResponsePage(null, 51, Set.of(StudentField.ID))).thenReturn(List.of(
+         new StudentResponseDto(3, null, null, 0),
+         new StudentResponseDto(7, null, null, 2)));
+      assertNotEquals(tag, studentService.studentListTag(null, 50, null));
+   }
+
    @Test
    void studentList() {
-      var studentList = List.of(new Student(
-         1, "Maximo", "maximo@gmail.com", LocalDate.now(), "Man"));
-      when(studentDao.listAll()).thenReturn(studentList);
+      var studentList = List.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com"));
+      when(studentDao.listResponsePage(null, 51, StudentField.ALL)).thenReturn(studentList);
+      when(studentDao.count()).thenReturn(1L);
 
-      var response = studentService.studentList();
+      var response = studentService.studentList(null, 50, null);
 
-      assertEquals(1, response.size());
+      assertEquals(1, response.data().size());
+      assertEquals(1, response.total());
+      assertNull(response.nextCursor());
 
-      var student = response.get(0);
+      var student = response.data().get(0);
 
       assertAll(
          () -> assertEquals(1, student.id()),
@@ -138,12 +258,119 @@ class StudentServiceImplTest {
 
    @Test
    void studentListFail() {
-      List<Student> studentList = new ArrayList<>();
+      List<StudentResponseDto> studentList = new ArrayList<>();
 
-      when(studentDao.listAll()).thenReturn(studentList);
+      when(studentDao.listResponsePage(null, 51, StudentField.ALL)).thenReturn(studentList);
 
-      var response = studentService.studentList();
-      assertTrue(response.isEmpty());
+      var response = studentService.studentList(null, 50, null);
+      assertTrue(response.data().isEmpty());
+   }
+
+   @Test
+   void studentListHasNextCursorWhenMoreRowsExist() {
+      var studentList = List.of(
+         new StudentResponseDto(3, "Maximo", "maximo@gmail.com"),
+         new StudentResponseDto(7, "Kaka", "kaka@gmail.com"));
+      when(studentDao.listResponsePage(2, 2, StudentField.ALL)).thenReturn(studentList);
+      when(studentDao.count()).thenReturn(9L);
+
+      var response = studentService.studentList(2, 1, null);
+
+      assertAll(
+         () -> assertEquals(1, response.data().size()),
+         () -> assertEquals(3, response.nextCursor()),
+         () -> assertEquals(9, response.total())
+      );
+   }
+
+   @Test
+   void studentListPushesProjectionDownAndKeepsCursorWithoutId() {
+      var fields = Set.of(StudentField.NAME);
+      var studentList = List.of(
+         new StudentResponseDto(3, "Maximo", null),
+         new StudentResponseDto(7, "Kaka", null));
+      when(studentDao.listResponsePage(null, 2, fields)).thenReturn(studentList);
+
+      var response = studentService.studentList(null, 1, fields);
+
+      assertAll(
+         () -> assertEquals(List.of(new StudentResponseDto(null, "Maximo", null)), response.data()),
+         () -> assertEquals(3, response.nextCursor())
+      );
+   }
+
+   @Test
+   void searchStudentsPushesFiltersDownWithoutCounting() {
+      var criteria = new StudentSearchCriteria("Max", null, "gmail.com", null, null, null);
+      when(studentDao.search(criteria, 2, 2, StudentField.ALL)).thenReturn(List.of(
+         new StudentResponseDto(3, "Maximo", "maximo@gmail.com", 0),
+         new StudentResponseDto(7, "Maxwell", "maxwell@gmail.com", 0)));
+
+      var response = studentService.searchStudents(criteria, 2, 1, null);
+
+      assertAll(
+         () -> assertEquals(List.of(3), response.data().stream().map(StudentResponseDto::id).toList()),
+         () -> assertEquals(3, response.nextCursor()),
+         () -> assertEquals(-1, response.total())
+      );
+      verify(studentDao, never()).count();
+   }
+
+   @Test
+   void searchStudentsOnlyChecksNameIndexCandidatesPastTheCursor() {
+      var criteria = new StudentSearchCriteria(null, "axi", null, null, null, null);
+      doReturn(new int[]{3, 7, 12}).when(nameIndex).candidates("axi");
+      when(studentDao.search(criteria, List.of(7, 12), 3, 2, StudentField.ALL))
+         .thenReturn(List.of(new StudentResponseDto(7, "Maxi", "maxi@gmail.com", 0)));
+
+      var response = studentService.searchStudents(criteria, 3, 1, null);
+
+      assertEquals(List.of(7), response.data().stream().map(StudentResponseDto::id).toList());
+      assertNull(response.nextCursor());
+      verify(studentDao, never()).search(eq(criteria), isNull(), any(), anyInt(), any());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   void exportStudentsMapsEveryStreamedRow() {
+      doAnswer(invocation -> {
+         Consumer<Student> action = invocation.getArgument(0);
+         action.accept(new Student(1, "Maximo", "maximo@gmail.com", LocalDate.now(), "Man"));
+         action.accept(new Student(2, "Kaka", "kaka@gmail.com", LocalDate.now(), "Man"));
+         return null;
+      }).when(studentDao).streamAll(any(Consumer.class));
+
+      List<StudentResponseDto> exported = new ArrayList<>();
+      studentService.exportStudents(exported::add);
+
+      assertEquals(List.of(
+         new StudentResponseDto(1, "Maximo", "maximo@gmail.com"),
+         new StudentResponseDto(2, "Kaka", "kaka@gmail.com")), exported);
+   }
+
+   @Test
+   void lookupStudentsKeepsTheRequestedOrderAndReportsMissingIds() {
+      studentCache.putAfterCommit(new StudentResponseDto(3, "Kaka", "kaka@gmail.com", 0));
+      when(studentDao.getResponsesByIds(List.of(4, 1, 2))).thenReturn(List.of(
+         new StudentResponseDto(4, "Ronaldo", "ronaldo@gmail.com", 0),
+         new StudentResponseDto(1, "Maximo", "maximo@gmail.com", 0)));
+
+      StudentLookupDto lookup = studentService.lookupStudents(List.of(4, 3, 1, 2, 4), Set.of(StudentField.NAME));
+
+      assertEquals(List.of("Ronaldo", "Kaka", "Maximo"), lookup.data().stream().map(StudentResponseDto::name).toList());
+      assertNull(lookup.data().get(0).email());
+      assertEquals(List.of(2), lookup.missing());
+      verify(studentDao, never()).getResponseById(any());
+   }
+
+   @Test
+   void lookupStudentsAnsweredFromTheCacheSkipsTheDatabase() {
+      studentCache.putAfterCommit(new StudentResponseDto(3, "Kaka", "kaka@gmail.com", 0));
+
+      StudentLookupDto lookup = studentService.lookupStudents(List.of(3), null);
+
+      assertEquals(1, lookup.data().size());
+      verify(studentDao, never()).getResponsesByIds(any());
    }
 
    @Test
@@ -154,10 +381,7 @@ class StudentServiceImplTest {
          LocalDate.now(),
          "Man");
 
-      Student student = new Student(req);
-      student.setId(1);
-
-      when(studentDao.getById(anyInt())).thenReturn(Optional.of(student));
+      when(studentDao.getResponseById(anyInt())).thenReturn(Optional.of(new StudentResponseDto(1, req.name(), req.email())));
 
       var response = studentService.getStudent(1);
 
@@ -168,9 +392,53 @@ class StudentServiceImplTest {
       );
    }
 
+   @Test
+   void getStudentIsServedFromCacheAfterFirstLoad() {
+      when(studentDao.getResponseById(1)).thenReturn(Optional.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com")));
+
+      studentService.getStudent(1);
+      var response = studentService.getStudent(1);
+
+      assertEquals("Maximo", response.name());
+      verify(studentDao, times(1)).getResponseById(1);
+      assertEquals(1, studentService.cacheStats().hitCount());
+   }
+
+   @Test
+   void patchStudentInvalidatesCachedEntry() {
+      StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
+      when(studentDao.getResponseById(1)).thenReturn(
+         Optional.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com")),
+         Optional.of(new StudentResponseDto(1, "kaka", "kaka@gmail.com")));
+      when(studentDao.partialUpdate(1, patch, null)).thenReturn(1);
+
+      studentService.getStudent(1);
+      studentService.patchStudent(1, patch, null);
+
+      assertEquals("kaka", studentService.getStudent(1).name());
+      verify(readCoalescer, times(2)).forget(1);
+   }
+
+   @Test
+   void readDuringAPatchDoesNotCacheThePreviousRow() {
+      StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
+      when(studentDao.getResponseById(1)).thenReturn(
+         Optional.of(new StudentResponseDto(1, "Maximo", "maximo@gmail.com")),
+         Optional.of(new StudentResponseDto(1, "kaka", "kaka@gmail.com")));
+      // a concurrent GET misses the cache and reads the row before the update commits
+      when(studentDao.partialUpdate(1, patch, null)).thenAnswer(invocation -> {
+         assertEquals("Maximo", CompletableFuture.supplyAsync(() -> studentService.getStudent(1)).join().name());
+         return 1;
+      });
+
+      studentService.patchStudent(1, patch, null);
+
+      assertEquals("kaka", studentService.getStudent(1).name());
+   }
+
    @Test
    void getStudentFailed() {
-      when(studentDao.getById(anyInt())).thenReturn(Optional.empty());
+      when(studentDao.getResponseById(anyInt())).thenReturn(Optional.empty());
 
       assertThrows(ResourceNotFoundException.class,
          () -> studentService.getStudent(1));
@@ -179,60 +447,89 @@ class StudentServiceImplTest {
    @Test
    void patchStudentSuccessful() {
       StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
-      Student student = new Student();
-      student.setId(1);
-      student.setName("kaka");
-      student.setEmail("kaka@gmail.com");
 
-      when(studentDao.emailExists(patch.email())).thenReturn(false);
-      when(studentDao.partialUpdate(anyInt(), eq(patch))).thenReturn(1);
-      when(studentDao.getById(anyInt())).thenReturn(Optional.of(student));
+      when(studentDao.partialUpdate(1, patch, null)).thenReturn(1);
+      when(studentDao.getResponseById(1)).thenReturn(Optional.of(new StudentResponseDto(1, "kaka", "kaka@gmail.com", 4)));
 
-      var response = studentService.patchStudent(1, patch);
+      var response = studentService.patchStudent(1, patch, null);
 
       assertAll(
          () -> assertEquals(1, response.id()),
          () -> assertEquals("kaka", response.name()),
-         () -> assertEquals("kaka@gmail.com", response.email())
+         () -> assertEquals("kaka@gmail.com", response.email()),
+         // without If-Match only the row knows its new version, which the ETag needs
+         () -> assertEquals(4, response.version())
       );
+      verify(studentDao, never()).emailExists(any());
+   }
+
+   @Test
+   void patchStudentNameOnlyRereadsTheRow() {
+      StudentPatchDto patch = new StudentPatchDto("kaka", null);
+
+      when(studentDao.partialUpdate(1, patch, null)).thenReturn(1);
+      when(studentDao.getResponseById(1)).thenReturn(Optional.of(new StudentResponseDto(1, "kaka", "maximo@gmail.com")));
+
+      var response = studentService.patchStudent(1, patch, null);
+
+      assertEquals("maximo@gmail.com", response.email());
    }
 
    @Test
    void patchStudentNotUpdated() {
       StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
 
-      when(studentDao.partialUpdate(anyInt(), eq(patch))).thenReturn(0);
+      when(studentDao.partialUpdate(anyInt(), eq(patch), isNull())).thenReturn(0);
 
       assertThrows(ResourceNotFoundException.class,
-         () -> studentService.patchStudent(1, patch));
+         () -> studentService.patchStudent(1, patch, null));
 
-      verify(studentDao, never()).getById(anyInt());
+      verify(studentDao, never()).getResponseById(anyInt());
    }
 
    @Test
    void patchStudentUpdatedButNotFoundAfter() {
-      StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
-      Student student = new Student();
-      student.setId(1);
-      student.setName("kaka");
-      student.setEmail("kaka@gmail.com");
+      StudentPatchDto patch = new StudentPatchDto(null, "kaka@gmail.com");
 
-      when(studentDao.partialUpdate(anyInt(), eq(patch))).thenReturn(1);
-      when(studentDao.getById(anyInt())).thenReturn(Optional.empty());
+      when(studentDao.partialUpdate(anyInt(), eq(patch), isNull())).thenReturn(1);
+      when(studentDao.getResponseById(anyInt())).thenReturn(Optional.empty());
 
       assertThrows(ResourceNotFoundException.class,
-         () -> studentService.patchStudent(1, patch));
+         () -> studentService.patchStudent(1, patch, null));
    }
 
    @Test
    void patchStudentUpdateButEmailExist() {
       StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
 
-      when(studentDao.emailExists(patch.email())).thenReturn(true);
+      when(studentDao.partialUpdate(1, patch, null))
+         .thenThrow(new EmailAlreadyExistsException("The email kaka@gmail.com is already registered"));
 
       assertThrows(EmailAlreadyExistsException.class,
-         () -> studentService.patchStudent(1, patch));
+         () -> studentService.patchStudent(1, patch, null));
+
+      verify(studentDao, never()).emailExists(any());
+   }
+
+   @Test
+   void patchStudentWithStaleVersion() {
+      StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
+
+      when(studentDao.partialUpdate(1, patch, 2)).thenReturn(0);
+      when(studentDao.getVersion(1)).thenReturn(Optional.of(3));
 
-      verify(studentDao, never()).partialUpdate(1, patch);
+      assertThrows(PreconditionFailedException.class,
+         () -> studentService.patchStudent(1, patch, 2));
+   }
+
+   @Test
+   void patchStudentWithVersionButMissingRow() {
+      StudentPatchDto patch = new StudentPatchDto("kaka", "kaka@gmail.com");
+
+      when(studentDao.partialUpdate(1, patch, 2)).thenReturn(0);
+      when(studentDao.getVersion(1)).thenReturn(Optional.empty());
+
+      assertThrows(ResourceNotFoundException.class,
+         () -> studentService.patchStudent(1, patch, 2));
    }
 }
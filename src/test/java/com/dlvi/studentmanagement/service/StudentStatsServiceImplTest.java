@@ -0,0 +1,112 @@
+package com.dlvi.studentmanagement.service;
+
+import com.dlvi.studentmanagement.dao.StudentDao;
+import com.dlvi.studentmanagement.dto.StudentStatsDto;
+import com.dlvi.studentmanagement.exception.StatisticsUnavailableException;
+import com.dlvi.studentmanagement.model.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class StudentStatsServiceImplTest {
+
+   private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+   private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+   private final StudentDao studentDao = mock(StudentDao.class);
+
+   @SuppressWarnings("unchecked")
+   private StudentStatsServiceImpl service(List<Student> students) {
+      doAnswer(invocation -> {
+         Consumer<Student> action = invocation.getArgument(0);
+         students.forEach(action);
+         return null;
+      }).when(studentDao).streamAll(any(Consumer.class));
+
+      StudentColumns columns = new StudentColumns(studentDao, true);
+      columns.build();
+      return new StudentStatsServiceImpl(columns, CLOCK);
+   }
+
+   private static Student student(int id, String email, LocalDate birthDate, String sex) {
+      return new Student(id, "Student " + id, email, birthDate, sex);
+   }
+
+   @Test
+   void civilDateMatchesLocalDate() {
+      for (long day = LocalDate.of(1800, 1, 1).toEpochDay(); day <= LocalDate.of(2200, 12, 31).toEpochDay(); day++) {
+         LocalDate date = LocalDate.ofEpochDay(day);
+         int expected = date.getYear() * 10_000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+         assertEquals(expected, StudentStatsServiceImpl.civil((int) day), date::toString);
+      }
+   }
+
+   @Test
+   void statsGroupCountAndRankEveryStudent() {
+      var service = service(List.of(
+         student(1, "a@gmail.com", LocalDate.of(2006, 10, 18), "Man"),
+         student(2, "b@gmail.com", LocalDate.of(2006, 10, 19), "Woman"),
+         student(3, "c@unal.edu.co", LocalDate.of(2000, 2, 29), "Woman"),
+         student(4, "d@gmail.com", LocalDate.of(1980, 5, 1), null),
+         student(5, "e@unal.edu.co", null, "Woman"),
+         student(6, "f@gmail.com", TODAY.plusDays(1), "Man")));
+
+      StudentStatsDto stats = service.stats(10, List.of(50.0, 100.0), 1);
+
+      assertAll(
+         () -> assertEquals(6, stats.students()),
+         () -> assertEquals(2, stats.unknownBirthDate()),
+         () -> assertEquals(Map.of("Woman", 3L, "Man", 2L, "unknown", 1L), stats.bySex()),
+         () -> assertEquals("Woman", stats.bySex().keySet().iterator().next()),
+         () -> assertEquals(Map.of(1980, 1L, 2000, 1L, 2006, 2L), stats.byBirthYear()),
+         () -> assertEquals(Map.of("gmail.com", 4L), stats.topEmailDomains()),
+         // 20 on their birthday, 19 the day before it, 26 for a leap day birth, 46
+         () -> assertEquals(List.of(
+            new StudentStatsDto.AgeBucket(10, 19, 1),
+            new StudentStatsDto.AgeBucket(20, 29, 2),
+            new StudentStatsDto.AgeBucket(30, 39, 0),
+            new StudentStatsDto.AgeBucket(40, 49, 1)), stats.ageHistogram()),
+         () -> assertEquals(Map.of("p50", 20, "p100", 46), stats.agePercentiles())
+      );
+   }
+
+   @Test
+   void parallelScanCountsLikeASequentialOne() {
+      Random random = new Random(42);
+      List<Student> students = new ArrayList<>();
+      for (int id = 1; id <= 300_000; id++)
+         students.add(student(id, "s" + id + "@domain" + random.nextInt(50) + ".com",
+            TODAY.minusDays(random.nextInt(80 * 365)), random.nextBoolean() ? "Man" : "Woman"));
+
+      StudentStatsDto stats = service(students).stats(1, List.of(90.0), 50);
+
+      long[] ages = new long[StudentStatsServiceImpl.MAX_AGE + 1];
+      students.forEach(student -> ages[Period.between(student.getBirthDate(), TODAY).getYears()]++);
+      assertAll(
+         () -> assertEquals(300_000, stats.students()),
+         () -> assertEquals(students.stream().filter(s -> s.getSex().equals("Man")).count(), stats.bySex().get("Man")),
+         () -> assertEquals(300_000, stats.topEmailDomains().values().stream().mapToLong(Long::longValue).sum()),
+         () -> stats.ageHistogram().forEach(bucket -> assertEquals(ages[bucket.fromAge()], bucket.students()))
+      );
+   }
+
+   @Test
+   void statsNeedABuiltSnapshot() {
+      var service = new StudentStatsServiceImpl(new StudentColumns(studentDao, false), CLOCK);
+
+      assertThrows(StatisticsUnavailableException.class, () -> service.stats(5, List.of(50.0), 20));
+   }
+}
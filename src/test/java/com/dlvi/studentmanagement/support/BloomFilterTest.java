@@ -0,0 +1,49 @@
+package com.dlvi.studentmanagement.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+   @Test
+   void addedValuesAreAlwaysFound() {
+      BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+      for (int i = 0; i < 10_000; i++)
+         filter.add("student" + i + "@gmail.com");
+
+      for (int i = 0; i < 10_000; i++)
+         assertTrue(filter.mightContain("student" + i + "@gmail.com"));
+   }
+
+   @Test
+   void falsePositiveRateStaysNearConfiguredRate() {
+      BloomFilter filter = new BloomFilter(10_000, 0.01);
+      for (int i = 0; i < 10_000; i++)
+         filter.add("student" + i + "@gmail.com");
+
+      int falsePositives = 0;
+      for (int i = 0; i < 100_000; i++)
+         if (filter.mightContain("other" + i + "@gmail.com"))
+            falsePositives++;
+
+      assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+      assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+   }
+
+   @Test
+   void sizesBitsFromExpectedInsertions() {
+      BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+      // about 9.6 bits and 7 hash functions per value at a 1% rate
+      assertEquals(9_585_088, filter.numBits());
+      assertEquals(7, filter.numHashes());
+   }
+
+   @Test
+   void rejectsInvalidConfiguration() {
+      assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+      assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+   }
+}
@@ -0,0 +1,47 @@
+package com.dlvi.studentmanagement.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedDataSourceTest {
+
+   private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+   private final BoundedDataSource dataSource = new BoundedDataSource(
+      new DriverManagerDataSource("jdbc:h2:mem:bounded;DB_CLOSE_DELAY=-1", "sa", ""),
+      2, Duration.ofMillis(50), registry);
+
+   @Test
+   void holdsAPermitUntilTheConnectionIsClosed() throws Exception {
+      Connection first = dataSource.getConnection();
+      Connection second = dataSource.getConnection();
+
+      assertEquals(0, registry.get("student.db.permit.available").gauge().value());
+      assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+      first.close();
+      first.close();
+      assertEquals(1, registry.get("student.db.permit.available").gauge().value());
+
+      try (Connection third = dataSource.getConnection()) {
+         assertTrue(third.isValid(1));
+      }
+      second.close();
+      assertEquals(2, registry.get("student.db.permit.available").gauge().value());
+   }
+
+   @Test
+   void recordsTheTimeSpentWaitingForAPermit() throws Exception {
+      try (Connection ignored = dataSource.getConnection()) {
+         assertEquals(1, registry.get("student.db.permit.wait").timer().count());
+      }
+   }
+}
@@ -0,0 +1,118 @@
+package com.dlvi.studentmanagement.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+   private final SingleFlight<Integer, String> flight = new SingleFlight<>();
+
+   // starts a call whose loader blocks until released, and waits until it is running
+   private CompletableFuture<String> blockedCall(int key, AtomicInteger loads, CountDownLatch release, String value) throws InterruptedException {
+      CountDownLatch loading = new CountDownLatch(1);
+      CompletableFuture<String> call = CompletableFuture.supplyAsync(() -> flight.run(key, () -> {
+         loads.incrementAndGet();
+         loading.countDown();
+         await(release);
+         return value;
+      }));
+      loading.await();
+      return call;
+   }
+
+   private CompletableFuture<String> follower(int key, AtomicInteger loads) {
+      CompletableFuture<String> call = CompletableFuture.supplyAsync(() -> flight.run(key, () -> {
+         loads.incrementAndGet();
+         return "own";
+      }));
+      while (flight.followers() == 0 && !call.isDone())
+         Thread.onSpinWait();
+      return call;
+   }
+
+   private static void await(CountDownLatch latch) {
+      try {
+         latch.await();
+      } catch (InterruptedException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   @Test
+   void concurrentCallsForTheSameKeyShareOneLoad() throws Exception {
+      AtomicInteger loads = new AtomicInteger();
+      CountDownLatch release = new CountDownLatch(1);
+
+      CompletableFuture<String> leader = blockedCall(1, loads, release, "shared");
+      CompletableFuture<String> follower = follower(1, loads);
+      release.countDown();
+
+      assertEquals("shared", leader.get());
+      assertEquals("shared", follower.get());
+      assertEquals(1, loads.get());
+      assertEquals(1, flight.leaders());
+      assertEquals(1, flight.followers());
+   }
+
+   @Test
+   void callsForDifferentKeysDoNotWaitForEachOther() throws Exception {
+      AtomicInteger loads = new AtomicInteger();
+      CountDownLatch release = new CountDownLatch(1);
+
+      CompletableFuture<String> blocked = blockedCall(1, loads, release, "one");
+
+      assertEquals("two", flight.run(2, () -> "two"));
+      release.countDown();
+      assertEquals("one", blocked.get());
+      assertEquals(0, flight.followers());
+   }
+
+   @Test
+   void nothingIsKeptOnceTheCallReturns() {
+      AtomicInteger loads = new AtomicInteger();
+
+      flight.run(1, () -> "first " + loads.incrementAndGet());
+
+      assertEquals("first 2", flight.run(1, () -> "first " + loads.incrementAndGet()));
+   }
+
+   @Test
+   void followersGetTheLeadersException() throws Exception {
+      CountDownLatch loading = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.run(1, () -> {
+         loading.countDown();
+         await(release);
+         throw new IllegalStateException("database down");
+      }));
+      loading.await();
+
+      CompletableFuture<String> follower = follower(1, new AtomicInteger());
+      release.countDown();
+
+      ExecutionException leaderError = assertThrows(ExecutionException.class, leader::get);
+      ExecutionException followerError = assertThrows(ExecutionException.class, follower::get);
+      assertEquals("database down", leaderError.getCause().getMessage());
+      assertEquals("database down", followerError.getCause().getMessage());
+   }
+
+   @Test
+   void forgottenCallIsNotJoinedByLaterCallers() throws Exception {
+      AtomicInteger loads = new AtomicInteger();
+      CountDownLatch release = new CountDownLatch(1);
+
+      CompletableFuture<String> beforeWrite = blockedCall(1, loads, release, "stale");
+      flight.forget(1);
+
+      assertEquals("fresh", flight.run(1, () -> "fresh"));
+      release.countDown();
+      assertEquals("stale", beforeWrite.get());
+      assertEquals(0, flight.followers());
+   }
+}